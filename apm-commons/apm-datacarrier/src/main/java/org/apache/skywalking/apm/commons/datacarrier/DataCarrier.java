@@ -19,8 +19,10 @@
 package org.apache.skywalking.apm.commons.datacarrier;
 
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferType;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumeDriver;
+import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumeMode;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPool;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IDriver;
@@ -48,10 +50,19 @@ public class DataCarrier<T> {
     }
 
     public DataCarrier(String name, String envPrefix, int channelSize, int bufferSize, BufferStrategy strategy) {
+        this(name, envPrefix, channelSize, bufferSize, strategy, BufferType.DEFAULT);
+    }
+
+    /**
+     * @param type {@link BufferType#RING} uses the lock-free multiple producers ring buffer as the channel, which fits
+     *             the case of many concurrent producers.
+     */
+    public DataCarrier(String name, String envPrefix, int channelSize, int bufferSize, BufferStrategy strategy,
+                       BufferType type) {
         this.name = name;
         bufferSize = EnvUtil.getInt(envPrefix + "_BUFFER_SIZE", bufferSize);
         channelSize = EnvUtil.getInt(envPrefix + "_CHANNEL_SIZE", channelSize);
-        channels = new Channels<>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), strategy);
+        channels = new Channels<>(channelSize, bufferSize, new SimpleRollingPartitioner<T>(), strategy, type);
     }
 
     public DataCarrier(int channelSize, int bufferSize, BufferStrategy strategy) {
@@ -92,10 +103,22 @@ public class DataCarrier<T> {
      * @param num           number of consumer threads
      */
     public DataCarrier consume(Class<? extends IConsumer<T>> consumerClass, int num, long consumeCycle) {
+        return this.consume(consumerClass, num, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    /**
+     * set consumeDriver to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
+     *
+     * @param consumerClass class of consumer
+     * @param num           number of consumer threads
+     * @param mode          how the consumer threads wait when there is nothing to consume
+     */
+    public DataCarrier consume(Class<? extends IConsumer<T>> consumerClass, int num, long consumeCycle,
+                               ConsumeMode mode) {
         if (driver != null) {
             driver.close(channels);
         }
-        driver = new ConsumeDriver<T>(this.name, this.channels, consumerClass, num, consumeCycle);
+        driver = new ConsumeDriver<T>(this.name, this.channels, consumerClass, num, consumeCycle, mode);
         driver.begin(channels);
         return this;
     }
@@ -118,10 +141,21 @@ public class DataCarrier<T> {
      * @param num      number of consumer threads
      */
     public DataCarrier consume(IConsumer<T> consumer, int num, long consumeCycle) {
+        return this.consume(consumer, num, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    /**
+     * set consumeDriver to this Carrier. consumer begin to run when {@link DataCarrier#produce} begin to work.
+     *
+     * @param consumer single instance of consumer, all consumer threads will all use this instance.
+     * @param num      number of consumer threads
+     * @param mode     how the consumer threads wait when there is nothing to consume
+     */
+    public DataCarrier consume(IConsumer<T> consumer, int num, long consumeCycle, ConsumeMode mode) {
         if (driver != null) {
             driver.close(channels);
         }
-        driver = new ConsumeDriver<T>(this.name, this.channels, consumer, num, consumeCycle);
+        driver = new ConsumeDriver<T>(this.name, this.channels, consumer, num, consumeCycle, mode);
         driver.begin(channels);
         return this;
     }
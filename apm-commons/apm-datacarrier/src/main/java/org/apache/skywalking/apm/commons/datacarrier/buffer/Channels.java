@@ -29,13 +29,21 @@ public class Channels<T> {
     private IDataPartitioner<T> dataPartitioner;
     private final BufferStrategy strategy;
     private final long size;
+    private volatile ChannelsListener listener;
 
     public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy) {
+        this(channelSize, bufferSize, partitioner, strategy, BufferType.DEFAULT);
+    }
+
+    public Channels(int channelSize, int bufferSize, IDataPartitioner<T> partitioner, BufferStrategy strategy,
+                    BufferType type) {
         this.dataPartitioner = partitioner;
         this.strategy = strategy;
         bufferChannels = new QueueBuffer[channelSize];
         for (int i = 0; i < channelSize; i++) {
-            if (BufferStrategy.BLOCKING.equals(strategy)) {
+            if (BufferType.RING.equals(type)) {
+                bufferChannels[i] = new RingBuffer<>(bufferSize, strategy);
+            } else if (BufferStrategy.BLOCKING.equals(strategy)) {
                 bufferChannels[i] = new ArrayBlockingQueueBuffer<>(bufferSize, strategy);
             } else {
                 bufferChannels[i] = new Buffer<>(bufferSize, strategy);
@@ -56,6 +64,10 @@ public class Channels<T> {
         }
         for (; retryCountDown > 0; retryCountDown--) {
             if (bufferChannels[index].save(data)) {
+                final ChannelsListener listener = this.listener;
+                if (listener != null) {
+                    listener.onSaved(index);
+                }
                 return true;
             }
         }
@@ -66,6 +78,14 @@ public class Channels<T> {
         this.dataPartitioner = dataPartitioner;
     }
 
+    /**
+     * Set the listener to be notified after every saved data, such as waking up the parked consumer. Null means no
+     * listener.
+     */
+    public void setListener(ChannelsListener listener) {
+        this.listener = listener;
+    }
+
     /**
      * override the strategy at runtime. Notice, this will override several channels one by one. So, when running
      * setStrategy, each channel may use different BufferStrategy
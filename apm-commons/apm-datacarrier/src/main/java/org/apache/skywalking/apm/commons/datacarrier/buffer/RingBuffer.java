@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.skywalking.apm.commons.datacarrier.common.PaddedAtomicLong;
+
+/**
+ * Bounded multiple producers and single consumer ring queue.
+ * <p>
+ * Every slot has a sequence number. A producer claims the slot through CAS on the tail cursor, only when the slot
+ * sequence shows it has been consumed in the previous round, then publishes the data by increasing the slot sequence.
+ * The consumer reads from the head cursor until it meets an unpublished slot. So, no slot could be overwritten before
+ * it is consumed, and the cost of {@link #obtain(List)} is proportional to the number of data, rather than the buffer
+ * size.
+ * <p>
+ * Only one consumer thread is allowed to {@link #obtain(List)} at the same time, which is guaranteed by the consumer
+ * drivers as one channel is always assigned to one consumer.
+ */
+public class RingBuffer<T> implements QueueBuffer<T> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int bufferSize;
+    private final PaddedAtomicLong tail;
+    private final PaddedAtomicLong head;
+    private BufferStrategy strategy;
+
+    RingBuffer(int bufferSize, BufferStrategy strategy) {
+        this.buffer = new Object[bufferSize];
+        this.sequences = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            sequences.set(i, i);
+        }
+        this.bufferSize = bufferSize;
+        this.tail = new PaddedAtomicLong(0);
+        this.head = new PaddedAtomicLong(0);
+        this.strategy = strategy;
+    }
+
+    @Override
+    public boolean save(T data) {
+        while (true) {
+            final long position = tail.get();
+            final int index = index(position);
+            final long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = data;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // The slot of the previous round hasn't been consumed, the buffer is full.
+                if (BufferStrategy.IF_POSSIBLE.equals(strategy)) {
+                    return false;
+                }
+                Thread.yield();
+            }
+            // diff > 0, the slot has been claimed by another producer, retry with the latest tail.
+        }
+    }
+
+    @Override
+    public void setStrategy(BufferStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void obtain(List<T> consumeList) {
+        long position = head.get();
+        while (true) {
+            final int index = index(position);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            consumeList.add((T) buffer[index]);
+            buffer[index] = null;
+            // Release the slot for the next round.
+            sequences.set(index, position + bufferSize);
+            position++;
+        }
+        head.lazySet(position);
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    private int index(long position) {
+        return (int) (position % bufferSize);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An atomic long padded by 7 longs on each side, to avoid false sharing with the neighbour cursors.
+ *
+ * Same as {@link AtomicRangeInteger}, the padding is based on the array, rather than the fields, as the JVM could
+ * reorder or eliminate the unused fields.
+ */
+public class PaddedAtomicLong {
+    private static final int VALUE_OFFSET = 7;
+
+    private final AtomicLongArray values;
+
+    public PaddedAtomicLong(long initialValue) {
+        this.values = new AtomicLongArray(15);
+        this.values.set(VALUE_OFFSET, initialValue);
+    }
+
+    public final long get() {
+        return values.get(VALUE_OFFSET);
+    }
+
+    public final void set(long value) {
+        values.set(VALUE_OFFSET, value);
+    }
+
+    /**
+     * Eventually set the value, without the store-load barrier. Only used by the single writer.
+     */
+    public final void lazySet(long value) {
+        values.lazySet(VALUE_OFFSET, value);
+    }
+
+    public final boolean compareAndSet(long expect, long update) {
+        return values.compareAndSet(VALUE_OFFSET, expect, update);
+    }
+}
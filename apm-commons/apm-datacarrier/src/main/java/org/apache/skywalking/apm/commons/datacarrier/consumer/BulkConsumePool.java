@@ -21,6 +21,10 @@ package org.apache.skywalking.apm.commons.datacarrier.consumer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.commons.datacarrier.EnvUtil;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
 
@@ -29,16 +33,75 @@ import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
  * MultipleChannelsConsumer}s.
  * <p>
  * In typical case, the number of {@link MultipleChannelsConsumer} should be less than the number of channels.
+ * <p>
+ * The pool works in two modes.
+ * <ul>
+ * <li>{@link ConsumeMode#FIXED}, every channels is allocated to the lowest payload consumer, and all consumers sleep
+ * a fixed consume cycle when there is nothing to consume.</li>
+ * <li>{@link ConsumeMode#PARKING}, all channels are shared by the active consumers, which park when there is nothing
+ * to consume, and are woken up by the producers. The number of active consumers grows and shrinks between the min and
+ * max size, according to how full the channels are when they are drained.</li>
+ * </ul>
  */
 public class BulkConsumePool implements ConsumerPool {
+    /**
+     * The period of adjusting the number of active consumers, in the {@link ConsumeMode#PARKING} mode. Unit is ms.
+     */
+    static final long ADJUST_PERIOD = 1000;
+    /**
+     * Activate one more consumer, when the drained data is more than this ratio of the channels' capacity in average.
+     */
+    static final double GROW_RATIO = 0.25;
+    /**
+     * Deactivate one consumer, when the drained data is less than this ratio of the channels' capacity in average.
+     */
+    static final double SHRINK_RATIO = 0.02;
+
+    private final String name;
+    private final ConsumeMode mode;
     private List<MultipleChannelsConsumer> allConsumers;
     private volatile boolean isStarted = false;
+    /**
+     * The shared targets and the number of active consumers, only used in the {@link ConsumeMode#PARKING} mode.
+     */
+    private final List<MultipleChannelsConsumer.Group> groups = new CopyOnWriteArrayList<>();
+    private final int minSize;
+    private volatile int activeSize;
+    private ScheduledExecutorService adjuster;
+    private long lastObtainedItems;
+    private long lastObtainedCapacity;
 
     public BulkConsumePool(String name, int size, long consumeCycle) {
         size = EnvUtil.getInt(name + "_THREAD", size);
+        this.name = name;
+        this.mode = ConsumeMode.FIXED;
+        this.minSize = size;
+        this.activeSize = size;
+        createConsumers(size, consumeCycle);
+    }
+
+    /**
+     * Create an elastic pool in the {@link ConsumeMode#PARKING} mode.
+     *
+     * @param minSize the number of consumers always active.
+     * @param maxSize the max number of active consumers.
+     */
+    public BulkConsumePool(String name, int minSize, int maxSize, long consumeCycle) {
+        maxSize = Math.max(1, EnvUtil.getInt(name + "_THREAD", maxSize));
+        this.name = name;
+        this.mode = ConsumeMode.PARKING;
+        this.minSize = Math.max(1, Math.min(minSize, maxSize));
+        this.activeSize = this.minSize;
+        createConsumers(maxSize, consumeCycle);
+        for (int i = this.minSize; i < maxSize; i++) {
+            allConsumers.get(i).setStandby(true);
+        }
+    }
+
+    private void createConsumers(int size, long consumeCycle) {
         allConsumers = new ArrayList<MultipleChannelsConsumer>(size);
         for (int i = 0; i < size; i++) {
-            MultipleChannelsConsumer multipleChannelsConsumer = new MultipleChannelsConsumer("DataCarrier." + name + ".BulkConsumePool." + i + ".Thread", consumeCycle);
+            MultipleChannelsConsumer multipleChannelsConsumer = new MultipleChannelsConsumer("DataCarrier." + name + ".BulkConsumePool." + i + ".Thread", consumeCycle, mode);
             multipleChannelsConsumer.setDaemon(true);
             allConsumers.add(multipleChannelsConsumer);
         }
@@ -46,6 +109,16 @@ public class BulkConsumePool implements ConsumerPool {
 
     @Override
     synchronized public void add(String name, Channels channels, IConsumer consumer) {
+        if (ConsumeMode.PARKING.equals(mode)) {
+            MultipleChannelsConsumer.Group group = new MultipleChannelsConsumer.Group(
+                channels, consumer, this::wakeUpConsumer);
+            groups.add(group);
+            for (MultipleChannelsConsumer multipleChannelsConsumer : allConsumers) {
+                multipleChannelsConsumer.addNewTarget(group);
+            }
+            channels.setListener(group);
+            return;
+        }
         MultipleChannelsConsumer multipleChannelsConsumer = getLowestPayload();
         multipleChannelsConsumer.addNewTarget(channels, consumer);
     }
@@ -66,6 +139,50 @@ public class BulkConsumePool implements ConsumerPool {
         return winner;
     }
 
+    /**
+     * Unpark one of the parked active consumers. Nothing to do if all active consumers are running, they will find
+     * the new data in their next pass.
+     */
+    private void wakeUpConsumer() {
+        final int active = activeSize;
+        for (int i = 0; i < active; i++) {
+            if (allConsumers.get(i).wakeUp()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Activate or deactivate one consumer, according to the average fill ratio of the drained channels since the last
+     * adjustment.
+     */
+    synchronized void adjust() {
+        long obtainedItems = 0;
+        long obtainedCapacity = 0;
+        for (MultipleChannelsConsumer.Group group : groups) {
+            obtainedItems += group.getObtainedItems();
+            obtainedCapacity += group.getObtainedCapacity();
+        }
+        final long items = obtainedItems - lastObtainedItems;
+        final long capacity = obtainedCapacity - lastObtainedCapacity;
+        lastObtainedItems = obtainedItems;
+        lastObtainedCapacity = obtainedCapacity;
+
+        final double fillRatio = capacity == 0 ? 0 : (double) items / capacity;
+        final int active = activeSize;
+        if (fillRatio >= GROW_RATIO && active < allConsumers.size()) {
+            activeSize = active + 1;
+            allConsumers.get(active).setStandby(false);
+        } else if (fillRatio < SHRINK_RATIO && active > minSize) {
+            activeSize = active - 1;
+            allConsumers.get(active - 1).setStandby(true);
+        }
+    }
+
+    int getActiveSize() {
+        return activeSize;
+    }
+
     /**
      *
      */
@@ -76,19 +193,30 @@ public class BulkConsumePool implements ConsumerPool {
 
     @Override
     public void close(Channels channels) {
+        if (adjuster != null) {
+            adjuster.shutdownNow();
+        }
         for (MultipleChannelsConsumer consumer : allConsumers) {
             consumer.shutdown();
         }
     }
 
     @Override
-    public void begin(Channels channels) {
+    synchronized public void begin(Channels channels) {
         if (isStarted) {
             return;
         }
         for (MultipleChannelsConsumer consumer : allConsumers) {
             consumer.start();
         }
+        if (ConsumeMode.PARKING.equals(mode) && allConsumers.size() > minSize) {
+            adjuster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "DataCarrier." + name + ".BulkConsumePool.Adjuster");
+                thread.setDaemon(true);
+                return thread;
+            });
+            adjuster.scheduleWithFixedDelay(this::adjust, ADJUST_PERIOD, ADJUST_PERIOD, TimeUnit.MILLISECONDS);
+        }
         isStarted = true;
     }
 
@@ -97,17 +225,35 @@ public class BulkConsumePool implements ConsumerPool {
      */
     public static class Creator implements Callable<ConsumerPool> {
         private String name;
+        private int minSize;
         private int size;
         private long consumeCycle;
+        private ConsumeMode mode;
 
         public Creator(String name, int poolSize, long consumeCycle) {
             this.name = name;
             this.size = poolSize;
             this.consumeCycle = consumeCycle;
+            this.mode = ConsumeMode.FIXED;
+        }
+
+        /**
+         * Create an elastic pool in the {@link ConsumeMode#PARKING} mode, see {@link BulkConsumePool#BulkConsumePool(String,
+         * int, int, long)}.
+         */
+        public Creator(String name, int minPoolSize, int maxPoolSize, long consumeCycle) {
+            this.name = name;
+            this.minSize = minPoolSize;
+            this.size = maxPoolSize;
+            this.consumeCycle = consumeCycle;
+            this.mode = ConsumeMode.PARKING;
         }
 
         @Override
         public ConsumerPool call() {
+            if (ConsumeMode.PARKING.equals(mode)) {
+                return new BulkConsumePool(name, minSize, size, consumeCycle);
+            }
             return new BulkConsumePool(name, size, consumeCycle);
         }
 
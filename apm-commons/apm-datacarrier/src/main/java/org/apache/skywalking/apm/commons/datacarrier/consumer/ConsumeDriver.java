@@ -30,29 +30,41 @@ public class ConsumeDriver<T> implements IDriver {
     private ConsumerThread[] consumerThreads;
     private Channels<T> channels;
     private ReentrantLock lock;
+    private ConsumeMode mode;
 
     public ConsumeDriver(String name, Channels<T> channels, Class<? extends IConsumer<T>> consumerClass, int num,
         long consumeCycle) {
-        this(channels, num);
+        this(name, channels, consumerClass, num, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    public ConsumeDriver(String name, Channels<T> channels, Class<? extends IConsumer<T>> consumerClass, int num,
+        long consumeCycle, ConsumeMode mode) {
+        this(channels, num, mode);
         for (int i = 0; i < num; i++) {
-            consumerThreads[i] = new ConsumerThread("DataCarrier." + name + ".Consumer." + i + ".Thread", getNewConsumerInstance(consumerClass), consumeCycle);
+            consumerThreads[i] = new ConsumerThread("DataCarrier." + name + ".Consumer." + i + ".Thread", getNewConsumerInstance(consumerClass), consumeCycle, mode);
             consumerThreads[i].setDaemon(true);
         }
     }
 
     public ConsumeDriver(String name, Channels<T> channels, IConsumer<T> prototype, int num, long consumeCycle) {
-        this(channels, num);
+        this(name, channels, prototype, num, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    public ConsumeDriver(String name, Channels<T> channels, IConsumer<T> prototype, int num, long consumeCycle,
+        ConsumeMode mode) {
+        this(channels, num, mode);
         prototype.init();
         for (int i = 0; i < num; i++) {
-            consumerThreads[i] = new ConsumerThread("DataCarrier." + name + ".Consumer." + i + ".Thread", prototype, consumeCycle);
+            consumerThreads[i] = new ConsumerThread("DataCarrier." + name + ".Consumer." + i + ".Thread", prototype, consumeCycle, mode);
             consumerThreads[i].setDaemon(true);
         }
 
     }
 
-    private ConsumeDriver(Channels<T> channels, int num) {
+    private ConsumeDriver(Channels<T> channels, int num, ConsumeMode mode) {
         running = false;
         this.channels = channels;
+        this.mode = mode;
         consumerThreads = new ConsumerThread[num];
         lock = new ReentrantLock();
     }
@@ -81,6 +93,11 @@ public class ConsumeDriver<T> implements IDriver {
         lock.lock();
         try {
             this.allocateBuffer2Thread();
+            if (ConsumeMode.PARKING.equals(mode)) {
+                // Wake up the consumer thread which the channel is allocated to.
+                this.channels.setListener(
+                    channelIndex -> consumerThreads[channelIndex % consumerThreads.length].signal());
+            }
             for (ConsumerThread consumerThread : consumerThreads) {
                 consumerThread.start();
             }
@@ -119,6 +136,9 @@ public class ConsumeDriver<T> implements IDriver {
         lock.lock();
         try {
             this.running = false;
+            if (ConsumeMode.PARKING.equals(mode)) {
+                this.channels.setListener(null);
+            }
             for (ConsumerThread consumerThread : consumerThreads) {
                 consumerThread.shutdown();
             }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ConsumeWaiter is the idle strategy of one consumer thread in the {@link ConsumeMode#PARKING} mode. The idle consumer
+ * spins for {@link #SPIN_TRIES} passes, then yields for {@link #YIELD_TRIES} passes, then parks. The park is always
+ * limited by the consume cycle, so the periodical {@link IConsumer#nothingToConsume()} keeps working.
+ */
+class ConsumeWaiter {
+    static final int SPIN_TRIES = 100;
+    static final int YIELD_TRIES = 10;
+
+    private final long maxParkNanos;
+    private volatile Thread parkedThread;
+    /**
+     * Only accessed by the consumer thread.
+     */
+    private int idleCount;
+
+    ConsumeWaiter(long consumeCycle) {
+        this.maxParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, consumeCycle));
+    }
+
+    /**
+     * Called by the consumer thread, when the latest pass consumed nothing.
+     *
+     * @param hasPending checked again after the consumer is visible as parked, to avoid missing the wake up from a
+     *                   producer which saved data right before.
+     */
+    void idle(BooleanSupplier hasPending) {
+        if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+            if (idleCount++ >= SPIN_TRIES) {
+                Thread.yield();
+            }
+            return;
+        }
+        park(hasPending);
+    }
+
+    /**
+     * Park the consumer thread at most one consume cycle, unless the wake up condition is already true.
+     */
+    void park(BooleanSupplier wakeUpCondition) {
+        parkedThread = Thread.currentThread();
+        try {
+            if (!wakeUpCondition.getAsBoolean()) {
+                LockSupport.parkNanos(this, maxParkNanos);
+            }
+        } finally {
+            parkedThread = null;
+        }
+    }
+
+    /**
+     * Called by the consumer thread, once it consumed data.
+     */
+    void reset() {
+        idleCount = 0;
+    }
+
+    /**
+     * @return true if the consumer is parked or going to park, and has been unparked.
+     */
+    boolean wakeUp() {
+        final Thread thread = parkedThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            return true;
+        }
+        return false;
+    }
+}
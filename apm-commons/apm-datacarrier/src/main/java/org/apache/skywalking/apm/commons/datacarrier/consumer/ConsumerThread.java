@@ -20,6 +20,7 @@ package org.apache.skywalking.apm.commons.datacarrier.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Buffer;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.QueueBuffer;
 
@@ -28,13 +29,29 @@ public class ConsumerThread<T> extends Thread {
     private IConsumer<T> consumer;
     private List<DataSource> dataSources;
     private long consumeCycle;
+    /**
+     * Set by the producers when new data is saved, only used in the {@link ConsumeMode#PARKING} mode.
+     */
+    private final AtomicBoolean pending;
+    private final ConsumeWaiter waiter;
 
     ConsumerThread(String threadName, IConsumer<T> consumer, long consumeCycle) {
+        this(threadName, consumer, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    ConsumerThread(String threadName, IConsumer<T> consumer, long consumeCycle, ConsumeMode mode) {
         super(threadName);
         this.consumer = consumer;
         running = false;
         dataSources = new ArrayList<DataSource>(1);
         this.consumeCycle = consumeCycle;
+        if (ConsumeMode.PARKING.equals(mode)) {
+            pending = new AtomicBoolean(false);
+            waiter = new ConsumeWaiter(consumeCycle);
+        } else {
+            pending = null;
+            waiter = null;
+        }
     }
 
     /**
@@ -49,13 +66,17 @@ public class ConsumerThread<T> extends Thread {
         running = true;
 
         final List<T> consumeList = new ArrayList<T>(1500);
-        while (running) {
-            if (!consume(consumeList)) {
-                try {
-                    Thread.sleep(consumeCycle);
-                } catch (InterruptedException e) {
+        if (waiter == null) {
+            while (running) {
+                if (!consume(consumeList)) {
+                    try {
+                        Thread.sleep(consumeCycle);
+                    } catch (InterruptedException e) {
+                    }
                 }
             }
+        } else {
+            runParking(consumeList);
         }
 
         // consumer thread is going to stop
@@ -65,6 +86,25 @@ public class ConsumerThread<T> extends Thread {
         consumer.onExit();
     }
 
+    /**
+     * Only poll the channels when the producers signalled new data, or the consume cycle passed since the latest poll.
+     */
+    private void runParking(List<T> consumeList) {
+        long lastConsumeTime = 0;
+        while (running) {
+            final boolean signalled = pending.get() && pending.getAndSet(false);
+            final long now = System.currentTimeMillis();
+            if (signalled || now - lastConsumeTime >= consumeCycle) {
+                lastConsumeTime = now;
+                if (consume(consumeList)) {
+                    waiter.reset();
+                    continue;
+                }
+            }
+            waiter.idle(pending::get);
+        }
+    }
+
     private boolean consume(List<T> consumeList) {
         for (DataSource dataSource : dataSources) {
             dataSource.obtain(consumeList);
@@ -84,8 +124,21 @@ public class ConsumerThread<T> extends Thread {
         return false;
     }
 
+    /**
+     * Called by the producers after the data is saved into one of the data sources, in the {@link ConsumeMode#PARKING}
+     * mode. Only the first signal after the consumer took the previous one tries to unpark the consumer.
+     */
+    void signal() {
+        if (!pending.get() && pending.compareAndSet(false, true)) {
+            waiter.wakeUp();
+        }
+    }
+
     void shutdown() {
         running = false;
+        if (waiter != null) {
+            waiter.wakeUp();
+        }
     }
 
     /**
@@ -20,12 +20,17 @@ package org.apache.skywalking.apm.commons.datacarrier.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.ChannelsListener;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.QueueBuffer;
 
 /**
  * MultipleChannelsConsumer represent a single consumer thread, but support multiple channels with their {@link
  * IConsumer}s
+ * <p>
+ * In the {@link ConsumeMode#PARKING} mode, the targets could be shared by several consumers of the same {@link
+ * BulkConsumePool}, one target is only consumed by one consumer at the same time.
  */
 public class MultipleChannelsConsumer extends Thread {
     private volatile boolean running;
@@ -33,11 +38,24 @@ public class MultipleChannelsConsumer extends Thread {
     @SuppressWarnings("NonAtomicVolatileUpdate")
     private volatile long size;
     private final long consumeCycle;
+    /**
+     * Only used in the {@link ConsumeMode#PARKING} mode.
+     */
+    private final ConsumeWaiter waiter;
+    /**
+     * A standby consumer doesn't consume, until it is activated by its pool.
+     */
+    private volatile boolean standby;
 
     public MultipleChannelsConsumer(String threadName, long consumeCycle) {
+        this(threadName, consumeCycle, ConsumeMode.FIXED);
+    }
+
+    public MultipleChannelsConsumer(String threadName, long consumeCycle, ConsumeMode mode) {
         super(threadName);
         this.consumeTargets = new ArrayList<Group>();
         this.consumeCycle = consumeCycle;
+        this.waiter = ConsumeMode.PARKING.equals(mode) ? new ConsumeWaiter(consumeCycle) : null;
     }
 
     @Override
@@ -45,28 +63,105 @@ public class MultipleChannelsConsumer extends Thread {
         running = true;
 
         final List consumeList = new ArrayList(2000);
-        while (running) {
-            boolean hasData = false;
+        if (waiter == null) {
+            while (running) {
+                boolean hasData = false;
+                for (Group target : consumeTargets) {
+                    boolean consume = consume(target, consumeList);
+                    hasData = hasData || consume;
+                }
+
+                if (!hasData) {
+                    try {
+                        Thread.sleep(consumeCycle);
+                    } catch (InterruptedException e) {
+                    }
+                }
+            }
+
+            // consumer thread is going to stop
+            // consume the last time
             for (Group target : consumeTargets) {
-                boolean consume = consume(target, consumeList);
-                hasData = hasData || consume;
+                consume(target, consumeList);
+
+                target.consumer.onExit();
             }
+        } else {
+            runParking(consumeList);
 
-            if (!hasData) {
+            // consumer thread is going to stop
+            // consume the last time, the shared target exits only once
+            for (Group target : consumeTargets) {
+                target.lock();
                 try {
-                    Thread.sleep(consumeCycle);
-                } catch (InterruptedException e) {
+                    if (!target.exited) {
+                        consume(target, consumeList);
+                        target.consumer.onExit();
+                        target.exited = true;
+                    }
+                } finally {
+                    target.unlock();
                 }
             }
         }
+    }
 
-        // consumer thread is going to stop
-        // consume the last time
-        for (Group target : consumeTargets) {
-            consume(target, consumeList);
+    /**
+     * Only poll the targets signalled by the producers, or all targets when the consume cycle passed since the latest
+     * full poll.
+     */
+    private void runParking(List consumeList) {
+        long lastConsumeTime = 0;
+        while (running) {
+            if (standby) {
+                waiter.park(() -> !standby || !running);
+                continue;
+            }
+
+            final long now = System.currentTimeMillis();
+            final boolean all = now - lastConsumeTime >= consumeCycle;
+            if (all) {
+                lastConsumeTime = now;
+            }
+            boolean hasData = false;
+            for (Group target : consumeTargets) {
+                if (all || target.pending.get()) {
+                    boolean consume = consumeExclusively(target, consumeList);
+                    hasData = hasData || consume;
+                }
+            }
+
+            if (hasData) {
+                waiter.reset();
+            } else {
+                waiter.idle(this::hasPending);
+            }
+        }
+    }
+
+    private boolean consumeExclusively(Group target, List consumeList) {
+        if (!target.tryLock()) {
+            // Being consumed by another consumer.
+            return false;
+        }
+        try {
+            target.pending.set(false);
+            return consume(target, consumeList);
+        } finally {
+            target.unlock();
+        }
+    }
 
-            target.consumer.onExit();
+    /**
+     * @return true if any target has been signalled and isn't being consumed by another consumer.
+     */
+    private boolean hasPending() {
+        for (Group target : consumeTargets) {
+            if (target.pending.get() && !target.consuming.get()) {
+                return true;
+            }
         }
+        return false;
     }
 
     private boolean consume(Group target, List consumeList) {
@@ -76,6 +171,7 @@ public class MultipleChannelsConsumer extends Thread {
         }
 
         if (!consumeList.isEmpty()) {
+            target.onObtained(consumeList.size());
             try {
                 target.consumer.consume(consumeList);
             } catch (Throwable t) {
@@ -93,7 +189,13 @@ public class MultipleChannelsConsumer extends Thread {
      * Add a new target channels.
      */
     public void addNewTarget(Channels channels, IConsumer consumer) {
-        Group group = new Group(channels, consumer);
+        addNewTarget(new Group(channels, consumer, null));
+    }
+
+    /**
+     * Add a new target, which could be shared with other consumers in the {@link ConsumeMode#PARKING} mode.
+     */
+    void addNewTarget(Group group) {
         // Recreate the new list to avoid change list while the list is used in consuming.
         ArrayList<Group> newList = new ArrayList<Group>();
         for (Group target : consumeTargets) {
@@ -101,24 +203,103 @@ public class MultipleChannelsConsumer extends Thread {
         }
         newList.add(group);
         consumeTargets = newList;
-        size += channels.size();
+        size += group.channels.size();
     }
 
     public long size() {
         return size;
     }
 
+    void setStandby(boolean standby) {
+        this.standby = standby;
+        if (!standby && waiter != null) {
+            waiter.wakeUp();
+        }
+    }
+
+    boolean isStandby() {
+        return standby;
+    }
+
+    /**
+     * @return true if the consumer is parked, and has been unparked.
+     */
+    boolean wakeUp() {
+        return waiter != null && waiter.wakeUp();
+    }
+
     void shutdown() {
         running = false;
+        if (waiter != null) {
+            waiter.wakeUp();
+        }
     }
 
-    private static class Group {
+    static class Group implements ChannelsListener {
         private Channels channels;
         private IConsumer consumer;
+        /**
+         * Set by the producers when new data is saved, only used in the {@link ConsumeMode#PARKING} mode.
+         */
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+        /**
+         * The lock makes sure only one consumer consumes this group at the same time.
+         */
+        private final AtomicBoolean consuming = new AtomicBoolean(false);
+        private final Runnable onPending;
+        private volatile boolean exited;
+        /**
+         * Statistics of the non-empty obtains, only written by the consumer holding this group.
+         */
+        @SuppressWarnings("NonAtomicVolatileUpdate")
+        private volatile long obtainedItems;
+        @SuppressWarnings("NonAtomicVolatileUpdate")
+        private volatile long obtainedTimes;
 
-        public Group(Channels channels, IConsumer consumer) {
+        /**
+         * @param onPending called by the producer once the group goes from non-pending to pending.
+         */
+        Group(Channels channels, IConsumer consumer, Runnable onPending) {
             this.channels = channels;
             this.consumer = consumer;
+            this.onPending = onPending;
+        }
+
+        @Override
+        public void onSaved(int channelIndex) {
+            if (!pending.get() && pending.compareAndSet(false, true) && onPending != null) {
+                onPending.run();
+            }
+        }
+
+        private boolean tryLock() {
+            return consuming.compareAndSet(false, true);
+        }
+
+        private void lock() {
+            while (!tryLock()) {
+                Thread.yield();
+            }
+        }
+
+        private void unlock() {
+            consuming.set(false);
+        }
+
+        void onObtained(int count) {
+            obtainedItems += count;
+            obtainedTimes++;
+        }
+
+        long getObtainedItems() {
+            return obtainedItems;
+        }
+
+        /**
+         * @return the sum of the capacity of the channels, in all non-empty obtains.
+         */
+        long getObtainedCapacity() {
+            return obtainedTimes * channels.size();
         }
     }
 }
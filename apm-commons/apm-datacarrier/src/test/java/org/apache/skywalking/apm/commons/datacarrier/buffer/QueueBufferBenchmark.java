@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the producer throughput of the {@link QueueBuffer} implementations, with one consumer thread keeps draining
+ * the buffer, as what the consumer driver does. Run it with different producer threads through {@link #main(String[])}.
+ *
+ * It is not a part of the {@link org.apache.skywalking.apm.commons.datacarrier.LinkedArrayBenchmark}, which measures
+ * the consumer lists in one thread without any state, while this one needs a consumer thread per iteration and the
+ * package-private buffer constructors.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class QueueBufferBenchmark {
+    private static final SampleData DATA = new SampleData();
+
+    @Param({
+        "Buffer",
+        "ArrayBlockingQueueBuffer",
+        "RingBuffer"
+    })
+    private String bufferType;
+
+    @Param({"BLOCKING"})
+    private BufferStrategy strategy;
+
+    private QueueBuffer<SampleData> buffer;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        switch (bufferType) {
+            case "Buffer":
+                buffer = new Buffer<>(10000, strategy);
+                break;
+            case "ArrayBlockingQueueBuffer":
+                buffer = new ArrayBlockingQueueBuffer<>(10000, strategy);
+                break;
+            default:
+                buffer = new RingBuffer<>(10000, strategy);
+        }
+        running = true;
+        consumer = new Thread(() -> {
+            List<SampleData> consumeList = new ArrayList<>(10000);
+            while (running) {
+                buffer.obtain(consumeList);
+                consumeList.clear();
+            }
+        }, "QueueBufferBenchmark-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    @Benchmark
+    public boolean save() {
+        return buffer.save(DATA);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {
+            1,
+            4,
+            8,
+            16,
+            32
+        }) {
+            Options opt = new OptionsBuilder().include(QueueBufferBenchmark.class.getName())
+                                              .addProfiler(GCProfiler.class)
+                                              .jvmArgsAppend("-Xmx512m", "-Xms512m")
+                                              .threads(threads)
+                                              .warmupIterations(3)
+                                              .measurementIterations(5)
+                                              .forks(1)
+                                              .build();
+            new Runner(opt).run();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.buffer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferTest {
+
+    @Test
+    public void testSaveAndObtain() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4, BufferStrategy.IF_POSSIBLE);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.save(i));
+        }
+        // Full, the oldest data must not be overwritten.
+        Assert.assertFalse(buffer.save(4));
+
+        List<Integer> consumeList = new ArrayList<>();
+        buffer.obtain(consumeList);
+        Assert.assertEquals(4, consumeList.size());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(i, (int) consumeList.get(i));
+        }
+
+        // The next round reuses the released slots.
+        consumeList.clear();
+        Assert.assertTrue(buffer.save(5));
+        Assert.assertTrue(buffer.save(6));
+        buffer.obtain(consumeList);
+        Assert.assertEquals(2, consumeList.size());
+        Assert.assertEquals(5, (int) consumeList.get(0));
+        Assert.assertEquals(6, (int) consumeList.get(1));
+
+        consumeList.clear();
+        buffer.obtain(consumeList);
+        Assert.assertTrue(consumeList.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final int producers = 8;
+        final int countPerProducer = 10000;
+        final RingBuffer<Integer> buffer = new RingBuffer<>(128, BufferStrategy.BLOCKING);
+        final CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int base = p * countPerProducer;
+            new Thread(() -> {
+                for (int i = 0; i < countPerProducer; i++) {
+                    buffer.save(base + i);
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        Set<Integer> received = new HashSet<>();
+        List<Integer> consumeList = new ArrayList<>();
+        while (received.size() < producers * countPerProducer) {
+            buffer.obtain(consumeList);
+            for (Integer data : consumeList) {
+                Assert.assertTrue("duplicated data " + data, received.add(data));
+            }
+            consumeList.clear();
+        }
+        latch.await();
+
+        buffer.obtain(consumeList);
+        Assert.assertTrue(consumeList.isEmpty());
+    }
+
+    @Test
+    public void testChannelsWithRingBuffer() {
+        Channels<Integer> channels = new Channels<>(
+            2, 10, new SimpleRollingPartitioner<>(), BufferStrategy.IF_POSSIBLE, BufferType.RING);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(channels.save(i));
+        }
+        Assert.assertFalse(channels.save(20));
+        Assert.assertTrue(channels.getBuffer(0) instanceof RingBuffer);
+    }
+}
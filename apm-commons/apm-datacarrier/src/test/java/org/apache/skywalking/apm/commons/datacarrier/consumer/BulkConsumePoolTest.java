@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.commons.datacarrier.consumer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
+import org.apache.skywalking.apm.commons.datacarrier.SampleData;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
+import org.apache.skywalking.apm.commons.datacarrier.buffer.Channels;
+import org.apache.skywalking.apm.commons.datacarrier.partition.SimpleRollingPartitioner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.api.support.membermodification.MemberModifier;
+
+public class BulkConsumePoolTest {
+
+    @Test
+    public void testParkingConsumersWokenUpByProducer() throws InterruptedException {
+        // The consume cycle is much longer than the test, the data could only be consumed through the wake up.
+        BulkConsumePool pool = new BulkConsumePool("parking-test-pool", 1, 2, 60_000);
+        DataCarrier<SampleData> carrier = new DataCarrier<>(2, 100);
+        CountingConsumer consumer = new CountingConsumer();
+        carrier.consume(pool, consumer);
+
+        // Make sure the consumer has been parked.
+        Thread.sleep(200);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(carrier.produce(new SampleData().setName("data" + i)));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (consumer.count.get() < 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(100, consumer.count.get());
+
+        pool.close(null);
+    }
+
+    @Test
+    public void testAdjustActiveConsumers() throws IllegalAccessException {
+        BulkConsumePool pool = new BulkConsumePool("elastic-test-pool", 1, 3, 20);
+        Channels<SampleData> channels = new Channels<>(
+            1, 100, new SimpleRollingPartitioner<>(), BufferStrategy.IF_POSSIBLE);
+        pool.add("elastic-test", channels, new CountingConsumer());
+        MultipleChannelsConsumer.Group group = ((List<MultipleChannelsConsumer.Group>) MemberModifier
+            .field(BulkConsumePool.class, "groups")
+            .get(pool)).get(0);
+        Assert.assertEquals(1, pool.getActiveSize());
+
+        // Drained nearly full channels, grows one by one.
+        group.onObtained(80);
+        pool.adjust();
+        Assert.assertEquals(2, pool.getActiveSize());
+        group.onObtained(90);
+        pool.adjust();
+        Assert.assertEquals(3, pool.getActiveSize());
+        group.onObtained(100);
+        pool.adjust();
+        Assert.assertEquals(3, pool.getActiveSize());
+
+        // Nothing drained, shrinks one by one, but keeps the min size.
+        pool.adjust();
+        Assert.assertEquals(2, pool.getActiveSize());
+        group.onObtained(1);
+        pool.adjust();
+        Assert.assertEquals(1, pool.getActiveSize());
+        pool.adjust();
+        Assert.assertEquals(1, pool.getActiveSize());
+    }
+
+    private static class CountingConsumer implements IConsumer<SampleData> {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void consume(List<SampleData> data) {
+            count.addAndGet(data.size());
+        }
+
+        @Override
+        public void onError(List<SampleData> data, Throwable t) {
+        }
+
+        @Override
+        public void onExit() {
+        }
+    }
+}
@@ -55,4 +55,26 @@ public class ConsumeDriverTest {
         Assert.assertFalse((Boolean) MemberModifier.field(ConsumerThread.class, "running").get(threads[0]));
         Assert.assertFalse((Boolean) MemberModifier.field(ConsumerThread.class, "running").get(threads[1]));
     }
+
+    @Test
+    public void testParkingConsumeDriver() throws InterruptedException {
+        ConsumerTest.BUFFER.clear();
+        Channels<SampleData> channels = new Channels<SampleData>(2, 100, new SimpleRollingPartitioner<SampleData>(), BufferStrategy.BLOCKING);
+        // The consume cycle is much longer than the test, the data could only be consumed through the wake up.
+        ConsumeDriver<SampleData> pool = new ConsumeDriver<SampleData>("default", channels, new SampleConsumer(), 2, 60_000, ConsumeMode.PARKING);
+        pool.begin(channels);
+
+        Thread.sleep(200);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(channels.save(new SampleData().setName("data" + i)));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ConsumerTest.BUFFER.size() < 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(100, ConsumerTest.BUFFER.size());
+
+        pool.close(channels);
+        ConsumerTest.BUFFER.clear();
+    }
 }
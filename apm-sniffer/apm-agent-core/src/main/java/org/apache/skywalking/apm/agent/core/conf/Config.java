@@ -77,6 +77,12 @@ public class Config {
          */
         public static int SPAN_LIMIT_PER_SEGMENT = 300;
 
+        /**
+         * Keep the tags and logs of spans in flat arrays, and write them into the segment message directly. It saves the
+         * collections and the pair objects allocated per tag and log field.
+         */
+        public static boolean COMPACT_SPAN_STORAGE = false;
+
         /**
          * If true, SkyWalking agent will save all instrumented classes files in `/debugging` folder. SkyWalking team
          * may ask for these files in order to resolve compatible problem.
@@ -90,12 +96,30 @@ public class Config {
         public static boolean IS_CACHE_ENHANCED_CLASS = false;
 
         /**
-         * The instrumented classes cache mode: MEMORY or FILE MEMORY: cache class bytes to memory, if instrumented
-         * classes is too many or too large, it may take up more memory FILE: cache class bytes in `/class-cache`
-         * folder, automatically clean up cached class files when the application exits
+         * The instrumented classes cache mode: MEMORY, FILE or PERSISTENT MEMORY: cache class bytes to memory, if
+         * instrumented classes is too many or too large, it may take up more memory FILE: cache class bytes in
+         * `/class-cache` folder, automatically clean up cached class files when the application exits PERSISTENT: cache
+         * class bytes to memory, and keep the classes left unmodified in {@link #CLASS_CACHE_PERSISTENT_PATH} across
+         * the restarts
          */
         public static ClassCacheMode CLASS_CACHE_MODE = ClassCacheMode.MEMORY;
 
+        /**
+         * The folder of the PERSISTENT class cache, could be shared by the JVMs of the same agent package and plugins.
+         * Empty means `/class-cache/persistent` folder in the agent package.
+         *
+         * @since 8.7.0
+         */
+        public static String CLASS_CACHE_PERSISTENT_PATH = "";
+
+        /**
+         * The max number of the unmodified classes kept in the PERSISTENT class cache, the least recently used ones
+         * are evicted when the application exits.
+         *
+         * @since 8.7.0
+         */
+        public static int CLASS_CACHE_PERSISTENT_MAX_ENTRIES = 100000;
+
         /**
          * The identifier of the instance
          */
@@ -165,6 +189,11 @@ public class Config {
          * How long grpc client will timeout in sending data to upstream.
          */
         public static int GRPC_UPSTREAM_TIMEOUT = 30;
+        /**
+         * The number of long-lived concurrent gRPC streams used to report the trace segments. The streams are kept
+         * open across batches and flow-controlled by gRPC. 0 means a new stream is created for every batch.
+         */
+        public static int TRACE_SEGMENT_REPORT_STREAMS = 0;
         /**
          * Get profile task list interval
          */
@@ -205,6 +234,12 @@ public class Config {
          * Snapshot transport to backend buffer size
          */
         public static int SNAPSHOT_TRANSPORT_BUFFER_SIZE = 500;
+
+        /**
+         * Dump the stacks of all profiling threads of a task in one {@link java.lang.management.ThreadMXBean#getThreadInfo(long[],
+         * int)} call every period, instead of one {@link Thread#getStackTrace()} call per thread.
+         */
+        public static boolean BATCH_DUMP = false;
     }
 
     public static class Meter {
@@ -94,6 +94,12 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     protected List<TraceSegmentRef> refs;
 
+    /**
+     * The tags and logs in flat arrays, only exists when {@link Config.Agent#COMPACT_SPAN_STORAGE} is true. {@link
+     * #tags} and {@link #logs} keep null in this mode.
+     */
+    protected CompactSpanData compactData;
+
     /**
      * Tracing Mode. If true means represents all spans generated in this context should skip analysis.
      */
@@ -104,6 +110,9 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
         this.spanId = spanId;
         this.parentSpanId = parentSpanId;
         this.owner = owner;
+        if (Config.Agent.COMPACT_SPAN_STORAGE) {
+            this.compactData = new CompactSpanData();
+        }
     }
 
     /**
@@ -120,6 +129,10 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
 
     @Override
     public AbstractTracingSpan tag(AbstractTag<?> tag, String value) {
+        if (compactData != null) {
+            compactData.tag(tag, value);
+            return this;
+        }
         if (tags == null) {
             tags = new ArrayList<>(8);
         }
@@ -163,12 +176,20 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan log(Throwable t) {
-        if (logs == null) {
-            logs = new LinkedList<>();
-        }
         if (!errorOccurred && ServiceManager.INSTANCE.findService(StatusCheckService.class).isError(t)) {
             errorOccurred();
         }
+        if (compactData != null) {
+            compactData.log(System.currentTimeMillis());
+            compactData.logField("event", "error");
+            compactData.logField("error.kind", t.getClass().getName());
+            compactData.logField("message", t.getMessage());
+            compactData.logField("stack", ThrowableTransformer.INSTANCE.convert2String(t, 4000));
+            return this;
+        }
+        if (logs == null) {
+            logs = new LinkedList<>();
+        }
         logs.add(new LogDataEntity.Builder().add(new KeyValuePair("event", "error"))
                                             .add(new KeyValuePair("error.kind", t.getClass().getName()))
                                             .add(new KeyValuePair("message", t.getMessage()))
@@ -187,6 +208,13 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
      */
     @Override
     public AbstractTracingSpan log(long timestampMicroseconds, Map<String, ?> fields) {
+        if (compactData != null) {
+            compactData.log(timestampMicroseconds);
+            for (Map.Entry<String, ?> entry : fields.entrySet()) {
+                compactData.logField(entry.getKey(), entry.getValue().toString());
+            }
+            return this;
+        }
         if (logs == null) {
             logs = new LinkedList<>();
         }
@@ -278,6 +306,9 @@ public abstract class AbstractTracingSpan implements AbstractSpan {
             spanBuilder.setComponentId(componentId);
         }
         spanBuilder.setIsError(errorOccurred);
+        if (compactData != null) {
+            compactData.transform(spanBuilder);
+        }
         if (this.tags != null) {
             for (TagValuePair tag : this.tags) {
                 spanBuilder.addTags(tag.transform());
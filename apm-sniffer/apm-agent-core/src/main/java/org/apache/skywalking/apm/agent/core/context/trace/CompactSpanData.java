@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.trace;
+
+import java.util.Arrays;
+import org.apache.skywalking.apm.agent.core.context.tag.AbstractTag;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.language.agent.v3.Log;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+
+/**
+ * The <code>CompactSpanData</code> keeps the tags and logs of one span in flat arrays, rather than the lists of {@link
+ * org.apache.skywalking.apm.agent.core.context.util.TagValuePair}s and {@link LogDataEntity}s, and writes them into the
+ * {@link SpanObject} builder directly. It is used when {@link org.apache.skywalking.apm.agent.core.conf.Config.Agent#COMPACT_SPAN_STORAGE}
+ * is true.
+ * <p>
+ * The arrays belong to the span, rather than being pooled per thread, because the segment is transformed by the
+ * reporter thread after the {@link org.apache.skywalking.apm.agent.core.context.TracingContext} finished.
+ */
+class CompactSpanData {
+    private static final int INITIAL_TAG_CAPACITY = 4;
+    private static final int INITIAL_LOG_CAPACITY = 1;
+    private static final int INITIAL_LOG_FIELD_CAPACITY = 8;
+
+    private AbstractTag<?>[] tagKeys;
+    private String[] tagValues;
+    private int tagSize;
+
+    private long[] logTimes;
+    /**
+     * The end index(exclusive) of the fields of every log in {@link #logFields}.
+     */
+    private int[] logFieldEnds;
+    /**
+     * The fields of all logs, in the key, value, key, value order.
+     */
+    private String[] logFields;
+    private int logSize;
+    private int logFieldSize;
+
+    void tag(AbstractTag<?> tag, String value) {
+        if (tag.isCanOverwrite()) {
+            for (int i = 0; i < tagSize; i++) {
+                if (tagKeys[i].isCanOverwrite() && tagKeys[i].getId() == tag.getId()) {
+                    tagValues[i] = value;
+                    return;
+                }
+            }
+        }
+
+        if (tagKeys == null) {
+            tagKeys = new AbstractTag<?>[INITIAL_TAG_CAPACITY];
+            tagValues = new String[INITIAL_TAG_CAPACITY];
+        } else if (tagSize == tagKeys.length) {
+            tagKeys = Arrays.copyOf(tagKeys, tagSize << 1);
+            tagValues = Arrays.copyOf(tagValues, tagSize << 1);
+        }
+        tagKeys[tagSize] = tag;
+        tagValues[tagSize] = value;
+        tagSize++;
+    }
+
+    /**
+     * Start a new log, the following {@link #logField(String, String)}s belong to it.
+     */
+    void log(long timestamp) {
+        if (logTimes == null) {
+            logTimes = new long[INITIAL_LOG_CAPACITY];
+            logFieldEnds = new int[INITIAL_LOG_CAPACITY];
+        } else if (logSize == logTimes.length) {
+            logTimes = Arrays.copyOf(logTimes, logSize << 1);
+            logFieldEnds = Arrays.copyOf(logFieldEnds, logSize << 1);
+        }
+        logTimes[logSize] = timestamp;
+        logFieldEnds[logSize] = logFieldSize;
+        logSize++;
+    }
+
+    void logField(String key, String value) {
+        if (logFields == null) {
+            logFields = new String[INITIAL_LOG_FIELD_CAPACITY];
+        } else if (logFieldSize + 2 > logFields.length) {
+            logFields = Arrays.copyOf(logFields, logFields.length << 1);
+        }
+        logFields[logFieldSize++] = key;
+        logFields[logFieldSize++] = value;
+        logFieldEnds[logSize - 1] = logFieldSize;
+    }
+
+    void clear() {
+        if (tagKeys != null) {
+            Arrays.fill(tagKeys, 0, tagSize, null);
+            Arrays.fill(tagValues, 0, tagSize, null);
+        }
+        if (logFields != null) {
+            Arrays.fill(logFields, 0, logFieldSize, null);
+        }
+        tagSize = 0;
+        logSize = 0;
+        logFieldSize = 0;
+    }
+
+    void transform(SpanObject.Builder spanBuilder) {
+        for (int i = 0; i < tagSize; i++) {
+            addKeyValue(spanBuilder.addTagsBuilder(), tagKeys[i].key(), tagValues[i]);
+        }
+        int fieldIndex = 0;
+        for (int i = 0; i < logSize; i++) {
+            Log.Builder logBuilder = spanBuilder.addLogsBuilder();
+            for (; fieldIndex < logFieldEnds[i]; fieldIndex += 2) {
+                addKeyValue(logBuilder.addDataBuilder(), logFields[fieldIndex], logFields[fieldIndex + 1]);
+            }
+            logBuilder.setTime(logTimes[i]);
+        }
+    }
+
+    private static void addKeyValue(KeyStringValuePair.Builder builder, String key, String value) {
+        builder.setKey(key);
+        if (value != null) {
+            builder.setValue(value);
+        }
+    }
+}
@@ -109,5 +109,8 @@ public class EntrySpan extends StackBasedTracingSpan {
         this.layer = null;
         this.logs = null;
         this.tags = null;
+        if (this.compactData != null) {
+            this.compactData.clear();
+        }
     }
 }
@@ -18,6 +18,7 @@
 
 package org.apache.skywalking.apm.agent.core.context.trace;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import org.apache.skywalking.apm.agent.core.conf.Config;
@@ -70,7 +71,7 @@ public class TraceSegment {
      */
     public TraceSegment() {
         this.traceSegmentId = GlobalIdGenerator.generate();
-        this.spans = new LinkedList<>();
+        this.spans = Config.Agent.COMPACT_SPAN_STORAGE ? new ArrayList<>() : new LinkedList<>();
         this.relatedGlobalTraceId = new NewDistributedTraceId();
         this.createTime = System.currentTimeMillis();
     }
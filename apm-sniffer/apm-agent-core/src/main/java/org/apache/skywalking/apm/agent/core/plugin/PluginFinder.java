@@ -19,22 +19,21 @@
 package org.apache.skywalking.apm.agent.core.plugin;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import net.bytebuddy.description.NamedElement;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
 import org.apache.skywalking.apm.agent.core.plugin.bytebuddy.AbstractJunction;
 import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatchDescriber;
 import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatchIndex;
 import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
 import org.apache.skywalking.apm.agent.core.plugin.match.ProtectiveShieldMatcher;
 
-import static net.bytebuddy.matcher.ElementMatchers.isInterface;
-import static net.bytebuddy.matcher.ElementMatchers.not;
-
 /**
  * The <code>PluginFinder</code> represents a finder , which assist to find the one from the given {@link
  * AbstractClassEnhancePluginDefine} list.
@@ -43,6 +42,10 @@ public class PluginFinder {
     private final Map<String, LinkedList<AbstractClassEnhancePluginDefine>> nameMatchDefine = new HashMap<String, LinkedList<AbstractClassEnhancePluginDefine>>();
     private final List<AbstractClassEnhancePluginDefine> signatureMatchDefine = new ArrayList<AbstractClassEnhancePluginDefine>();
     private final List<AbstractClassEnhancePluginDefine> bootstrapClassMatchDefine = new ArrayList<AbstractClassEnhancePluginDefine>();
+    /**
+     * The index of the {@link IndirectMatch}es of {@link #signatureMatchDefine}, in the same order.
+     */
+    private final IndirectMatchIndex signatureMatchIndex;
 
     public PluginFinder(List<AbstractClassEnhancePluginDefine> plugins) {
         for (AbstractClassEnhancePluginDefine plugin : plugins) {
@@ -68,6 +71,12 @@ public class PluginFinder {
                 bootstrapClassMatchDefine.add(plugin);
             }
         }
+
+        List<IndirectMatch> signatureMatches = new ArrayList<IndirectMatch>(signatureMatchDefine.size());
+        for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchDefine) {
+            signatureMatches.add((IndirectMatch) pluginDefine.enhanceClass());
+        }
+        signatureMatchIndex = new IndirectMatchIndex(signatureMatches);
     }
 
     public List<AbstractClassEnhancePluginDefine> find(TypeDescription typeDescription) {
@@ -77,10 +86,11 @@ public class PluginFinder {
             matchedPlugins.addAll(nameMatchDefine.get(typeName));
         }
 
-        for (AbstractClassEnhancePluginDefine pluginDefine : signatureMatchDefine) {
-            IndirectMatch match = (IndirectMatch) pluginDefine.enhanceClass();
-            if (match.isMatch(typeDescription)) {
-                matchedPlugins.add(pluginDefine);
+        // test the candidates only, in the order of the plugin defines
+        BitSet candidates = signatureMatchIndex.candidates(typeDescription);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (signatureMatchIndex.get(i).isMatch(typeDescription)) {
+                matchedPlugins.add(signatureMatchDefine.get(i));
             }
         }
 
@@ -88,23 +98,27 @@ public class PluginFinder {
     }
 
     public ElementMatcher<? super TypeDescription> buildMatch() {
-        ElementMatcher.Junction judge = new AbstractJunction<NamedElement>() {
+        ElementMatcher.Junction judge = new AbstractJunction<TypeDescription>() {
             @Override
-            public boolean matches(NamedElement target) {
-                return nameMatchDefine.containsKey(target.getActualName());
+            public boolean matches(TypeDescription target) {
+                if (nameMatchDefine.containsKey(target.getActualName()) && !target.isInterface()) {
+                    return true;
+                }
+                return signatureMatchIndex.matches(target);
             }
         };
-        judge = judge.and(not(isInterface()));
-        for (AbstractClassEnhancePluginDefine define : signatureMatchDefine) {
-            ClassMatch match = define.enhanceClass();
-            if (match instanceof IndirectMatch) {
-                judge = judge.or(((IndirectMatch) match).buildJunction());
-            }
-        }
         return new ProtectiveShieldMatcher(judge);
     }
 
     public List<AbstractClassEnhancePluginDefine> getBootstrapClassMatchDefine() {
         return bootstrapClassMatchDefine;
     }
+
+    /**
+     * @return the description of the classes matched by the plugin, or null if its match can't be described.
+     * @see ClassMatchDescriber
+     */
+    public static String describeMatch(AbstractClassEnhancePluginDefine plugin) {
+        return ClassMatchDescriber.describe(plugin.enhanceClass());
+    }
 }
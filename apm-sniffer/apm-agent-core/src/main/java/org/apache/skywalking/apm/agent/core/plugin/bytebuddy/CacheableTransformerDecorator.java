@@ -20,11 +20,16 @@ package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
 
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.utility.JavaModule;
 import net.bytebuddy.utility.RandomString;
 import org.apache.skywalking.apm.agent.core.boot.AgentPackageNotFoundException;
 import org.apache.skywalking.apm.agent.core.boot.AgentPackagePath;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import org.apache.skywalking.apm.agent.core.plugin.PluginFinder;
 import org.apache.skywalking.apm.agent.core.util.FileUtils;
 import org.apache.skywalking.apm.agent.core.util.IOUtils;
 
@@ -32,27 +37,61 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.instrument.IllegalClassFormatException;
+import java.nio.ByteBuffer;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wrapper classFileTransformer of ByteBuddy, save the enhanced bytecode to memory cache or file cache,
  * and automatically load the previously generated bytecode during the second retransform,
  * to solve the problem that ByteBuddy generates auxiliary classes with different random names every time.
  * Allow other javaagent to enhance those classes that enhanced by SkyWalking agent.
+ *
+ * In {@link ClassCacheMode#PERSISTENT} mode, the classes left unmodified are also kept in a {@link
+ * PersistentClassCache}, keyed by their bytes and the names of all their super types, so the next runs of the same
+ * agent and plugins skip them without parsing and matching. The enhanced bytecode is cached in memory only, as it
+ * relies on the interceptors registered by ByteBuddy in the JVM transforming it. The plugins are identified by the
+ * classes they match, as the matches of some plugins are read from their config, so the cache is kept in memory only
+ * if any match can't be described by {@link PluginFinder#describeMatch(AbstractClassEnhancePluginDefine)}.
  */
 public class CacheableTransformerDecorator implements AgentBuilder.TransformerDecorator {
 
     private static final ILog LOGGER = LogManager.getLogger(CacheableTransformerDecorator.class);
 
+    /**
+     * The name of the type ignored by the current transformation, set by {@link IgnoredTypeListener}.
+     */
+    private static final ThreadLocal<String> IGNORED_TYPE = new ThreadLocal<String>();
+
     private final ClassCacheMode cacheMode;
+    private final List<AbstractClassEnhancePluginDefine> plugins;
     private ClassCacheResolver cacheResolver;
+    private PersistentClassCache persistentCache;
+    private ClassHierarchyReader hierarchyReader;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong unmodifiedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
     public CacheableTransformerDecorator(ClassCacheMode cacheMode) throws IOException {
+        this(cacheMode, Collections.<AbstractClassEnhancePluginDefine>emptyList());
+    }
+
+    /**
+     * @param plugins the active plugins, a part of the fingerprint of {@link ClassCacheMode#PERSISTENT} cache.
+     */
+    public CacheableTransformerDecorator(ClassCacheMode cacheMode,
+                                         List<AbstractClassEnhancePluginDefine> plugins) throws IOException {
         this.cacheMode = cacheMode;
+        this.plugins = plugins;
         initClassCache();
     }
 
@@ -73,6 +112,38 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
             }
 
             cacheResolver = new FileCacheResolver(cacheDir);
+        } else if (this.cacheMode.equals(ClassCacheMode.PERSISTENT)) {
+            File cacheDir;
+            List<String> fingerprintParts;
+            try {
+                cacheDir = Config.Agent.CLASS_CACHE_PERSISTENT_PATH.isEmpty()
+                    ? new File(AgentPackagePath.getPath(), "class-cache/persistent")
+                    : new File(Config.Agent.CLASS_CACHE_PERSISTENT_PATH);
+                fingerprintParts = fingerprintParts();
+            } catch (AgentPackageNotFoundException e) {
+                throw new IOException("Can't find the root path for creating /class-cache folder.");
+            }
+            if (fingerprintParts == null) {
+                cacheResolver = new MemoryCacheResolver();
+                return;
+            }
+            persistentCache = new PersistentClassCache(
+                cacheDir, PersistentClassCache.fingerprint(fingerprintParts),
+                Config.Agent.CLASS_CACHE_PERSISTENT_MAX_ENTRIES
+            );
+            persistentCache.load();
+            hierarchyReader = new ClassHierarchyReader();
+            LOGGER.info("Loaded {} unmodified classes from the persistent class cache in {}.",
+                        persistentCache.size(), cacheDir
+            );
+
+            Runtime.getRuntime().addShutdownHook(new Thread("SkyWalking-class-cache") {
+                @Override
+                public void run() {
+                    savePersistentCache();
+                }
+            });
+            cacheResolver = new MemoryCacheResolver();
         } else {
             cacheResolver = new MemoryCacheResolver();
         }
@@ -87,15 +158,39 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
                 // load from cache
                 byte[] classCache = cacheResolver.getClassCache(loader, className);
                 if (classCache != null) {
+                    hits.incrementAndGet();
                     return classCache;
                 }
 
+                // skip the classes left unmodified in any run, only when they are loading
+                ByteBuffer key = null;
+                if (persistentCache != null && classBeingRedefined == null && className != null) {
+                    // the class can't be cached if any of its super types can't be read
+                    List<String> superTypes = hierarchyReader.superTypes(loader, classfileBuffer);
+                    if (superTypes != null) {
+                        key = PersistentClassCache.key(classfileBuffer, superTypes);
+                        if (persistentCache.isUnmodified(key)) {
+                            unmodifiedHits.incrementAndGet();
+                            return null;
+                        }
+                    }
+                    IGNORED_TYPE.remove();
+                }
+
                 //transform class
+                misses.incrementAndGet();
                 classfileBuffer = classFileTransformer.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
 
                 // save to cache
                 if (classfileBuffer != null) {
                     cacheResolver.putClassCache(loader, className, classfileBuffer);
+                } else if (key != null) {
+                    // the transformation failures are not cached, as they are not reported as ignored
+                    String ignoredType = IGNORED_TYPE.get();
+                    if (ignoredType != null && ignoredType.equals(className.replace('/', '.'))) {
+                        persistentCache.markUnmodified(key);
+                    }
+                    IGNORED_TYPE.remove();
                 }
 
                 return classfileBuffer;
@@ -103,6 +198,74 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
         };
     }
 
+    /**
+     * @return the listener to be added into the agent builder, which tells the types left unmodified to the {@link
+     * ClassCacheMode#PERSISTENT} cache.
+     */
+    public AgentBuilder.Listener getIgnoredTypeListener() {
+        return new IgnoredTypeListener();
+    }
+
+    /**
+     * The agent package, identified by the name, length and last modified time of the agent jar and the plugin jars,
+     * and the active plugins, identified by their names and the classes they match.
+     *
+     * @return null if the classes matched by any plugin can't be described.
+     */
+    List<String> fingerprintParts() throws AgentPackageNotFoundException {
+        List<String> parts = new ArrayList<String>();
+        File agentPath = AgentPackagePath.getPath();
+        for (File dir : new File[] {
+            agentPath,
+            new File(agentPath, "plugins"),
+            new File(agentPath, "activations")
+        }) {
+            File[] jars = dir.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File d, String name) {
+                    return name.endsWith(".jar");
+                }
+            });
+            if (jars == null) {
+                continue;
+            }
+            List<String> jarParts = new ArrayList<String>(jars.length);
+            for (File jar : jars) {
+                jarParts.add(dir.getName() + "/" + jar.getName() + ":" + jar.length() + ":" + jar.lastModified());
+            }
+            Collections.sort(jarParts);
+            parts.addAll(jarParts);
+        }
+
+        List<String> pluginParts = new ArrayList<String>(plugins.size());
+        for (AbstractClassEnhancePluginDefine plugin : plugins) {
+            String match = PluginFinder.describeMatch(plugin);
+            if (match == null) {
+                LOGGER.warn(
+                    "The classes matched by plugin {} can't be described, keep the class cache in memory only.",
+                    plugin.getClass().getName()
+                );
+                return null;
+            }
+            pluginParts.add(plugin.getClass().getName() + ":" + match);
+        }
+        Collections.sort(pluginParts);
+        parts.addAll(pluginParts);
+        return parts;
+    }
+
+    private void savePersistentCache() {
+        try {
+            int saved = persistentCache.save();
+            LOGGER.info(
+                "Class cache hits: {}, unmodified hits: {}, misses: {}. Saved {} unmodified classes, {} new, to the persistent class cache.",
+                hits.get(), unmodifiedHits.get(), misses.get(), saved, persistentCache.getAddedEntries()
+            );
+        } catch (IOException e) {
+            LOGGER.error(e, "Save the persistent class cache failure.");
+        }
+    }
+
     private static String getClassLoaderHash(ClassLoader loader) {
         String classloader;
         if (loader != null) {
@@ -114,6 +277,14 @@ public class CacheableTransformerDecorator implements AgentBuilder.TransformerDe
         return classloader;
     }
 
+    private static class IgnoredTypeListener extends AgentBuilder.Listener.Adapter {
+        @Override
+        public void onIgnored(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+                              boolean loaded) {
+            IGNORED_TYPE.set(typeDescription.getName());
+        }
+    }
+
     interface ClassCacheResolver {
 
         byte[] getClassCache(ClassLoader loader, String className);
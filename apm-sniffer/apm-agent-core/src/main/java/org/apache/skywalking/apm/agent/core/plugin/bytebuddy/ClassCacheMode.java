@@ -22,5 +22,9 @@ package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
  * ByteBuddy class cache mode
  */
 public enum ClassCacheMode {
-    FILE, MEMORY
+    FILE, MEMORY,
+    /**
+     * Cache the class bytes in memory, and the classes left unmodified on disk across the restarts.
+     */
+    PERSISTENT
 }
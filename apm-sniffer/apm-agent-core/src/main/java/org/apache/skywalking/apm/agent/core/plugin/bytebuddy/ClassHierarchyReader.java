@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.skywalking.apm.agent.core.util.IOUtils;
+
+/**
+ * Read the names of all super classes and interfaces of a class from the headers of the class files, found through
+ * the class loader, without parsing the whole class files or loading the classes. Whether a class is matched by the
+ * plugins depends on these names besides its own bytes, as {@link org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch}
+ * walks the hierarchy.
+ *
+ * The direct super types read from the class files are cached per class loader.
+ */
+class ClassHierarchyReader {
+    private static final String OBJECT = "java/lang/Object";
+    private static final String[] NO_SUPER_TYPES = new String[0];
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * class loader -> internal name of the type -> internal names of its direct super types.
+     */
+    private final Map<ClassLoader, Map<String, String[]>> loaderSuperTypes = new WeakHashMap<ClassLoader, Map<String, String[]>>();
+    private final Map<String, String[]> bootstrapSuperTypes = new ConcurrentHashMap<String, String[]>();
+
+    /**
+     * @return the sorted internal names of all super classes and interfaces of the class, or null if any of them can't
+     * be read.
+     */
+    List<String> superTypes(ClassLoader loader, byte[] classfileBuffer) {
+        String[] directSuperTypes;
+        try {
+            directSuperTypes = readDirectSuperTypes(classfileBuffer);
+        } catch (IOException e) {
+            return null;
+        }
+
+        Map<String, String[]> cache = cacheOf(loader);
+        Set<String> superTypes = new HashSet<String>();
+        Deque<String> types = new ArrayDeque<String>();
+        Collections.addAll(types, directSuperTypes);
+        while (!types.isEmpty()) {
+            String type = types.poll();
+            if (!superTypes.add(type)) {
+                continue;
+            }
+            String[] typeSuperTypes = cache.get(type);
+            if (typeSuperTypes == null) {
+                typeSuperTypes = readDirectSuperTypes(loader, type);
+                if (typeSuperTypes == null) {
+                    return null;
+                }
+                cache.put(type, typeSuperTypes);
+            }
+            Collections.addAll(types, typeSuperTypes);
+        }
+
+        List<String> sorted = new ArrayList<String>(superTypes);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private Map<String, String[]> cacheOf(ClassLoader loader) {
+        if (loader == null) {
+            return bootstrapSuperTypes;
+        }
+        synchronized (loaderSuperTypes) {
+            Map<String, String[]> cache = loaderSuperTypes.get(loader);
+            if (cache == null) {
+                cache = new ConcurrentHashMap<String, String[]>();
+                loaderSuperTypes.put(loader, cache);
+            }
+            return cache;
+        }
+    }
+
+    private static String[] readDirectSuperTypes(ClassLoader loader, String type) {
+        if (OBJECT.equals(type)) {
+            return NO_SUPER_TYPES;
+        }
+        String resource = type + ".class";
+        InputStream input = loader == null
+            ? ClassLoader.getSystemResourceAsStream(resource)
+            : loader.getResourceAsStream(resource);
+        if (input == null) {
+            return null;
+        }
+        try {
+            return readDirectSuperTypes(IOUtils.toByteArray(input));
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * @return the internal names of the super class, if any, and the interfaces declared in the class file.
+     */
+    static String[] readDirectSuperTypes(byte[] classfileBuffer) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(classfileBuffer));
+        if (input.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        // minor and major version
+        input.skipBytes(4);
+
+        int constantPoolCount = input.readUnsignedShort();
+        String[] utf8s = new String[constantPoolCount];
+        int[] classNameIndexes = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8s[i] = input.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndexes[i] = input.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    input.skipBytes(2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    input.skipBytes(3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    input.skipBytes(4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    input.skipBytes(8);
+                    // takes two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        // access flags and this class
+        input.skipBytes(4);
+        int superClassIndex = input.readUnsignedShort();
+        int interfacesCount = input.readUnsignedShort();
+        List<String> superTypes = new ArrayList<String>(interfacesCount + 1);
+        if (superClassIndex != 0) {
+            superTypes.add(className(utf8s, classNameIndexes, superClassIndex));
+        }
+        for (int i = 0; i < interfacesCount; i++) {
+            superTypes.add(className(utf8s, classNameIndexes, input.readUnsignedShort()));
+        }
+        return superTypes.toArray(new String[superTypes.size()]);
+    }
+
+    private static String className(String[] utf8s, int[] classNameIndexes, int classIndex) throws IOException {
+        if (classIndex >= classNameIndexes.length || classNameIndexes[classIndex] == 0
+            || utf8s[classNameIndexes[classIndex]] == null) {
+            throw new IOException("Invalid class index " + classIndex);
+        }
+        return utf8s[classNameIndexes[classIndex]];
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.bytebuddy.utility.RandomString;
+import org.apache.skywalking.apm.agent.core.logging.api.ILog;
+import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.util.IOUtils;
+
+/**
+ * The persistent cache of the classes left unmodified by the agent, addressed by the hash of the original class
+ * bytes. The cache of one agent, identified by the fingerprint of the agent package and the active plugins, is kept in
+ * the `{fingerprint}.idx` file of the cache folder, so it could be shared across the restarts and the JVMs.
+ *
+ * The file is replaced atomically by {@link #save()}, with the entries hit or added in this run first, then the older
+ * entries, at most `maxEntries` ones.
+ */
+class PersistentClassCache {
+    private static final ILog LOGGER = LogManager.getLogger(PersistentClassCache.class);
+
+    private static final int MAGIC = 0x53574343;
+    /**
+     * The length of the key, the first bytes of the SHA-256 digest.
+     */
+    static final int KEY_LENGTH = 16;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final File cacheFile;
+    private final int maxEntries;
+    /**
+     * key -> whether the key is hit or added in this run.
+     */
+    private final Map<ByteBuffer, Boolean> entries = new ConcurrentHashMap<ByteBuffer, Boolean>();
+    /**
+     * The loaded keys in the order of the file, the recently used first.
+     */
+    private final List<ByteBuffer> loadedKeys = new ArrayList<ByteBuffer>();
+    private final AtomicInteger addedEntries = new AtomicInteger();
+
+    PersistentClassCache(File cacheDir, String fingerprint, int maxEntries) {
+        this.cacheFile = new File(cacheDir, fingerprint + ".idx");
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the key of the class bytes and the names of all its super types, as whether the class is matched by the
+     * plugins depends on both.
+     */
+    static ByteBuffer key(byte[] classfileBuffer, List<String> superTypes) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        digest.update(classfileBuffer);
+        for (String superType : superTypes) {
+            digest.update((byte) '\n');
+            digest.update(superType.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        byte[] key = new byte[KEY_LENGTH];
+        System.arraycopy(hash, 0, key, 0, KEY_LENGTH);
+        return ByteBuffer.wrap(key);
+    }
+
+    /**
+     * @return the hex string of SHA-256 digest of the given parts.
+     */
+    static String fingerprint(List<String> parts) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        for (String part : parts) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Load the entries saved by the previous runs, a broken or missing file is treated as empty.
+     */
+    void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            if (input.readInt() != MAGIC) {
+                LOGGER.warn("Ignore the class cache file {}, unknown format.", cacheFile);
+                return;
+            }
+            int count = Math.min(input.readInt(), maxEntries);
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[KEY_LENGTH];
+                input.readFully(key);
+                ByteBuffer buffer = ByteBuffer.wrap(key);
+                if (entries.put(buffer, Boolean.FALSE) == null) {
+                    loadedKeys.add(buffer);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn(e, "Load the class cache file {} failure.", cacheFile);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * @return true if the class of the key is left unmodified in any run.
+     */
+    boolean isUnmodified(ByteBuffer key) {
+        Boolean used = entries.get(key);
+        if (used == null) {
+            return false;
+        }
+        if (!used) {
+            entries.put(key, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    void markUnmodified(ByteBuffer key) {
+        // keep the memory bounded, the older entries are evicted when saving
+        if (entries.size() < maxEntries * 2 && entries.put(key, Boolean.TRUE) == null) {
+            addedEntries.incrementAndGet();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the entries into a temporary file and move it to the cache file atomically, so the concurrent readers
+     * always see a complete file, and the last writer wins.
+     *
+     * @return the number of the saved entries.
+     */
+    int save() throws IOException {
+        List<ByteBuffer> saved = new ArrayList<ByteBuffer>(Math.min(entries.size(), maxEntries));
+        for (Map.Entry<ByteBuffer, Boolean> entry : entries.entrySet()) {
+            if (saved.size() >= maxEntries) {
+                break;
+            }
+            if (entry.getValue()) {
+                saved.add(entry.getKey());
+            }
+        }
+        for (ByteBuffer key : loadedKeys) {
+            if (saved.size() >= maxEntries) {
+                break;
+            }
+            if (!entries.get(key)) {
+                saved.add(key);
+            }
+        }
+
+        File parent = cacheFile.getParentFile();
+        if (!parent.exists() && !parent.mkdirs() && !parent.exists()) {
+            throw new IOException("Create class cache dir failure");
+        }
+        File tempFile = new File(parent, cacheFile.getName() + "." + RandomString.make() + ".tmp");
+        try {
+            DataOutputStream output = null;
+            try {
+                output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+                output.writeInt(MAGIC);
+                output.writeInt(saved.size());
+                for (ByteBuffer key : saved) {
+                    output.write(key.array());
+                }
+                output.flush();
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tempFile.delete();
+        }
+        return saved.size();
+    }
+
+    int getAddedEntries() {
+        return addedEntries.get();
+    }
+}
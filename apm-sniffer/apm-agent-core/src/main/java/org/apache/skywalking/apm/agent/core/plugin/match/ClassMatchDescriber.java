@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.match;
+
+import java.util.Arrays;
+import java.util.List;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalAndMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalNotMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalOrMatch;
+
+/**
+ * Describe the classes matched by a {@link ClassMatch}, by its type and its criteria, such as the class names, the
+ * prefixes and the annotations. The description is stable across the runs, and changes when the criteria change, even
+ * if the criteria are read from the plugin config, such as the customize enhance file.
+ */
+public class ClassMatchDescriber {
+
+    /**
+     * @return the description of the match, or null if the match, or any match nested in it, is not one of the
+     * built-in matches.
+     */
+    public static String describe(ClassMatch match) {
+        if (match == null) {
+            return "none";
+        }
+        if (match instanceof NameMatch) {
+            return "byName" + Arrays.asList(((NameMatch) match).getClassName());
+        }
+        if (match instanceof MultiClassNameMatch) {
+            return "byMultiClassMatch" + ((MultiClassNameMatch) match).getMatchClassNames();
+        }
+        if (match instanceof PrefixMatch) {
+            return "nameStartsWith" + Arrays.asList(((PrefixMatch) match).getPrefixes());
+        }
+        if (match instanceof RegexMatch) {
+            return "byRegexMatch" + Arrays.asList(((RegexMatch) match).getRegexExpressions());
+        }
+        if (match instanceof HierarchyMatch) {
+            return "byHierarchyMatch" + Arrays.asList(((HierarchyMatch) match).getParentTypes());
+        }
+        if (match instanceof ClassAnnotationMatch) {
+            return "byClassAnnotationMatch" + Arrays.asList(((ClassAnnotationMatch) match).getAnnotations());
+        }
+        if (match instanceof MethodAnnotationMatch) {
+            return "byMethodAnnotationMatch" + Arrays.asList(((MethodAnnotationMatch) match).getAnnotations());
+        }
+        if (match instanceof LogicalAndMatch) {
+            return describe("and", Arrays.<ClassMatch>asList(((LogicalAndMatch) match).getIndirectMatches()));
+        }
+        if (match instanceof LogicalOrMatch) {
+            return describe("or", Arrays.<ClassMatch>asList(((LogicalOrMatch) match).getIndirectMatches()));
+        }
+        if (match instanceof LogicalNotMatch) {
+            return describe("not", Arrays.<ClassMatch>asList(((LogicalNotMatch) match).getIndirectMatch()));
+        }
+        return null;
+    }
+
+    private static String describe(String operation, List<ClassMatch> matches) {
+        StringBuilder description = new StringBuilder(operation).append('(');
+        for (int i = 0; i < matches.size(); i++) {
+            String nested = describe(matches.get(i));
+            if (nested == null) {
+                return null;
+            }
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(nested);
+        }
+        return description.append(')').toString();
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.match;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Index the {@link IndirectMatch}es by their discriminating keys, the class names of {@link MultiClassNameMatch}, the
+ * prefixes of {@link PrefixMatch}, the super types of {@link HierarchyMatch}, the annotations of {@link
+ * ClassAnnotationMatch} and {@link MethodAnnotationMatch}. The candidate matches of a type are looked up by its name,
+ * its declared annotations and its super types, rather than testing every match. The matches without such key, such
+ * as {@link RegexMatch} and the logical matches, are always the candidates.
+ */
+@SuppressWarnings("rawtypes")
+public class IndirectMatchIndex {
+    private final List<IndirectMatch> matches;
+    private final ElementMatcher.Junction[] junctions;
+
+    private final BitSet unindexed = new BitSet();
+    private final Map<String, List<Integer>> classNames = new HashMap<>();
+    private final PrefixNode prefixes = new PrefixNode();
+    private final Map<String, List<Integer>> superTypes = new HashMap<>();
+    private final Map<String, List<Integer>> classAnnotations = new HashMap<>();
+    private final Map<String, List<Integer>> methodAnnotations = new HashMap<>();
+
+    public IndirectMatchIndex(List<IndirectMatch> matches) {
+        this.matches = matches;
+        this.junctions = new ElementMatcher.Junction[matches.size()];
+        for (int i = 0; i < matches.size(); i++) {
+            final IndirectMatch match = matches.get(i);
+            junctions[i] = match.buildJunction();
+
+            // all keys of one match are required, except the class names and the prefixes, so index any one of them
+            if (match instanceof MultiClassNameMatch) {
+                for (String className : ((MultiClassNameMatch) match).getMatchClassNames()) {
+                    index(classNames, className, i);
+                }
+            } else if (match instanceof PrefixMatch) {
+                for (String prefix : ((PrefixMatch) match).getPrefixes()) {
+                    prefixes.add(prefix, i);
+                }
+            } else if (match instanceof HierarchyMatch) {
+                index(superTypes, ((HierarchyMatch) match).getParentTypes()[0], i);
+            } else if (match instanceof ClassAnnotationMatch) {
+                index(classAnnotations, ((ClassAnnotationMatch) match).getAnnotations()[0], i);
+            } else if (match instanceof MethodAnnotationMatch) {
+                index(methodAnnotations, ((MethodAnnotationMatch) match).getAnnotations()[0], i);
+            } else {
+                unindexed.set(i);
+            }
+        }
+    }
+
+    public IndirectMatch get(int index) {
+        return matches.get(index);
+    }
+
+    /**
+     * @return the indexes of the candidate matches of the type, which may match it by {@link
+     * IndirectMatch#isMatch(TypeDescription)}.
+     */
+    public BitSet candidates(TypeDescription typeDescription) {
+        final BitSet candidates = nameCandidates(typeDescription);
+        addStructureCandidates(typeDescription, candidates);
+        return candidates;
+    }
+
+    /**
+     * @return true if any junction built by {@link IndirectMatch#buildJunction()} matches the type. The candidates by
+     * the name are tested first, as the structure of the type is resolved only when they don't match.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean matches(TypeDescription typeDescription) {
+        final BitSet candidates = nameCandidates(typeDescription);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (junctions[i].matches(typeDescription)) {
+                return true;
+            }
+        }
+        // the junctions of the structure matches exclude the interfaces
+        if (typeDescription.isInterface()) {
+            return false;
+        }
+
+        final BitSet structureCandidates = new BitSet(junctions.length);
+        addStructureCandidates(typeDescription, structureCandidates);
+        structureCandidates.andNot(candidates);
+        for (int i = structureCandidates.nextSetBit(0); i >= 0; i = structureCandidates.nextSetBit(i + 1)) {
+            if (junctions[i].matches(typeDescription)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BitSet nameCandidates(TypeDescription typeDescription) {
+        final BitSet candidates = (BitSet) unindexed.clone();
+        final String typeName = typeDescription.getActualName();
+        addAll(candidates, classNames.get(typeName));
+        prefixes.collect(typeName, candidates);
+        return candidates;
+    }
+
+    private void addStructureCandidates(TypeDescription typeDescription, BitSet candidates) {
+        if (!classAnnotations.isEmpty()) {
+            for (AnnotationDescription annotation : typeDescription.getDeclaredAnnotations()) {
+                addAll(candidates, classAnnotations.get(annotation.getAnnotationType().getActualName()));
+            }
+        }
+
+        if (!methodAnnotations.isEmpty()) {
+            for (MethodDescription.InDefinedShape method : typeDescription.getDeclaredMethods()) {
+                for (AnnotationDescription annotation : method.getDeclaredAnnotations()) {
+                    addAll(candidates, methodAnnotations.get(annotation.getAnnotationType().getActualName()));
+                }
+            }
+        }
+
+        if (!superTypes.isEmpty()) {
+            // walk the type itself, the super classes and the interfaces, every one once
+            final Set<String> visited = new HashSet<>();
+            final ArrayDeque<TypeDefinition> types = new ArrayDeque<>();
+            types.add(typeDescription);
+            while (!types.isEmpty()) {
+                final TypeDescription type = types.poll().asErasure();
+                if (!visited.add(type.getActualName())) {
+                    continue;
+                }
+                addAll(candidates, superTypes.get(type.getActualName()));
+
+                for (TypeDescription.Generic implInterface : type.getInterfaces()) {
+                    types.add(implInterface);
+                }
+                final TypeDescription.Generic superClass = type.getSuperClass();
+                if (superClass != null) {
+                    types.add(superClass);
+                }
+            }
+        }
+    }
+
+    private static void index(Map<String, List<Integer>> index, String key, int matchIndex) {
+        List<Integer> matchIndexes = index.get(key);
+        if (matchIndexes == null) {
+            matchIndexes = new ArrayList<>(1);
+            index.put(key, matchIndexes);
+        }
+        matchIndexes.add(matchIndex);
+    }
+
+    private static void addAll(BitSet candidates, List<Integer> matchIndexes) {
+        if (matchIndexes != null) {
+            for (Integer matchIndex : matchIndexes) {
+                candidates.set(matchIndex);
+            }
+        }
+    }
+
+    /**
+     * Trie of the name prefixes, one node per char.
+     */
+    private static class PrefixNode {
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+        private List<Integer> matchIndexes;
+
+        private void add(String prefix, int matchIndex) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                PrefixNode child = node.children.get(prefix.charAt(i));
+                if (child == null) {
+                    child = new PrefixNode();
+                    node.children.put(prefix.charAt(i), child);
+                }
+                node = child;
+            }
+            if (node.matchIndexes == null) {
+                node.matchIndexes = new ArrayList<>(1);
+            }
+            node.matchIndexes.add(matchIndex);
+        }
+
+        /**
+         * collect the matches of all prefixes of the name
+         */
+        private void collect(String name, BitSet candidates) {
+            PrefixNode node = this;
+            addAll(candidates, node.matchIndexes);
+            for (int i = 0; i < name.length() && node != null; i++) {
+                node = node.children.get(name.charAt(i));
+                if (node != null) {
+                    addAll(candidates, node.matchIndexes);
+                }
+            }
+        }
+    }
+}
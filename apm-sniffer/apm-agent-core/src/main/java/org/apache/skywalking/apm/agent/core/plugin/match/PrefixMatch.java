@@ -61,6 +61,10 @@ public class PrefixMatch implements IndirectMatch {
         return false;
     }
 
+    String[] getPrefixes() {
+        return prefixes;
+    }
+
     public static PrefixMatch nameStartsWith(final String... prefixes) {
         return new PrefixMatch(prefixes);
     }
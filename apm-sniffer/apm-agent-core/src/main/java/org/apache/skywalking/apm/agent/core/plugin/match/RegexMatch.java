@@ -61,6 +61,10 @@ public class RegexMatch implements IndirectMatch {
         return isMatch;
     }
 
+    String[] getRegexExpressions() {
+        return regexExpressions;
+    }
+
     public static RegexMatch byRegexMatch(String... regexExpressions) {
         return new RegexMatch(regexExpressions);
     }
@@ -63,4 +63,7 @@ public class LogicalAndMatch implements IndirectMatch {
         return true;
     }
 
+    public IndirectMatch[] getIndirectMatches() {
+        return indirectMatches;
+    }
 }
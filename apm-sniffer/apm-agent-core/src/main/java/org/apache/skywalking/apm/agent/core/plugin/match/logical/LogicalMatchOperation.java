@@ -18,9 +18,6 @@
 
 package org.apache.skywalking.apm.agent.core.plugin.match.logical;
 
-import net.bytebuddy.description.type.TypeDescription;
-import net.bytebuddy.matcher.ElementMatcher;
-import net.bytebuddy.matcher.NegatingMatcher;
 import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
 
 /**
@@ -36,16 +33,6 @@ public class LogicalMatchOperation {
     }
 
     public static IndirectMatch not(final IndirectMatch match) {
-        return new IndirectMatch() {
-            @Override
-            public ElementMatcher.Junction buildJunction() {
-                return new NegatingMatcher(match.buildJunction());
-            }
-
-            @Override
-            public boolean isMatch(final TypeDescription typeDescription) {
-                return !match.isMatch(typeDescription);
-            }
-        };
+        return new LogicalNotMatch(match);
     }
 }
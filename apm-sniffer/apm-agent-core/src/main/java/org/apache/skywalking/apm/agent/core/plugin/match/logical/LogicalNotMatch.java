@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.match.logical;
+
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.NegatingMatcher;
+import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+
+/**
+ * Match classes not matched by the given criteria
+ */
+public class LogicalNotMatch implements IndirectMatch {
+    private final IndirectMatch indirectMatch;
+
+    /**
+     * Don't instantiate this class directly, use {@link LogicalMatchOperation} instead
+     *
+     * @param indirectMatch the matching criteria to negate
+     */
+    LogicalNotMatch(final IndirectMatch indirectMatch) {
+        this.indirectMatch = indirectMatch;
+    }
+
+    @Override
+    public ElementMatcher.Junction buildJunction() {
+        return new NegatingMatcher(indirectMatch.buildJunction());
+    }
+
+    @Override
+    public boolean isMatch(final TypeDescription typeDescription) {
+        return !indirectMatch.isMatch(typeDescription);
+    }
+
+    public IndirectMatch getIndirectMatch() {
+        return indirectMatch;
+    }
+}
@@ -63,4 +63,7 @@ public class LogicalOrMatch implements IndirectMatch {
         return false;
     }
 
+    public IndirectMatch[] getIndirectMatches() {
+        return indirectMatches;
+    }
 }
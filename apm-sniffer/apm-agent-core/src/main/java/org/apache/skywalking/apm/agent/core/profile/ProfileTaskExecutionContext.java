@@ -46,6 +46,9 @@ public class ProfileTaskExecutionContext {
     // total started profiling tracing context count
     private final AtomicInteger totalStartedProfilingCount = new AtomicInteger(0);
 
+    // code signatures of the stack frames dumped by the profilers of this task
+    private final StackFrameDictionary frameDictionary = new StackFrameDictionary();
+
     public ProfileTaskExecutionContext(ProfileTask task) {
         this.task = task;
         profilingSegmentSlots = new AtomicReferenceArray<>(Config.Profile.MAX_PARALLEL);
@@ -144,6 +147,10 @@ public class ProfileTaskExecutionContext {
         return task;
     }
 
+    public StackFrameDictionary frameDictionary() {
+        return frameDictionary;
+    }
+
     public AtomicReferenceArray<ThreadProfiler> threadProfilerSlots() {
         return profilingSegmentSlots;
     }
@@ -18,19 +18,30 @@
 
 package org.apache.skywalking.apm.agent.core.profile;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
 
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
- * Profile task process thread, dump the executing thread stack.
+ * Profile task process thread, dump the executing thread stack. If {@link Config.Profile#BATCH_DUMP} is true, the stacks
+ * of all profiling threads are dumped in one {@link ThreadMXBean#getThreadInfo(long[], int)} call every period.
  */
 public class ProfileThread implements Runnable {
 
     private static final ILog LOGGER = LogManager.getLogger(ProfileThread.class);
 
+    private static final StackTraceElement[] EMPTY_STACK = new StackTraceElement[0];
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
     // profiling task context
     private final ProfileTaskExecutionContext taskExecutionContext;
 
@@ -75,6 +86,7 @@ public class ProfileThread implements Runnable {
             // each all slot
             AtomicReferenceArray<ThreadProfiler> profilers = executionContext.threadProfilerSlots();
             int profilerCount = profilers.length();
+            List<ThreadProfiler> batchProfilers = Config.Profile.BATCH_DUMP ? new ArrayList<>(profilerCount) : null;
             for (int slot = 0; slot < profilerCount; slot++) {
                 ThreadProfiler currentProfiler = profilers.get(slot);
                 if (currentProfiler == null) {
@@ -89,19 +101,22 @@ public class ProfileThread implements Runnable {
                         break;
 
                     case PROFILING:
-                        // dump stack
-                        TracingThreadSnapshot snapshot = currentProfiler.buildSnapshot();
-                        if (snapshot != null) {
-                            profileTaskChannelService.addProfilingSnapshot(snapshot);
-                        } else {
-                            // tell execution context current tracing thread dump failed, stop it
-                            executionContext.stopTracingProfile(currentProfiler.tracingContext());
+                        if (batchProfilers != null) {
+                            // dump stack together after all slots checked
+                            batchProfilers.add(currentProfiler);
+                            break;
                         }
+                        // dump stack
+                        addSnapshot(executionContext, currentProfiler, currentProfiler.buildSnapshot());
                         break;
 
                 }
             }
 
+            if (batchProfilers != null && !batchProfilers.isEmpty()) {
+                dumpTogether(executionContext, batchProfilers);
+            }
+
             // sleep to next period
             // if out of period, sleep one period
             long needToSleep = (currentLoopStartTime + maxSleepPeriod) - System.currentTimeMillis();
@@ -110,4 +125,40 @@ public class ProfileThread implements Runnable {
         }
     }
 
+    /**
+     * dump the stacks of all profiling threads in one call, and build their snapshots
+     */
+    private void dumpTogether(ProfileTaskExecutionContext executionContext, List<ThreadProfiler> profilers) {
+        long[] threadIds = new long[profilers.size()];
+        for (int i = 0; i < threadIds.length; i++) {
+            threadIds[i] = profilers.get(i).profilingThreadId();
+        }
+
+        ThreadInfo[] threadInfos;
+        try {
+            threadInfos = THREAD_MX_BEAN.getThreadInfo(threadIds, Config.Profile.DUMP_MAX_STACK_DEPTH);
+        } catch (Exception e) {
+            // dump error ignore and make these profilers stop
+            threadInfos = new ThreadInfo[threadIds.length];
+        }
+
+        for (int i = 0; i < threadIds.length; i++) {
+            // thread info is null, means thread is already run finished
+            StackTraceElement[] stackTrace = threadInfos[i] != null ? threadInfos[i].getStackTrace() : EMPTY_STACK;
+            ThreadProfiler profiler = profilers.get(i);
+            addSnapshot(executionContext, profiler, profiler.buildSnapshot(stackTrace));
+        }
+    }
+
+    private void addSnapshot(ProfileTaskExecutionContext executionContext,
+                             ThreadProfiler profiler,
+                             TracingThreadSnapshot snapshot) {
+        if (snapshot != null) {
+            profileTaskChannelService.addProfilingSnapshot(snapshot);
+        } else {
+            // tell execution context current tracing thread dump failed, stop it
+            executionContext.stopTracingProfile(profiler.tracingContext());
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.profile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stack frame dictionary of one profile task, interns the code signatures of the dumped stack elements. The profiled
+ * threads of one endpoint share most of their frames, so every frame signature is built once rather than every dump.
+ * It is only accessed by the profile thread of the task.
+ */
+public class StackFrameDictionary {
+
+    // max interned frames, the frames exceeding it are built on every dump
+    private static final int MAX_SIZE = 20_000;
+
+    private final Map<StackTraceElement, String> codeSignatures = new HashMap<>();
+
+    /**
+     * @return code sign: className.methodName:lineNumber
+     */
+    public String codeSignature(StackTraceElement element) {
+        String codeSignature = codeSignatures.get(element);
+        if (codeSignature == null) {
+            codeSignature = element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber();
+            if (codeSignatures.size() < MAX_SIZE) {
+                codeSignatures.put(element, codeSignature);
+            }
+        }
+        return codeSignature;
+    }
+
+    public int size() {
+        return codeSignatures.size();
+    }
+}
@@ -87,20 +87,32 @@ public class ThreadProfiler {
             return null;
         }
 
-        long currentTime = System.currentTimeMillis();
         // dump thread
         StackTraceElement[] stackTrace;
         try {
             stackTrace = profilingThread.getStackTrace();
-
-            // stack depth is zero, means thread is already run finished
-            if (stackTrace.length == 0) {
-                return null;
-            }
         } catch (Exception e) {
             // dump error ignore and make this profiler stop
             return null;
         }
+        return buildSnapshot(stackTrace);
+    }
+
+    /**
+     * build thread snapshot from the stack dumped by the caller, such as all profiling threads are dumped together
+     *
+     * @return snapshot, if null means dump snapshot error, should stop it
+     */
+    public TracingThreadSnapshot buildSnapshot(StackTraceElement[] stackTrace) {
+        if (!isProfilingContinuable()) {
+            return null;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        // stack depth is zero, means thread is already run finished
+        if (stackTrace.length == 0) {
+            return null;
+        }
 
         // if is first dump, check is can start profiling
         if (dumpSequence == 0 && (!executionContext.isStartProfileable())) {
@@ -110,24 +122,16 @@ public class ThreadProfiler {
         int dumpElementCount = Math.min(stackTrace.length, Config.Profile.DUMP_MAX_STACK_DEPTH);
 
         // use inverted order, because thread dump is start with bottom
+        final StackFrameDictionary frameDictionary = executionContext.frameDictionary();
         final ArrayList<String> stackList = new ArrayList<>(dumpElementCount);
         for (int i = dumpElementCount - 1; i >= 0; i--) {
-            stackList.add(buildStackElementCodeSignature(stackTrace[i]));
+            stackList.add(frameDictionary.codeSignature(stackTrace[i]));
         }
 
         String taskId = executionContext.getTask().getTaskId();
         return new TracingThreadSnapshot(taskId, traceSegmentId, dumpSequence++, currentTime, stackList);
     }
 
-    /**
-     * build thread stack element code signature
-     *
-     * @return code sign: className.methodName:lineNumber
-     */
-    private String buildStackElementCodeSignature(StackTraceElement element) {
-        return element.getClassName() + "." + element.getMethodName() + ":" + element.getLineNumber();
-    }
-
     /**
      * matches profiling tracing context
      */
@@ -145,6 +149,10 @@ public class ThreadProfiler {
         return System.currentTimeMillis() - profilingStartTime < profilingMaxTimeMills;
     }
 
+    public long profilingThreadId() {
+        return profilingThread.getId();
+    }
+
     public TracingContext tracingContext() {
         return tracingContext;
     }
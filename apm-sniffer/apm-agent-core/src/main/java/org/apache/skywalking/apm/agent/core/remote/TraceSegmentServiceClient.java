@@ -19,9 +19,16 @@
 package org.apache.skywalking.apm.agent.core.remote;
 
 import io.grpc.Channel;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.skywalking.apm.agent.core.boot.BootService;
 import org.apache.skywalking.apm.agent.core.boot.DefaultImplementor;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
@@ -32,6 +39,12 @@ import org.apache.skywalking.apm.agent.core.context.TracingContextListener;
 import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
 import org.apache.skywalking.apm.agent.core.logging.api.ILog;
 import org.apache.skywalking.apm.agent.core.logging.api.LogManager;
+import org.apache.skywalking.apm.agent.core.meter.Counter;
+import org.apache.skywalking.apm.agent.core.meter.CounterMode;
+import org.apache.skywalking.apm.agent.core.meter.MeterId;
+import org.apache.skywalking.apm.agent.core.meter.MeterService;
+import org.apache.skywalking.apm.agent.core.meter.MeterTag;
+import org.apache.skywalking.apm.agent.core.meter.MeterType;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.buffer.BufferStrategy;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
@@ -47,10 +60,22 @@ import static org.apache.skywalking.apm.agent.core.remote.GRPCChannelStatus.CONN
 public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSegment>, TracingContextListener, GRPCChannelListener {
     private static final ILog LOGGER = LogManager.getLogger(TraceSegmentServiceClient.class);
 
-    private long lastLogTime;
-    private long segmentUplinkedCounter;
-    private long segmentAbandonedCounter;
+    private volatile long lastLogTime;
+    private final AtomicLong segmentUplinkedCounter = new AtomicLong();
+    private final AtomicLong segmentAbandonedCounter = new AtomicLong();
+    private final Counter segmentUplinkedMeter = createCounter("sw_agent_trace_segment_uplinked_count", null);
+    private final Counter noChannelAbandonedMeter = createCounter("sw_agent_trace_segment_abandoned_count", "no_channel");
+    private final Counter bufferFullAbandonedMeter = createCounter(
+        "sw_agent_trace_segment_abandoned_count", "buffer_full");
+    private final Counter notReadyAbandonedMeter = createCounter("sw_agent_trace_segment_abandoned_count", "not_ready");
+    private final Counter streamErrorAbandonedMeter = createCounter(
+        "sw_agent_trace_segment_abandoned_count", "stream_error");
     private volatile DataCarrier<TraceSegment> carrier;
+    /**
+     * The long-lived streams, only exist when {@link Config.Collector#TRACE_SEGMENT_REPORT_STREAMS} is positive. Every
+     * consumer thread takes one stream for a batch, and puts it back after the batch is sent.
+     */
+    private volatile BlockingQueue<SegmentStream> streams;
     private volatile TraceSegmentReportServiceGrpc.TraceSegmentReportServiceStub serviceStub;
     private volatile GRPCChannelStatus status = GRPCChannelStatus.DISCONNECT;
 
@@ -62,10 +87,28 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     @Override
     public void boot() {
         lastLogTime = System.currentTimeMillis();
-        segmentUplinkedCounter = 0;
-        segmentAbandonedCounter = 0;
-        carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE);
-        carrier.consume(this, 1);
+        segmentUplinkedCounter.set(0);
+        segmentAbandonedCounter.set(0);
+        MeterService meterService = ServiceManager.INSTANCE.findService(MeterService.class);
+        meterService.register(segmentUplinkedMeter);
+        meterService.register(noChannelAbandonedMeter);
+        meterService.register(bufferFullAbandonedMeter);
+        meterService.register(notReadyAbandonedMeter);
+        meterService.register(streamErrorAbandonedMeter);
+
+        final int streamSize = Config.Collector.TRACE_SEGMENT_REPORT_STREAMS;
+        if (streamSize > 0) {
+            streams = new ArrayBlockingQueue<>(streamSize);
+            for (int i = 0; i < streamSize; i++) {
+                streams.add(new SegmentStream());
+            }
+            // One stream per consumer thread, and at least one channel per consumer thread.
+            carrier = new DataCarrier<>(Math.max(CHANNEL_SIZE, streamSize), BUFFER_SIZE, BufferStrategy.IF_POSSIBLE);
+            carrier.consume(this, streamSize);
+        } else {
+            carrier = new DataCarrier<>(CHANNEL_SIZE, BUFFER_SIZE, BufferStrategy.IF_POSSIBLE);
+            carrier.consume(this, 1);
+        }
     }
 
     @Override
@@ -77,6 +120,9 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
     public void shutdown() {
         TracingContext.ListenerManager.remove(this);
         carrier.shutdownConsumers();
+        if (streams != null) {
+            streams.forEach(SegmentStream::close);
+        }
     }
 
     @Override
@@ -86,6 +132,10 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
 
     @Override
     public void consume(List<TraceSegment> data) {
+        if (streams != null) {
+            consumeInStream(data);
+            return;
+        }
         if (CONNECTED.equals(status)) {
             final GRPCStreamServiceStatus status = new GRPCStreamServiceStatus(false);
             StreamObserver<SegmentObject> upstreamSegmentStreamObserver = serviceStub.withDeadlineAfter(
@@ -130,26 +180,68 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
             upstreamSegmentStreamObserver.onCompleted();
 
             status.wait4Finish();
-            segmentUplinkedCounter += data.size();
+            uplinked(data.size());
         } else {
-            segmentAbandonedCounter += data.size();
+            abandoned(data.size(), noChannelAbandonedMeter);
         }
 
         printUplinkStatus();
     }
 
+    /**
+     * Send the segments through one of the long-lived streams. The segments, which could not be sent in {@link
+     * Config.Collector#GRPC_UPSTREAM_TIMEOUT} because of the stream is not ready, are abandoned. The sent segments are
+     * counted as uplinked once the collector completes the call, or abandoned if the call fails.
+     */
+    private void consumeInStream(List<TraceSegment> data) {
+        if (!CONNECTED.equals(status)) {
+            abandoned(data.size(), noChannelAbandonedMeter);
+            printUplinkStatus();
+            return;
+        }
+
+        SegmentStream stream;
+        try {
+            stream = streams.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned(data.size(), noChannelAbandonedMeter);
+            return;
+        }
+        try {
+            int sent = stream.send(data);
+            if (sent < data.size()) {
+                abandoned(data.size() - sent, notReadyAbandonedMeter);
+            }
+        } finally {
+            streams.add(stream);
+        }
+
+        printUplinkStatus();
+    }
+
+    private void uplinked(int size) {
+        segmentUplinkedCounter.addAndGet(size);
+        segmentUplinkedMeter.increment(size);
+    }
+
+    private void abandoned(int size, Counter meter) {
+        segmentAbandonedCounter.addAndGet(size);
+        meter.increment(size);
+    }
+
     private void printUplinkStatus() {
         long currentTimeMillis = System.currentTimeMillis();
         if (currentTimeMillis - lastLogTime > 30 * 1000) {
             lastLogTime = currentTimeMillis;
-            if (segmentUplinkedCounter > 0) {
-                LOGGER.debug("{} trace segments have been sent to collector.", segmentUplinkedCounter);
-                segmentUplinkedCounter = 0;
+            long uplinked = segmentUplinkedCounter.getAndSet(0);
+            if (uplinked > 0) {
+                LOGGER.debug("{} trace segments have been sent to collector.", uplinked);
             }
-            if (segmentAbandonedCounter > 0) {
+            long abandoned = segmentAbandonedCounter.getAndSet(0);
+            if (abandoned > 0) {
                 LOGGER.debug(
-                    "{} trace segments have been abandoned, cause by no available channel.", segmentAbandonedCounter);
-                segmentAbandonedCounter = 0;
+                    "{} trace segments have been abandoned, cause by no available channel.", abandoned);
             }
         }
     }
@@ -164,12 +256,33 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
 
     }
 
+    /**
+     * Complete the idle long-lived streams opened longer than {@link Config.Collector#GRPC_UPSTREAM_TIMEOUT}, so the
+     * segments sent through them are acknowledged before the deadline of the call.
+     */
+    @Override
+    public void nothingToConsume() {
+        if (streams == null) {
+            return;
+        }
+        final SegmentStream stream = streams.poll();
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.rotateIfExpired();
+        } finally {
+            streams.add(stream);
+        }
+    }
+
     @Override
     public void afterFinished(TraceSegment traceSegment) {
         if (traceSegment.isIgnore()) {
             return;
         }
         if (!carrier.produce(traceSegment)) {
+            bufferFullAbandonedMeter.increment(1);
             if (LOGGER.isDebugEnable()) {
                 LOGGER.debug("One trace segment has been abandoned, cause by buffer is full.");
             }
@@ -184,4 +297,164 @@ public class TraceSegmentServiceClient implements BootService, IConsumer<TraceSe
         }
         this.status = status;
     }
+
+    private static Counter createCounter(String name, String reason) {
+        List<MeterTag> tags = new ArrayList<>(1);
+        if (reason != null) {
+            tags.add(new MeterTag("reason", reason));
+        }
+        return new Counter(new MeterId(name, MeterType.COUNTER, tags), CounterMode.INCREMENT);
+    }
+
+    /**
+     * SegmentStream is a client streaming `collect` call, which is kept open across batches and flow-controlled by the
+     * gRPC {@link ClientCallStreamObserver#isReady()}. The call is completed and reopened every {@link
+     * Config.Collector#GRPC_UPSTREAM_TIMEOUT}, for receiving the commands from the collector, and it is reopened once
+     * the channel is reconnected. Every call has a deadline of twice the period, so a stuck call is not kept open
+     * forever. It is used by one consumer thread at a time.
+     */
+    private class SegmentStream {
+        private final Object readyLock = new Object();
+        private volatile ClientCallStreamObserver<SegmentObject> requestObserver;
+        /**
+         * The number of the segments sent through the current call, not acknowledged by the collector yet.
+         */
+        private AtomicInteger pending;
+        private TraceSegmentReportServiceGrpc.TraceSegmentReportServiceStub openedStub;
+        private long openTime;
+
+        /**
+         * @return the number of sent segments.
+         */
+        private int send(List<TraceSegment> data) {
+            int sent = 0;
+            try {
+                for (TraceSegment segment : data) {
+                    final ClientCallStreamObserver<SegmentObject> observer = ensureOpen();
+                    if (!waitUntilReady(observer)) {
+                        // Drop the stuck stream, a new one is opened for the next batch.
+                        observer.cancel("The stream is not ready in time.", null);
+                        requestObserver = null;
+                        break;
+                    }
+                    final SegmentObject upstreamSegment = segment.transform();
+                    pending.incrementAndGet();
+                    observer.onNext(upstreamSegment);
+                    sent++;
+                }
+            } catch (Throwable t) {
+                LOGGER.error(t, "Transform and send UpstreamSegment to collector fail.");
+            }
+            return sent;
+        }
+
+        private ClientCallStreamObserver<SegmentObject> ensureOpen() {
+            final TraceSegmentReportServiceGrpc.TraceSegmentReportServiceStub stub = serviceStub;
+            ClientCallStreamObserver<SegmentObject> observer = requestObserver;
+            if (observer != null && openedStub == stub && !isExpired()) {
+                return observer;
+            }
+            close();
+
+            final AtomicInteger callPending = new AtomicInteger();
+            observer = (ClientCallStreamObserver<SegmentObject>) stub.withDeadlineAfter(
+                2L * Config.Collector.GRPC_UPSTREAM_TIMEOUT, TimeUnit.SECONDS
+            ).collect(
+                new ClientResponseObserver<SegmentObject, Commands>() {
+                    private ClientCallStreamObserver<SegmentObject> requestStream;
+
+                    @Override
+                    public void beforeStart(ClientCallStreamObserver<SegmentObject> requestStream) {
+                        this.requestStream = requestStream;
+                        requestStream.setOnReadyHandler(SegmentStream.this::notifyReady);
+                    }
+
+                    @Override
+                    public void onNext(Commands commands) {
+                        ServiceManager.INSTANCE.findService(CommandService.class)
+                                               .receiveCommand(commands);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        if (requestObserver == requestStream) {
+                            requestObserver = null;
+                        }
+                        notifyReady();
+                        abandoned(callPending.getAndSet(0), streamErrorAbandonedMeter);
+                        if (LOGGER.isErrorEnable()) {
+                            LOGGER.error(
+                                throwable,
+                                "Send UpstreamSegment to collector fail with a grpc internal exception."
+                            );
+                        }
+                        ServiceManager.INSTANCE
+                            .findService(GRPCChannelManager.class)
+                            .reportError(throwable);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        uplinked(callPending.getAndSet(0));
+                    }
+                });
+            pending = callPending;
+            requestObserver = observer;
+            openedStub = stub;
+            openTime = System.currentTimeMillis();
+            return observer;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - openTime >= TimeUnit.SECONDS.toMillis(
+                Config.Collector.GRPC_UPSTREAM_TIMEOUT);
+        }
+
+        private void rotateIfExpired() {
+            if (requestObserver != null && isExpired()) {
+                close();
+            }
+        }
+
+        private boolean waitUntilReady(ClientCallStreamObserver<SegmentObject> observer) {
+            if (observer.isReady()) {
+                return true;
+            }
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(
+                Config.Collector.GRPC_UPSTREAM_TIMEOUT);
+            synchronized (readyLock) {
+                while (!observer.isReady()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (requestObserver != observer || remaining <= 0) {
+                        return false;
+                    }
+                    try {
+                        readyLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void notifyReady() {
+            synchronized (readyLock) {
+                readyLock.notifyAll();
+            }
+        }
+
+        private void close() {
+            final ClientCallStreamObserver<SegmentObject> observer = requestObserver;
+            requestObserver = null;
+            if (observer != null) {
+                try {
+                    observer.onCompleted();
+                } catch (Throwable t) {
+                    LOGGER.error(t, "Complete the UpstreamSegment stream fail.");
+                }
+            }
+        }
+    }
 }
@@ -18,11 +18,21 @@
 
 package org.apache.skywalking.apm.agent.core.context;
 
+import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.tag.Tags;
+import org.apache.skywalking.apm.agent.core.context.trace.AbstractSpan;
+import org.apache.skywalking.apm.agent.core.context.trace.TraceSegment;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
@@ -33,7 +43,36 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+@State(Scope.Thread)
 public class ContextManagerBenchmark {
+    /**
+     * The number of spans in one segment of {@link #traceSegment(Blackhole)}.
+     */
+    private static final int SPANS_PER_SEGMENT = 4;
+
+    @Param({
+        "false",
+        "true"
+    })
+    private boolean compactSpanStorage;
+
+    private final Map<String, String> logFields = new HashMap<>();
+    private TraceSegment lastSegment;
+
+    @Setup
+    public void setUp() {
+        Config.Agent.COMPACT_SPAN_STORAGE = compactSpanStorage;
+        ServiceManager.INSTANCE.boot();
+        TracingContext.ListenerManager.add(segment -> lastSegment = segment);
+        logFields.put("event", "error");
+        logFields.put("message", "benchmark");
+    }
+
+    @TearDown
+    public void tearDown() {
+        ServiceManager.INSTANCE.shutdown();
+    }
+
     @Benchmark
     @Fork(value = 1, warmups = 1)
     @OutputTimeUnit(TimeUnit.NANOSECONDS)
@@ -50,6 +89,33 @@ public class ContextManagerBenchmark {
         bh.consume(Map.class.isAssignableFrom(HashMap.class));
     }
 
+    /**
+     * Create a segment of one entry span and {@link #SPANS_PER_SEGMENT} - 1 exit spans with tags and a log, and
+     * transform it to the segment message. The allocations per span are `·gc.alloc.rate.norm` / {@link
+     * #SPANS_PER_SEGMENT}.
+     */
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void traceSegment(Blackhole bh) {
+        AbstractSpan entrySpan = ContextManager.createEntrySpan("/benchmark", null);
+        Tags.URL.set(entrySpan, "http://127.0.0.1:8080/benchmark");
+        Tags.HTTP.METHOD.set(entrySpan, "GET");
+        for (int i = 1; i < SPANS_PER_SEGMENT; i++) {
+            AbstractSpan exitSpan = ContextManager.createExitSpan("/benchmark/db", "127.0.0.1:3306");
+            Tags.DB_TYPE.set(exitSpan, "sql");
+            Tags.DB_INSTANCE.set(exitSpan, "benchmark");
+            Tags.DB_STATEMENT.set(exitSpan, "select * from benchmark where id = ?");
+            ContextManager.stopSpan();
+        }
+        entrySpan.log(System.currentTimeMillis(), logFields);
+        Tags.STATUS_CODE.set(entrySpan, "500");
+        ContextManager.stopSpan();
+
+        bh.consume(lastSegment.transform());
+    }
+
     public static void main(String[] args) throws Exception {
         Options opt = new OptionsBuilder().include(ContextManagerBenchmark.class.getSimpleName())
                 .addProfiler(GCProfiler.class)
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.context.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.context.tag.Tags;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactSpanDataTest {
+
+    @After
+    public void tearDown() {
+        Config.Agent.COMPACT_SPAN_STORAGE = false;
+    }
+
+    @Test
+    public void testTransformSameAsDefaultStorage() {
+        SpanObject expected = createSpan(false).transform().build();
+        SpanObject actual = createSpan(true).transform().build();
+
+        Assert.assertEquals(6, actual.getTagsCount());
+        Assert.assertEquals(2, actual.getLogsCount());
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testClear() {
+        Config.Agent.COMPACT_SPAN_STORAGE = true;
+        LocalSpan span = createSpan(true);
+        span.compactData.clear();
+        span.tag(Tags.URL, "/after-clear");
+
+        SpanObject spanObject = span.transform().build();
+        Assert.assertEquals(1, spanObject.getTagsCount());
+        Assert.assertEquals("/after-clear", spanObject.getTags(0).getValue());
+        Assert.assertEquals(0, spanObject.getLogsCount());
+    }
+
+    private LocalSpan createSpan(boolean compactSpanStorage) {
+        Config.Agent.COMPACT_SPAN_STORAGE = compactSpanStorage;
+        LocalSpan span = new LocalSpan(0, -1, "/test", null);
+        span.start(1L);
+        span.tag(Tags.URL, "/test");
+        span.tag(Tags.STATUS_CODE, "200");
+        span.tag(Tags.DB_TYPE, "sql");
+        span.tag(Tags.DB_INSTANCE, null);
+        span.tag(Tags.DB_STATEMENT, "select 1");
+        // Overwrite the previous value.
+        span.tag(Tags.STATUS_CODE, "500");
+        span.tag("custom", "value");
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("event", "error");
+        fields.put("message", "test");
+        span.log(2L, fields);
+        fields.put("stack", "stack");
+        span.log(3L, fields);
+        return span;
+    }
+}
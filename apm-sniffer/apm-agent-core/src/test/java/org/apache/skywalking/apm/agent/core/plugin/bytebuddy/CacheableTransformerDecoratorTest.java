@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.List;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+import org.apache.skywalking.apm.agent.core.conf.Config;
+import org.apache.skywalking.apm.agent.core.plugin.AbstractClassEnhancePluginDefine;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.ConstructorInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.InstanceMethodsInterceptPoint;
+import org.apache.skywalking.apm.agent.core.plugin.interceptor.enhance.ClassInstanceMethodsEnhancePluginDefine;
+import org.apache.skywalking.apm.agent.core.plugin.match.ClassMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.IndirectMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.NameMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalMatchOperation;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+
+public class CacheableTransformerDecoratorTest {
+    private static final String IGNORED = "org.apache.skywalking.test.Ignored";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String persistentPath;
+
+    @Before
+    public void setUp() throws Exception {
+        persistentPath = Config.Agent.CLASS_CACHE_PERSISTENT_PATH;
+        Config.Agent.CLASS_CACHE_PERSISTENT_PATH = folder.newFolder().getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() {
+        Config.Agent.CLASS_CACHE_PERSISTENT_PATH = persistentPath;
+    }
+
+    @Test
+    public void testSkipIgnoredClass() throws Exception {
+        CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(
+            ClassCacheMode.PERSISTENT, plugins(NameMatch.byName("org.apache.skywalking.test.Enhanced")));
+        ResettableClassFileTransformer delegate = ignoringTransformer(decorator.getIgnoredTypeListener());
+        ClassFileTransformer transformer = decorator.decorate(delegate);
+        byte[] ignored = new ByteBuddy().subclass(Object.class).name(IGNORED).make().getBytes();
+
+        Assert.assertNull(transform(transformer, ignored));
+        // matched only once, as the class is reported as ignored
+        Assert.assertNull(transform(transformer, ignored));
+        Mockito.verify(delegate, times(1))
+               .transform(Mockito.<ClassLoader>any(), anyString(), Mockito.<Class<?>>any(),
+                          Mockito.<ProtectionDomain>any(), Mockito.<byte[]>any());
+    }
+
+    @Test
+    public void testFingerprintByMatchedClasses() throws Exception {
+        // the customize enhance plugins of different target classes share the same plugin class
+        List<String> parts = new CacheableTransformerDecorator(
+            ClassCacheMode.MEMORY, plugins(NameMatch.byName("org.apache.skywalking.test.Enhanced"))).fingerprintParts();
+        List<String> sameParts = new CacheableTransformerDecorator(
+            ClassCacheMode.MEMORY, plugins(NameMatch.byName("org.apache.skywalking.test.Enhanced"))).fingerprintParts();
+        List<String> otherParts = new CacheableTransformerDecorator(
+            ClassCacheMode.MEMORY, plugins(NameMatch.byName(IGNORED))).fingerprintParts();
+        Assert.assertEquals(parts, sameParts);
+        Assert.assertNotEquals(parts, otherParts);
+
+        List<String> prefixParts = new CacheableTransformerDecorator(
+            ClassCacheMode.MEMORY,
+            plugins(LogicalMatchOperation.or(PrefixMatch.nameStartsWith("org.apache.skywalking.test.")))
+        ).fingerprintParts();
+        List<String> otherPrefixParts = new CacheableTransformerDecorator(
+            ClassCacheMode.MEMORY,
+            plugins(LogicalMatchOperation.or(PrefixMatch.nameStartsWith("org.apache.skywalking.other.")))
+        ).fingerprintParts();
+        Assert.assertNotEquals(prefixParts, otherPrefixParts);
+    }
+
+    @Test
+    public void testKeepInMemoryForUnknownMatch() throws Exception {
+        IndirectMatch unknown = new IndirectMatch() {
+            @Override
+            public ElementMatcher.Junction buildJunction() {
+                return ElementMatchers.named("org.apache.skywalking.test.Enhanced");
+            }
+
+            @Override
+            public boolean isMatch(TypeDescription typeDescription) {
+                return "org.apache.skywalking.test.Enhanced".equals(typeDescription.getName());
+            }
+        };
+        CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(
+            ClassCacheMode.PERSISTENT, plugins(LogicalMatchOperation.not(unknown)));
+        Assert.assertNull(decorator.fingerprintParts());
+
+        ResettableClassFileTransformer delegate = ignoringTransformer(decorator.getIgnoredTypeListener());
+        ClassFileTransformer transformer = decorator.decorate(delegate);
+        byte[] ignored = new ByteBuddy().subclass(Object.class).name(IGNORED).make().getBytes();
+
+        Assert.assertNull(transform(transformer, ignored));
+        Assert.assertNull(transform(transformer, ignored));
+        Mockito.verify(delegate, times(2))
+               .transform(Mockito.<ClassLoader>any(), anyString(), Mockito.<Class<?>>any(),
+                          Mockito.<ProtectionDomain>any(), Mockito.<byte[]>any());
+    }
+
+    private byte[] transform(ClassFileTransformer transformer, byte[] classfileBuffer) throws Exception {
+        return transformer.transform(
+            getClass().getClassLoader(), IGNORED.replace('.', '/'), null, null, classfileBuffer);
+    }
+
+    /**
+     * @return the transformer which reports every class as ignored, like the agent builder does for the classes not
+     * matched by any plugin.
+     */
+    private static ResettableClassFileTransformer ignoringTransformer(
+        final AgentBuilder.Listener listener) throws Exception {
+        ResettableClassFileTransformer delegate = Mockito.mock(ResettableClassFileTransformer.class);
+        Mockito.when(delegate.transform(Mockito.<ClassLoader>any(), anyString(), Mockito.<Class<?>>any(),
+                                        Mockito.<ProtectionDomain>any(), Mockito.<byte[]>any()))
+               .thenAnswer(new Answer<byte[]>() {
+                   @Override
+                   public byte[] answer(InvocationOnMock invocation) {
+                       String className = ((String) invocation.getArguments()[1]).replace('/', '.');
+                       TypeDescription type = Mockito.mock(TypeDescription.class);
+                       Mockito.when(type.getName()).thenReturn(className);
+                       listener.onIgnored(type, (ClassLoader) invocation.getArguments()[0], null, false);
+                       return null;
+                   }
+               });
+        return delegate;
+    }
+
+    private static List<AbstractClassEnhancePluginDefine> plugins(ClassMatch match) {
+        return Collections.<AbstractClassEnhancePluginDefine>singletonList(new MatchedInstrumentation(match));
+    }
+
+    private static class MatchedInstrumentation extends ClassInstanceMethodsEnhancePluginDefine {
+        private final ClassMatch match;
+
+        private MatchedInstrumentation(ClassMatch match) {
+            this.match = match;
+        }
+
+        @Override
+        protected ClassMatch enhanceClass() {
+            return match;
+        }
+
+        @Override
+        public ConstructorInterceptPoint[] getConstructorsInterceptPoints() {
+            return new ConstructorInterceptPoint[0];
+        }
+
+        @Override
+        public InstanceMethodsInterceptPoint[] getInstanceMethodsInterceptPoints() {
+            return new InstanceMethodsInterceptPoint[0];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.StubMethod;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassHierarchyReaderTest {
+    private static final String PARENT = "org.apache.skywalking.test.Parent";
+    private static final String CHILD = "org.apache.skywalking.test.Child";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadDirectSuperTypes() throws IOException {
+        byte[] runnable = new ByteBuddy().subclass(Object.class)
+                                         .name(PARENT)
+                                         .implement(Runnable.class)
+                                         .defineMethod("run", void.class, Visibility.PUBLIC)
+                                         .intercept(StubMethod.INSTANCE)
+                                         .make()
+                                         .getBytes();
+        Assert.assertArrayEquals(
+            new String[] {"java/lang/Object", "java/lang/Runnable"},
+            ClassHierarchyReader.readDirectSuperTypes(runnable)
+        );
+    }
+
+    @Test
+    public void testSubclassUnchangedParentNowMatches() throws IOException {
+        DynamicType.Unloaded<Object> parent = new ByteBuddy().subclass(Object.class).name(PARENT).make();
+        // The parent implements Runnable after the upgrade, the child is matched by the Runnable hierarchy now.
+        byte[] upgradedParent = new ByteBuddy().subclass(Object.class)
+                                               .name(PARENT)
+                                               .implement(Runnable.class)
+                                               .defineMethod("run", void.class, Visibility.PUBLIC)
+                                               .intercept(StubMethod.INSTANCE)
+                                               .make()
+                                               .getBytes();
+        byte[] child = new ByteBuddy().subclass(parent.getTypeDescription()).name(CHILD).make().getBytes();
+
+        List<String> superTypes = new ClassHierarchyReader().superTypes(loaderOf(parent.getBytes()), child);
+        Assert.assertEquals(Arrays.asList("java/lang/Object", "org/apache/skywalking/test/Parent"), superTypes);
+        List<String> upgradedSuperTypes = new ClassHierarchyReader().superTypes(loaderOf(upgradedParent), child);
+        Assert.assertEquals(
+            Arrays.asList("java/lang/Object", "java/lang/Runnable", "org/apache/skywalking/test/Parent"),
+            upgradedSuperTypes
+        );
+
+        File cacheDir = folder.newFolder();
+        PersistentClassCache cache = new PersistentClassCache(cacheDir, "test", 10);
+        cache.markUnmodified(PersistentClassCache.key(child, superTypes));
+        cache.save();
+
+        PersistentClassCache restarted = new PersistentClassCache(cacheDir, "test", 10);
+        restarted.load();
+        Assert.assertTrue(restarted.isUnmodified(PersistentClassCache.key(child, superTypes)));
+        Assert.assertFalse(restarted.isUnmodified(PersistentClassCache.key(child, upgradedSuperTypes)));
+    }
+
+    @Test
+    public void testMissingSuperType() {
+        DynamicType.Unloaded<Object> parent = new ByteBuddy().subclass(Object.class).name(PARENT).make();
+        byte[] child = new ByteBuddy().subclass(parent.getTypeDescription()).name(CHILD).make().getBytes();
+
+        Assert.assertNull(new ClassHierarchyReader().superTypes(loaderOf(null), child));
+    }
+
+    private static ClassLoader loaderOf(final byte[] parent) {
+        final Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+        if (parent != null) {
+            classFiles.put(PARENT.replace('.', '/') + ".class", parent);
+        }
+        return new ClassLoader(null) {
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                byte[] classFile = classFiles.get(name);
+                return classFile != null ? new ByteArrayInputStream(classFile) : super.getResourceAsStream(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.bytebuddy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PersistentClassCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File cacheDir = folder.newFolder();
+        PersistentClassCache cache = new PersistentClassCache(cacheDir, "test", 10);
+        cache.load();
+        ByteBuffer key = key(new byte[] {1, 2, 3});
+        Assert.assertFalse(cache.isUnmodified(key));
+        cache.markUnmodified(key);
+        Assert.assertTrue(cache.isUnmodified(key));
+        Assert.assertEquals(1, cache.save());
+
+        PersistentClassCache restarted = new PersistentClassCache(cacheDir, "test", 10);
+        restarted.load();
+        Assert.assertTrue(restarted.isUnmodified(key(new byte[] {1, 2, 3})));
+        Assert.assertFalse(restarted.isUnmodified(key(new byte[] {1, 2, 4})));
+        Assert.assertEquals(0, restarted.getAddedEntries());
+
+        // the cache of another agent package or plugins
+        PersistentClassCache other = new PersistentClassCache(cacheDir, "other", 10);
+        other.load();
+        Assert.assertEquals(0, other.size());
+        Assert.assertEquals(1, cacheDir.listFiles().length);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws IOException {
+        File cacheDir = folder.newFolder();
+        PersistentClassCache cache = new PersistentClassCache(cacheDir, "test", 2);
+        cache.markUnmodified(key(new byte[] {1}));
+        cache.markUnmodified(key(new byte[] {2}));
+        Assert.assertEquals(2, cache.save());
+
+        PersistentClassCache restarted = new PersistentClassCache(cacheDir, "test", 2);
+        restarted.load();
+        Assert.assertTrue(restarted.isUnmodified(key(new byte[] {2})));
+        restarted.markUnmodified(key(new byte[] {3}));
+        Assert.assertEquals(2, restarted.save());
+
+        PersistentClassCache evicted = new PersistentClassCache(cacheDir, "test", 2);
+        evicted.load();
+        Assert.assertFalse(evicted.isUnmodified(key(new byte[] {1})));
+        Assert.assertTrue(evicted.isUnmodified(key(new byte[] {2})));
+        Assert.assertTrue(evicted.isUnmodified(key(new byte[] {3})));
+    }
+
+    private static ByteBuffer key(byte[] classfileBuffer) {
+        return PersistentClassCache.key(classfileBuffer, Collections.<String>emptyList());
+    }
+
+    @Test
+    public void testFingerprint() {
+        Assert.assertEquals(
+            PersistentClassCache.fingerprint(Arrays.asList("skywalking-agent.jar:1:1", "plugin")),
+            PersistentClassCache.fingerprint(Arrays.asList("skywalking-agent.jar:1:1", "plugin"))
+        );
+        Assert.assertNotEquals(
+            PersistentClassCache.fingerprint(Arrays.asList("skywalking-agent.jar:1:1", "plugin")),
+            PersistentClassCache.fingerprint(Arrays.asList("skywalking-agent.jar:1:2", "plugin"))
+        );
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.match;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.StubMethod;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch.byClassAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch.byHierarchyMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.MethodAnnotationMatch.byMethodAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch.nameStartsWith;
+
+/**
+ * Match a synthetic class path against the plugin matches, as the agent does at the startup. {@link
+ * #junctions(Blackhole)} is the OR junction of all matches, {@link #index(Blackhole)} is the {@link
+ * IndirectMatchIndex}. The score is the time of matching all {@link #TYPES} types.
+ */
+@State(Scope.Thread)
+public class IndirectMatchIndexBenchmark {
+    private static final String PACKAGE = "org.apache.skywalking.benchmark.";
+    /**
+     * The number of the indirect matches, about the number of the signature matched plugins.
+     */
+    private static final int MATCHES = 400;
+    private static final int TYPES = 5000;
+
+    private final List<TypeDescription> types = new ArrayList<>(TYPES);
+    private ElementMatcher.Junction junction;
+    private IndirectMatchIndex index;
+
+    @Setup
+    public void setUp() {
+        List<IndirectMatch> matches = new ArrayList<>(MATCHES);
+        List<TypeDescription> bases = new ArrayList<>();
+        List<AnnotationDescription> annotations = new ArrayList<>();
+        for (int i = 0; i < MATCHES; i++) {
+            switch (i % 4) {
+                case 0:
+                    matches.add(byHierarchyMatch(PACKAGE + "Base" + i));
+                    bases.add(new ByteBuddy().subclass(Object.class)
+                                             .name(PACKAGE + "Base" + i)
+                                             .make()
+                                             .getTypeDescription());
+                    break;
+                case 1:
+                    matches.add(byClassAnnotationMatch(PACKAGE + "Annotation" + i));
+                    annotations.add(annotation(PACKAGE + "Annotation" + i));
+                    break;
+                case 2:
+                    matches.add(byMethodAnnotationMatch(PACKAGE + "Annotation" + i));
+                    annotations.add(annotation(PACKAGE + "Annotation" + i));
+                    break;
+                default:
+                    matches.add(nameStartsWith(PACKAGE + "pkg" + i + "."));
+            }
+        }
+
+        // a few percent of the types are matched, as most of the class path is out of the plugins
+        for (int i = 0; i < TYPES; i++) {
+            TypeDefinition superClass = i % 20 == 0 ? bases.get(i % bases.size()) : TypeDescription.OBJECT;
+            DynamicType.Builder<?> builder = new ByteBuddy().subclass(superClass)
+                                                            .name(PACKAGE + "pkg" + i % (MATCHES * 10) + ".Type" + i)
+                                                            .implement(Runnable.class)
+                                                            .defineMethod("run", void.class, Visibility.PUBLIC)
+                                                            .intercept(StubMethod.INSTANCE);
+            if (i % 30 == 0) {
+                builder = builder.annotateType(annotations.get(i % annotations.size()));
+            }
+            if (i % 40 == 0) {
+                builder = builder.defineMethod("handle", void.class, Visibility.PUBLIC)
+                                 .intercept(StubMethod.INSTANCE)
+                                 .annotateMethod(annotations.get(i % annotations.size()));
+            }
+            types.add(builder.make().getTypeDescription());
+        }
+
+        junction = null;
+        for (IndirectMatch match : matches) {
+            junction = junction == null ? match.buildJunction() : junction.or(match.buildJunction());
+        }
+        index = new IndirectMatchIndex(matches);
+    }
+
+    private static AnnotationDescription annotation(String name) {
+        return AnnotationDescription.Builder.ofType(new ByteBuddy().makeAnnotation()
+                                                                   .name(name)
+                                                                   .make()
+                                                                   .getTypeDescription()).build();
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    @SuppressWarnings("unchecked")
+    public void junctions(Blackhole bh) {
+        for (TypeDescription type : types) {
+            bh.consume(junction.matches(type));
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, warmups = 1)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @BenchmarkMode(Mode.AverageTime)
+    public void index(Blackhole bh) {
+        for (TypeDescription type : types) {
+            bh.consume(index.matches(type));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder().include(IndirectMatchIndexBenchmark.class.getSimpleName())
+                                          .addProfiler(GCProfiler.class)
+                                          .build();
+        new Runner(opt).run();
+    }
+}
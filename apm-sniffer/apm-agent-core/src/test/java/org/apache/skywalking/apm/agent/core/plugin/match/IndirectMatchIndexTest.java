@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.apm.agent.core.plugin.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.apache.skywalking.apm.agent.core.plugin.match.logical.LogicalMatchOperation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.apache.skywalking.apm.agent.core.plugin.match.ClassAnnotationMatch.byClassAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.HierarchyMatch.byHierarchyMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.MethodAnnotationMatch.byMethodAnnotationMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.MultiClassNameMatch.byMultiClassMatch;
+import static org.apache.skywalking.apm.agent.core.plugin.match.PrefixMatch.nameStartsWith;
+import static org.apache.skywalking.apm.agent.core.plugin.match.RegexMatch.byRegexMatch;
+
+public class IndirectMatchIndexTest {
+    private static final List<IndirectMatch> MATCHES = Arrays.asList(
+        byMultiClassMatch(TestService.class.getName(), "org.example.Missing"),
+        nameStartsWith(IndirectMatchIndexTest.class.getName() + "$TestRe", "org.example."),
+        byHierarchyMatch(Runnable.class.getName()),
+        byHierarchyMatch(TestBaseService.class.getName(), Runnable.class.getName()),
+        byHierarchyMatch(TestFacade.class.getName()),
+        byClassAnnotationMatch(MatchTestAnnotation.class.getName()),
+        byMethodAnnotationMatch(MatchTestAnnotation.class.getName()),
+        byRegexMatch(".*Dao.*"),
+        LogicalMatchOperation.and(
+            byRegexMatch(".*Service.*"),
+            byClassAnnotationMatch(MatchTestAnnotation.class.getName())
+        )
+    );
+
+    private static final Class<?>[] TYPES = new Class<?>[] {
+        TestService.class,
+        TestBaseService.class,
+        TestRunnableService.class,
+        TestChildService.class,
+        TestDao.class,
+        TestRepository.class,
+        TestController.class,
+        TestFacade.class,
+        TestFacadeImpl.class,
+        Object.class
+    };
+
+    @Test
+    public void testCandidates() {
+        IndirectMatchIndex index = new IndirectMatchIndex(MATCHES);
+        for (Class<?> type : TYPES) {
+            TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+            BitSet candidates = index.candidates(typeDescription);
+            for (int i = 0; i < MATCHES.size(); i++) {
+                if (MATCHES.get(i).isMatch(typeDescription)) {
+                    Assert.assertTrue(type.getName() + " misses the match " + i, candidates.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMatchesAsJunctions() {
+        IndirectMatchIndex index = new IndirectMatchIndex(MATCHES);
+        List<ElementMatcher.Junction> junctions = new ArrayList<>();
+        for (IndirectMatch match : MATCHES) {
+            junctions.add(match.buildJunction());
+        }
+
+        for (Class<?> type : TYPES) {
+            TypeDescription typeDescription = TypeDescription.ForLoadedType.of(type);
+            boolean expected = false;
+            for (ElementMatcher.Junction junction : junctions) {
+                expected |= junction.matches(typeDescription);
+            }
+            Assert.assertEquals(type.getName(), expected, index.matches(typeDescription));
+        }
+    }
+
+    @Test
+    public void testUnmatched() {
+        IndirectMatchIndex index = new IndirectMatchIndex(Arrays.asList(
+            byHierarchyMatch(Runnable.class.getName()),
+            byClassAnnotationMatch(MatchTestAnnotation.class.getName())
+        ));
+        Assert.assertTrue(index.candidates(TypeDescription.ForLoadedType.of(TestService.class)).isEmpty());
+        Assert.assertFalse(index.matches(TypeDescription.ForLoadedType.of(TestService.class)));
+        // the interfaces are never matched by the hierarchy
+        Assert.assertFalse(index.matches(TypeDescription.ForLoadedType.of(TestFacade.class)));
+        Assert.assertTrue(index.matches(TypeDescription.ForLoadedType.of(TestRunnableService.class)));
+    }
+
+    public static class TestService {
+    }
+
+    public static class TestBaseService {
+    }
+
+    public static class TestRunnableService extends TestBaseService implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @MatchTestAnnotation
+    public static class TestChildService extends TestRunnableService {
+    }
+
+    @MatchTestAnnotation
+    public static class TestDao {
+    }
+
+    public static class TestRepository {
+    }
+
+    public static class TestController {
+        @MatchTestAnnotation
+        public void handle() {
+        }
+    }
+
+    public interface TestFacade extends Runnable {
+    }
+
+    public static class TestFacadeImpl implements TestFacade {
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -22,7 +22,10 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import io.grpc.stub.StreamObserver;
 import io.grpc.testing.GrpcServerRule;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.skywalking.apm.agent.core.boot.ServiceManager;
 import org.apache.skywalking.apm.agent.core.conf.Config;
 import org.apache.skywalking.apm.agent.core.context.ContextManager;
@@ -108,7 +111,7 @@ public class TraceSegmentServiceClientTest {
             serviceClient, "serviceStub", TraceSegmentReportServiceGrpc.newStub(grpcServerRule.getChannel()));
         Whitebox.setInternalState(serviceClient, "status", GRPCChannelStatus.CONNECTED);
 
-        upstreamSegments = new ArrayList<>();
+        upstreamSegments = Collections.synchronizedList(new ArrayList<>());
     }
 
     @Test
@@ -155,4 +158,47 @@ public class TraceSegmentServiceClientTest {
         assertThat(reconnect, is(true));
 
     }
+
+    @Test(timeout = 10000)
+    public void testSendTraceSegmentInLongLivedStream() throws InterruptedException {
+        final AtomicInteger streamCount = new AtomicInteger();
+        grpcServerRule.getServiceRegistry().addService(new TraceSegmentReportServiceGrpc.TraceSegmentReportServiceImplBase() {
+            @Override
+            public StreamObserver<SegmentObject> collect(final StreamObserver<Commands> responseObserver) {
+                streamCount.incrementAndGet();
+                return serviceImplBase.collect(responseObserver);
+            }
+        });
+        Config.Collector.TRACE_SEGMENT_REPORT_STREAMS = 1;
+        final int grpcUpstreamTimeout = Config.Collector.GRPC_UPSTREAM_TIMEOUT;
+        try {
+            serviceClient.boot();
+            for (int i = 0; i < 2; i++) {
+                AbstractSpan entrySpan = ContextManager.createEntrySpan("/testEntry" + i, null);
+                entrySpan.setComponent(ComponentsDefine.TOMCAT);
+                ContextManager.stopSpan();
+            }
+
+            serviceClient.consume(storage.getTraceSegments().subList(0, 1));
+            serviceClient.consume(storage.getTraceSegments().subList(1, 2));
+
+            while (upstreamSegments.size() < 2) {
+                Thread.sleep(10);
+            }
+            // Both batches are sent through the same stream.
+            assertThat(streamCount.get(), is(1));
+
+            // The idle stream is rotated once expired, the segments are uplinked once the collector completes the call.
+            Config.Collector.GRPC_UPSTREAM_TIMEOUT = 0;
+            serviceClient.nothingToConsume();
+            AtomicLong uplinked = Whitebox.getInternalState(serviceClient, "segmentUplinkedCounter");
+            while (uplinked.get() < 2) {
+                Thread.sleep(10);
+            }
+        } finally {
+            serviceClient.shutdown();
+            Config.Collector.TRACE_SEGMENT_REPORT_STREAMS = 0;
+            Config.Collector.GRPC_UPSTREAM_TIMEOUT = grpcUpstreamTimeout;
+        }
+    }
 }
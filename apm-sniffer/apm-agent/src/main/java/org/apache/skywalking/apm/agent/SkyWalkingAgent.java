@@ -63,6 +63,7 @@ public class SkyWalkingAgent {
      * Main entrance. Use byte-buddy transform to enhance all classes, which define in plugins.
      */
     public static void premain(String agentArgs, Instrumentation instrumentation) throws PluginException {
+        final List<AbstractClassEnhancePluginDefine> plugins;
         final PluginFinder pluginFinder;
         try {
             SnifferConfigInitializer.initializeCoreConfig(agentArgs);
@@ -77,7 +78,8 @@ public class SkyWalkingAgent {
         }
 
         try {
-            pluginFinder = new PluginFinder(new PluginBootstrap().loadPlugins());
+            plugins = new PluginBootstrap().loadPlugins();
+            pluginFinder = new PluginFinder(plugins);
         } catch (AgentPackageNotFoundException ape) {
             LOGGER.error(ape, "Locate agent.jar failure. Shutting down.");
             return;
@@ -116,7 +118,8 @@ public class SkyWalkingAgent {
 
         if (Config.Agent.IS_CACHE_ENHANCED_CLASS) {
             try {
-                agentBuilder = agentBuilder.with(new CacheableTransformerDecorator(Config.Agent.CLASS_CACHE_MODE));
+                CacheableTransformerDecorator decorator = new CacheableTransformerDecorator(Config.Agent.CLASS_CACHE_MODE, plugins);
+                agentBuilder = agentBuilder.with(decorator).with(decorator.getIgnoredTypeListener());
                 LOGGER.info("SkyWalking agent class cache [{}] activated.", Config.Agent.CLASS_CACHE_MODE);
             } catch (Exception e) {
                 LOGGER.error(e, "SkyWalking agent can't active class cache.");
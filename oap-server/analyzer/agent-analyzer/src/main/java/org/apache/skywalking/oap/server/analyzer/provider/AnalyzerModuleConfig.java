@@ -121,6 +121,76 @@ public class AnalyzerModuleConfig extends ModuleConfig {
     @Getter
     private String segmentStatusAnalysisStrategy = FROM_SPAN_STATUS.name();
 
+    /**
+     * Hold the segments of every trace for {@link #tailSamplingWindow}, and decide to keep or drop the whole trace
+     * once. The trace is kept if any of its segments is sampled by the sample rate, in error status or slow, so the
+     * segments of one trace are persisted or dropped together. The decisions are made by every OAP node for the
+     * segments it receives, so the segments of one trace should be routed to one OAP node to be decided together.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private boolean enableTailSampling = false;
+
+    /**
+     * The time window to wait for the segments of one trace, from its first segment received. Unit, millisecond.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private int tailSamplingWindow = 10000;
+
+    /**
+     * The max number of the segments held by the tail sampling. The segments exceeding it are sampled one by one. It
+     * counts the segments, not their bytes, every held segment keeps its whole binary in memory.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private int tailSamplingMaxSegments = 50000;
+
+    /**
+     * The series of the MAL `increase`, `rate` and `irate` functions not updated in the retention are evicted. Unit,
+     * second. 0 means never.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private int meterCounterWindowRetention = 3600;
+
+    /**
+     * The max estimated memory size of the series of the MAL `increase`, `rate` and `irate` functions, the least
+     * recently updated series are evicted once exceeding it. Unit, MB. 0 means unlimited.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private int meterCounterWindowMaxMemory = 0;
+
+    /**
+     * The local file to save the series of the MAL `increase`, `rate` and `irate` functions, which are restored from
+     * it when OAP restarts. Empty means disabled.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private String meterCounterWindowSnapshotPath = Const.EMPTY_STRING;
+
+    /**
+     * The period to save the series to {@link #meterCounterWindowSnapshotPath}. Unit, second.
+     *
+     * @since 8.7.0
+     */
+    @Setter
+    @Getter
+    private int meterCounterWindowSnapshotPeriod = 60;
+
     private List<Integer> virtualPeers;
 
     /**
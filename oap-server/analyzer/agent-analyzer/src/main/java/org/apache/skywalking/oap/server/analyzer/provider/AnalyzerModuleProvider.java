@@ -20,7 +20,9 @@ package org.apache.skywalking.oap.server.analyzer.provider;
 
 import java.util.List;
 import lombok.Getter;
+import org.apache.skywalking.oap.meter.analyzer.dsl.counter.CounterWindow;
 import org.apache.skywalking.oap.server.analyzer.module.AnalyzerModule;
+import org.apache.skywalking.oap.server.analyzer.provider.meter.CounterWindowTimer;
 import org.apache.skywalking.oap.server.analyzer.provider.meter.config.MeterConfig;
 import org.apache.skywalking.oap.server.analyzer.provider.meter.config.MeterConfigs;
 import org.apache.skywalking.oap.server.analyzer.provider.meter.process.IMeterProcessService;
@@ -127,6 +129,8 @@ public class AnalyzerModuleProvider extends ModuleProvider {
         segmentParserService.setListenerManager(listenerManager());
 
         processService.start(meterConfigs);
+
+        new CounterWindowTimer(CounterWindow.INSTANCE, moduleConfig).start(getManager());
     }
 
     @Override
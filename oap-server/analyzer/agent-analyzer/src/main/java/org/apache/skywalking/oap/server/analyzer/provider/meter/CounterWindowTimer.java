@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.analyzer.provider.meter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.apm.util.StringUtil;
+import org.apache.skywalking.oap.meter.analyzer.dsl.counter.CounterWindow;
+import org.apache.skywalking.oap.server.analyzer.provider.AnalyzerModuleConfig;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * CounterWindowTimer maintains the {@link CounterWindow} used by the MAL `increase`, `rate` and `irate` functions. It
+ * evicts the stale series periodically, reports the size of the store, and saves the store to the snapshot file
+ * periodically and at shutdown, if the snapshot is enabled. The snapshot is restored when OAP starts.
+ */
+@Slf4j
+public class CounterWindowTimer {
+    private static final long EVICT_PERIOD = 10_000;
+
+    private final CounterWindow window;
+    private final AnalyzerModuleConfig config;
+    private GaugeMetrics seriesGauge;
+    private GaugeMetrics bytesGauge;
+    private CounterMetrics evictionCounter;
+
+    public CounterWindowTimer(CounterWindow window, AnalyzerModuleConfig config) {
+        this.window = window;
+        this.config = config;
+    }
+
+    public void start(ModuleManager moduleManager) {
+        window.configure(
+            TimeUnit.SECONDS.toMillis(config.getMeterCounterWindowRetention()),
+            config.getMeterCounterWindowMaxMemory() * 1024L * 1024L
+        );
+
+        MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                                                     .provider()
+                                                     .getService(MetricsCreator.class);
+        seriesGauge = metricsCreator.createGauge(
+            "meter_counter_window_series", "The number of the series in the MAL counter window",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        bytesGauge = metricsCreator.createGauge(
+            "meter_counter_window_bytes", "The estimated size in bytes of the MAL counter window",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+        evictionCounter = metricsCreator.createCounter(
+            "meter_counter_window_eviction_count", "The number of the series evicted from the MAL counter window",
+            MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
+        );
+
+        final File snapshot = snapshotFile();
+        if (snapshot != null) {
+            try {
+                log.info("{} series of the counter window are restored from {}", window.restore(snapshot), snapshot);
+            } catch (IOException e) {
+                log.warn("Restore the counter window from {} failure, start with the empty window.", snapshot, e);
+            }
+        }
+
+        Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("CounterWindowEviction"))
+                 .scheduleWithFixedDelay(
+                     new RunnableWithExceptionProtection(
+                         this::evict, t -> log.error("Evict the counter window failure.", t)
+                     ), EVICT_PERIOD, EVICT_PERIOD, TimeUnit.MILLISECONDS
+                 );
+
+        if (snapshot != null) {
+            final long period = Math.max(1, config.getMeterCounterWindowSnapshotPeriod());
+            Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("CounterWindowSnapshot"))
+                     .scheduleWithFixedDelay(
+                         new RunnableWithExceptionProtection(
+                             () -> snapshot(snapshot), t -> log.error("Snapshot the counter window failure.", t)
+                         ), period, period, TimeUnit.SECONDS
+                     );
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> snapshot(snapshot)));
+        }
+    }
+
+    void evict() {
+        final int evicted = window.evict(System.currentTimeMillis());
+        if (evicted > 0) {
+            evictionCounter.inc(evicted);
+            if (log.isDebugEnabled()) {
+                log.debug("{} series are evicted from the counter window", evicted);
+            }
+        }
+        seriesGauge.setValue(window.size());
+        bytesGauge.setValue(window.estimatedSize());
+    }
+
+    private synchronized void snapshot(File file) {
+        try {
+            window.snapshot(file);
+        } catch (IOException e) {
+            log.error("Save the counter window to {} failure.", file, e);
+        }
+    }
+
+    private File snapshotFile() {
+        final String path = config.getMeterCounterWindowSnapshotPath();
+        return StringUtil.isEmpty(path) ? null : new File(path);
+    }
+}
@@ -56,9 +56,17 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
     private final List<String> searchableTagKeys;
     private final SegmentStatusAnalyzer segmentStatusAnalyzer;
     private final TraceLatencyThresholdsAndWatcher traceLatencyThresholdsAndWatcher;
+    /**
+     * Null if the tail sampling is disabled.
+     */
+    private final TailSamplingBuffer tailSamplingBuffer;
 
     private final Segment segment = new Segment();
     private SAMPLE_STATUS sampleStatus = SAMPLE_STATUS.UNKNOWN;
+    /**
+     * The sampling decision of this segment by itself, only used by the tail sampling.
+     */
+    private boolean shouldSampleSegment;
     private String serviceName = Const.EMPTY_STRING;
     private String serviceId = Const.EMPTY_STRING;
     private String endpointId = Const.EMPTY_STRING;
@@ -151,6 +159,11 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
             } else {
                 sampleStatus = SAMPLE_STATUS.IGNORE;
             }
+            if (tailSamplingBuffer != null) {
+                // Build every segment, the tail sampling decides once per trace.
+                shouldSampleSegment = sampleStatus.equals(SAMPLE_STATUS.SAMPLED);
+                sampleStatus = SAMPLE_STATUS.SAMPLED;
+            }
         }
     }
 
@@ -184,7 +197,11 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         segment.setEndpointId(endpointId);
         segment.setEndpointName(endpointName);
 
-        sourceReceiver.receive(segment);
+        if (tailSamplingBuffer != null) {
+            tailSamplingBuffer.offer(segment, shouldSampleSegment, System.currentTimeMillis());
+        } else {
+            sourceReceiver.receive(segment);
+        }
     }
 
     private enum SAMPLE_STATUS {
@@ -199,6 +216,7 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
         private final List<String> searchTagKeys;
         private final SegmentStatusAnalyzer segmentStatusAnalyzer;
         private final TraceLatencyThresholdsAndWatcher traceLatencyThresholdsAndWatcher;
+        private final TailSamplingBuffer tailSamplingBuffer;
 
         public Factory(ModuleManager moduleManager, AnalyzerModuleConfig config) {
             this.sourceReceiver = moduleManager.find(CoreModule.NAME).provider().getService(SourceReceiver.class);
@@ -214,6 +232,13 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
             this.segmentStatusAnalyzer = SegmentStatusStrategy.findByName(config.getSegmentStatusAnalysisStrategy())
                                                               .getExceptionAnalyzer();
             this.traceLatencyThresholdsAndWatcher = config.getTraceLatencyThresholdsAndWatcher();
+            if (config.isEnableTailSampling()) {
+                this.tailSamplingBuffer = new TailSamplingBuffer(
+                    sourceReceiver, config.getTailSamplingWindow(), config.getTailSamplingMaxSegments());
+                this.tailSamplingBuffer.start();
+            } else {
+                this.tailSamplingBuffer = null;
+            }
         }
 
         @Override
@@ -225,7 +250,8 @@ public class SegmentAnalysisListener implements FirstAnalysisListener, EntryAnal
                 namingControl,
                 searchTagKeys,
                 segmentStatusAnalyzer,
-                traceLatencyThresholdsAndWatcher
+                traceLatencyThresholdsAndWatcher,
+                tailSamplingBuffer
             );
         }
     }
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.analyzer.provider.trace.parser.listener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
+import org.apache.skywalking.oap.server.core.source.Segment;
+import org.apache.skywalking.oap.server.core.source.SourceReceiver;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
+
+/**
+ * TailSamplingBuffer holds the segments of the recent traces, and decides to keep or drop every trace once, when its
+ * window expires. The trace is kept when any of its segments should be sampled, by the sample rate, the error status
+ * or the latency, then all its segments are persisted together.
+ *
+ * The number of the buffered segments is capped, not their bytes, every buffered segment holds its whole binary. Once
+ * the buffer is full, the new segments are decided one by one, as the segment level sampling does when the tail
+ * sampling is disabled. The decisions of the recent traces are remembered, the segments arriving after the decision
+ * follow it.
+ *
+ * The buffer and the decisions are local to this OAP node. When the segments of one trace are received by several OAP
+ * nodes, every node decides its own part of the trace.
+ */
+@Slf4j
+class TailSamplingBuffer {
+    private static final int MAX_DECISIONS = 100_000;
+
+    private final SourceReceiver sourceReceiver;
+    /**
+     * Unit is ms.
+     */
+    private final long window;
+    private final int maxSegments;
+    private final Map<String, BufferedTrace> traces = new ConcurrentHashMap<>();
+    private final AtomicInteger bufferedSegments = new AtomicInteger();
+    private final Map<String, Boolean> decisions = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_DECISIONS;
+        }
+    };
+
+    TailSamplingBuffer(SourceReceiver sourceReceiver, long window, int maxSegments) {
+        this.sourceReceiver = sourceReceiver;
+        this.window = window;
+        this.maxSegments = maxSegments;
+    }
+
+    void start() {
+        final long period = Math.max(100, Math.min(1000, window / 2));
+        Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("TailSamplingFlush"))
+                 .scheduleWithFixedDelay(
+                     new RunnableWithExceptionProtection(
+                         () -> flushExpired(System.currentTimeMillis()),
+                         t -> log.error("Flush the tail sampling buffer failure.", t)
+                     ), period, period, TimeUnit.MILLISECONDS
+                 );
+    }
+
+    /**
+     * @param segment      to be persisted if its trace is kept.
+     * @param shouldSample true if this segment should be sampled by itself.
+     * @param now          current time, unit is ms.
+     */
+    void offer(Segment segment, boolean shouldSample, long now) {
+        final String traceId = segment.getTraceId();
+        final Boolean decision = decisionOf(traceId);
+        if (decision != null) {
+            if (decision || shouldSample) {
+                sourceReceiver.receive(segment);
+            }
+            return;
+        }
+
+        if (bufferedSegments.get() >= maxSegments) {
+            // Overflow, fallback to the segment level sampling.
+            if (shouldSample) {
+                sourceReceiver.receive(segment);
+            }
+            return;
+        }
+
+        final BufferedTrace trace = traces.computeIfAbsent(traceId, id -> new BufferedTrace(now));
+        synchronized (trace) {
+            if (trace.decided) {
+                // The trace has been decided after it is found.
+                if (trace.keep || shouldSample) {
+                    sourceReceiver.receive(segment);
+                }
+                return;
+            }
+            if (trace.segments.isEmpty()) {
+                // The trace may have been decided and removed right before this new one is created, the decision is
+                // remembered before the removal.
+                final Boolean decided = decisionOf(traceId);
+                if (decided != null) {
+                    trace.decided = true;
+                    trace.keep = decided;
+                    traces.remove(traceId, trace);
+                    if (decided || shouldSample) {
+                        sourceReceiver.receive(segment);
+                    }
+                    return;
+                }
+            }
+            trace.segments.add(segment);
+            trace.keep = trace.keep || shouldSample;
+        }
+        bufferedSegments.incrementAndGet();
+    }
+
+    /**
+     * Decide the traces whose window expires, persist the segments of the kept ones.
+     */
+    void flushExpired(long now) {
+        final Iterator<Map.Entry<String, BufferedTrace>> iterator = traces.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, BufferedTrace> entry = iterator.next();
+            final BufferedTrace trace = entry.getValue();
+            if (now - trace.startTime < window) {
+                continue;
+            }
+
+            final List<Segment> segments;
+            final boolean keep;
+            synchronized (trace) {
+                trace.decided = true;
+                segments = trace.segments;
+                keep = trace.keep;
+                // Remember the decision before the removal, the segments arriving later find either of them.
+                remember(entry.getKey(), keep);
+            }
+            iterator.remove();
+            bufferedSegments.addAndGet(-segments.size());
+
+            if (log.isDebugEnabled()) {
+                log.debug("trace {} is {} with {} segments", entry.getKey(), keep ? "kept" : "dropped", segments.size());
+            }
+            if (keep) {
+                segments.forEach(sourceReceiver::receive);
+            }
+        }
+    }
+
+    int bufferedSegments() {
+        return bufferedSegments.get();
+    }
+
+    private Boolean decisionOf(String traceId) {
+        synchronized (decisions) {
+            return decisions.get(traceId);
+        }
+    }
+
+    private void remember(String traceId, boolean keep) {
+        synchronized (decisions) {
+            decisions.put(traceId, keep);
+        }
+    }
+
+    private static class BufferedTrace {
+        private final long startTime;
+        private final List<Segment> segments = new ArrayList<>(4);
+        private boolean keep;
+        private boolean decided;
+
+        private BufferedTrace(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.analyzer.provider.trace.parser.listener;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.analysis.DispatcherDetectorListener;
+import org.apache.skywalking.oap.server.core.source.ISource;
+import org.apache.skywalking.oap.server.core.source.Segment;
+import org.apache.skywalking.oap.server.core.source.SourceReceiver;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TailSamplingBufferTest {
+    private final List<Segment> received = new ArrayList<>();
+    private final SourceReceiver sourceReceiver = new SourceReceiver() {
+        @Override
+        public void receive(ISource source) {
+            received.add((Segment) source);
+        }
+
+        @Override
+        public DispatcherDetectorListener getDispatcherDetectorListener() {
+            return null;
+        }
+    };
+
+    @Test
+    public void testKeepOrDropWholeTrace() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(sourceReceiver, 10_000, 100);
+        // The fast upstream segment comes first, then the slow downstream one.
+        buffer.offer(newSegment("trace-1", "segment-1"), false, 1000);
+        buffer.offer(newSegment("trace-1", "segment-2"), true, 1500);
+        buffer.offer(newSegment("trace-2", "segment-3"), false, 1000);
+        buffer.offer(newSegment("trace-2", "segment-4"), false, 1200);
+        Assert.assertEquals(4, buffer.bufferedSegments());
+
+        buffer.flushExpired(10_999);
+        Assert.assertTrue(received.isEmpty());
+
+        buffer.flushExpired(11_000);
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals("trace-1", received.get(0).getTraceId());
+        Assert.assertEquals("trace-1", received.get(1).getTraceId());
+        Assert.assertEquals(0, buffer.bufferedSegments());
+    }
+
+    @Test
+    public void testLateSegmentFollowsDecision() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(sourceReceiver, 10_000, 100);
+        buffer.offer(newSegment("trace-1", "segment-1"), true, 1000);
+        buffer.offer(newSegment("trace-2", "segment-2"), false, 1000);
+        buffer.flushExpired(11_000);
+        Assert.assertEquals(1, received.size());
+
+        buffer.offer(newSegment("trace-1", "segment-3"), false, 12_000);
+        buffer.offer(newSegment("trace-2", "segment-4"), false, 12_000);
+        Assert.assertEquals(2, received.size());
+        Assert.assertEquals("segment-3", received.get(1).getSegmentId());
+        Assert.assertEquals(0, buffer.bufferedSegments());
+    }
+
+    @Test
+    public void testOverflowFallback() {
+        TailSamplingBuffer buffer = new TailSamplingBuffer(sourceReceiver, 10_000, 1);
+        buffer.offer(newSegment("trace-1", "segment-1"), false, 1000);
+        // Exceed the capacity, decided by the segment itself.
+        buffer.offer(newSegment("trace-2", "segment-2"), true, 1000);
+        buffer.offer(newSegment("trace-3", "segment-3"), false, 1000);
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals("segment-2", received.get(0).getSegmentId());
+        Assert.assertEquals(1, buffer.bufferedSegments());
+    }
+
+    private static Segment newSegment(String traceId, String segmentId) {
+        Segment segment = new Segment();
+        segment.setTraceId(traceId);
+        segment.setSegmentId(segmentId);
+        return segment;
+    }
+}
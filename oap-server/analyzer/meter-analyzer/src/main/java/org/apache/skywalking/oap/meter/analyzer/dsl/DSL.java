@@ -31,19 +31,33 @@ import org.codehaus.groovy.control.customizers.ImportCustomizer;
 public final class DSL {
 
     /**
-     * Parse string literal to Expression object, which can be reused.
+     * Parse string literal to Expression object, which can be reused. The expression is compiled into a pipeline of
+     * {@link SampleFamily} operations by {@link ExpressionCompiler} if possible, otherwise it runs as a Groovy script.
      *
      * @param expression string literal represents the DSL expression.
      * @return Expression object could be executed.
      */
     public static Expression parse(final String expression) {
+        return ExpressionCompiler.compile(expression).orElseGet(() -> parseByGroovy(expression));
+    }
+
+    /**
+     * Parse string literal to Expression object running as a Groovy script.
+     *
+     * @param expression string literal represents the DSL expression.
+     * @return Expression object could be executed.
+     */
+    static Expression parseByGroovy(final String expression) {
+        DelegatingScript script = (DelegatingScript) shell().parse(expression);
+        return new Expression(expression, script);
+    }
+
+    static GroovyShell shell() {
         CompilerConfiguration cc = new CompilerConfiguration();
         cc.setScriptBaseClass(DelegatingScript.class.getName());
         ImportCustomizer icz = new ImportCustomizer();
         icz.addImport("K8sRetagType", K8sRetagType.class.getName());
         cc.addCompilationCustomizers(icz);
-        GroovyShell sh = new GroovyShell(new Binding(), cc);
-        DelegatingScript script = (DelegatingScript) sh.parse(expression);
-        return new Expression(expression, script);
+        return new GroovyShell(new Binding(), cc);
     }
 }
@@ -23,6 +23,8 @@ import groovy.lang.ExpandoMetaClass;
 import groovy.lang.GroovyObjectSupport;
 import groovy.util.DelegatingScript;
 import java.time.Instant;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
@@ -36,14 +38,29 @@ public class Expression {
 
     private final String literal;
 
-    private final DelegatingScript expression;
-
     private final ThreadLocal<ImmutableMap<String, SampleFamily>> propertyRepository = new ThreadLocal<>();
 
+    private final ExpressionDelegate delegate;
+
+    private final Supplier<Object> program;
+
     public Expression(final String literal, final DelegatingScript expression) {
         this.literal = literal;
-        this.expression = expression;
-        this.empower();
+        this.delegate = new ExpressionDelegate(literal, propertyRepository);
+        this.program = expression::run;
+        this.empower(expression);
+    }
+
+    /**
+     * Create an Expression backed by a compiled pipeline, which runs without Groovy.
+     *
+     * @param literal  string literal represents the DSL expression.
+     * @param compiled the pipeline compiled by {@link ExpressionCompiler}.
+     */
+    Expression(final String literal, final Function<ExpressionDelegate, SampleFamily> compiled) {
+        this.literal = literal;
+        this.delegate = new ExpressionDelegate(literal, propertyRepository);
+        this.program = () -> compiled.apply(delegate);
     }
 
     /**
@@ -74,7 +91,7 @@ public class Expression {
     public Result run(final ImmutableMap<String, SampleFamily> sampleFamilies) {
         propertyRepository.set(sampleFamilies);
         try {
-            SampleFamily sf = (SampleFamily) expression.run();
+            SampleFamily sf = (SampleFamily) program.get();
             if (sf == SampleFamily.EMPTY) {
                 if (!ExpressionParsingContext.get().isPresent()) {
                     if (log.isDebugEnabled()) {
@@ -92,8 +109,8 @@ public class Expression {
         }
     }
 
-    private void empower() {
-        expression.setDelegate(new ExpressionDelegate(literal, propertyRepository));
+    private void empower(final DelegatingScript expression) {
+        expression.setDelegate(delegate);
         extendNumber(Number.class);
     }
 
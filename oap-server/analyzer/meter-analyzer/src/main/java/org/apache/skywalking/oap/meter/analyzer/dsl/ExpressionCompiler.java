@@ -0,0 +1,654 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.meter.analyzer.dsl;
+
+import com.google.common.collect.ImmutableSet;
+import groovy.lang.Closure;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.oap.meter.analyzer.dsl.Expression.ExpressionDelegate;
+import org.apache.skywalking.oap.meter.analyzer.dsl.SampleFamily.CompType;
+import org.apache.skywalking.oap.meter.analyzer.dsl.tagOpt.K8sRetagType;
+
+/**
+ * ExpressionCompiler compiles a MAL expression into a pipeline of {@link SampleFamily} operations, which runs without
+ * the dynamic dispatching of Groovy. Consecutive tag and value filters are fused into one pass over the samples, and
+ * into the {@code sum}, {@code max} or {@code min} aggregation following them.
+ *
+ * The compiler accepts the subset of Groovy used by MAL rules: sample family names, number and string literals,
+ * lists, the {@code + - * /} operators, parentheses and the operations of {@link SampleFamily}. The closure of {@code
+ * tag} is compiled by Groovy alone, the pipeline around it is still compiled. Any expression out of the subset is
+ * reported as not compiled, and runs as a Groovy script instead, see {@link DSL#parse(String)}.
+ */
+@Slf4j
+final class ExpressionCompiler {
+    /**
+     * Names resolved to something other than a sample family by Groovy, such as the members of {@link
+     * ExpressionDelegate} and the keywords.
+     */
+    private static final Set<String> RESERVED = ImmutableSet.of(
+        "class", "metaClass", "literal", "propertyRepository", "time",
+        "true", "false", "null", "this", "super", "new", "def", "as", "in", "instanceof", "it"
+    );
+
+    private final String literal;
+
+    private int pos;
+
+    private ExpressionCompiler(final String literal) {
+        this.literal = literal;
+    }
+
+    /**
+     * Compile the expression.
+     *
+     * @param literal string literal represents the DSL expression.
+     * @return the compiled expression, or empty if the expression uses the syntax out of the compiled subset.
+     */
+    static Optional<Expression> compile(final String literal) {
+        try {
+            return Optional.of(new Expression(literal, new ExpressionCompiler(literal).compile()));
+        } catch (UnsupportedSyntaxException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("\"{}\" is not compiled, {}", literal, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            // Let Groovy report the invalid arguments, such as the odd tag filter labels, the same as before.
+            if (log.isDebugEnabled()) {
+                log.debug("\"{}\" is not compiled", literal, e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Function<ExpressionDelegate, SampleFamily> compile() {
+        Operand result = additive();
+        skipSpaces();
+        if (pos < literal.length()) {
+            throw unsupported("unexpected '" + literal.charAt(pos) + "'");
+        }
+        if (result.isNumber()) {
+            throw unsupported("the result is not a sample family");
+        }
+        return result.family();
+    }
+
+    private Operand additive() {
+        Operand left = multiplicative();
+        while (true) {
+            skipSpaces();
+            char c = peek();
+            if (c != '+' && c != '-') {
+                return left;
+            }
+            pos++;
+            left = binary(c, left, multiplicative());
+        }
+    }
+
+    private Operand multiplicative() {
+        Operand left = unary();
+        while (true) {
+            skipSpaces();
+            char c = peek();
+            if (c != '*' && c != '/') {
+                return left;
+            }
+            pos++;
+            if (peek() == '*' || peek() == '/' || peek() == '=') {
+                throw unsupported("power, comment or assignment");
+            }
+            left = binary(c, left, unary());
+        }
+    }
+
+    private Operand unary() {
+        skipSpaces();
+        if (peek() != '-') {
+            return postfix();
+        }
+        pos++;
+        if (peek() == '-' || peek() == '=') {
+            throw unsupported("decrement or assignment");
+        }
+        Operand operand = unary();
+        if (operand.isNumber()) {
+            return Operand.number(negate(operand.number));
+        }
+        return operand.then(SampleFamily::negative);
+    }
+
+    private Operand postfix() {
+        Operand operand = primary();
+        while (true) {
+            skipSpaces();
+            if (peek() != '.') {
+                return operand;
+            }
+            pos++;
+            skipSpaces();
+            String method = identifier();
+            skipSpaces();
+            expect('(');
+            operand = call(operand, method, arguments(')'));
+        }
+    }
+
+    private Operand primary() {
+        skipSpaces();
+        char c = peek();
+        if (c == '(') {
+            pos++;
+            Operand operand = additive();
+            skipSpaces();
+            expect(')');
+            return operand;
+        }
+        if (Character.isDigit(c)) {
+            return Operand.number(number());
+        }
+        String name = identifier();
+        skipSpaces();
+        if (peek() == '(') {
+            throw unsupported("function " + name);
+        }
+        if (RESERVED.contains(name) || Character.isUpperCase(name.charAt(0))) {
+            throw unsupported("name " + name);
+        }
+        return Operand.family(delegate -> delegate.propertyMissing(name));
+    }
+
+    private List<Object> arguments(final char end) {
+        List<Object> args = new ArrayList<>();
+        skipSpaces();
+        if (peek() == end) {
+            pos++;
+            return args;
+        }
+        while (true) {
+            args.add(argument());
+            skipSpaces();
+            char c = peek();
+            pos++;
+            if (c == end) {
+                return args;
+            }
+            if (c != ',') {
+                throw unsupported("unexpected '" + c + "' in arguments");
+            }
+        }
+    }
+
+    private Object argument() {
+        skipSpaces();
+        char c = peek();
+        if (c == '\'' || c == '"') {
+            return string(c);
+        }
+        if (c == '-') {
+            pos++;
+            skipSpaces();
+            if (!Character.isDigit(peek())) {
+                throw unsupported("negative argument");
+            }
+            return negate(number());
+        }
+        if (Character.isDigit(c)) {
+            return number();
+        }
+        if (c == '[') {
+            pos++;
+            return arguments(']');
+        }
+        if (c == '{') {
+            return closure();
+        }
+        String name = identifier();
+        skipSpaces();
+        if ("K8sRetagType".equals(name) && peek() == '.') {
+            pos++;
+            skipSpaces();
+            return K8sRetagType.valueOf(identifier());
+        }
+        switch (name) {
+            case "AVG":
+                return DownsamplingType.AVG;
+            case "SUM":
+                return DownsamplingType.SUM;
+            case "LATEST":
+                return DownsamplingType.LATEST;
+            default:
+                throw unsupported("argument " + name);
+        }
+    }
+
+    private Closure<?> closure() {
+        int start = pos;
+        int depth = 0;
+        while (pos < literal.length()) {
+            char c = literal.charAt(pos);
+            if (c == '\'' || c == '"') {
+                string(c);
+                continue;
+            }
+            pos++;
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return (Closure<?>) DSL.shell().evaluate("return " + literal.substring(start, pos));
+            }
+        }
+        throw unsupported("unclosed closure");
+    }
+
+    private String string(final char quote) {
+        expect(quote);
+        StringBuilder sb = new StringBuilder();
+        while (pos < literal.length()) {
+            char c = literal.charAt(pos++);
+            if (c == quote) {
+                if (peek() == quote) {
+                    throw unsupported("triple quoted string");
+                }
+                return sb.toString();
+            }
+            if (c == '$' && quote == '"') {
+                throw unsupported("GString");
+            }
+            if (c == '\n' || c == '\r') {
+                throw unsupported("multiple lines string");
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = pos < literal.length() ? literal.charAt(pos++) : 0;
+            switch (escaped) {
+                case '\\':
+                case '\'':
+                case '"':
+                    sb.append(escaped);
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                default:
+                    throw unsupported("escape \\" + escaped);
+            }
+        }
+        throw unsupported("unclosed string");
+    }
+
+    /**
+     * Parse a number literal to the same type as Groovy does, {@link Integer}, {@link Long}, {@link BigInteger} or
+     * {@link BigDecimal}.
+     */
+    private Number number() {
+        int start = pos;
+        while (Character.isDigit(peek())) {
+            pos++;
+        }
+        boolean decimal = false;
+        if (peek() == '.' && pos + 1 < literal.length() && Character.isDigit(literal.charAt(pos + 1))) {
+            decimal = true;
+            pos++;
+            while (Character.isDigit(peek())) {
+                pos++;
+            }
+        }
+        if (Character.isLetter(peek()) || peek() == '_' || peek() == '.' && !decimal && pos + 1 < literal.length()
+            && Character.isDigit(literal.charAt(pos + 1))) {
+            throw unsupported("number literal " + literal.substring(start, pos + 1));
+        }
+        String text = literal.substring(start, pos);
+        if (decimal) {
+            return new BigDecimal(text);
+        }
+        if (text.length() > 1 && text.charAt(0) == '0') {
+            throw unsupported("octal literal " + text);
+        }
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() < Integer.SIZE) {
+            return value.intValue();
+        }
+        if (value.bitLength() < Long.SIZE) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    private String identifier() {
+        int start = pos;
+        if (Character.isJavaIdentifierStart(peek()) && peek() != '$') {
+            pos++;
+            while (Character.isJavaIdentifierPart(peek()) && peek() != '$' && peek() != 0) {
+                pos++;
+            }
+        }
+        if (start == pos) {
+            throw unsupported(pos < literal.length() ? "unexpected '" + literal.charAt(pos) + "'" : "unexpected end");
+        }
+        return literal.substring(start, pos);
+    }
+
+    private void skipSpaces() {
+        while (peek() == ' ' || peek() == '\t') {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        return pos < literal.length() ? literal.charAt(pos) : 0;
+    }
+
+    private void expect(final char c) {
+        if (peek() != c) {
+            throw unsupported("expect '" + c + "'");
+        }
+        pos++;
+    }
+
+    private UnsupportedSyntaxException unsupported(final String message) {
+        return new UnsupportedSyntaxException(message + " at " + pos);
+    }
+
+    /**
+     * Bind the arithmetic operators the same as {@link Expression} extends {@link Number} and overloads the operators
+     * of {@link SampleFamily}.
+     */
+    private Operand binary(final char operator, final Operand left, final Operand right) {
+        if (left.isNumber() && right.isNumber()) {
+            throw unsupported("arithmetic of numbers");
+        }
+        if (left.isNumber()) {
+            Number n = left.number;
+            switch (operator) {
+                case '+':
+                    return right.then(sf -> sf.plus(n));
+                case '-':
+                    return right.then(sf -> sf.minus(n).negative());
+                case '*':
+                    return right.then(sf -> sf.multiply(n));
+                default:
+                    return right.then(sf -> sf.newValue(v -> n.doubleValue() / v));
+            }
+        }
+        if (right.isNumber()) {
+            Number n = right.number;
+            switch (operator) {
+                case '+':
+                    return left.then(sf -> sf.plus(n));
+                case '-':
+                    return left.then(sf -> sf.minus(n));
+                case '*':
+                    return left.then(sf -> sf.multiply(n));
+                default:
+                    return left.then(sf -> sf.div(n));
+            }
+        }
+        Function<ExpressionDelegate, SampleFamily> l = left.family();
+        Function<ExpressionDelegate, SampleFamily> r = right.family();
+        switch (operator) {
+            case '+':
+                return Operand.family(delegate -> l.apply(delegate).plus(r.apply(delegate)));
+            case '-':
+                return Operand.family(delegate -> l.apply(delegate).minus(r.apply(delegate)));
+            case '*':
+                return Operand.family(delegate -> l.apply(delegate).multiply(r.apply(delegate)));
+            default:
+                return Operand.family(delegate -> l.apply(delegate).div(r.apply(delegate)));
+        }
+    }
+
+    private Operand call(final Operand receiver, final String method, final List<Object> args) {
+        if (receiver.isNumber()) {
+            throw unsupported("method " + method + " of number");
+        }
+        switch (method) {
+            case "tagEqual":
+                return receiver.filter(SampleFamily.tagEqualFilter(strings(args)));
+            case "tagNotEqual":
+                return receiver.filter(SampleFamily.tagNotEqualFilter(strings(args)));
+            case "tagMatch":
+                return receiver.filter(SampleFamily.tagMatchFilter(strings(args)));
+            case "tagNotMatch":
+                return receiver.filter(SampleFamily.tagNotMatchFilter(strings(args)));
+            case "valueEqual":
+                return receiver.filter(valueFilter(CompType.EQUAL, args));
+            case "valueNotEqual":
+                return receiver.filter(valueFilter(CompType.NOT_EQUAL, args));
+            case "valueGreater":
+                return receiver.filter(valueFilter(CompType.GREATER, args));
+            case "valueGreaterEqual":
+                return receiver.filter(valueFilter(CompType.GREATER_EQUAL, args));
+            case "valueLess":
+                return receiver.filter(valueFilter(CompType.LESS, args));
+            case "valueLessEqual":
+                return receiver.filter(valueFilter(CompType.LESS_EQUAL, args));
+            case "plus": {
+                Number n = arg(args, 1, 0, Number.class);
+                return receiver.then(sf -> sf.plus(n));
+            }
+            case "minus": {
+                Number n = arg(args, 1, 0, Number.class);
+                return receiver.then(sf -> sf.minus(n));
+            }
+            case "multiply": {
+                Number n = arg(args, 1, 0, Number.class);
+                return receiver.then(sf -> sf.multiply(n));
+            }
+            case "div": {
+                Number n = arg(args, 1, 0, Number.class);
+                return receiver.then(sf -> sf.div(n));
+            }
+            case "negative":
+                arity(args, 0);
+                return receiver.then(SampleFamily::negative);
+            case "sum":
+                return receiver.aggregate(list(args, 1, 0, String.class), Double::sum);
+            case "max":
+                return receiver.aggregate(list(args, 1, 0, String.class), Double::max);
+            case "min":
+                return receiver.aggregate(list(args, 1, 0, String.class), Double::min);
+            case "avg": {
+                List<String> by = list(args, 1, 0, String.class);
+                return receiver.then(sf -> sf.avg(by));
+            }
+            case "increase": {
+                String range = arg(args, 1, 0, String.class);
+                return receiver.then(sf -> sf.increase(range));
+            }
+            case "rate": {
+                String range = arg(args, 1, 0, String.class);
+                return receiver.then(sf -> sf.rate(range));
+            }
+            case "irate":
+                arity(args, 0);
+                return receiver.then(SampleFamily::irate);
+            case "tag": {
+                Closure<?> cl = arg(args, 1, 0, Closure.class);
+                return receiver.then(sf -> sf.tag(cl));
+            }
+            case "retagByK8sMeta": {
+                String newLabel = arg(args, 4, 0, String.class);
+                K8sRetagType type = arg(args, 4, 1, K8sRetagType.class);
+                String existingLabel = arg(args, 4, 2, String.class);
+                String namespaceLabel = arg(args, 4, 3, String.class);
+                return receiver.then(sf -> sf.retagByK8sMeta(newLabel, type, existingLabel, namespaceLabel));
+            }
+            case "histogram": {
+                if (args.isEmpty()) {
+                    return receiver.then(SampleFamily::histogram);
+                }
+                String le = arg(args, 1, 0, String.class);
+                return receiver.then(sf -> sf.histogram(le));
+            }
+            case "histogram_percentile": {
+                List<Integer> percentiles = list(args, 1, 0, Integer.class);
+                return receiver.then(sf -> sf.histogram_percentile(percentiles));
+            }
+            case "service": {
+                List<String> labelKeys = list(args, 1, 0, String.class);
+                return receiver.then(sf -> sf.service(labelKeys));
+            }
+            case "instance": {
+                List<String> serviceKeys = list(args, 2, 0, String.class);
+                List<String> instanceKeys = list(args, 2, 1, String.class);
+                return receiver.then(sf -> sf.instance(serviceKeys, instanceKeys));
+            }
+            case "endpoint": {
+                List<String> serviceKeys = list(args, 2, 0, String.class);
+                List<String> endpointKeys = list(args, 2, 1, String.class);
+                return receiver.then(sf -> sf.endpoint(serviceKeys, endpointKeys));
+            }
+            case "downsampling": {
+                DownsamplingType type = arg(args, 1, 0, DownsamplingType.class);
+                return receiver.then(sf -> sf.downsampling(type));
+            }
+            default:
+                throw unsupported("method " + method);
+        }
+    }
+
+    private Predicate<Sample> valueFilter(final CompType compType, final List<Object> args) {
+        return SampleFamily.valueFilter(compType, arg(args, 1, 0, Number.class).doubleValue());
+    }
+
+    private void arity(final List<Object> args, final int arity) {
+        if (args.size() != arity) {
+            throw unsupported("expect " + arity + " arguments");
+        }
+    }
+
+    private <T> T arg(final List<Object> args, final int arity, final int index, final Class<T> type) {
+        arity(args, arity);
+        Object arg = args.get(index);
+        if (!type.isInstance(arg)) {
+            throw unsupported("expect " + type.getSimpleName() + " argument");
+        }
+        return type.cast(arg);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list(final List<Object> args, final int arity, final int index, final Class<T> type) {
+        List<Object> list = arg(args, arity, index, List.class);
+        for (final Object element : list) {
+            if (!type.isInstance(element)) {
+                throw unsupported("expect " + type.getSimpleName() + " list");
+            }
+        }
+        return (List<T>) list;
+    }
+
+    private String[] strings(final List<Object> args) {
+        String[] strings = new String[args.size()];
+        for (int i = 0; i < strings.length; i++) {
+            if (!(args.get(i) instanceof String)) {
+                throw unsupported("expect String arguments");
+            }
+            strings[i] = (String) args.get(i);
+        }
+        return strings;
+    }
+
+    private static Number negate(final Number n) {
+        if (n instanceof Integer) {
+            return -n.intValue();
+        }
+        if (n instanceof Long) {
+            return -n.longValue();
+        }
+        if (n instanceof BigInteger) {
+            return ((BigInteger) n).negate();
+        }
+        return ((BigDecimal) n).negate();
+    }
+
+    /**
+     * Operand is a number constant, or a sample family calculated by the compiled pipeline. The tag and value filters
+     * are pending in the operand, until they are fused into one filter pass, or into the aggregation.
+     */
+    private static final class Operand {
+        private final Function<ExpressionDelegate, SampleFamily> source;
+        private final Predicate<Sample> filter;
+        private final Number number;
+
+        private Operand(final Function<ExpressionDelegate, SampleFamily> source,
+                        final Predicate<Sample> filter,
+                        final Number number) {
+            this.source = source;
+            this.filter = filter;
+            this.number = number;
+        }
+
+        static Operand number(final Number number) {
+            return new Operand(null, null, number);
+        }
+
+        static Operand family(final Function<ExpressionDelegate, SampleFamily> family) {
+            return new Operand(family, null, null);
+        }
+
+        boolean isNumber() {
+            return number != null;
+        }
+
+        Function<ExpressionDelegate, SampleFamily> family() {
+            if (filter == null) {
+                return source;
+            }
+            Function<ExpressionDelegate, SampleFamily> s = source;
+            Predicate<Sample> f = filter;
+            return delegate -> s.apply(delegate).filter(f);
+        }
+
+        Operand then(final Function<SampleFamily, SampleFamily> operation) {
+            return family(family().andThen(operation));
+        }
+
+        Operand filter(final Predicate<Sample> predicate) {
+            return new Operand(source, filter == null ? predicate : filter.and(predicate), null);
+        }
+
+        Operand aggregate(final List<String> by, final DoubleBinaryOperator aggregator) {
+            Function<ExpressionDelegate, SampleFamily> s = source;
+            Predicate<Sample> f = filter == null ? SampleFamily.ALL : filter;
+            return family(delegate -> s.apply(delegate).aggregate(f, by, aggregator));
+        }
+    }
+
+    private static class UnsupportedSyntaxException extends RuntimeException {
+        private UnsupportedSyntaxException(final String message) {
+            super(message);
+        }
+    }
+}
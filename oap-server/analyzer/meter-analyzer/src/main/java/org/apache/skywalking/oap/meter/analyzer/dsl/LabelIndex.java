@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.meter.analyzer.dsl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * LabelIndex is the dictionary of the labels of the samples in a {@link SampleFamily}. The values of a label are
+ * interned into integer codes, and the label sets into integer group ids, so grouping the samples by labels is an
+ * integer key operation. The label maps of the groups are only built once per group. Joining two sample families looks
+ * the whole label sets up in a hash index of the samples.
+ *
+ * The codes of every label, and the groups of every label list, are built once per sample family, and shared by all
+ * the expressions running over the same sample family.
+ */
+final class LabelIndex {
+    private final Sample[] samples;
+
+    private final Map<String, int[]> codes = new ConcurrentHashMap<>();
+
+    private final Map<List<String>, Groups> groups = new ConcurrentHashMap<>();
+
+    private volatile Map<ImmutableMap<String, String>, Sample> labelSets;
+
+    LabelIndex(final Sample[] samples) {
+        this.samples = samples;
+    }
+
+    /**
+     * Group the samples by the values of the labels, the absent label is the same as the empty value.
+     *
+     * @param labelNames the labels to group by.
+     * @return the group id of every sample, the ids are numbered by the first sample of the group.
+     */
+    Groups groups(final List<String> labelNames) {
+        Groups result = groups.get(labelNames);
+        if (result == null) {
+            result = group(labelNames);
+            groups.put(ImmutableList.copyOf(labelNames), result);
+        }
+        return result;
+    }
+
+    /**
+     * Find the first sample of the label set.
+     *
+     * @param labels the whole labels of the sample.
+     * @return the sample, or null if no sample has the same labels.
+     */
+    Sample find(final ImmutableMap<String, String> labels) {
+        Map<ImmutableMap<String, String>, Sample> index = labelSets;
+        if (index == null) {
+            index = new HashMap<>(samples.length * 2);
+            for (final Sample sample : samples) {
+                index.putIfAbsent(sample.labels, sample);
+            }
+            labelSets = index;
+        }
+        return index.get(labels);
+    }
+
+    private Groups group(final List<String> labelNames) {
+        final int[] ids = new int[samples.length];
+        int count = samples.length > 0 ? 1 : 0;
+        // An open addressing table of the (group id, value code) pairs, at most half full as there are at most one
+        // pair per sample. The slot holds the new group id plus 1, 0 means empty.
+        final int capacity = Integer.highestOneBit(Math.max(samples.length, 1)) << 2;
+        final int mask = capacity - 1;
+        final long[] keys = new long[capacity];
+        final int[] interned = new int[capacity];
+        for (final String labelName : labelNames) {
+            final int[] valueCodes = codes.computeIfAbsent(labelName, this::encode);
+            Arrays.fill(interned, 0);
+            int next = 0;
+            for (int i = 0; i < samples.length; i++) {
+                final long key = (long) ids[i] << Integer.SIZE | valueCodes[i];
+                int slot = spread(key) & mask;
+                while (interned[slot] != 0 && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                if (interned[slot] == 0) {
+                    keys[slot] = key;
+                    interned[slot] = ++next;
+                }
+                ids[i] = interned[slot] - 1;
+            }
+            count = next;
+        }
+        return new Groups(ids, count);
+    }
+
+    private static int spread(final long key) {
+        final int h = (int) (key ^ key >>> Integer.SIZE) * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    private int[] encode(final String labelName) {
+        final int[] valueCodes = new int[samples.length];
+        final Map<String, Integer> dictionary = new HashMap<>();
+        for (int i = 0; i < samples.length; i++) {
+            final String value = samples[i].labels.getOrDefault(labelName, "");
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            valueCodes[i] = code;
+        }
+        return valueCodes;
+    }
+
+    static final class Groups {
+        /**
+         * The group id of every sample.
+         */
+        final int[] ids;
+
+        /**
+         * The number of the groups.
+         */
+        final int count;
+
+        private Groups(final int[] ids, final int count) {
+            this.ids = ids;
+            this.count = count;
+        }
+    }
+}
@@ -26,7 +26,6 @@ import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AtomicDouble;
 import groovy.lang.Closure;
 import io.vavr.Function2;
-import io.vavr.Function3;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -43,6 +42,7 @@ import org.apache.skywalking.oap.server.core.UnexpectedException;
 import org.apache.skywalking.oap.server.core.analysis.meter.MeterEntity;
 import org.apache.skywalking.oap.server.core.analysis.meter.ScopeType;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -52,17 +52,14 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
-import static java.util.function.UnaryOperator.identity;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.mapping;
-import static java.util.stream.Collectors.toList;
-
 /**
  * SampleFamily represents a collection of {@link Sample}.
  */
@@ -82,50 +79,54 @@ public class SampleFamily {
 
     public final RunningContext context;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile LabelIndex index;
+
     /**
      * Following operations are used in DSL
      */
 
     /* tag filter operations*/
     public SampleFamily tagEqual(String... labels) {
-        return match(labels, InternalOps::stringComp);
+        return filter(tagEqualFilter(labels));
     }
 
     public SampleFamily tagNotEqual(String[] labels) {
-        return match(labels, (sv, lv) -> !InternalOps.stringComp(sv, lv));
+        return filter(tagNotEqualFilter(labels));
     }
 
     public SampleFamily tagMatch(String[] labels) {
-        return match(labels, String::matches);
+        return filter(tagMatchFilter(labels));
     }
 
     public SampleFamily tagNotMatch(String[] labels) {
-        return match(labels, (sv, lv) -> !sv.matches(lv));
+        return filter(tagNotMatchFilter(labels));
     }
 
     /* value filter operations*/
     public SampleFamily valueEqual(double compValue) {
-        return valueMatch(CompType.EQUAL, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.EQUAL, compValue));
     }
 
     public SampleFamily valueNotEqual(double compValue) {
-        return valueMatch(CompType.NOT_EQUAL, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.NOT_EQUAL, compValue));
     }
 
     public SampleFamily valueGreater(double compValue) {
-        return valueMatch(CompType.GREATER, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.GREATER, compValue));
     }
 
     public SampleFamily valueGreaterEqual(double compValue) {
-        return valueMatch(CompType.GREATER_EQUAL, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.GREATER_EQUAL, compValue));
     }
 
     public SampleFamily valueLess(double compValue) {
-        return valueMatch(CompType.LESS, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.LESS, compValue));
     }
 
     public SampleFamily valueLessEqual(double compValue) {
-        return valueMatch(CompType.LESS_EQUAL, compValue, InternalOps::doubleComp);
+        return filter(valueFilter(CompType.LESS_EQUAL, compValue));
     }
 
     /* Binary operator overloading*/
@@ -215,43 +216,23 @@ public class SampleFamily {
             return SampleFamily.build(this.context, InternalOps.newSample(samples[0].name, ImmutableMap.of(), samples[0].timestamp, result));
         }
 
-        return SampleFamily.build(
-            this.context,
-            Arrays.stream(samples)
-                  .collect(groupingBy(it -> InternalOps.getLabels(by, it), mapping(identity(), toList())))
-                  .entrySet().stream()
-                  .map(entry -> InternalOps.newSample(
-                      entry.getValue().get(0).getName(),
-                      entry.getKey(),
-                      entry.getValue().get(0).getTimestamp(),
-                      entry.getValue().stream().mapToDouble(Sample::getValue).average().orElse(0.0D)
-                  ))
-                  .toArray(Sample[]::new)
-        );
+        Map<ImmutableMap<String, String>, Group> groups = groupBy(ALL, by, null, true);
+        Sample[] ss = new Sample[groups.size()];
+        int i = 0;
+        for (final Map.Entry<ImmutableMap<String, String>, Group> entry : groups.entrySet()) {
+            Group group = entry.getValue();
+            ss[i++] = InternalOps.newSample(
+                group.first.name,
+                entry.getKey(),
+                group.first.timestamp,
+                group.members.stream().mapToDouble(Sample::getValue).average().orElse(0.0D)
+            );
+        }
+        return SampleFamily.build(this.context, ss);
     }
 
     protected SampleFamily aggregate(List<String> by, DoubleBinaryOperator aggregator) {
-        ExpressionParsingContext.get().ifPresent(ctx -> ctx.aggregationLabels.addAll(by));
-        if (this == EMPTY) {
-            return EMPTY;
-        }
-        if (by == null) {
-            double result = Arrays.stream(samples).mapToDouble(s -> s.value).reduce(aggregator).orElse(0.0D);
-            return SampleFamily.build(this.context, InternalOps.newSample(samples[0].name, ImmutableMap.of(), samples[0].timestamp, result));
-        }
-        return SampleFamily.build(
-            this.context,
-            Arrays.stream(samples)
-                  .collect(groupingBy(it -> InternalOps.getLabels(by, it), mapping(identity(), toList())))
-                  .entrySet().stream()
-                  .map(entry -> InternalOps.newSample(
-                      entry.getValue().get(0).getName(),
-                      entry.getKey(),
-                      entry.getValue().get(0).getTimestamp(),
-                      entry.getValue().stream().mapToDouble(Sample::getValue).reduce(aggregator).orElse(0.0D)
-                  ))
-                  .toArray(Sample[]::new)
-        );
+        return aggregate(ALL, by, aggregator);
     }
 
     /* Function */
@@ -317,11 +298,12 @@ public class SampleFamily {
                       Closure<?> c = cl.rehydrate(delegate, sample, delegate);
                       Map<String, String> arg = Maps.newHashMap(sample.labels);
                       Object r = c.call(arg);
-                      return sample.toBuilder()
-                                   .labels(
-                                       ImmutableMap.copyOf(Optional.ofNullable((r instanceof Map) ? (Map<String, String>) r : null)
-                                                                   .orElse(arg)))
-                                   .build();
+                      Map<String, String> labels = Optional.ofNullable((r instanceof Map) ? (Map<String, String>) r : null)
+                                                           .orElse(arg);
+                      if (labels.equals(sample.labels)) {
+                          return sample;
+                      }
+                      return sample.toBuilder().labels(ImmutableMap.copyOf(labels)).build();
                   }).toArray(Sample[]::new)
         );
     }
@@ -430,38 +412,170 @@ public class SampleFamily {
 
     private SampleFamily createMeterSamples(EntityDescription entityDescription) {
         Map<MeterEntity, Sample[]> meterSamples = new HashMap<>();
-        Arrays.stream(samples)
-              .collect(groupingBy(it -> InternalOps.getLabels(entityDescription.getLabelKeys(), it), mapping(identity(), toList())))
-              .forEach((labels, samples) -> {
-                  MeterEntity meterEntity = InternalOps.buildMeterEntity(samples, entityDescription);
-                  meterSamples.put(meterEntity, InternalOps.left(samples, entityDescription.getLabelKeys()));
-              });
+        groupBy(ALL, entityDescription.getLabelKeys(), null, true).forEach((labels, group) -> {
+            MeterEntity meterEntity = InternalOps.buildMeterEntity(group.members, entityDescription);
+            meterSamples.put(meterEntity, InternalOps.left(group.members, entityDescription.getLabelKeys()));
+        });
 
         this.context.setMeterSamples(meterSamples);
         //This samples is original, The grouped samples is in context which mapping with MeterEntity
         return SampleFamily.build(this.context, samples);
     }
 
-    private SampleFamily match(String[] labels, Function2<String, String, Boolean> op) {
+    /*
+     * Following operations are used by the compiled expressions, see ExpressionCompiler. They fuse a chain of filter
+     * operations, and the aggregation after them, into one pass over the samples.
+     */
+
+    static final Predicate<Sample> ALL = sample -> true;
+
+    static Predicate<Sample> tagEqualFilter(String... labels) {
+        return labelFilter(labels, InternalOps::stringComp);
+    }
+
+    static Predicate<Sample> tagNotEqualFilter(String... labels) {
+        return labelFilter(labels, (sv, lv) -> !InternalOps.stringComp(sv, lv));
+    }
+
+    static Predicate<Sample> tagMatchFilter(String... labels) {
+        return patternFilter(labels, true);
+    }
+
+    static Predicate<Sample> tagNotMatchFilter(String... labels) {
+        return patternFilter(labels, false);
+    }
+
+    static Predicate<Sample> valueFilter(CompType compType, double compValue) {
+        return sample -> InternalOps.doubleComp(compType, sample.value, compValue);
+    }
+
+    SampleFamily filter(Predicate<Sample> filter) {
+        if (this == EMPTY) {
+            return EMPTY;
+        }
+        Sample[] ss = new Sample[samples.length];
+        int size = 0;
+        for (final Sample sample : samples) {
+            if (filter.test(sample)) {
+                ss[size++] = sample;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        return SampleFamily.build(this.context, size == ss.length ? ss : Arrays.copyOf(ss, size));
+    }
+
+    SampleFamily aggregate(Predicate<Sample> filter, List<String> by, DoubleBinaryOperator aggregator) {
+        ExpressionParsingContext.get().ifPresent(ctx -> ctx.aggregationLabels.addAll(by));
+        if (this == EMPTY) {
+            return EMPTY;
+        }
+        if (by == null) {
+            Group group = null;
+            for (final Sample sample : samples) {
+                if (!filter.test(sample)) {
+                    continue;
+                }
+                if (group == null) {
+                    group = new Group(sample, false);
+                } else {
+                    group.add(sample, aggregator);
+                }
+            }
+            if (group == null) {
+                return EMPTY;
+            }
+            return SampleFamily.build(
+                this.context,
+                InternalOps.newSample(group.first.name, ImmutableMap.of(), group.first.timestamp, group.value)
+            );
+        }
+        Map<ImmutableMap<String, String>, Group> groups = groupBy(filter, by, aggregator, false);
+        if (groups.isEmpty()) {
+            return EMPTY;
+        }
+        Sample[] ss = new Sample[groups.size()];
+        int i = 0;
+        for (final Map.Entry<ImmutableMap<String, String>, Group> entry : groups.entrySet()) {
+            Group group = entry.getValue();
+            ss[i++] = InternalOps.newSample(group.first.name, entry.getKey(), group.first.timestamp, group.value);
+        }
+        return SampleFamily.build(this.context, ss);
+    }
+
+    /**
+     * Group the samples passing the filter by the labels through the {@link LabelIndex}, and build the label map of
+     * every group once. The groups are in the same order as Collectors.groupingBy collecting them into a HashMap by the
+     * label maps, to keep the order of the result samples.
+     */
+    private Map<ImmutableMap<String, String>, Group> groupBy(Predicate<Sample> filter,
+                                                             List<String> by,
+                                                             DoubleBinaryOperator aggregator,
+                                                             boolean keepMembers) {
+        LabelIndex.Groups groups = index().groups(by);
+        Group[] byId = new Group[groups.count];
+        List<Group> found = new ArrayList<>();
+        for (int i = 0; i < samples.length; i++) {
+            Sample sample = samples[i];
+            if (!filter.test(sample)) {
+                continue;
+            }
+            Group group = byId[groups.ids[i]];
+            if (group == null) {
+                group = new Group(sample, keepMembers);
+                byId[groups.ids[i]] = group;
+                found.add(group);
+            } else {
+                group.add(sample, aggregator);
+            }
+        }
+        Map<ImmutableMap<String, String>, Group> result = new HashMap<>();
+        for (final Group group : found) {
+            result.put(InternalOps.getLabels(by, group.first), group);
+        }
+        return result;
+    }
+
+    private LabelIndex index() {
+        LabelIndex labelIndex = index;
+        if (labelIndex == null) {
+            labelIndex = new LabelIndex(samples);
+            index = labelIndex;
+        }
+        return labelIndex;
+    }
+
+    private static Predicate<Sample> labelFilter(String[] labels, BiPredicate<String, String> op) {
         Preconditions.checkArgument(labels.length % 2 == 0);
         Map<String, String> ll = new HashMap<>(labels.length / 2);
         for (int i = 0; i < labels.length; i += 2) {
             ll.put(labels[i], labels[i + 1]);
         }
-        Sample[] ss = Arrays.stream(samples)
-                            .filter(sample -> ll.entrySet()
-                                                .stream()
-                                                .allMatch(entry -> op.apply(sample.labels.getOrDefault(entry.getKey(), ""), entry.getValue())))
-                            .toArray(Sample[]::new);
-        return ss.length > 0 ? SampleFamily.build(this.context, ss) : EMPTY;
+        return sample -> {
+            for (final Map.Entry<String, String> entry : ll.entrySet()) {
+                if (!op.test(sample.labels.getOrDefault(entry.getKey(), ""), entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        };
     }
 
-    private SampleFamily valueMatch(CompType compType,
-                                    double compValue,
-                                    Function3<CompType, Double, Double, Boolean> op) {
-        Sample[] ss = Arrays.stream(samples)
-                            .filter(sample -> op.apply(compType, sample.value, compValue)).toArray(Sample[]::new);
-        return ss.length > 0 ? SampleFamily.build(this.context, ss) : EMPTY;
+    private static Predicate<Sample> patternFilter(String[] labels, boolean matched) {
+        Preconditions.checkArgument(labels.length % 2 == 0);
+        Map<String, Pattern> ll = new HashMap<>(labels.length / 2);
+        for (int i = 0; i < labels.length; i += 2) {
+            ll.put(labels[i], Pattern.compile(labels[i + 1]));
+        }
+        return sample -> {
+            for (final Map.Entry<String, Pattern> entry : ll.entrySet()) {
+                if (entry.getValue().matcher(sample.labels.getOrDefault(entry.getKey(), "")).matches() != matched) {
+                    return false;
+                }
+            }
+            return true;
+        };
     }
 
     SampleFamily newValue(Function<Double, Double> transform) {
@@ -476,14 +590,16 @@ public class SampleFamily {
     }
 
     private SampleFamily newValue(SampleFamily another, Function2<Double, Double, Double> transform) {
-        Sample[] ss = Arrays.stream(samples)
-                            .flatMap(cs -> io.vavr.collection.Stream.of(another.samples)
-                                                                    .find(as -> cs.labels.equals(as.labels))
-                                                                    .map(as -> cs.toBuilder().value(transform.apply(cs.value, as.value)))
-                                                                    .map(Sample.SampleBuilder::build)
-                                                                    .toJavaStream())
-                            .toArray(Sample[]::new);
-        return ss.length > 0 ? SampleFamily.build(this.context, ss) : EMPTY;
+        LabelIndex anotherIndex = another.index();
+        Sample[] ss = new Sample[samples.length];
+        int size = 0;
+        for (final Sample cs : samples) {
+            Sample as = anotherIndex.find(cs.labels);
+            if (as != null) {
+                ss[size++] = cs.toBuilder().value(transform.apply(cs.value, as.value)).build();
+            }
+        }
+        return size > 0 ? SampleFamily.build(this.context, Arrays.copyOf(ss, size)) : EMPTY;
     }
 
     public SampleFamily downsampling(final DownsamplingType type) {
@@ -517,6 +633,30 @@ public class SampleFamily {
         private TimeUnit defaultHistogramBucketUnit;
     }
 
+    private static class Group {
+        private final Sample first;
+        private double value;
+        private final List<Sample> members;
+
+        private Group(Sample first, boolean keepMembers) {
+            this.first = first;
+            this.value = first.value;
+            this.members = keepMembers ? new ArrayList<>() : null;
+            if (keepMembers) {
+                members.add(first);
+            }
+        }
+
+        private void add(Sample sample, DoubleBinaryOperator aggregator) {
+            if (aggregator != null) {
+                value = aggregator.applyAsDouble(value, sample.value);
+            }
+            if (members != null) {
+                members.add(sample);
+            }
+        }
+    }
+
     private static class InternalOps {
 
         private static Sample[] left(List<Sample> samples, List<String> labelKeys) {
@@ -594,15 +734,15 @@ public class SampleFamily {
         }
 
         private static ImmutableMap<String, String> getLabels(final List<String> labelKeys, final Sample sample) {
-            return labelKeys.stream()
-                            .collect(toImmutableMap(
-                                Function.identity(),
-                                labelKey -> sample.labels.getOrDefault(labelKey, "")
-                            ));
+            ImmutableMap.Builder<String, String> labels = ImmutableMap.builder();
+            for (final String labelKey : labelKeys) {
+                labels.put(labelKey, sample.labels.getOrDefault(labelKey, ""));
+            }
+            return labels.build();
         }
     }
 
-    private enum CompType {
+    enum CompType {
         EQUAL, NOT_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL
     }
 }
@@ -15,77 +15,387 @@
  * limitations under the License.
  *
  */
-
 package org.apache.skywalking.oap.meter.analyzer.dsl.counter;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import lombok.AccessLevel;
-import lombok.EqualsAndHashCode;
-import lombok.RequiredArgsConstructor;
-import lombok.ToString;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * CounterWindow stores a series of counter samples in order to calculate the increase
  * or instant rate of increase.
  *
+ * Every series keeps its samples in primitive arrays, as a min-heap ordered by the timestamp. The series not updated
+ * in the retention are evicted, and the least recently updated series are evicted once the estimated memory size
+ * exceeds the limit, see {@link #evict(long)}. The store could be saved to and restored from a local file, so the
+ * windows survive the restart of OAP.
  */
-@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
-@ToString
-@EqualsAndHashCode
 public class CounterWindow {
 
     public static final CounterWindow INSTANCE = new CounterWindow();
 
-    private final Map<ID, Tuple2<Long, Double>> lastElementMap = Maps.newHashMap();
-    private final Map<ID, Queue<Tuple2<Long, Double>>> windows = Maps.newHashMap();
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final Map<ID, Series> series = new ConcurrentHashMap<>();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The series not updated in the retention are evicted. Unit is ms, 0 means never.
+     */
+    private volatile long retention;
+
+    /**
+     * The max estimated size of the store. Unit is byte, 0 means unlimited.
+     */
+    private volatile long maxSize;
+
+    CounterWindow() {
+    }
+
+    /**
+     * @param retention the series not updated in the retention are evicted. Unit is ms, 0 means never.
+     * @param maxSize   the max estimated size of the store. Unit is byte, 0 means unlimited.
+     */
+    public void configure(long retention, long maxSize) {
+        this.retention = retention;
+        this.maxSize = maxSize;
+    }
 
     public Tuple2<Long, Double> increase(String name, ImmutableMap<String, String> labels, Double value, long windowSize, long now) {
-        ID id = new ID(name, labels);
-        if (!windows.containsKey(id)) {
-            windows.put(id, new PriorityQueue<>());
-        }
+        Series s = series(name, labels);
+        synchronized (s) {
+            s.offer(now, value);
+            long waterLevel = now - windowSize;
+            if (s.timestamps[0] > waterLevel) {
+                return Tuple.of(s.timestamps[0], s.values[0]);
+            }
 
-        Queue<Tuple2<Long, Double>> window = windows.get(id);
-        window.offer(Tuple.of(now, value));
-        long waterLevel = now - windowSize;
-        Tuple2<Long, Double> peek = window.peek();
-        if (peek._1 > waterLevel) {
-            return peek;
-        }
+            long resultTimestamp = s.timestamps[0];
+            double resultValue = s.values[0];
+            while (s.timestamps[0] < waterLevel) {
+                resultTimestamp = s.timestamps[0];
+                resultValue = s.values[0];
+                s.poll();
+                if (s.size == 0) {
+                    throw new NoSuchElementException();
+                }
+            }
+
+            // Choose the closed slot to the expected timestamp
+            if (waterLevel - resultTimestamp <= s.timestamps[0] - waterLevel) {
+                return Tuple.of(resultTimestamp, resultValue);
+            }
 
-        Tuple2<Long, Double> result = peek;
-        while (peek._1 < waterLevel) {
-            result = window.poll();
-            peek = window.element();
+            return Tuple.of(s.timestamps[0], s.values[0]);
         }
+    }
 
-        // Choose the closed slot to the expected timestamp
-        if (waterLevel - result._1 <= peek._1 - waterLevel) {
+    public Tuple2<Long, Double> pop(String name, ImmutableMap<String, String> labels, Double value, long now) {
+        Series s = series(name, labels);
+        synchronized (s) {
+            Tuple2<Long, Double> result = s.hasLast ? Tuple.of(s.lastTimestamp, s.lastValue) : Tuple.of(now, value);
+            s.hasLast = true;
+            s.lastTimestamp = now;
+            s.lastValue = value;
             return result;
         }
+    }
 
-        return peek;
+    public void reset() {
+        series.clear();
     }
 
-    public Tuple2<Long, Double> pop(String name, ImmutableMap<String, String> labels, Double value, long now) {
-        ID id = new ID(name, labels);
+    /**
+     * @return the number of the series.
+     */
+    public int size() {
+        return series.size();
+    }
 
-        Tuple2<Long, Double> element = Tuple.of(now, value);
-        Tuple2<Long, Double> result = lastElementMap.get(id);
-        lastElementMap.put(id, element);
-        if (result == null) {
-            return element;
+    /**
+     * @return the estimated memory size of the store, unit is byte.
+     */
+    public long estimatedSize() {
+        long size = 0;
+        for (final Series s : series.values()) {
+            size += s.estimatedSize();
         }
-        return result;
+        return size;
     }
 
-    public void reset() {
-        windows.clear();
+    /**
+     * @return the total number of the evicted series.
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Evict the series not updated in the retention, then the least recently updated series until the estimated size
+     * is under the limit.
+     *
+     * @param now current time, unit is ms.
+     * @return the number of the evicted series.
+     */
+    public int evict(long now) {
+        int evicted = 0;
+        if (retention > 0) {
+            long expired = now - retention;
+            for (final Map.Entry<ID, Series> entry : series.entrySet()) {
+                if (entry.getValue().lastUpdate < expired && series.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        if (maxSize > 0) {
+            long size = estimatedSize();
+            if (size > maxSize) {
+                List<Map.Entry<ID, Series>> entries = new ArrayList<>(series.entrySet());
+                entries.sort(Comparator.comparingLong(entry -> entry.getValue().lastUpdate));
+                for (final Map.Entry<ID, Series> entry : entries) {
+                    if (size <= maxSize) {
+                        break;
+                    }
+                    if (series.remove(entry.getKey(), entry.getValue())) {
+                        size -= entry.getValue().estimatedSize();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        evictions.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * Save all the series to the file. The file is written to a temporary file first, and renamed to the target file
+     * once finished, so the previous snapshot is intact if it fails.
+     *
+     * @param file the snapshot file.
+     */
+    public void snapshot(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Can't create the folder of " + file);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            List<Map.Entry<ID, Series>> entries = new ArrayList<>(series.entrySet());
+            out.writeInt(entries.size());
+            for (final Map.Entry<ID, Series> entry : entries) {
+                ID id = entry.getKey();
+                out.writeUTF(id.getName());
+                out.writeInt(id.getLabels().size());
+                for (final Map.Entry<String, String> label : id.getLabels().entrySet()) {
+                    out.writeUTF(label.getKey());
+                    out.writeUTF(label.getValue());
+                }
+                Series s = entry.getValue();
+                synchronized (s) {
+                    s.writeTo(out);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load the series from the snapshot file, the series existing in the store are kept.
+     *
+     * @param file the snapshot file.
+     * @return the number of the loaded series.
+     */
+    public int restore(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unknown counter window snapshot version " + version);
+            }
+            int count = in.readInt();
+            int loaded = 0;
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int labelCount = in.readInt();
+                ImmutableMap.Builder<String, String> labels = ImmutableMap.builder();
+                for (int j = 0; j < labelCount; j++) {
+                    labels.put(in.readUTF(), in.readUTF());
+                }
+                ID id = new ID(name, labels.build());
+                Series s = Series.readFrom(in, Series.estimatedOverhead(id));
+                if (series.putIfAbsent(id, s) == null) {
+                    loaded++;
+                }
+            }
+            return loaded;
+        }
+    }
+
+    private Series series(String name, ImmutableMap<String, String> labels) {
+        Series s = series.computeIfAbsent(new ID(name, labels), id -> new Series(Series.estimatedOverhead(id)));
+        s.lastUpdate = System.currentTimeMillis();
+        return s;
+    }
+
+    /**
+     * Series is a min-heap of the samples ordered by the timestamp then the value, the same order as {@link
+     * Tuple2#compareTo}, and the last sample for the instant rate.
+     */
+    private static class Series {
+        private static final int INITIAL_CAPACITY = 4;
+        /**
+         * The estimated size of the series object, its two array headers, the id object, and the entry of the map.
+         */
+        private static final long BASE_OVERHEAD = 152;
+        /**
+         * The estimated size of a string without its chars.
+         */
+        private static final long STRING_OVERHEAD = 40;
+        /**
+         * The estimated size of an immutable map, and of every entry of it without the key and the value.
+         */
+        private static final long MAP_OVERHEAD = 40;
+        private static final long MAP_ENTRY_OVERHEAD = 40;
+
+        /**
+         * The estimated size of the parts not growing with the samples, the series, the id, and its name and labels.
+         */
+        private final long overhead;
+
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY];
+        private int size;
+
+        private boolean hasLast;
+        private long lastTimestamp;
+        private double lastValue;
+
+        private volatile long lastUpdate;
+
+        private Series(long overhead) {
+            this.overhead = overhead;
+        }
+
+        /**
+         * Estimate the overhead of the series by the lengths of the name and the labels of its id, once it is created.
+         */
+        private static long estimatedOverhead(ID id) {
+            long size = BASE_OVERHEAD + estimatedSize(id.getName()) + MAP_OVERHEAD;
+            for (final Map.Entry<String, String> label : id.getLabels().entrySet()) {
+                size += MAP_ENTRY_OVERHEAD + estimatedSize(label.getKey()) + estimatedSize(label.getValue());
+            }
+            return size;
+        }
+
+        private static long estimatedSize(String value) {
+            return STRING_OVERHEAD + (long) value.length() * Character.BYTES;
+        }
+
+        private void offer(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(timestamps[parent], values[parent], timestamp, value) <= 0) {
+                    break;
+                }
+                timestamps[i] = timestamps[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            timestamps[i] = timestamp;
+            values[i] = value;
+        }
+
+        private void poll() {
+            int last = --size;
+            long timestamp = timestamps[last];
+            double value = values[last];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && compare(timestamps[child], values[child], timestamps[right], values[right]) > 0) {
+                    child = right;
+                }
+                if (compare(timestamp, value, timestamps[child], values[child]) <= 0) {
+                    break;
+                }
+                timestamps[i] = timestamps[child];
+                values[i] = values[child];
+                i = child;
+            }
+            timestamps[i] = timestamp;
+            values[i] = value;
+        }
+
+        private long estimatedSize() {
+            return overhead + (long) timestamps.length * (Long.BYTES + Double.BYTES);
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(lastUpdate);
+            out.writeBoolean(hasLast);
+            out.writeLong(lastTimestamp);
+            out.writeDouble(lastValue);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(timestamps[i]);
+                out.writeDouble(values[i]);
+            }
+        }
+
+        private static Series readFrom(DataInputStream in, long overhead) throws IOException {
+            Series s = new Series(overhead);
+            s.lastUpdate = in.readLong();
+            s.hasLast = in.readBoolean();
+            s.lastTimestamp = in.readLong();
+            s.lastValue = in.readDouble();
+            int size = in.readInt();
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            s.timestamps = new long[capacity];
+            s.values = new double[capacity];
+            // The heap array is saved in order, so it is still a heap.
+            for (int i = 0; i < size; i++) {
+                s.timestamps[i] = in.readLong();
+                s.values[i] = in.readDouble();
+            }
+            s.size = size;
+            return s;
+        }
+
+        private static int compare(long t1, double v1, long t2, double v2) {
+            int result = Long.compare(t1, t2);
+            return result != 0 ? result : Double.compare(v1, v2);
+        }
     }
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.meter.analyzer.dsl;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.skywalking.oap.meter.analyzer.prometheus.rule.MetricsRule;
+import org.apache.skywalking.oap.meter.analyzer.prometheus.rule.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * Run all the expressions of the shipped rule set over one scrape, by Groovy and by the compiled pipeline. Every
+ * sample family of the scrape has {@link #SAMPLES} samples, which are labeled by the labels and the values of the tag
+ * filters, the aggregations and the scopes of the rules.
+ *
+ * The rule sets are read from the resources of server-bootstrap, run it in the meter-analyzer module folder, or set
+ * the `rules.path` system property to the folder of the rule sets.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+    private static final int SAMPLES = 200;
+    private static final Pattern TAG_FILTER = Pattern.compile("tag(?:Not)?(?:Equal|Match)\\(([^)]*)\\)");
+    private static final Pattern STRING = Pattern.compile("'([^']*)'");
+
+    @Param({
+        "otel-oc-rules",
+        "fetcher-prom-rules"
+    })
+    private String ruleSet;
+
+    @Param({
+        "groovy",
+        "compiled"
+    })
+    private String engine;
+
+    private final List<Expression> expressions = new ArrayList<>();
+    private ImmutableMap<String, SampleFamily> input;
+
+    @Setup
+    public void setUp() throws IOException {
+        final File folder = new File(
+            System.getProperty("rules.path", "../../server-bootstrap/src/main/resources"), ruleSet);
+        final File[] files = Objects.requireNonNull(
+            folder.listFiles((dir, name) -> name.endsWith(".yaml")), folder.getPath());
+        Arrays.sort(files);
+
+        final Set<String> sampleNames = new LinkedHashSet<>();
+        final Map<String, Set<String>> labelValues = new HashMap<>();
+        for (final File file : files) {
+            final Rule rule;
+            try (Reader reader = new FileReader(file)) {
+                rule = new Yaml().loadAs(reader, Rule.class);
+            }
+            for (final MetricsRule metricsRule : rule.getMetricsRules()) {
+                final String literal = Strings.isNullOrEmpty(rule.getExpSuffix()) ? metricsRule.getExp()
+                    : String.format("(%s).%s", metricsRule.getExp(), rule.getExpSuffix());
+                final Expression expression = "compiled".equals(engine)
+                    ? DSL.parse(literal) : DSL.parseByGroovy(literal);
+                expressions.add(expression);
+
+                final ExpressionParsingContext ctx = expression.parse();
+                sampleNames.addAll(ctx.getSamples());
+                ctx.getAggregationLabels().forEach(l -> labelValues.computeIfAbsent(l, k -> new LinkedHashSet<>()));
+                ctx.getScopeLabels().forEach(l -> labelValues.computeIfAbsent(l, k -> new LinkedHashSet<>()));
+                addFilterLabels(literal, labelValues);
+            }
+        }
+        labelValues.computeIfAbsent("pod", k -> new LinkedHashSet<>());
+        labelValues.computeIfAbsent("namespace", k -> new LinkedHashSet<>());
+        labelValues.put("le", new LinkedHashSet<>(Arrays.asList("0.01", "0.1", "1", "10", "+Inf")));
+
+        final Random random = new Random(SAMPLES);
+        final ImmutableMap.Builder<String, SampleFamily> builder = ImmutableMap.builder();
+        for (final String name : sampleNames) {
+            final Sample[] samples = new Sample[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                final ImmutableMap.Builder<String, String> labels = ImmutableMap.builder();
+                labelValues.forEach((label, values) -> {
+                    final int v = random.nextInt(values.size() + 3);
+                    labels.put(label, v < values.size() ? new ArrayList<>(values).get(v) : label + "-" + v);
+                });
+                samples[i] = Sample.builder().name(name).labels(labels.build()).value(random.nextInt(100)).build();
+            }
+            builder.put(name, SampleFamilyBuilder.newBuilder(samples).build());
+        }
+        input = builder.build();
+    }
+
+    private static void addFilterLabels(final String literal, final Map<String, Set<String>> labelValues) {
+        final Matcher filter = TAG_FILTER.matcher(literal);
+        while (filter.find()) {
+            final Matcher string = STRING.matcher(filter.group(1));
+            while (string.find()) {
+                final String label = string.group(1);
+                if (!string.find()) {
+                    break;
+                }
+                labelValues.computeIfAbsent(label, k -> new LinkedHashSet<>())
+                           .addAll(Arrays.asList(string.group(1).split("\\|")));
+            }
+        }
+    }
+
+    @Benchmark
+    public void run(Blackhole bh) {
+        for (final Expression expression : expressions) {
+            bh.consume(expression.run(input));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(ExpressionBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
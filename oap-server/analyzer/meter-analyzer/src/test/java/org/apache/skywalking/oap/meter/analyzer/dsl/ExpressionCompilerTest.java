@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.meter.analyzer.dsl;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(Parameterized.class)
+public class ExpressionCompilerTest {
+
+    @Parameterized.Parameter
+    public String expression;
+
+    @Parameterized.Parameter(1)
+    public boolean compiled;
+
+    @Parameterized.Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+            {"http_success_request", true},
+            {"http_success_request.tagEqual('idc', 't1')", true},
+            {"http_success_request.tagNotEqual('idc', 't1').tagMatch('region', 'u.*').valueGreater(10)", true},
+            {"http_success_request.tagNotMatch('idc', 't[12]').sum(['region'])", true},
+            {"http_success_request.tagEqual('region', 'us').max(['idc']).valueLess(90)", true},
+            {"(http_success_request * 1000).tagNotEqual('idc', '').min(['region', 'idc'])", true},
+            {"100 - ((http_success_request * 100).sum(['region']) / http_error_request.sum(['region']))", true},
+            {"1000 / -http_error_request + http_success_request.multiply(2)", true},
+            {"http_success_request.sum(['region', 'idc']).avg(['region']).service(['region'])", true},
+            {"(http_success_request).tag({tags -> tags.region = 'prefix::' + tags.region}).instance(['region'], ['idc'])", true},
+            {"http_success_request.tag({tags -> tags.remove('idc')}).endpoint(['region'], ['region'])", true},
+            {"http_success_request.sum(['le', 'region']).histogram().histogram_percentile([50, 99]).downsampling(SUM)", true},
+            {"http_success_request.retagByK8sMeta('service', K8sRetagType.Pod2Service, 'pod', 'namespace')", true},
+            {"http_success_request.sum()", false},
+            {"http_success_request.sum(by = ['region', 'idc'])", false},
+            {"http_success_request.tagEqual('idc')", false},
+            {"http_success_request.tagEqual(\"idc\", \"${region}\")", false},
+            {"http_success_request.histogram('le', TimeUnit.MILLISECONDS)", false},
+            {"http_success_request * time()", false},
+            {"http_success_request // comment", false},
+            {"1 + 1", false},
+        });
+    }
+
+    @Test
+    public void test() {
+        Optional<Expression> e = ExpressionCompiler.compile(expression);
+        assertThat(e.isPresent(), is(compiled));
+        if (!compiled) {
+            return;
+        }
+        Expression groovy = DSL.parseByGroovy(expression);
+        assertThat(e.get().parse(), is(groovy.parse()));
+
+        ImmutableMap<String, SampleFamily> input = of(
+            "http_success_request", SampleFamilyBuilder.newBuilder(
+                Sample.builder().labels(of("idc", "t1", "region", "us", "le", "0.1")).value(50).name("http_success_request").build(),
+                Sample.builder().labels(of("idc", "t2", "region", "us", "le", "1")).value(100).name("http_success_request").build(),
+                Sample.builder().labels(of("idc", "t3", "region", "cn", "le", "0.1")).value(30).name("http_success_request").build(),
+                Sample.builder().labels(of("idc", "t3", "region", "cn", "le", "1")).value(40).name("http_success_request").build()
+            ).build(),
+            "http_error_request", SampleFamilyBuilder.newBuilder(
+                Sample.builder().labels(of("idc", "t1", "region", "us")).value(5).name("http_error_request").build(),
+                Sample.builder().labels(of("idc", "t2", "region", "us")).value(2).name("http_error_request").build(),
+                Sample.builder().labels(of("idc", "t3", "region", "cn")).value(3).name("http_error_request").build()
+            ).build()
+        );
+        assertThat(e.get().run(input), is(groovy.run(input)));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.meter.analyzer.dsl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+import static com.google.common.collect.ImmutableMap.of;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LabelIndexTest {
+    private final Sample[] samples = new Sample[] {
+        Sample.builder().name("m").labels(of("idc", "t1", "region", "us")).value(1).build(),
+        Sample.builder().name("m").labels(of("idc", "t2", "region", "us")).value(2).build(),
+        Sample.builder().name("m").labels(of("idc", "t1", "region", "cn")).value(3).build(),
+        Sample.builder().name("m").labels(of("region", "cn")).value(4).build(),
+        Sample.builder().name("m").labels(of("idc", "", "region", "cn")).value(5).build(),
+        Sample.builder().name("m").labels(of("idc", "t1", "region", "us")).value(6).build()
+    };
+
+    @Test
+    public void testGroups() {
+        final LabelIndex index = new LabelIndex(samples);
+
+        LabelIndex.Groups groups = index.groups(Collections.singletonList("region"));
+        assertEquals(2, groups.count);
+        assertArrayEquals(new int[] {0, 0, 1, 1, 1, 0}, groups.ids);
+
+        groups = index.groups(Arrays.asList("region", "idc"));
+        assertEquals(4, groups.count);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 3, 0}, groups.ids);
+        assertSame(groups, index.groups(Arrays.asList("region", "idc")));
+
+        groups = index.groups(Collections.emptyList());
+        assertEquals(1, groups.count);
+        assertArrayEquals(new int[6], groups.ids);
+    }
+
+    @Test
+    public void testFind() {
+        final LabelIndex index = new LabelIndex(samples);
+
+        assertSame(samples[0], index.find(of("region", "us", "idc", "t1")));
+        assertSame(samples[3], index.find(of("region", "cn")));
+        assertNull(index.find(of("region", "eu")));
+    }
+}
@@ -20,15 +20,22 @@ package org.apache.skywalking.oap.meter.analyzer.dsl.counter;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import io.vavr.Tuple2;
+import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.List;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static java.time.Instant.parse;
 
 public class CounterWindowTest {
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     public static List<Tuple2<Long, Double>> parameters() {
         return Lists.newArrayList(
             new Tuple2<>(parse("2020-09-11T11:11:01.03Z").toEpochMilli(), 10d),
@@ -93,4 +100,69 @@ public class CounterWindowTest {
 
         Assert.assertArrayEquals(new double[] {0, 1d, 2d, 3d, 4d, 0d, 1d, 2d}, actuals, 0.d);
     }
+
+    @Test
+    public void testEvictStaleSeries() {
+        CounterWindow window = new CounterWindow();
+        window.configure(Duration.ofMinutes(5).toMillis(), 0);
+        window.increase("a", ImmutableMap.of("svc", "1"), 1d, 15000, 1000);
+        window.pop("b", ImmutableMap.of("svc", "1"), 1d, 1000);
+        Assert.assertEquals(2, window.size());
+
+        Assert.assertEquals(0, window.evict(System.currentTimeMillis()));
+        Assert.assertEquals(2, window.evict(System.currentTimeMillis() + Duration.ofMinutes(10).toMillis()));
+        Assert.assertEquals(0, window.size());
+        Assert.assertEquals(2, window.evictions());
+    }
+
+    @Test
+    public void testEstimateSizeByLabels() {
+        CounterWindow shortLabels = new CounterWindow();
+        shortLabels.increase("test", ImmutableMap.of("id", "1"), 1d, 15000, 1000);
+        CounterWindow longLabels = new CounterWindow();
+        longLabels.increase("test", ImmutableMap.of("id", "1", "pod", "e2e-service-provider-5c9d8f7b6-x2k4p"), 1d, 15000, 1000);
+
+        Assert.assertTrue(longLabels.estimatedSize() > shortLabels.estimatedSize());
+    }
+
+    @Test
+    public void testEvictOverMaxSize() {
+        CounterWindow window = new CounterWindow();
+        for (int i = 0; i < 100; i++) {
+            window.increase("test", ImmutableMap.of("id", String.valueOf(i)), 1d, 15000, 1000);
+        }
+        long size = window.estimatedSize();
+        window.configure(0, size / 2);
+
+        Assert.assertTrue(window.evict(System.currentTimeMillis()) > 0);
+        Assert.assertTrue(window.estimatedSize() <= size / 2);
+    }
+
+    @Test
+    public void testSnapshotAndRestore() throws IOException {
+        CounterWindow window = new CounterWindow();
+        List<Tuple2<Long, Double>> parameters = parameters();
+        for (int i = 0; i < 4; i++) {
+            Tuple2<Long, Double> e = parameters.get(i);
+            window.increase("test", ImmutableMap.of(), e._2, Duration.ofMinutes(1).toMillis(), e._1);
+            window.pop("test", ImmutableMap.of(), e._2, e._1);
+        }
+        File file = new File(folder.getRoot(), "counter-window/snapshot");
+        window.snapshot(file);
+
+        CounterWindow restored = new CounterWindow();
+        Assert.assertEquals(1, restored.restore(file));
+        for (int i = 4; i < parameters.size(); i++) {
+            Tuple2<Long, Double> e = parameters.get(i);
+            Assert.assertEquals(
+                window.increase("test", ImmutableMap.of(), e._2, Duration.ofMinutes(1).toMillis(), e._1),
+                restored.increase("test", ImmutableMap.of(), e._2, Duration.ofMinutes(1).toMillis(), e._1)
+            );
+            Assert.assertEquals(
+                window.pop("test", ImmutableMap.of(), e._2, e._1),
+                restored.pop("test", ImmutableMap.of(), e._2, e._1)
+            );
+        }
+        Assert.assertEquals(0, new CounterWindow().restore(new File(folder.getRoot(), "absent")));
+    }
 }
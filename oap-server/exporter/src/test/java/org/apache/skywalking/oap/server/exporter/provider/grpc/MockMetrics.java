@@ -20,6 +20,7 @@ package org.apache.skywalking.oap.server.exporter.provider.grpc;
 
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 
 public class MockMetrics extends Metrics {
 
@@ -54,7 +55,7 @@ public class MockMetrics extends Metrics {
     }
 
     @Override
-    public void deserialize(RemoteData remoteData) {
+    public void deserialize(RemoteDataOrBuilder remoteData) {
 
     }
 
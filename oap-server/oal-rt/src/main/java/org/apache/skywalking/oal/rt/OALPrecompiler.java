@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oal.rt;
+
+import java.io.File;
+import javassist.ClassPool;
+import javassist.LoaderClassPath;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.skywalking.oap.server.core.oal.rt.OALDefine;
+import org.apache.skywalking.oap.server.core.storage.StorageBuilderFactory;
+
+/**
+ * OALPrecompiler generates the classes of the OAL scripts at build time, and writes them into the {@link
+ * OALRuntime#PRECOMPILED_FOLDER} of the output folder. It runs in the build of the server-bootstrap module, where the
+ * scripts and all {@link OALDefine}s are in the classpath, see its pom.xml.
+ *
+ * The classes are generated for the {@link StorageBuilderFactory.Default} builders. The storage overriding the
+ * builders generates the classes at runtime, as the hash of its builder template doesn't match.
+ *
+ * Arguments: the output folder, followed by the class names of the {@link OALDefine}s, which have the static
+ * `INSTANCE` field.
+ */
+@Slf4j
+public class OALPrecompiler {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: OALPrecompiler <output folder> <OALDefine class name>...");
+        }
+        final File outputFolder = new File(args[0]);
+        // Remove the classes of the previous scripts.
+        FileUtils.deleteDirectory(new File(outputFolder, OALRuntime.PRECOMPILED_FOLDER));
+        ClassPool.getDefault().appendClassPath(new LoaderClassPath(OALPrecompiler.class.getClassLoader()));
+
+        for (int i = 1; i < args.length; i++) {
+            final OALDefine define = (OALDefine) Class.forName(args[i]).getField("INSTANCE").get(null);
+            final long startTime = System.currentTimeMillis();
+
+            final OALRuntime runtime = new OALRuntime(define);
+            runtime.setStorageBuilderFactory(new StorageBuilderFactory.Default());
+            runtime.precompile(outputFolder);
+
+            log.info(
+                "OAL script {} is precompiled in {} ms.", define.getConfigFile(),
+                System.currentTimeMillis() - startTime
+            );
+        }
+    }
+}
@@ -18,19 +18,24 @@
 
 package org.apache.skywalking.oal.rt;
 
+import com.google.common.hash.Hashing;
 import freemarker.template.Configuration;
 import freemarker.template.Version;
+import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import javassist.CannotCompileException;
 import javassist.ClassPool;
 import javassist.CtClass;
@@ -49,10 +54,12 @@ import javassist.bytecode.annotation.IntegerMemberValue;
 import javassist.bytecode.annotation.StringMemberValue;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oal.rt.output.AllDispatcherContext;
 import org.apache.skywalking.oal.rt.output.DispatcherContext;
 import org.apache.skywalking.oal.rt.parser.AnalysisResult;
+import org.apache.skywalking.oal.rt.parser.Expression;
 import org.apache.skywalking.oal.rt.parser.OALScripts;
 import org.apache.skywalking.oal.rt.parser.ScriptParser;
 import org.apache.skywalking.oal.rt.parser.SourceColumn;
@@ -74,11 +81,16 @@ import org.apache.skywalking.oap.server.library.util.ResourceUtils;
 /**
  * OAL Runtime is the class generation engine, which load the generated classes from OAL scrip definitions. This runtime
  * is loaded dynamically.
+ *
+ * The classes could be generated at build time by {@link OALPrecompiler}, in the {@link #PRECOMPILED_FOLDER} of the
+ * classpath. They are loaded rather than generated when the hash of the script, and of the other generation inputs,
+ * matches, otherwise the classes are generated at runtime, such as the script is changed by the user.
  */
 @Slf4j
 public class OALRuntime implements OALEngine {
 
     private static final String CLASS_FILE_CHARSET = "UTF-8";
+    static final String PRECOMPILED_FOLDER = "oal-aot";
     private static final String METRICS_FUNCTION_PACKAGE = "org.apache.skywalking.oap.server.core.analysis.metrics.";
     private static final String WITH_METADATA_INTERFACE = "org.apache.skywalking.oap.server.core.analysis.metrics.WithMetadata";
     private static final String DISPATCHER_INTERFACE = "org.apache.skywalking.oap.server.core.analysis.SourceDispatcher";
@@ -147,23 +159,77 @@ public class OALRuntime implements OALEngine {
         }
 
         this.currentClassLoader = currentClassLoader;
-        Reader read;
+        final long startTime = System.currentTimeMillis();
 
-        try {
-            read = ResourceUtils.read(oalDefine.getConfigFile());
+        final String script = readScript();
+        final OALScripts oalScripts = parseScript(script);
+        prepare(oalScripts);
+
+        // The generated classes are written into the temp folder in the debug mode.
+        final boolean precompiled = !openEngineDebug && loadPrecompiledClasses(oalScripts, scriptHash(script));
+        if (!precompiled) {
+            this.generateClassAtRuntime(oalScripts);
+        }
+        log.info(
+            "OAL script {} is loaded in {} ms, {}.", oalDefine.getConfigFile(), System.currentTimeMillis() - startTime,
+            precompiled ? "by the precompiled classes" : "by the runtime generated classes"
+        );
+    }
+
+    /**
+     * Generate the classes of the script, and write them into the {@link #PRECOMPILED_FOLDER} of the given folder,
+     * rather than loading them.
+     */
+    void precompile(File outputFolder) throws ModuleStartException, OALCompileException {
+        final String script = readScript();
+        final OALScripts oalScripts = parseScript(script);
+        prepare(oalScripts);
+
+        final File folder = new File(outputFolder, PRECOMPILED_FOLDER + "/" + scriptHash(script));
+        for (AnalysisResult metricsStmt : oalScripts.getMetricsStmts()) {
+            writePrecompiledClass(generateMetricsClass(metricsStmt), folder);
+            writePrecompiledClass(generateMetricsBuilderClass(metricsStmt), folder);
+        }
+        for (Map.Entry<String, DispatcherContext> entry : allDispatcherContext.getAllContext().entrySet()) {
+            writePrecompiledClass(generateDispatcherClass(entry.getKey(), entry.getValue()), folder);
+        }
+    }
+
+    private String readScript() throws ModuleStartException {
+        try (Reader reader = ResourceUtils.read(oalDefine.getConfigFile())) {
+            return IOUtils.toString(reader);
         } catch (FileNotFoundException e) {
             throw new ModuleStartException("Can't locate " + oalDefine.getConfigFile(), e);
+        } catch (IOException e) {
+            throw new ModuleStartException("Can't read " + oalDefine.getConfigFile(), e);
         }
+    }
 
-        OALScripts oalScripts;
+    private OALScripts parseScript(String script) throws ModuleStartException {
         try {
-            ScriptParser scriptParser = ScriptParser.createFromFile(read, oalDefine.getSourcePackage());
-            oalScripts = scriptParser.parse();
+            ScriptParser scriptParser = ScriptParser.createFromScriptText(script, oalDefine.getSourcePackage());
+            return scriptParser.parse();
         } catch (IOException e) {
             throw new ModuleStartException("OAL script parse analysis failure.", e);
         }
+    }
 
-        this.generateClassAtRuntime(oalScripts);
+    /**
+     * The hash of the script and the other inputs of the class generation, which identifies the precompiled classes.
+     * The templates are not included, as the precompiled classes are always built with the runtime itself.
+     */
+    private String scriptHash(String script) {
+        final StorageBuilderFactory.BuilderTemplateDefinition builderTemplate = storageBuilderFactory.builderTemplate();
+        return Hashing.sha256().hashString(String.join(
+            "\n",
+            oalDefine.getSourcePackage(),
+            oalDefine.getDynamicMetricsClassPackage(),
+            oalDefine.getDynamicMetricsBuilderClassPackage(),
+            oalDefine.getDynamicDispatcherClassPackage(),
+            builderTemplate.getSuperClass(),
+            builderTemplate.getTemplatePath(),
+            script
+        ), StandardCharsets.UTF_8).toString();
     }
 
     @Override
@@ -184,28 +250,104 @@ public class OALRuntime implements OALEngine {
         }
     }
 
-    private void generateClassAtRuntime(OALScripts oalScripts) throws OALCompileException {
-        List<AnalysisResult> metricsStmts = oalScripts.getMetricsStmts();
-        metricsStmts.forEach(this::buildDispatcherContext);
+    private void prepare(OALScripts oalScripts) {
+        oalScripts.getMetricsStmts().forEach(this::buildDispatcherContext);
 
-        for (AnalysisResult metricsStmt : metricsStmts) {
-            metricsClasses.add(generateMetricsClass(metricsStmt));
-            generateMetricsBuilderClass(metricsStmt);
+        oalScripts.getDisableCollection().getAllDisableSources().forEach(disable -> {
+            DisableRegister.INSTANCE.add(disable);
+        });
+    }
+
+    private void generateClassAtRuntime(OALScripts oalScripts) throws OALCompileException {
+        for (AnalysisResult metricsStmt : oalScripts.getMetricsStmts()) {
+            metricsClasses.add(toClass(generateMetricsClass(metricsStmt), "metrics"));
+            toClass(generateMetricsBuilderClass(metricsStmt), "metrics/builder");
         }
 
         for (Map.Entry<String, DispatcherContext> entry : allDispatcherContext.getAllContext().entrySet()) {
-            dispatcherClasses.add(generateDispatcherClass(entry.getKey(), entry.getValue()));
+            dispatcherClasses.add(toClass(generateDispatcherClass(entry.getKey(), entry.getValue()), "dispatcher"));
         }
+    }
 
-        oalScripts.getDisableCollection().getAllDisableSources().forEach(disable -> {
-            DisableRegister.INSTANCE.add(disable);
-        });
+    /**
+     * Load the precompiled classes of the script.
+     *
+     * @return false if any of the classes is not precompiled, then none of them is loaded.
+     */
+    private boolean loadPrecompiledClasses(OALScripts oalScripts, String scriptHash) throws OALCompileException {
+        final String folder = PRECOMPILED_FOLDER + "/" + scriptHash + "/";
+        final List<byte[]> metricsBytecodes = new ArrayList<>();
+        final List<byte[]> builderBytecodes = new ArrayList<>();
+        final List<byte[]> dispatcherBytecodes = new ArrayList<>();
+        for (AnalysisResult metricsStmt : oalScripts.getMetricsStmts()) {
+            metricsBytecodes.add(readPrecompiledClass(folder, metricsClassName(metricsStmt, true)));
+            builderBytecodes.add(readPrecompiledClass(folder, metricsBuilderClassName(metricsStmt, true)));
+        }
+        for (String scopeName : allDispatcherContext.getAllContext().keySet()) {
+            dispatcherBytecodes.add(readPrecompiledClass(folder, dispatcherClassName(scopeName, true)));
+        }
+        if (metricsBytecodes.contains(null) || builderBytecodes.contains(null) || dispatcherBytecodes.contains(null)) {
+            return false;
+        }
+
+        for (int i = 0; i < metricsBytecodes.size(); i++) {
+            metricsClasses.add(toClass(makeClass(metricsBytecodes.get(i)), "metrics"));
+            toClass(makeClass(builderBytecodes.get(i)), "metrics/builder");
+        }
+        for (byte[] dispatcherBytecode : dispatcherBytecodes) {
+            dispatcherClasses.add(toClass(makeClass(dispatcherBytecode), "dispatcher"));
+        }
+        return true;
+    }
+
+    private byte[] readPrecompiledClass(String folder, String className) {
+        try (InputStream inputStream = currentClassLoader.getResourceAsStream(
+            folder + className.replace('.', '/') + ".class")) {
+            return inputStream == null ? null : IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            log.warn("Can't read the precompiled class " + className + ".", e);
+            return null;
+        }
+    }
+
+    private CtClass makeClass(byte[] bytecode) throws OALCompileException {
+        try {
+            return classPool.makeClass(new ByteArrayInputStream(bytecode));
+        } catch (IOException e) {
+            throw new OALCompileException(e.getMessage(), e);
+        }
     }
 
     /**
-     * Generate metrics class, and inject it to classloader
+     * Inject the generated class to the classloader.
      */
-    private Class generateMetricsClass(AnalysisResult metricsStmt) throws OALCompileException {
+    private Class toClass(CtClass ctClass, String type) throws OALCompileException {
+        Class targetClass;
+        try {
+            targetClass = ctClass.toClass(currentClassLoader, null);
+        } catch (CannotCompileException e) {
+            log.error("Can't compile/load " + ctClass.getName() + ".", e);
+            throw new OALCompileException(e.getMessage(), e);
+        }
+
+        log.debug("Generate " + type + " class, " + ctClass.getName());
+        writeGeneratedFile(ctClass, ctClass.getSimpleName(), type);
+        return targetClass;
+    }
+
+    private void writePrecompiledClass(CtClass ctClass, File folder) throws OALCompileException {
+        try {
+            ctClass.writeFile(folder.getAbsolutePath());
+        } catch (CannotCompileException | IOException e) {
+            log.error("Can't write " + ctClass.getName() + " into " + folder.getAbsolutePath() + ".", e);
+            throw new OALCompileException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate metrics class
+     */
+    private CtClass generateMetricsClass(AnalysisResult metricsStmt) throws OALCompileException {
         String className = metricsClassName(metricsStmt, false);
         CtClass parentMetricsClass = null;
         try {
@@ -303,24 +445,13 @@ public class OALRuntime implements OALEngine {
         annotationsAttribute.addAnnotation(streamAnnotation);
         metricsClassClassFile.addAttribute(annotationsAttribute);
 
-        Class targetClass;
-        try {
-            targetClass = metricsClass.toClass(currentClassLoader, null);
-        } catch (CannotCompileException e) {
-            log.error("Can't compile/load " + className + ".", e);
-            throw new OALCompileException(e.getMessage(), e);
-        }
-
-        log.debug("Generate metrics class, " + metricsClass.getName());
-        writeGeneratedFile(metricsClass, metricsClass.getSimpleName(), "metrics");
-
-        return targetClass;
+        return metricsClass;
     }
 
     /**
-     * Generate metrics class builder and inject it to classloader
+     * Generate metrics class builder
      */
-    private void generateMetricsBuilderClass(AnalysisResult metricsStmt) throws OALCompileException {
+    private CtClass generateMetricsBuilderClass(AnalysisResult metricsStmt) throws OALCompileException {
         String className = metricsBuilderClassName(metricsStmt, false);
         CtClass metricsBuilderClass = classPool.makeClass(metricsBuilderClassName(metricsStmt, true));
         try {
@@ -358,20 +489,13 @@ public class OALRuntime implements OALEngine {
             }
         }
 
-        try {
-            metricsBuilderClass.toClass(currentClassLoader, null);
-        } catch (CannotCompileException e) {
-            log.error("Can't compile/load " + className + ".", e);
-            throw new OALCompileException(e.getMessage(), e);
-        }
-
-        writeGeneratedFile(metricsBuilderClass, className, "metrics/builder");
+        return metricsBuilderClass;
     }
 
     /**
-     * Generate SourceDispatcher class and inject it to classloader
+     * Generate SourceDispatcher class
      */
-    private Class generateDispatcherClass(String scopeName,
+    private CtClass generateDispatcherClass(String scopeName,
                                           DispatcherContext dispatcherContext) throws OALCompileException {
 
         String className = dispatcherClassName(scopeName, false);
@@ -408,6 +532,34 @@ public class OALRuntime implements OALEngine {
             throw new OALCompileException(e.getMessage(), e);
         }
 
+        /**
+         * Generate the static fields of the matcher singletons, the matchers are stateless.
+         */
+        Map<String, String> matchers = new TreeMap<>();
+        for (AnalysisResult dispatcherContextMetric : dispatcherContext.getMetrics()) {
+            if (dispatcherContextMetric.getFilterExpressions() != null) {
+                for (Expression expression : dispatcherContextMetric.getFilterExpressions()) {
+                    matchers.put(expression.getMatcherField(), expression.getExpressionObject());
+                }
+            }
+            for (Object arg : dispatcherContextMetric.getEntryMethod().getArgsExpressions()) {
+                if (arg instanceof Expression) {
+                    Expression expression = (Expression) arg;
+                    matchers.put(expression.getMatcherField(), expression.getExpressionObject());
+                }
+            }
+        }
+        for (Map.Entry<String, String> matcher : matchers.entrySet()) {
+            String field = "private static final " + matcher.getValue() + " " + matcher.getKey()
+                + " = new " + matcher.getValue() + "();";
+            try {
+                dispatcherClass.addField(CtField.make(field, dispatcherClass));
+            } catch (CannotCompileException e) {
+                log.error("Can't add field " + matcher.getKey() + " for " + className + ".", e);
+                throw new OALCompileException(e.getMessage(), e);
+            }
+        }
+
         /**
          * Generate methods
          */
@@ -435,16 +587,7 @@ public class OALRuntime implements OALEngine {
             throw new OALCompileException(e.getMessage(), e);
         }
 
-        Class targetClass;
-        try {
-            targetClass = dispatcherClass.toClass(currentClassLoader, null);
-        } catch (CannotCompileException e) {
-            log.error("Can't compile/load " + className + ".", e);
-            throw new OALCompileException(e.getMessage(), e);
-        }
-
-        writeGeneratedFile(dispatcherClass, className, "dispatcher");
-        return targetClass;
+        return dispatcherClass;
     }
 
     private String metricsClassName(AnalysisResult metricsStmt, boolean fullName) {
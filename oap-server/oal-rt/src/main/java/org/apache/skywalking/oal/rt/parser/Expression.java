@@ -35,4 +35,11 @@ public class Expression {
     public void setRight(String right) {
         this.right = right;
     }
+
+    /**
+     * @return the name of the static field holding the singleton of the stateless matcher in the generated dispatcher.
+     */
+    public String getMatcherField() {
+        return expressionObject.replace('.', '_');
+    }
 }
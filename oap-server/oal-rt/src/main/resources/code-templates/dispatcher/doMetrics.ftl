@@ -2,7 +2,7 @@ private void do${metricsName}(${sourcePackage}${sourceName} source) {
 
 <#if filterExpressions??>
     <#list filterExpressions as filterExpression>
-        if (!new ${filterExpression.expressionObject}().match(${filterExpression.left}, ${filterExpression.right})) {
+        if (!${filterExpression.matcherField}.match(${filterExpression.left}, ${filterExpression.right})) {
         return;
         }
     </#list>
@@ -18,7 +18,7 @@ metrics.${entryMethod.methodName}(
     <#if entryMethod.argTypes[arg_index] < 3>
         ${arg}
     <#else>
-        new ${arg.expressionObject}().match(${arg.left}, ${arg.right})
+        ${arg.matcherField}.match(${arg.left}, ${arg.right})
     </#if><#if arg_has_next>, </#if>
 </#list>);
 
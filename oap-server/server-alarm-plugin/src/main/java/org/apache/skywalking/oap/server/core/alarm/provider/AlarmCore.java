@@ -20,12 +20,14 @@ package org.apache.skywalking.oap.server.core.alarm.provider;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.skywalking.oap.server.core.alarm.AlarmCallback;
 import org.apache.skywalking.oap.server.core.alarm.AlarmMessage;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
 import org.joda.time.LocalDateTime;
 import org.joda.time.Minutes;
 import org.slf4j.Logger;
@@ -40,9 +42,20 @@ public class AlarmCore {
 
     private LocalDateTime lastExecuteTime;
     private AlarmRulesWatcher alarmRulesWatcher;
+    /**
+     * The number of threads checking the rules. The windows of every rule are checked in shards by the entity hash,
+     * when it is greater than 1.
+     */
+    private final int checkThreads;
+    private ExecutorService checkExecutor;
 
     AlarmCore(AlarmRulesWatcher alarmRulesWatcher) {
+        this(alarmRulesWatcher, 1);
+    }
+
+    AlarmCore(AlarmRulesWatcher alarmRulesWatcher, int checkThreads) {
         this.alarmRulesWatcher = alarmRulesWatcher;
+        this.checkThreads = checkThreads;
     }
 
     public List<RunningRule> findRunningRule(String metricsName) {
@@ -52,6 +65,9 @@ public class AlarmCore {
     public void start(List<AlarmCallback> allCallbacks) {
         LocalDateTime now = LocalDateTime.now();
         lastExecuteTime = now;
+        if (checkThreads > 1) {
+            checkExecutor = Executors.newFixedThreadPool(checkThreads, new CustomThreadFactory("AlarmCheck"));
+        }
         Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
             try {
                 final List<AlarmMessage> alarmMessageList = new ArrayList<>(30);
@@ -66,7 +82,8 @@ public class AlarmCore {
                          */
                         if (checkTime.getSecondOfMinute() > 15) {
                             hasExecute[0] = true;
-                            alarmMessageList.addAll(runningRule.check());
+                            alarmMessageList.addAll(
+                                checkExecutor == null ? runningRule.check() : runningRule.check(checkExecutor, checkThreads));
                         }
                     }
                 }));
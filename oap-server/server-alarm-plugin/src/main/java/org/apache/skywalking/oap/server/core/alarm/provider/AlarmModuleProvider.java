@@ -35,6 +35,7 @@ import org.apache.skywalking.oap.server.library.util.ResourceUtils;
 
 public class AlarmModuleProvider extends ModuleProvider {
 
+    private final AlarmSettings settings = new AlarmSettings();
     private NotifyHandler notifyHandler;
     private AlarmRulesWatcher alarmRulesWatcher;
 
@@ -50,7 +51,7 @@ public class AlarmModuleProvider extends ModuleProvider {
 
     @Override
     public ModuleConfig createConfigBeanIfAbsent() {
-        return new AlarmSettings();
+        return settings;
     }
 
     @Override
@@ -66,7 +67,7 @@ public class AlarmModuleProvider extends ModuleProvider {
 
         alarmRulesWatcher = new AlarmRulesWatcher(rules, this);
 
-        notifyHandler = new NotifyHandler(alarmRulesWatcher, getManager());
+        notifyHandler = new NotifyHandler(alarmRulesWatcher, getManager(), settings.getCheckThreads());
         notifyHandler.init(new AlarmStandardPersistence(getManager()));
         this.registerServiceImplementation(MetricsNotify.class, notifyHandler);
     }
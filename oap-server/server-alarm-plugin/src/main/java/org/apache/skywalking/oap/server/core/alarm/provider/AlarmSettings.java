@@ -18,7 +18,18 @@
 
 package org.apache.skywalking.oap.server.core.alarm.provider;
 
+import lombok.Getter;
+import lombok.Setter;
 import org.apache.skywalking.oap.server.library.module.ModuleConfig;
 
+@Getter
+@Setter
 public class AlarmSettings extends ModuleConfig {
+    /**
+     * The number of threads used to check the alarm rules. The windows of every rule are checked in shards by the
+     * entity hash when it is greater than 1, otherwise all rules are checked in the alarm timer thread.
+     *
+     * @since 8.7.0
+     */
+    private int checkThreads = 1;
 }
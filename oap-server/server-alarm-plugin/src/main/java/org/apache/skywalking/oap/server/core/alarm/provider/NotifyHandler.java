@@ -51,8 +51,12 @@ public class NotifyHandler implements MetricsNotify {
     private final ModuleManager manager;
 
     public NotifyHandler(AlarmRulesWatcher alarmRulesWatcher, ModuleManager manager) {
+        this(alarmRulesWatcher, manager, 1);
+    }
+
+    public NotifyHandler(AlarmRulesWatcher alarmRulesWatcher, ModuleManager manager, int checkThreads) {
         this.alarmRulesWatcher = alarmRulesWatcher;
-        core = new AlarmCore(alarmRulesWatcher);
+        core = new AlarmCore(alarmRulesWatcher, checkThreads);
         this.manager = manager;
     }
 
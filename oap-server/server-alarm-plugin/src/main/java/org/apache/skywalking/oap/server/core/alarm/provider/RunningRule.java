@@ -18,6 +18,8 @@
 
 package org.apache.skywalking.oap.server.core.alarm.provider;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -26,6 +28,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -46,15 +51,16 @@ import org.apache.skywalking.oap.server.core.analysis.metrics.MultiIntValuesHold
 import org.apache.skywalking.oap.server.library.util.CollectionUtils;
 import org.joda.time.LocalDateTime;
 import org.joda.time.Minutes;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
 /**
  * RunningRule represents each rule in running status. Based on the {@link AlarmRule} definition,
  */
 @Slf4j
 public class RunningRule {
-    private static DateTimeFormatter TIME_BUCKET_FORMATTER = DateTimeFormat.forPattern("yyyyMMddHHmm");
+    /**
+     * The max number of the cached include/exclude decisions, of the names and the labels each.
+     */
+    private static final int MAX_VALIDATION_CACHE_SIZE = 10_000;
 
     private final String ruleName;
     private final int period;
@@ -76,6 +82,18 @@ public class RunningRule {
     private final AlarmMessageFormatter formatter;
     private final boolean onlyAsCondition;
     private final List<Tag> tags;
+    private final boolean hasNamesFilter;
+    private final boolean hasLabelsFilter;
+    /**
+     * The include/exclude decisions of the entity names and the labels, the validation runs once per name or label
+     * while it is cached.
+     */
+    private final Cache<String, Boolean> validNames = CacheBuilder.newBuilder()
+                                                                  .maximumSize(MAX_VALIDATION_CACHE_SIZE)
+                                                                  .build();
+    private final Cache<String, Boolean> validLabels = CacheBuilder.newBuilder()
+                                                                   .maximumSize(MAX_VALIDATION_CACHE_SIZE)
+                                                                   .build();
 
     public RunningRule(AlarmRule alarmRule) {
         metricsName = alarmRule.getMetricsName();
@@ -111,6 +129,10 @@ public class RunningRule {
                              .stream()
                              .map(e -> new Tag(e.getKey(), e.getValue()))
                              .collect(Collectors.toList());
+        this.hasNamesFilter = CollectionUtils.isNotEmpty(includeNames) || CollectionUtils.isNotEmpty(excludeNames)
+            || includeNamesRegex != null || excludeNamesRegex != null;
+        this.hasLabelsFilter = CollectionUtils.isNotEmpty(includeLabels) || CollectionUtils.isNotEmpty(excludeLabels)
+            || includeLabelsRegex != null || excludeLabelsRegex != null;
     }
 
     /**
@@ -129,8 +151,7 @@ public class RunningRule {
             return;
         }
 
-        final String metaName = meta.getName();
-        if (!validate(metaName, includeNames, excludeNames, includeNamesRegex, excludeNamesRegex)) {
+        if (!isValidName(meta.getName())) {
             return;
         }
 
@@ -148,14 +169,7 @@ public class RunningRule {
                 valueType = MetricsValueType.MULTI_INTS;
                 threshold.setType(MetricsValueType.MULTI_INTS);
             } else if (metrics instanceof LabeledValueHolder) {
-                if (((LabeledValueHolder) metrics).getValue().keys().stream()
-                                                  .noneMatch(label -> validate(
-                                                      label,
-                                                      includeLabels,
-                                                      excludeLabels,
-                                                      includeLabelsRegex,
-                                                      excludeLabelsRegex
-                                                  ))) {
+                if (((LabeledValueHolder) metrics).getValue().keys().stream().noneMatch(this::isValidLabel)) {
                     return;
                 }
                 valueType = MetricsValueType.LABELED_LONG;
@@ -167,11 +181,38 @@ public class RunningRule {
         }
 
         if (valueType != null) {
-            Window window = windows.computeIfAbsent(meta, ignored -> new Window(period));
+            Window window = windows.get(meta);
+            if (window == null) {
+                window = windows.computeIfAbsent(meta, ignored -> new Window(period, meta.hashCode()));
+            }
             window.add(metrics);
         }
     }
 
+    private boolean isValidName(String name) {
+        if (!hasNamesFilter) {
+            return true;
+        }
+        Boolean valid = validNames.getIfPresent(name);
+        if (valid == null) {
+            valid = validate(name, includeNames, excludeNames, includeNamesRegex, excludeNamesRegex);
+            validNames.put(name, valid);
+        }
+        return valid;
+    }
+
+    private boolean isValidLabel(String label) {
+        if (!hasLabelsFilter) {
+            return true;
+        }
+        Boolean valid = validLabels.getIfPresent(label);
+        if (valid == null) {
+            valid = validate(label, includeLabels, excludeLabels, includeLabelsRegex, excludeLabelsRegex);
+            validLabels.put(label, valid);
+        }
+        return valid;
+    }
+
     /**
      * Validate target whether matching rules which is included list, excludes list, include regular expression or
      * exclude regular expression.
@@ -231,45 +272,127 @@ public class RunningRule {
     public List<AlarmMessage> check() {
         List<AlarmMessage> alarmMessageList = new ArrayList<>(30);
 
-        windows.forEach((meta, window) -> {
-            Optional<AlarmMessage> alarmMessageOptional = window.checkAlarm();
-            if (alarmMessageOptional.isPresent()) {
-                AlarmMessage alarmMessage = alarmMessageOptional.get();
-                alarmMessage.setScopeId(meta.getScopeId());
-                alarmMessage.setScope(meta.getScope());
-                alarmMessage.setName(meta.getName());
-                alarmMessage.setId0(meta.getId0());
-                alarmMessage.setId1(meta.getId1());
-                alarmMessage.setRuleName(this.ruleName);
-                alarmMessage.setAlarmMessage(formatter.format(meta));
-                alarmMessage.setOnlyAsCondition(this.onlyAsCondition);
-                alarmMessage.setStartTime(System.currentTimeMillis());
-                alarmMessage.setPeriod(this.period);
-                alarmMessage.setTags(this.tags);
-                alarmMessageList.add(alarmMessage);
-            }
-        });
+        windows.forEach((meta, window) -> check(meta, window, alarmMessageList));
 
         return alarmMessageList;
     }
 
+    /**
+     * Check the conditions in shards concurrently, the windows are assigned to the shards by the hash of their
+     * entities. The windows are partitioned once, every shard checks its own slice.
+     *
+     * @param executor runs the shards.
+     * @param shards   the number of shards.
+     */
+    public List<AlarmMessage> check(ExecutorService executor, int shards) {
+        if (shards <= 1 || windows.size() < shards) {
+            return check();
+        }
+
+        List<List<Map.Entry<MetaInAlarm, Window>>> slices = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            slices.add(new ArrayList<>(windows.size() / shards + 1));
+        }
+        for (Map.Entry<MetaInAlarm, Window> entry : windows.entrySet()) {
+            slices.get(entry.getValue().shard(shards)).add(entry);
+        }
+
+        List<Future<List<AlarmMessage>>> futures = new ArrayList<>(shards);
+        for (List<Map.Entry<MetaInAlarm, Window>> slice : slices) {
+            futures.add(executor.submit(() -> {
+                List<AlarmMessage> alarmMessageList = new ArrayList<>();
+                for (Map.Entry<MetaInAlarm, Window> entry : slice) {
+                    check(entry.getKey(), entry.getValue(), alarmMessageList);
+                }
+                return alarmMessageList;
+            }));
+        }
+
+        List<AlarmMessage> alarmMessageList = new ArrayList<>(30);
+        for (Future<List<AlarmMessage>> future : futures) {
+            try {
+                alarmMessageList.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Check the rule {} is interrupted.", ruleName);
+            } catch (ExecutionException e) {
+                log.error("Check the rule {} failure.", ruleName, e.getCause());
+            }
+        }
+        return alarmMessageList;
+    }
+
+    private void check(MetaInAlarm meta, Window window, List<AlarmMessage> alarmMessageList) {
+        Optional<AlarmMessage> alarmMessageOptional = window.checkAlarm();
+        if (alarmMessageOptional.isPresent()) {
+            AlarmMessage alarmMessage = alarmMessageOptional.get();
+            alarmMessage.setScopeId(meta.getScopeId());
+            alarmMessage.setScope(meta.getScope());
+            alarmMessage.setName(meta.getName());
+            alarmMessage.setId0(meta.getId0());
+            alarmMessage.setId1(meta.getId1());
+            alarmMessage.setRuleName(this.ruleName);
+            alarmMessage.setAlarmMessage(formatter.format(meta));
+            alarmMessage.setOnlyAsCondition(this.onlyAsCondition);
+            alarmMessage.setStartTime(System.currentTimeMillis());
+            alarmMessage.setPeriod(this.period);
+            alarmMessage.setTags(this.tags);
+            alarmMessageList.add(alarmMessage);
+        }
+    }
+
     /**
      * A metrics window, based on AlarmRule#period. This window slides with time, just keeps the recent N(period)
      * buckets.
+     *
+     * The values are kept in the ring buffers of the primitive type of {@link #valueType}, rather than the metrics
+     * objects. The slot of the {@link #endTime} is {@link #head}, the slot of N minutes before it is (head - N) mod
+     * period.
      */
     public class Window {
         private LocalDateTime endTime;
         private int period;
         private int silenceCountdown;
-
-        private LinkedList<Metrics> values;
+        private final int hash;
+
+        private int head;
+        /**
+         * The time bucket of the value in every slot, 0 means the slot is empty.
+         */
+        private final long[] timeBuckets;
+        private long[] longValues;
+        private int[] intValues;
+        private double[] doubleValues;
+        /**
+         * The int arrays of {@link MetricsValueType#MULTI_INTS} or the data tables of {@link
+         * MetricsValueType#LABELED_LONG}.
+         */
+        private Object[] objectValues;
         private ReentrantLock lock = new ReentrantLock();
 
-        public Window(int period) {
+        public Window(int period, int hash) {
             this.period = period;
+            this.hash = hash;
             // -1 means silence countdown is not running.
             silenceCountdown = -1;
-            init();
+            timeBuckets = new long[period];
+            switch (valueType) {
+                case LONG:
+                    longValues = new long[period];
+                    break;
+                case INT:
+                    intValues = new int[period];
+                    break;
+                case DOUBLE:
+                    doubleValues = new double[period];
+                    break;
+                default:
+                    objectValues = new Object[period];
+            }
+        }
+
+        private int shard(int shards) {
+            return (hash & Integer.MAX_VALUE) % shards;
         }
 
         public void moveTo(LocalDateTime current) {
@@ -282,13 +405,13 @@ public class RunningRule {
                     if (minutes <= 0) {
                         return;
                     }
-                    if (minutes > values.size()) {
+                    if (minutes >= period) {
                         // re-init
                         init();
                     } else {
                         for (int i = 0; i < minutes; i++) {
-                            values.removeFirst();
-                            values.addLast(null);
+                            head = (head + 1) % period;
+                            clear(head);
                         }
                     }
                 }
@@ -297,14 +420,14 @@ public class RunningRule {
                 lock.unlock();
             }
             if (log.isTraceEnabled()) {
-                log.trace("Move window {}", transformValues(values));
+                log.trace("Move window {}", transformValues());
             }
         }
 
         public void add(Metrics metrics) {
             long bucket = metrics.getTimeBucket();
 
-            LocalDateTime timeBucket = TIME_BUCKET_FORMATTER.parseLocalDateTime(bucket + "");
+            LocalDateTime timeBucket = toLocalDateTime(bucket);
 
             this.lock.lock();
             try {
@@ -318,24 +441,40 @@ public class RunningRule {
                     minutes = 0;
                 }
 
-                if (minutes >= values.size()) {
+                if (minutes >= period) {
                     // too old data
                     // also should happen, but maybe if agent/probe mechanism time is not right.
                     if (log.isTraceEnabled()) {
                         log.trace(
-                            "Timebucket is {}, endTime is {} and value size is {}", timeBucket, this.endTime,
-                            values.size()
-                        );
+                            "Timebucket is {}, endTime is {} and value size is {}", timeBucket, this.endTime, period);
                     }
                     return;
                 }
 
-                this.values.set(values.size() - minutes - 1, metrics);
+                int slot = (head - minutes + period) % period;
+                timeBuckets[slot] = bucket;
+                switch (valueType) {
+                    case LONG:
+                        longValues[slot] = ((LongValueHolder) metrics).getValue();
+                        break;
+                    case INT:
+                        intValues[slot] = ((IntValueHolder) metrics).getValue();
+                        break;
+                    case DOUBLE:
+                        doubleValues[slot] = ((DoubleValueHolder) metrics).getValue();
+                        break;
+                    case MULTI_INTS:
+                        objectValues[slot] = ((MultiIntValuesHolder) metrics).getValues();
+                        break;
+                    case LABELED_LONG:
+                        objectValues[slot] = ((LabeledValueHolder) metrics).getValue();
+                        break;
+                }
             } finally {
                 this.lock.unlock();
             }
             if (log.isTraceEnabled()) {
-                log.trace("Add metric {} to window {}", metrics, transformValues(this.values));
+                log.trace("Add metric {} to window {}", metrics, transformValues());
             }
         }
 
@@ -360,73 +499,18 @@ public class RunningRule {
 
         private boolean isMatch() {
             int matchCount = 0;
-            for (Metrics metrics : values) {
-                if (metrics == null) {
-                    continue;
-                }
-
-                switch (valueType) {
-                    case LONG:
-                        long lvalue = ((LongValueHolder) metrics).getValue();
-                        long lexpected = RunningRule.this.threshold.getLongThreshold();
-                        if (op.test(lexpected, lvalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case INT:
-                        int ivalue = ((IntValueHolder) metrics).getValue();
-                        int iexpected = RunningRule.this.threshold.getIntThreshold();
-                        if (op.test(iexpected, ivalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case DOUBLE:
-                        double dvalue = ((DoubleValueHolder) metrics).getValue();
-                        double dexpected = RunningRule.this.threshold.getDoubleThreshold();
-                        if (op.test(dexpected, dvalue)) {
-                            matchCount++;
-                        }
-                        break;
-                    case MULTI_INTS:
-                        int[] ivalueArray = ((MultiIntValuesHolder) metrics).getValues();
-                        Integer[] iaexpected = RunningRule.this.threshold.getIntValuesThreshold();
-                        if (log.isTraceEnabled()) {
-                            log.trace("Value array is {}, expected array is {}", ivalueArray, iaexpected);
-                        }
-                        for (int i = 0; i < ivalueArray.length; i++) {
-                            ivalue = ivalueArray[i];
-                            Integer iNullableExpected = 0;
-                            if (iaexpected.length > i) {
-                                iNullableExpected = iaexpected[i];
-                                if (iNullableExpected == null) {
-                                    continue;
-                                }
-                            }
-                            if (op.test(iNullableExpected, ivalue)) {
-                                if (log.isTraceEnabled()) {
-                                    log.trace("Matched, expected {}, value {}", iNullableExpected, ivalue);
-                                }
-                                matchCount++;
-                                break;
-                            }
-                        }
-                        break;
-                    case LABELED_LONG:
-                        DataTable values = ((LabeledValueHolder) metrics).getValue();
-                        lexpected = RunningRule.this.threshold.getLongThreshold();
-                        if (values.keys().stream().anyMatch(label ->
-                                                                validate(
-                                                                    label,
-                                                                    RunningRule.this.includeLabels,
-                                                                    RunningRule.this.excludeLabels,
-                                                                    RunningRule.this.includeLabelsRegex,
-                                                                    RunningRule.this.excludeLabelsRegex
-                                                                )
-                                                                    && op.test(lexpected, values.get(label)))) {
-                            matchCount++;
-                        }
-                        break;
+            lock.lock();
+            try {
+                for (int slot = 0; slot < period; slot++) {
+                    if (timeBuckets[slot] == 0) {
+                        continue;
+                    }
+                    if (isMatch(slot)) {
+                        matchCount++;
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
 
             if (log.isTraceEnabled()) {
@@ -436,45 +520,109 @@ public class RunningRule {
             return matchCount >= countThreshold;
         }
 
-        private void init() {
-            values = new LinkedList<>();
-            for (int i = 0; i < period; i++) {
-                values.add(null);
-            }
-        }
-    }
-
-    private LinkedList<TraceLogMetric> transformValues(final LinkedList<Metrics> values) {
-        LinkedList<TraceLogMetric> r = new LinkedList<>();
-        values.forEach(m -> {
-            if (m == null) {
-                r.add(null);
-                return;
-            }
+        private boolean isMatch(int slot) {
             switch (valueType) {
                 case LONG:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((LongValueHolder) m).getValue()}));
-                    break;
+                    return op.test(RunningRule.this.threshold.getLongThreshold(), longValues[slot]);
                 case INT:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((IntValueHolder) m).getValue()}));
-                    break;
+                    return op.test(RunningRule.this.threshold.getIntThreshold(), intValues[slot]);
                 case DOUBLE:
-                    r.add(new TraceLogMetric(m.getTimeBucket(), new Number[] {((DoubleValueHolder) m).getValue()}));
-                    break;
+                    return op.test(RunningRule.this.threshold.getDoubleThreshold(), doubleValues[slot]);
                 case MULTI_INTS:
-                    int[] iArr = ((MultiIntValuesHolder) m).getValues();
-                    r.add(new TraceLogMetric(m.getTimeBucket(), Arrays.stream(iArr).boxed().toArray(Number[]::new)));
-                    break;
+                    int[] ivalueArray = (int[]) objectValues[slot];
+                    Integer[] iaexpected = RunningRule.this.threshold.getIntValuesThreshold();
+                    if (log.isTraceEnabled()) {
+                        log.trace("Value array is {}, expected array is {}", ivalueArray, iaexpected);
+                    }
+                    for (int i = 0; i < ivalueArray.length; i++) {
+                        int ivalue = ivalueArray[i];
+                        Integer iNullableExpected = 0;
+                        if (iaexpected.length > i) {
+                            iNullableExpected = iaexpected[i];
+                            if (iNullableExpected == null) {
+                                continue;
+                            }
+                        }
+                        if (op.test(iNullableExpected, ivalue)) {
+                            if (log.isTraceEnabled()) {
+                                log.trace("Matched, expected {}, value {}", iNullableExpected, ivalue);
+                            }
+                            return true;
+                        }
+                    }
+                    return false;
                 case LABELED_LONG:
-                    DataTable dt = ((LabeledValueHolder) m).getValue();
-                    TraceLogMetric l = new TraceLogMetric(
-                        m.getTimeBucket(), dt.sortedValues(Comparator.naturalOrder())
-                                             .toArray(new Number[0]));
-                    l.labels = dt.sortedKeys(Comparator.naturalOrder()).toArray(new String[0]);
-                    r.add(l);
+                    DataTable values = (DataTable) objectValues[slot];
+                    long lexpected = RunningRule.this.threshold.getLongThreshold();
+                    return values.keys().stream().anyMatch(
+                        label -> isValidLabel(label) && op.test(lexpected, values.get(label)));
+                default:
+                    return false;
+            }
+        }
+
+        private void clear(int slot) {
+            timeBuckets[slot] = 0;
+            if (objectValues != null) {
+                objectValues[slot] = null;
+            }
+        }
+
+        private void init() {
+            for (int slot = 0; slot < period; slot++) {
+                clear(slot);
             }
-        });
-        return r;
+        }
+
+        private LinkedList<TraceLogMetric> transformValues() {
+            LinkedList<TraceLogMetric> r = new LinkedList<>();
+            lock.lock();
+            try {
+                // From the oldest to the latest.
+                for (int i = period - 1; i >= 0; i--) {
+                    int slot = (head - i + period) % period;
+                    long bucket = timeBuckets[slot];
+                    if (bucket == 0) {
+                        r.add(null);
+                        continue;
+                    }
+                    switch (valueType) {
+                        case LONG:
+                            r.add(new TraceLogMetric(bucket, new Number[] {longValues[slot]}));
+                            break;
+                        case INT:
+                            r.add(new TraceLogMetric(bucket, new Number[] {intValues[slot]}));
+                            break;
+                        case DOUBLE:
+                            r.add(new TraceLogMetric(bucket, new Number[] {doubleValues[slot]}));
+                            break;
+                        case MULTI_INTS:
+                            int[] iArr = (int[]) objectValues[slot];
+                            r.add(new TraceLogMetric(bucket, Arrays.stream(iArr).boxed().toArray(Number[]::new)));
+                            break;
+                        case LABELED_LONG:
+                            DataTable dt = (DataTable) objectValues[slot];
+                            TraceLogMetric l = new TraceLogMetric(
+                                bucket, dt.sortedValues(Comparator.naturalOrder()).toArray(new Number[0]));
+                            l.labels = dt.sortedKeys(Comparator.naturalOrder()).toArray(new String[0]);
+                            r.add(l);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Parse the minute time bucket, yyyyMMddHHmm, without the formatter.
+     */
+    private static LocalDateTime toLocalDateTime(long timeBucket) {
+        return new LocalDateTime(
+            (int) (timeBucket / 100000000L), (int) (timeBucket / 1000000 % 100), (int) (timeBucket / 10000 % 100),
+            (int) (timeBucket / 100 % 100), (int) (timeBucket % 100)
+        );
     }
 
     @RequiredArgsConstructor
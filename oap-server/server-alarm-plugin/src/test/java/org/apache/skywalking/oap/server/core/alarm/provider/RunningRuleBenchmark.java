@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.alarm.provider;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.alarm.AlarmMessage;
+import org.apache.skywalking.oap.server.core.alarm.ServiceMetaInAlarm;
+import org.apache.skywalking.oap.server.core.analysis.metrics.LongValueHolder;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Check one endpoint scope rule, whose windows are full of the values of the last period, at 100k entities. The
+ * windows are checked in the current thread, or in shards by the check thread pool.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class RunningRuleBenchmark {
+    private static final int PERIOD = 10;
+    private static final long START_TIME_BUCKET = 202106011200L;
+
+    @Param({"100000"})
+    private int entities;
+
+    @Param({
+        "1",
+        "4"
+    })
+    private int checkThreads;
+
+    private RunningRule runningRule;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setAlarmRuleName("endpoint_resp_time_rule");
+        alarmRule.setMetricsName("endpoint_resp_time");
+        alarmRule.setOp(">");
+        alarmRule.setThreshold("1000");
+        alarmRule.setCount(3);
+        alarmRule.setPeriod(PERIOD);
+        alarmRule.setMessage("Response time of endpoint {name} is more than 1000ms in 3 minutes of last 10 minutes");
+        runningRule = new RunningRule(alarmRule);
+
+        for (int i = 0; i < entities; i++) {
+            ServiceMetaInAlarm meta = new ServiceMetaInAlarm();
+            meta.setMetricsName("endpoint_resp_time");
+            meta.setId("ZTJlLXNlcnZpY2UtcHJvdmlkZXI=.1_" + i);
+            meta.setName("/endpoint/" + i);
+            for (int minute = 0; minute < PERIOD; minute++) {
+                // 10% of the entities are slow.
+                runningRule.in(meta, new ValueMetrics(START_TIME_BUCKET + minute, i % 10 == 0 ? 2000 : 100));
+            }
+        }
+
+        executor = Executors.newFixedThreadPool(checkThreads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public List<AlarmMessage> check() {
+        return checkThreads > 1 ? runningRule.check(executor, checkThreads) : runningRule.check();
+    }
+
+    private static class ValueMetrics extends Metrics implements LongValueHolder {
+        private final long value;
+
+        private ValueMetrics(long timeBucket, long value) {
+            setTimeBucket(timeBucket);
+            this.value = value;
+        }
+
+        @Override
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        protected String id0() {
+            return null;
+        }
+
+        @Override
+        public boolean combine(Metrics metrics) {
+            return true;
+        }
+
+        @Override
+        public void calculate() {
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public void deserialize(RemoteDataOrBuilder remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RunningRuleBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
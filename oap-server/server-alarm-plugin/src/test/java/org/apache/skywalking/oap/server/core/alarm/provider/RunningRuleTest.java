@@ -24,6 +24,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.skywalking.oap.server.core.Const;
@@ -36,6 +38,7 @@ import org.apache.skywalking.oap.server.core.analysis.metrics.LabeledValueHolder
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.metrics.MultiIntValuesHolder;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
 import org.joda.time.LocalDateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -74,11 +77,14 @@ public class RunningRuleTest {
         RunningRule.Window window = windows.get(getMetaInAlarm(123));
         LocalDateTime endTime = Whitebox.getInternalState(window, "endTime");
         int period = Whitebox.getInternalState(window, "period");
-        LinkedList<Metrics> metricsBuffer = Whitebox.getInternalState(window, "values");
+        long[] timeBuckets = Whitebox.getInternalState(window, "timeBuckets");
+        int[] values = Whitebox.getInternalState(window, "intValues");
 
         Assert.assertTrue(startTime.equals(endTime));
         Assert.assertEquals(15, period);
-        Assert.assertEquals(15, metricsBuffer.size());
+        Assert.assertEquals(15, timeBuckets.length);
+        Assert.assertEquals(timeInPeriod1, timeBuckets[0]);
+        Assert.assertEquals(70, values[0]);
     }
 
     @Test
@@ -358,6 +364,35 @@ public class RunningRuleTest {
         Assert.assertEquals(0, runningRule.check().size());
     }
 
+    @Test
+    public void testShardedCheck() {
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setAlarmRuleName("endpoint_percent_rule");
+        alarmRule.setMetricsName("endpoint_percent");
+        alarmRule.setOp("<");
+        alarmRule.setThreshold("75");
+        alarmRule.setCount(2);
+        alarmRule.setPeriod(15);
+        alarmRule.setSilencePeriod(3);
+        alarmRule.setMessage("Successful rate of endpoint {name} is lower than 75%");
+        RunningRule runningRule = new RunningRule(alarmRule);
+
+        for (int id = 0; id < 100; id++) {
+            runningRule.in(getMetaInAlarm(id), getMetrics(201808301434L, 70));
+            // Only the even entities match twice.
+            runningRule.in(getMetaInAlarm(id), getMetrics(201808301436L, id % 2 == 0 ? 71 : 80));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Assert.assertEquals(50, runningRule.check(executor, 4).size());
+            // Silence.
+            Assert.assertEquals(0, runningRule.check(executor, 4).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private MetaInAlarm getMetaInAlarm(int id) {
         return new MetaInAlarm() {
             @Override
@@ -459,7 +494,7 @@ public class RunningRuleTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
@@ -521,7 +556,7 @@ public class RunningRuleTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
@@ -568,7 +603,7 @@ public class RunningRuleTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
@@ -88,6 +88,13 @@ public class CoreModuleConfig extends ModuleConfig {
      */
 
     private int remoteTimeout = 20;
+    /**
+     * Send the L1 aggregated metrics to other OAP servers in batches, every batch carries the metrics of the same next
+     * worker with the strings deduplicated. All OAP servers of the cluster must support it.
+     *
+     * @since 8.7.0
+     */
+    private boolean enableRemoteBatchTransport = false;
     /**
      * The size of network address alias.
      */
@@ -162,6 +169,128 @@ public class CoreModuleConfig extends ModuleConfig {
     @Getter
     private int prepareThreads = 2;
 
+    /**
+     * Hold the session cache of metrics persistence in the compact serialized form, keyed by the 128-bit hash of the
+     * metrics ID, rather than the whole metrics objects. It reduces the heap usage of high cardinality metrics, in the
+     * cost of deserialization when the cached metrics are merged.
+     *
+     * @since 8.7.0
+     */
+    private boolean enableCompactSessionCache = false;
+
+    /**
+     * The max size of all compact session caches, the least recently used metrics are evicted when the size exceeds.
+     * Unit is MB. Only work when {@link #enableCompactSessionCache} == true.
+     *
+     * @since 8.7.0
+     */
+    private long maxSizeOfCompactSessionCache = 1024;
+
+    /**
+     * The max size of metrics in one IDs read batch of the metrics persistence. The actual size adapts to the read
+     * latency, between 100 and this value.
+     *
+     * @since 8.7.0
+     */
+    private int maxBatchGetSize = 2000;
+
+    /**
+     * The target latency of one IDs read batch of the metrics persistence. The batch size shrinks when the read is
+     * slower than it. Unit is ms. Non-positive value keeps the batch size as {@link #maxBatchGetSize}.
+     *
+     * @since 8.7.0
+     */
+    private long batchGetTargetLatency = 1000;
+
+    /**
+     * The number of threads used to read the ID batches of one metrics concurrently. 0 means the batches are read in
+     * the prepare thread one by one.
+     *
+     * @since 8.7.0
+     */
+    private int batchGetThreads = 2;
+
+    /**
+     * The L1 and L2 aggregation consumers park when there is nothing to consume and are woken up by the producers,
+     * rather than polling in a fixed 20ms cycle. The number of consumer threads grows and shrinks with the queue depth.
+     *
+     * @since 8.7.0
+     */
+    private boolean enableElasticConsumePool = false;
+
+    /**
+     * Every persistence worker persists on its own cadence, once per {@link #persistentPeriod}, and the prepare and
+     * flush stages run in separated thread pools. A slow metrics doesn't delay the persistence of the others, it is
+     * reported through the `persistence_timer_slow_round_count` self-observability metrics.
+     *
+     * @since 8.7.0
+     */
+    private boolean enablePipelinedPersistence = false;
+
+    /**
+     * The number of threads used to flush the prepared requests to the storage. Only work when {@link
+     * #enablePipelinedPersistence} == true.
+     *
+     * @since 8.7.0
+     */
+    private int flushThreads = 2;
+
+    /**
+     * The max size of the pre-aggregation table of one OAL metrics in one dispatcher thread. The metrics generated by
+     * the dispatchers are combined in the table, and flushed to the L1 aggregation when the table is full or once per
+     * {@link #dispatcherPreAggregationFlushPeriod}. 0 means the pre-aggregation is disabled.
+     *
+     * @since 8.7.0
+     */
+    private int dispatcherPreAggregationSize = 0;
+
+    /**
+     * The period of the dispatcher pre-aggregation flush. Unit is ms.
+     *
+     * @since 8.7.0
+     */
+    private long dispatcherPreAggregationFlushPeriod = 100;
+
+    /**
+     * Compress the serialized segment, {@link org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord#getDataBinary()},
+     * before it is persisted. The segments persisted without compression, by the previous releases or with this
+     * disabled, are still readable.
+     *
+     * @since 8.7.0
+     */
+    private boolean enableSegmentCompression = false;
+
+    /**
+     * The max number of the assembled traces cached by the trace query, as the UI queries the same trace repeatedly. 0
+     * means the cache is disabled.
+     *
+     * @since 8.7.0
+     */
+    private long traceQueryCacheSize = 0;
+
+    /**
+     * The period in which a cached trace expires, as the late segments of the trace could arrive. Unit is second.
+     *
+     * @since 8.7.0
+     */
+    private long traceQueryCacheExpirePeriod = 60;
+
+    /**
+     * Analyze the profile snapshots page by page, merging them into one stack trie with the counts and durations, rather
+     * than loading all snapshots of the time ranges. {@link #maxSizeOfAnalyzeProfileSnapshot} doesn't work in this mode.
+     *
+     * @since 8.7.0
+     */
+    private boolean enableIncrementalProfileAnalysis = false;
+
+    /**
+     * The max number of the cached stack tries of the full snapshot pages, reused by the analysis of the overlapping time
+     * ranges. Only work when {@link #enableIncrementalProfileAnalysis} == true. 0 means disabled.
+     *
+     * @since 8.7.0
+     */
+    private long profileAnalysisCacheSize = 1000;
+
     @Getter
     @Setter
     private boolean enableEndpointNameGroupingByOpenapi = true;
@@ -27,6 +27,7 @@ import org.apache.skywalking.oap.server.configuration.api.DynamicConfigurationSe
 import org.apache.skywalking.oap.server.core.analysis.ApdexThresholdConfig;
 import org.apache.skywalking.oap.server.core.analysis.DisableRegister;
 import org.apache.skywalking.oap.server.core.analysis.StreamAnnotationListener;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentBinaryCodec;
 import org.apache.skywalking.oap.server.core.analysis.meter.MeterSystem;
 import org.apache.skywalking.oap.server.core.analysis.metrics.ApdexMetrics;
 import org.apache.skywalking.oap.server.core.analysis.worker.ManagementStreamProcessor;
@@ -253,7 +254,7 @@ public class CoreModuleProvider extends ModuleProvider {
         this.registerServiceImplementation(TopologyQueryService.class, new TopologyQueryService(getManager()));
         this.registerServiceImplementation(MetricsMetadataQueryService.class, new MetricsMetadataQueryService());
         this.registerServiceImplementation(MetricsQueryService.class, new MetricsQueryService(getManager()));
-        this.registerServiceImplementation(TraceQueryService.class, new TraceQueryService(getManager()));
+        this.registerServiceImplementation(TraceQueryService.class, new TraceQueryService(getManager(), moduleConfig));
         this.registerServiceImplementation(BrowserLogQueryService.class, new BrowserLogQueryService(getManager()));
         this.registerServiceImplementation(LogQueryService.class, new LogQueryService(getManager()));
         this.registerServiceImplementation(MetadataQueryService.class, new MetadataQueryService(getManager()));
@@ -284,6 +285,7 @@ public class CoreModuleProvider extends ModuleProvider {
         } else {
             this.remoteClientManager = new RemoteClientManager(getManager(), moduleConfig.getRemoteTimeout());
         }
+        this.remoteClientManager.setEnableBatchTransport(moduleConfig.isEnableRemoteBatchTransport());
         this.registerServiceImplementation(RemoteClientManager.class, remoteClientManager);
 
         // Management
@@ -294,7 +296,17 @@ public class CoreModuleProvider extends ModuleProvider {
         metricsStreamProcessor.setEnableDatabaseSession(moduleConfig.isEnableDatabaseSession());
         metricsStreamProcessor.setL1FlushPeriod(moduleConfig.getL1FlushPeriod());
         metricsStreamProcessor.setStorageSessionTimeout(moduleConfig.getStorageSessionTimeout());
+        metricsStreamProcessor.setEnableCompactSessionCache(moduleConfig.isEnableCompactSessionCache());
+        metricsStreamProcessor.setMaxSizeOfCompactSessionCache(moduleConfig.getMaxSizeOfCompactSessionCache());
+        metricsStreamProcessor.setMaxBatchGetSize(moduleConfig.getMaxBatchGetSize());
+        metricsStreamProcessor.setBatchGetTargetLatency(moduleConfig.getBatchGetTargetLatency());
+        metricsStreamProcessor.setBatchGetThreads(moduleConfig.getBatchGetThreads());
+        metricsStreamProcessor.setEnableElasticConsumePool(moduleConfig.isEnableElasticConsumePool());
+        metricsStreamProcessor.setDispatcherPreAggregationSize(moduleConfig.getDispatcherPreAggregationSize());
+        metricsStreamProcessor.setDispatcherPreAggregationFlushPeriod(
+            moduleConfig.getDispatcherPreAggregationFlushPeriod());
         TopNStreamProcessor.getInstance().setTopNWorkerReportCycle(moduleConfig.getTopNReportPeriod());
+        SegmentBinaryCodec.setCompression(moduleConfig.isEnableSegmentCompression());
         apdexThresholdConfig = new ApdexThresholdConfig(this);
         ApdexMetrics.setDICT(apdexThresholdConfig);
     }
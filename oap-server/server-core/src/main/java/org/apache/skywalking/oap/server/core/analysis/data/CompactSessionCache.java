@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.oap.server.core.UnexpectedException;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+
+/**
+ * CompactSessionCache holds the metrics in the serialized {@link RemoteData} form, keyed by the 128-bit murmur3 hash of
+ * the {@link Metrics#id()}, rather than the whole {@link Metrics} object graph. A {@link Metrics} instance is only
+ * rehydrated through {@link Metrics#deserialize(RemoteDataOrBuilder)} when it is required to merge.
+ *
+ * The entries are kept in the primitive arrays, one column per field, indexed by an open addressing hash table of int
+ * slots, and the serialized data of all entries is appended to one byte array, so there is no object per entry. The
+ * data replaced or removed is reclaimed by compacting the byte array when it is full. The {@link Metrics#id()} is not
+ * rebuilt by the lookup, as it is kept by the metrics, which is persisted by the id anyway.
+ *
+ * The caches of all persistent workers share the max size in bytes, the {@link Budget}. Once the shared size is
+ * exceeded, the least recently used metrics of the putting cache are evicted, but never below its fair share of the
+ * budget, so one worker can't shrink the caches of the others. The metrics read or put during a persistence round,
+ * between {@link #pin()} and {@link #unpin()}, are never evicted, as the worker relies on them to decide between the
+ * insert and the update.
+ */
+@Slf4j
+public class CompactSessionCache implements SessionCache {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    /**
+     * Estimated heap size of one entry besides the serialized data, including the columns and the index slots.
+     */
+    private static final int ENTRY_OVERHEAD = 56;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_DATA_CAPACITY = 4096;
+    private static final int MAX_DATA_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int NONE = -1;
+
+    private final Budget budget;
+    private long bytes;
+    private long evictions;
+
+    /**
+     * The index of the entries by the hash, linear probing, with the entry + 1 in every slot, or 0 if empty. At most
+     * half of the slots are used.
+     */
+    private int[] slots;
+    /**
+     * The columns of the entries. The entries are linked by {@link #previous} and {@link #next} in the access order,
+     * from {@link #eldest} to {@link #youngest}, and the removed entries are linked by {@link #next} from {@link
+     * #free}.
+     */
+    private long[] highHashes;
+    private long[] lowHashes;
+    private long[] lastUpdateTimestamps;
+    private int[] dataOffsets;
+    private int[] dataLengths;
+    private int[] previous;
+    private int[] next;
+    /**
+     * The entry is pinned if its round is the current {@link #round} while pinning.
+     */
+    private int[] pinRounds;
+    private int allocated;
+    private int size;
+    private int free;
+    private int eldest;
+    private int youngest;
+
+    /**
+     * The serialized data of the entries, one after another. The replaced and removed data is garbage until the array
+     * is compacted.
+     */
+    private byte[] data;
+    private int dataSize;
+    private int garbage;
+
+    private boolean pinning;
+    private int round;
+
+    /**
+     * @param budget the max size in bytes shared by all caches.
+     */
+    public CompactSessionCache(final Budget budget) {
+        this.budget = budget;
+        budget.caches.incrementAndGet();
+        reset();
+    }
+
+    @Override
+    public boolean containsKey(final Metrics metrics) {
+        final int entry = find(metrics);
+        if (entry == NONE) {
+            return false;
+        }
+        // Move the entry to the most recently used, as a read.
+        touch(entry);
+        pin(entry);
+        return true;
+    }
+
+    /**
+     * @return the cached metrics, or null if not exists or it can't be rehydrated. The broken entry is removed, so it
+     * is a cache miss, and the worker reads the metrics from the storage again.
+     */
+    @Override
+    public Metrics get(final Metrics metrics) {
+        final int entry = find(metrics);
+        if (entry == NONE) {
+            return null;
+        }
+        touch(entry);
+        try {
+            final Metrics cached = metrics.getClass().getDeclaredConstructor().newInstance();
+            cached.deserialize(RemoteData.parser().parseFrom(data, dataOffsets[entry], dataLengths[entry]));
+            cached.setLastUpdateTimestamp(lastUpdateTimestamps[entry]);
+            pin(entry);
+            return cached;
+        } catch (InvalidProtocolBufferException e) {
+            log.error("Failed to rehydrate the cached metrics " + metrics.id() + ", remove it from the cache", e);
+            remove(entry);
+            return null;
+        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+            throw new UnexpectedException("Create " + metrics.getClass().getSimpleName() + " instance failure.", e);
+        }
+    }
+
+    @Override
+    public void put(final Metrics metrics) {
+        final byte[] hash = HASH_FUNCTION.hashUnencodedChars(metrics.id()).asBytes();
+        final long high = toLong(hash, 0);
+        final long low = toLong(hash, 8);
+        final int previousEntry = find(high, low);
+        if (previousEntry != NONE) {
+            remove(previousEntry);
+        }
+
+        final RemoteData remoteData = metrics.serialize().build();
+        final int length = remoteData.getSerializedSize();
+        ensureDataCapacity(length);
+        try {
+            final CodedOutputStream output = CodedOutputStream.newInstance(data, dataSize, length);
+            remoteData.writeTo(output);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UnexpectedException("Serialize " + metrics.id() + " into the session cache failure.", e);
+        }
+
+        final int entry = allocate();
+        highHashes[entry] = high;
+        lowHashes[entry] = low;
+        lastUpdateTimestamps[entry] = metrics.getLastUpdateTimestamp();
+        dataOffsets[entry] = dataSize;
+        dataLengths[entry] = length;
+        dataSize += length;
+        index(entry);
+        link(entry);
+        pin(entry);
+
+        bytes += length + ENTRY_OVERHEAD;
+        budget.bytes.addAndGet(length + ENTRY_OVERHEAD);
+
+        evict();
+    }
+
+    @Override
+    public void pin() {
+        if (!pinning) {
+            pinning = true;
+            round++;
+        }
+    }
+
+    @Override
+    public void unpin() {
+        if (!pinning) {
+            return;
+        }
+        pinning = false;
+        evict();
+    }
+
+    private void pin(final int entry) {
+        if (pinning) {
+            pinRounds[entry] = round;
+        }
+    }
+
+    private boolean isPinned(final int entry) {
+        return pinning && pinRounds[entry] == round;
+    }
+
+    /**
+     * Evict the least recently used entries until the budget is met, or this cache is in its fair share. The pinned
+     * entries are the most recently used ones, so the eviction stops at the first pinned entry.
+     */
+    private void evict() {
+        final long fairShare = budget.fairShare();
+        int entry = eldest;
+        while (budget.bytes.get() > budget.maxBytes && bytes > fairShare && entry != NONE) {
+            if (isPinned(entry)) {
+                break;
+            }
+            final int nextEntry = next[entry];
+            remove(entry);
+            evictions++;
+            entry = nextEntry;
+        }
+    }
+
+    @Override
+    public void removeExpired(final long timestamp, final long expiredThreshold) {
+        int entry = eldest;
+        while (entry != NONE) {
+            final int nextEntry = next[entry];
+            if (timestamp - lastUpdateTimestamps[entry] > expiredThreshold) {
+                remove(entry);
+            }
+            entry = nextEntry;
+        }
+        // Release the memory of the removed data.
+        if (garbage > dataSize - garbage && data.length > INITIAL_DATA_CAPACITY) {
+            compact(dataSize - garbage);
+        }
+    }
+
+    @Override
+    public void clear() {
+        budget.bytes.addAndGet(-bytes);
+        bytes = 0;
+        reset();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated size in bytes of this cache.
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of metrics evicted due to the size limit so far.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    private void reset() {
+        slots = new int[INITIAL_CAPACITY * 2];
+        highHashes = new long[INITIAL_CAPACITY];
+        lowHashes = new long[INITIAL_CAPACITY];
+        lastUpdateTimestamps = new long[INITIAL_CAPACITY];
+        dataOffsets = new int[INITIAL_CAPACITY];
+        dataLengths = new int[INITIAL_CAPACITY];
+        previous = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        pinRounds = new int[INITIAL_CAPACITY];
+        allocated = 0;
+        size = 0;
+        free = NONE;
+        eldest = NONE;
+        youngest = NONE;
+        data = new byte[INITIAL_DATA_CAPACITY];
+        dataSize = 0;
+        garbage = 0;
+    }
+
+    private int find(final Metrics metrics) {
+        final byte[] hash = HASH_FUNCTION.hashUnencodedChars(metrics.id()).asBytes();
+        return find(toLong(hash, 0), toLong(hash, 8));
+    }
+
+    private int find(final long high, final long low) {
+        final int mask = slots.length - 1;
+        for (int slot = home(low, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            final int entry = slots[slot] - 1;
+            if (highHashes[entry] == high && lowHashes[entry] == low) {
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    private void index(final int entry) {
+        if ((size + 1) * 2 > slots.length) {
+            final int[] oldSlots = slots;
+            slots = new int[oldSlots.length * 2];
+            for (final int oldSlot : oldSlots) {
+                if (oldSlot != 0) {
+                    indexSlot(oldSlot - 1);
+                }
+            }
+        }
+        indexSlot(entry);
+        size++;
+    }
+
+    private void indexSlot(final int entry) {
+        final int mask = slots.length - 1;
+        int slot = home(lowHashes[entry], mask);
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry + 1;
+    }
+
+    /**
+     * Remove the entry from the index, the columns, the access order and the budget.
+     */
+    private void remove(final int entry) {
+        final int mask = slots.length - 1;
+        int slot = home(lowHashes[entry], mask);
+        while (slots[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        // Shift the following entries of the probe sequence backward, rather than leaving a tombstone.
+        int hole = slot;
+        for (slot = (slot + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            final int home = home(lowHashes[slots[slot] - 1], mask);
+            final boolean stays = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+            if (!stays) {
+                slots[hole] = slots[slot];
+                hole = slot;
+            }
+        }
+        slots[hole] = 0;
+        size--;
+
+        unlink(entry);
+        next[entry] = free;
+        free = entry;
+
+        final int length = dataLengths[entry];
+        garbage += length;
+        bytes -= length + ENTRY_OVERHEAD;
+        budget.bytes.addAndGet(-(length + ENTRY_OVERHEAD));
+    }
+
+    private int allocate() {
+        if (free != NONE) {
+            final int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if (allocated == highHashes.length) {
+            final int capacity = allocated * 2;
+            highHashes = Arrays.copyOf(highHashes, capacity);
+            lowHashes = Arrays.copyOf(lowHashes, capacity);
+            lastUpdateTimestamps = Arrays.copyOf(lastUpdateTimestamps, capacity);
+            dataOffsets = Arrays.copyOf(dataOffsets, capacity);
+            dataLengths = Arrays.copyOf(dataLengths, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            next = Arrays.copyOf(next, capacity);
+            pinRounds = Arrays.copyOf(pinRounds, capacity);
+        }
+        return allocated++;
+    }
+
+    private void link(final int entry) {
+        previous[entry] = youngest;
+        next[entry] = NONE;
+        if (youngest == NONE) {
+            eldest = entry;
+        } else {
+            next[youngest] = entry;
+        }
+        youngest = entry;
+    }
+
+    private void unlink(final int entry) {
+        if (previous[entry] == NONE) {
+            eldest = next[entry];
+        } else {
+            next[previous[entry]] = next[entry];
+        }
+        if (next[entry] == NONE) {
+            youngest = previous[entry];
+        } else {
+            previous[next[entry]] = previous[entry];
+        }
+    }
+
+    private void touch(final int entry) {
+        if (entry != youngest) {
+            unlink(entry);
+            link(entry);
+        }
+    }
+
+    /**
+     * Make room for the data of the given length, by compacting the data, and growing the array if required. The
+     * least recently used entries are evicted only if the array can't grow anymore.
+     */
+    private void ensureDataCapacity(final int length) {
+        if (dataSize + length <= data.length) {
+            return;
+        }
+        int entry = eldest;
+        while ((long) dataSize - garbage + length > MAX_DATA_CAPACITY) {
+            if (entry == NONE || isPinned(entry)) {
+                throw new UnexpectedException("The session cache can't hold more than 2GB serialized metrics.");
+            }
+            final int nextEntry = next[entry];
+            remove(entry);
+            evictions++;
+            entry = nextEntry;
+        }
+        compact(dataSize - garbage + length);
+    }
+
+    /**
+     * Copy the data of the entries into a new array, in the access order, and drop the garbage.
+     */
+    private void compact(final int required) {
+        final int capacity = (int) Math.min(
+            MAX_DATA_CAPACITY, Math.max(INITIAL_DATA_CAPACITY, (long) required + (required >> 1)));
+        final byte[] compacted = new byte[capacity];
+        int offset = 0;
+        for (int entry = eldest; entry != NONE; entry = next[entry]) {
+            System.arraycopy(data, dataOffsets[entry], compacted, offset, dataLengths[entry]);
+            dataOffsets[entry] = offset;
+            offset += dataLengths[entry];
+        }
+        data = compacted;
+        dataSize = offset;
+        garbage = 0;
+    }
+
+    private static int home(final long lowHash, final int mask) {
+        return (int) (lowHash ^ (lowHash >>> 32)) & mask;
+    }
+
+    private static long toLong(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFFL);
+        }
+        return value;
+    }
+
+    /**
+     * The max size in bytes shared by the caches.
+     */
+    public static final class Budget {
+        private final long maxBytes;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger caches = new AtomicInteger();
+
+        public Budget(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * @return the size in bytes of all caches.
+         */
+        public long bytes() {
+            return bytes.get();
+        }
+
+        private long fairShare() {
+            return maxBytes / Math.max(1, caches.get());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+
+/**
+ * HashMapSessionCache holds the {@link Metrics} instances on the heap, keyed by the metrics themselves through {@link
+ * Object#hashCode()} and {@link Object#equals(Object)}.
+ */
+public class HashMapSessionCache implements SessionCache {
+    private final Map<Metrics, Metrics> cache = new HashMap<>(100);
+
+    @Override
+    public boolean containsKey(final Metrics metrics) {
+        return cache.containsKey(metrics);
+    }
+
+    @Override
+    public Metrics get(final Metrics metrics) {
+        return cache.get(metrics);
+    }
+
+    @Override
+    public void put(final Metrics metrics) {
+        cache.put(metrics, metrics);
+    }
+
+    @Override
+    public void removeExpired(final long timestamp, final long expiredThreshold) {
+        Iterator<Metrics> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            Metrics metrics = iterator.next();
+
+            if (metrics.isExpired(timestamp, expiredThreshold)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+}
@@ -18,20 +18,24 @@
 
 package org.apache.skywalking.oap.server.core.analysis.data;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 
 /**
  * MergableBufferedData is a thread no safe implementation of {@link BufferedData}. {@link Metrics} in this cache would
- * be {@link Metrics#combine(Metrics)} if their {@link Metrics#id()}s are same.
+ * be {@link Metrics#combine(Metrics)} if they are equal, which means they have the same entity and time bucket, through
+ * the `equals` and `hashCode` of every concrete metrics. The metrics are the keys of the buffer, so no {@link
+ * Metrics#id()} string is built to merge them.
+ *
+ * The buffer is cleared rather than recreated in {@link #read()}, its hash table is reused in the next round.
  *
  * Concurrency {@link #accept(Metrics)}s and {@link #read()} while {@link #accept(Metrics)} are both not recommended.
  */
 public class MergableBufferedData<METRICS extends Metrics> implements BufferedData<METRICS> {
-    private Map<String, METRICS> buffer;
+    private final Map<METRICS, METRICS> buffer;
 
     public MergableBufferedData() {
         buffer = new HashMap<>();
@@ -46,14 +50,11 @@ public class MergableBufferedData<METRICS extends Metrics> implements BufferedDa
      */
     @Override
     public void accept(final METRICS data) {
-        final String id = data.id();
-        final METRICS existed = buffer.get(id);
-        if (existed == null) {
-            buffer.put(id, data);
-        } else {
+        final METRICS existed = buffer.putIfAbsent(data, data);
+        if (existed != null) {
             final boolean isAbandoned = !existed.combine(data);
             if (isAbandoned) {
-                buffer.remove(id);
+                buffer.remove(existed);
             }
         }
     }
@@ -61,7 +62,7 @@ public class MergableBufferedData<METRICS extends Metrics> implements BufferedDa
     @Override
     public List<METRICS> read() {
         try {
-            return buffer.values().stream().collect(Collectors.toList());
+            return new ArrayList<>(buffer.values());
         } finally {
             buffer.clear();
         }
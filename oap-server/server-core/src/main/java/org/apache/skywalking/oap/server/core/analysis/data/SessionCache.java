@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+
+/**
+ * SessionCache hosts the metrics read from the storage or persisted in the previous rounds, which are used to merge
+ * with the new metrics of the same {@link Metrics#id()}, and avoid reading the storage again. The implementations are
+ * not thread safe, the cache is only accessed by the persistent worker owning it.
+ */
+public interface SessionCache {
+    /**
+     * @return true if the metrics with same ID exists in the cache.
+     */
+    boolean containsKey(Metrics metrics);
+
+    /**
+     * @return the cached metrics with same ID, or null if not exists. The returned instance is only for merging, a
+     * change of it is visible in the cache only after {@link #put(Metrics)}.
+     */
+    Metrics get(Metrics metrics);
+
+    /**
+     * Put the metrics into the cache, or replace the existing one with same ID.
+     */
+    void put(Metrics metrics);
+
+    /**
+     * Remove the metrics which are not updated in the given threshold.
+     *
+     * @see Metrics#isExpired(long, long)
+     */
+    void removeExpired(long timestamp, long expiredThreshold);
+
+    /**
+     * Keep the metrics read or put from now on in the cache until {@link #unpin()}, as the persistent worker decides
+     * between the insert and the update of them by the cache. Only the caches evicting the metrics by the size
+     * require this.
+     */
+    default void pin() {
+    }
+
+    /**
+     * Release the metrics kept since {@link #pin()}.
+     */
+    default void unpin() {
+    }
+
+    void clear();
+
+    /**
+     * @return the number of cached metrics.
+     */
+    int size();
+}
@@ -31,6 +31,7 @@ import org.apache.skywalking.oap.server.core.analysis.Stream;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.apache.skywalking.oap.server.core.source.DefaultScopeDefine;
 import org.apache.skywalking.oap.server.core.storage.StorageHashMapBuilder;
 import org.apache.skywalking.oap.server.core.storage.annotation.Column;
@@ -74,7 +75,7 @@ public class EndpointTraffic extends Metrics {
     }
 
     @Override
-    public void deserialize(RemoteData remoteData) {
+    public void deserialize(RemoteDataOrBuilder remoteData) {
         setTimeBucket(remoteData.getDataLongs(0));
 
         setServiceId(remoteData.getDataStrings(0));
@@ -33,6 +33,7 @@ import org.apache.skywalking.oap.server.core.analysis.Stream;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.apache.skywalking.oap.server.core.storage.StorageHashMapBuilder;
 import org.apache.skywalking.oap.server.core.storage.annotation.Column;
 
@@ -94,7 +95,7 @@ public class InstanceTraffic extends Metrics {
     }
 
     @Override
-    public void deserialize(final RemoteData remoteData) {
+    public void deserialize(final RemoteDataOrBuilder remoteData) {
         setServiceId(remoteData.getDataStrings(0));
         setName(remoteData.getDataStrings(1));
         final String propString = remoteData.getDataStrings(2);
@@ -29,6 +29,7 @@ import org.apache.skywalking.oap.server.core.analysis.Stream;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.analysis.worker.MetricsStreamProcessor;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.apache.skywalking.oap.server.core.source.ScopeDeclaration;
 import org.apache.skywalking.oap.server.core.storage.StorageHashMapBuilder;
 import org.apache.skywalking.oap.server.core.storage.annotation.Column;
@@ -92,7 +93,7 @@ public class NetworkAddressAlias extends Metrics {
     }
 
     @Override
-    public void deserialize(final RemoteData remoteData) {
+    public void deserialize(final RemoteDataOrBuilder remoteData) {
         setAddress(remoteData.getDataStrings(0));
         setRepresentServiceId(remoteData.getDataStrings(1));
         setRepresentServiceInstanceId(remoteData.getDataStrings(2));
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.manual.segment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * SegmentBinaryCodec encodes the serialized SegmentObject, {@link SegmentRecord#getDataBinary()}, before it is
+ * persisted, and decodes it back before it is parsed.
+ *
+ * The encoded data begins with a header of {@link #HEADER_SIZE} bytes, the {@link #MAGIC} byte, the codec version and
+ * the length of the serialized segment. A serialized protobuf message never begins with the {@link #MAGIC} byte, as
+ * the field number 0 is illegal, so the data without header, persisted by the previous releases or with the
+ * compression disabled, is decoded as it is.
+ */
+public class SegmentBinaryCodec {
+    static final byte MAGIC = 0;
+    /**
+     * Deflate with the preset dictionary {@link #DICTIONARY_V1}.
+     */
+    static final byte DEFLATE_V1 = 1;
+    static final int HEADER_SIZE = 6;
+
+    /**
+     * The preset dictionary of deflate, made of the tag keys, component names, and the common words of URLs, SQL
+     * statements and exception stacks. Deflate matches the later part of the dictionary with the shorter distance, so
+     * the more common words are at the end. Never change it, add a new codec version with a new dictionary instead,
+     * as the persisted segments depend on it.
+     */
+    private static final byte[] DICTIONARY_V1 = (
+        "java.lang.Thread.run(Thread.java:748)\n\tat java.util.concurrent.ThreadPoolExecutor$Worker.run"
+            + "java.lang.reflect.Method.invoke(Method.java:498)\n\tat sun.reflect.DelegatingMethodAccessorImpl"
+            + "java.lang.RuntimeException: java.io.IOException: java.net.SocketTimeoutException: Read timed out"
+            + "java.lang.NullPointerException java.lang.IllegalStateException java.lang.IllegalArgumentException"
+            + "\n\tat org.springframework.web.servlet.\n\tat org.apache.catalina.core.\n\tat org.apache.skywalking."
+            + "RocketMQ Kafka RabbitMQ ActiveMQ Pulsar Elasticsearch MongoDB Memcached Lettuce Jedis Redisson "
+            + "SpringRestTemplate Feign OKHttp ApacheHttpClient JettyClient Netty Vertx Undertow gRPC Dubbo "
+            + "SpringAsync SpringScheduled Hystrix SpringMVC Tomcat mysql-connector-java PostgreSQL Hikari "
+            + "event error.kind message stack LocalSpan EntrySpan ExitSpan CrossProcess CrossThread "
+            + "mq.broker mq.topic mq.queue cache.type cache.op cache.cmd cache.key db.bind_variables "
+            + "INSERT INTO UPDATE SET DELETE FROM VALUES (?, ?, ?) ORDER BY LIMIT GROUP BY JOIN ON AND = ? "
+            + "SELECT * FROM WHERE id = ? db.type sql db.instance db.statement Mysql/JDBI/PreparedStatement/execute"
+            + "Redis Mysql H2 http://localhost:8080/ https://  application/json Content-Type status_code "
+            + "/api/v1/ /{id} HEAD PUT DELETE GET POST url http.method http.status_code SpringMVC/Tomcat/"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private static boolean COMPRESSION = false;
+
+    private SegmentBinaryCodec() {
+    }
+
+    public static void setCompression(boolean compression) {
+        SegmentBinaryCodec.COMPRESSION = compression;
+    }
+
+    /**
+     * @param segment serialized SegmentObject.
+     * @return the data to persist. It is the segment itself when the compression is disabled or the compressed data is
+     * not smaller.
+     */
+    public static byte[] encode(byte[] segment) {
+        if (!COMPRESSION || segment == null || segment.length <= HEADER_SIZE) {
+            return segment;
+        }
+        final byte[] output = new byte[segment.length];
+        final Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(segment);
+            deflater.finish();
+            final int compressed = deflater.deflate(output, HEADER_SIZE, output.length - HEADER_SIZE);
+            if (!deflater.finished()) {
+                // The compressed data doesn't fit in the size of the original.
+                return segment;
+            }
+            output[0] = MAGIC;
+            output[1] = DEFLATE_V1;
+            writeInt(output, 2, segment.length);
+            return Arrays.copyOf(output, HEADER_SIZE + compressed);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * @param data persisted data, with or without header.
+     * @return serialized SegmentObject.
+     * @throws IOException if the data is corrupted or encoded by an unknown codec version.
+     */
+    public static byte[] decode(byte[] data) throws IOException {
+        if (data == null || data.length < HEADER_SIZE || data[0] != MAGIC) {
+            return data;
+        }
+        if (data[1] != DEFLATE_V1) {
+            throw new IOException("Unknown segment codec version: " + data[1]);
+        }
+        final byte[] segment = new byte[readInt(data, 2)];
+        final Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            int length = inflater.inflate(segment);
+            if (inflater.needsDictionary()) {
+                inflater.setDictionary(DICTIONARY_V1);
+                length += inflater.inflate(segment, length, segment.length - length);
+            }
+            if (length != segment.length || !inflater.finished()) {
+                throw new IOException("Corrupted segment data, expected " + segment.length + " bytes, got " + length);
+            }
+            return segment;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted segment data", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+            | (bytes[offset + 1] & 0xFF) << 16
+            | (bytes[offset + 2] & 0xFF) << 8
+            | bytes[offset + 3] & 0xFF;
+    }
+}
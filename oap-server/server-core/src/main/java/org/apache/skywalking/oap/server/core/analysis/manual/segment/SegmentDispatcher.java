@@ -38,7 +38,7 @@ public class SegmentDispatcher implements SourceDispatcher<Segment> {
         segment.setEndTime(source.getEndTime());
         segment.setLatency(source.getLatency());
         segment.setIsError(source.getIsError());
-        segment.setDataBinary(source.getDataBinary());
+        segment.setDataBinary(SegmentBinaryCodec.encode(source.getDataBinary()));
         segment.setTimeBucket(source.getTimeBucket());
         segment.setVersion(source.getVersion());
         segment.setTagsRawData(source.getTags());
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.metrics;
+
+import java.util.Arrays;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.storage.type.StorageDataComplexObject;
+
+/**
+ * IntKeyLongValueHashMap is an open addressing hash table, which stores int key and long value without boxing. It is
+ * used by the in-memory aggregation of the percentile and histogram metrics, whose keys are always the integer index of
+ * the bucket.
+ *
+ * The storage format is the same as {@link DataTable}, `key,value|key,value`, so the persisted data and the query side
+ * are not affected.
+ */
+public class IntKeyLongValueHashMap implements StorageDataComplexObject<IntKeyLongValueHashMap> {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    /**
+     * Resize when size reaches this threshold, which is 3/4 of the capacity.
+     */
+    private int threshold;
+
+    public IntKeyLongValueHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntKeyLongValueHashMap(int initialCapacity) {
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+    public IntKeyLongValueHashMap(String data) {
+        this();
+        toObject(data);
+    }
+
+    /**
+     * @return the value of the given key, or 0 if the key doesn't exist.
+     */
+    public long get(int key) {
+        final int slot = slotOf(key);
+        return used[slot] ? values[slot] : 0L;
+    }
+
+    public boolean hasKey(int key) {
+        return used[slotOf(key)];
+    }
+
+    public void put(int key, long value) {
+        final int slot = slotOf(key);
+        if (used[slot]) {
+            values[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /**
+     * Accumulate the value with existing value in the same given key.
+     */
+    public void valueAccumulation(int key, long value) {
+        final int slot = slotOf(key);
+        if (used[slot]) {
+            values[slot] += value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /**
+     * @return the sum of all values.
+     */
+    public long sumOfValues() {
+        long sum = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return all keys in ascending order.
+     */
+    public int[] sortedKeys() {
+        final int[] result = new int[size];
+        int idx = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                result[idx++] = keys[i];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    public boolean hasData() {
+        return size != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IntKeyLongValueHashMap append(IntKeyLongValueHashMap that) {
+        for (int i = 0; i < that.used.length; i++) {
+            if (that.used[i]) {
+                valueAccumulation(that.keys[i], that.values[i]);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public String toStorageData() {
+        StringBuilder builder = new StringBuilder(size * 8);
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                if (builder.length() != 0) {
+                    // For the first element.
+                    builder.append(Const.ARRAY_SPLIT);
+                }
+                builder.append(keys[i]).append(Const.KEY_VALUE_SPLIT).append(values[i]);
+            }
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void toObject(String data) {
+        String[] keyValues = data.split(Const.ARRAY_PARSER_SPLIT);
+        for (String keyValue : keyValues) {
+            final String[] keyValuePair = keyValue.split(Const.KEY_VALUE_SPLIT);
+            if (keyValuePair.length == 2) {
+                this.put(Integer.parseInt(keyValuePair[0]), Long.parseLong(keyValuePair[1]));
+            }
+        }
+    }
+
+    @Override
+    public void copyFrom(final IntKeyLongValueHashMap source) {
+        this.append(source);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntKeyLongValueHashMap)) {
+            return false;
+        }
+        IntKeyLongValueHashMap that = (IntKeyLongValueHashMap) o;
+        if (this.size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                final int slot = that.slotOf(keys[i]);
+                if (!that.used[slot] || that.values[slot] != values[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                hash += keys[i] ^ Long.hashCode(values[i]);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "IntKeyLongValueHashMap(" + toStorageData() + ")";
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot where the key should be inserted.
+     */
+    private int slotOf(int key) {
+        final int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int key, long value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size >= threshold) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        final int[] oldKeys = keys;
+        final long[] oldValues = values;
+        final boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                insert(slotOf(oldKeys[i]), oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        threshold = capacity - (capacity >> 2);
+    }
+
+    /**
+     * Bucket keys are usually multiples of the step, spread them before masking.
+     */
+    private static int mix(int key) {
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity - (capacity >> 2) <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
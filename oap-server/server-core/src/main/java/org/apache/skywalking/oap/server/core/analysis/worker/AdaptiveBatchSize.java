@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+/**
+ * AdaptiveBatchSize controls the size of the IDs read batch, {@link org.apache.skywalking.oap.server.core.storage.IMetricsDAO#multiGet},
+ * according to the observed read latency.
+ *
+ * The size is halved when a read is slower than the target latency, and grows by a quarter when a full batch is read
+ * in less than half of the target latency. The size is always kept in [{@link #MIN_SIZE}, maxSize]. The feedback is
+ * given once per round, by the slowest batch of the round.
+ */
+class AdaptiveBatchSize {
+    static final int MIN_SIZE = 100;
+
+    private final int minSize;
+    private final int maxSize;
+    /**
+     * Unit is ms.
+     */
+    private final long targetLatency;
+    private volatile int size;
+
+    AdaptiveBatchSize(int maxSize, long targetLatency) {
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.min(MIN_SIZE, this.maxSize);
+        this.targetLatency = targetLatency;
+        this.size = this.maxSize;
+    }
+
+    int get() {
+        return size;
+    }
+
+    /**
+     * @param batchSize the size of the largest batch of the finished round.
+     * @param latency   the latency of the slowest batch of the finished round, unit is ms.
+     */
+    synchronized void feedback(int batchSize, long latency) {
+        if (targetLatency <= 0) {
+            return;
+        }
+        if (latency > targetLatency) {
+            size = Math.max(minSize, size / 2);
+        } else if (batchSize >= size && latency < targetLatency / 2) {
+            size = Math.min(maxSize, size + Math.max(1, size / 4));
+        }
+    }
+}
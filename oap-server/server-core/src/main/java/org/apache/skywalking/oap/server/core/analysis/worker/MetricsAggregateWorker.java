@@ -50,15 +50,17 @@ public class MetricsAggregateWorker extends AbstractWorker<Metrics> {
     private long lastSendTime = 0;
 
     MetricsAggregateWorker(ModuleDefineHolder moduleDefineHolder, AbstractWorker<Metrics> nextWorker,
-                           String modelName, long l1FlushPeriod) {
+                           String modelName, long l1FlushPeriod, boolean enableElasticConsumePool) {
         super(moduleDefineHolder);
         this.nextWorker = nextWorker;
         this.mergeDataCache = new MergableBufferedData();
         String name = "METRICS_L1_AGGREGATION";
         this.dataCarrier = new DataCarrier<>("MetricsAggregateWorker." + modelName, name, 2, 10000);
 
-        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(
-            name, BulkConsumePool.Creator.recommendMaxSize() * 2, 20);
+        BulkConsumePool.Creator creator = enableElasticConsumePool
+            ? new BulkConsumePool.Creator(
+            name, BulkConsumePool.Creator.recommendMaxSize() / 2, BulkConsumePool.Creator.recommendMaxSize() * 2, 20)
+            : new BulkConsumePool.Creator(name, BulkConsumePool.Creator.recommendMaxSize() * 2, 20);
         try {
             ConsumerPoolFactory.INSTANCE.createIfAbsent(name, creator);
         } catch (Exception e) {
@@ -21,20 +21,22 @@ package org.apache.skywalking.oap.server.core.analysis.worker;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.BulkConsumePool;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.ConsumerPoolFactory;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
 import org.apache.skywalking.oap.server.core.UnexpectedException;
+import org.apache.skywalking.oap.server.core.analysis.data.CompactSessionCache;
 import org.apache.skywalking.oap.server.core.analysis.data.MergableBufferedData;
 import org.apache.skywalking.oap.server.core.analysis.data.ReadWriteSafeCache;
+import org.apache.skywalking.oap.server.core.analysis.data.SessionCache;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.exporter.ExportEvent;
 import org.apache.skywalking.oap.server.core.storage.IMetricsDAO;
@@ -44,6 +46,8 @@ import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
 import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
 import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
 import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
 import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
 
@@ -57,8 +61,9 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
      */
     private static long SESSION_TIMEOUT_OFFSITE_COUNTER = 0;
 
+    @Getter
     private final Model model;
-    private final Map<Metrics, Metrics> context;
+    private final SessionCache context;
     private final IMetricsDAO metricsDAO;
     private final Optional<AbstractWorker<Metrics>> nextAlarmWorker;
     private final Optional<AbstractWorker<ExportEvent>> nextExportWorker;
@@ -68,6 +73,23 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
     private final boolean supportUpdate;
     private long sessionTimeout;
     private CounterMetrics aggregationCounter;
+    private HistogramMetrics prepareLatency;
+    private HistogramMetrics batchGetLatency;
+    private CounterMetrics sessionHitCounter;
+    private CounterMetrics sessionMissCounter;
+    private GaugeMetrics sessionSizeGauge;
+    private GaugeMetrics sessionBytesGauge;
+    private CounterMetrics sessionEvictionCounter;
+    private long reportedEvictions;
+    /**
+     * The size of IDs read batch, adapts to the latency of {@link IMetricsDAO#multiGet}.
+     */
+    private final AdaptiveBatchSize batchGetSize;
+    /**
+     * The executor shared by all persistent workers to read the batches of one worker concurrently. Null means read
+     * in the prepare thread.
+     */
+    private final ExecutorService batchGetExecutor;
     /**
      * The counter for the round of persistent.
      */
@@ -82,10 +104,12 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
     MetricsPersistentWorker(ModuleDefineHolder moduleDefineHolder, Model model, IMetricsDAO metricsDAO,
                             AbstractWorker<Metrics> nextAlarmWorker, AbstractWorker<ExportEvent> nextExportWorker,
                             MetricsTransWorker transWorker, boolean enableDatabaseSession, boolean supportUpdate,
-                            long storageSessionTimeout) {
+                            long storageSessionTimeout, SessionCache sessionCache, int maxBatchGetSize,
+                            long batchGetTargetLatency, ExecutorService batchGetExecutor,
+                            boolean enableElasticConsumePool) {
         super(moduleDefineHolder, new ReadWriteSafeCache<>(new MergableBufferedData(), new MergableBufferedData()));
         this.model = model;
-        this.context = new HashMap<>(100);
+        this.context = sessionCache;
         this.enableDatabaseSession = enableDatabaseSession;
         this.metricsDAO = metricsDAO;
         this.nextAlarmWorker = Optional.ofNullable(nextAlarmWorker);
@@ -95,13 +119,17 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
         this.sessionTimeout = storageSessionTimeout;
         this.persistentCounter = 0;
         this.persistentMod = 1;
+        this.batchGetSize = new AdaptiveBatchSize(maxBatchGetSize, batchGetTargetLatency);
+        this.batchGetExecutor = batchGetExecutor;
 
         String name = "METRICS_L2_AGGREGATION";
         int size = BulkConsumePool.Creator.recommendMaxSize() / 8;
         if (size == 0) {
             size = 1;
         }
-        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(name, size, 20);
+        BulkConsumePool.Creator creator = enableElasticConsumePool
+            ? new BulkConsumePool.Creator(name, 1, size, 20)
+            : new BulkConsumePool.Creator(name, size, 20);
         try {
             ConsumerPoolFactory.INSTANCE.createIfAbsent(name, creator);
         } catch (Exception e) {
@@ -119,6 +147,42 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
             new MetricsTag.Keys("metricName", "level", "dimensionality"),
             new MetricsTag.Values(model.getName(), "2", model.getDownsampling().getName())
         );
+        prepareLatency = metricsCreator.createHistogramMetric(
+            "metrics_persistent_prepare_latency", "Latency of the prepare stage of the metrics persistence",
+            new MetricsTag.Keys("metricName", "dimensionality"),
+            new MetricsTag.Values(model.getName(), model.getDownsampling().getName())
+        );
+        batchGetLatency = metricsCreator.createHistogramMetric(
+            "metrics_persistent_batch_get_latency", "Latency of one IDs read batch of the metrics persistence",
+            new MetricsTag.Keys("metricName", "dimensionality"),
+            new MetricsTag.Values(model.getName(), model.getDownsampling().getName())
+        );
+        final MetricsTag.Keys sessionTagKeys = new MetricsTag.Keys("metricName", "dimensionality");
+        final MetricsTag.Values sessionTagValues = new MetricsTag.Values(
+            model.getName(), model.getDownsampling().getName());
+        sessionHitCounter = metricsCreator.createCounter(
+            "metrics_persistent_session_hit_count", "The number of metrics found in the session cache",
+            sessionTagKeys, sessionTagValues
+        );
+        sessionMissCounter = metricsCreator.createCounter(
+            "metrics_persistent_session_miss_count", "The number of metrics required to read from the storage",
+            sessionTagKeys, sessionTagValues
+        );
+        sessionSizeGauge = metricsCreator.createGauge(
+            "metrics_persistent_session_size", "The number of metrics in the session cache",
+            sessionTagKeys, sessionTagValues
+        );
+        if (context instanceof CompactSessionCache) {
+            sessionBytesGauge = metricsCreator.createGauge(
+                "metrics_persistent_session_bytes", "The estimated size in bytes of the compact session cache",
+                sessionTagKeys, sessionTagValues
+            );
+            sessionEvictionCounter = metricsCreator.createCounter(
+                "metrics_persistent_session_eviction_count",
+                "The number of metrics evicted from the compact session cache due to the size limit",
+                sessionTagKeys, sessionTagValues
+            );
+        }
         SESSION_TIMEOUT_OFFSITE_COUNTER++;
     }
 
@@ -126,10 +190,13 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
      * Create the leaf and down-sampling MetricsPersistentWorker, no next step.
      */
     MetricsPersistentWorker(ModuleDefineHolder moduleDefineHolder, Model model, IMetricsDAO metricsDAO,
-                            boolean enableDatabaseSession, boolean supportUpdate, long storageSessionTimeout) {
+                            boolean enableDatabaseSession, boolean supportUpdate, long storageSessionTimeout,
+                            SessionCache sessionCache, int maxBatchGetSize, long batchGetTargetLatency,
+                            ExecutorService batchGetExecutor, boolean enableElasticConsumePool) {
         this(moduleDefineHolder, model, metricsDAO,
              null, null, null,
-             enableDatabaseSession, supportUpdate, storageSessionTimeout
+             enableDatabaseSession, supportUpdate, storageSessionTimeout,
+             sessionCache, maxBatchGetSize, batchGetTargetLatency, batchGetExecutor, enableElasticConsumePool
         );
         // For a down-sampling metrics, we prolong the session timeout for 4 times, nearly 5 minutes.
         // And add offset according to worker creation sequence, to avoid context clear overlap,
@@ -159,27 +226,26 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
             return Collections.EMPTY_LIST;
         }
 
-        /*
-         * Hard coded the max size. This only affect the multiIDRead if the data doesn't hit the cache.
-         */
-        int maxBatchGetSize = 2000;
-        final int batchSize = Math.min(maxBatchGetSize, lastCollection.size());
-        List<Metrics> metricsList = new ArrayList<>();
         List<PrepareRequest> prepareRequests = new ArrayList<>(lastCollection.size());
-        for (Metrics data : lastCollection) {
-            transWorker.ifPresent(metricsTransWorker -> metricsTransWorker.in(data));
+        try (HistogramMetrics.Timer timer = prepareLatency.createTimer()) {
+            List<Metrics> metricsList = new ArrayList<>(lastCollection.size());
+            for (Metrics data : lastCollection) {
+                transWorker.ifPresent(metricsTransWorker -> metricsTransWorker.in(data));
+
+                metricsList.add(data);
+            }
 
-            metricsList.add(data);
+            // Keep the metrics read and put in this round, until their insert or update requests are prepared.
+            context.pin();
+            try {
+                loadFromStorage(metricsList);
 
-            if (metricsList.size() == batchSize) {
                 flushDataToStorage(metricsList, prepareRequests);
+            } finally {
+                context.unpin();
             }
         }
 
-        if (metricsList.size() > 0) {
-            flushDataToStorage(metricsList, prepareRequests);
-        }
-
         if (prepareRequests.size() > 0) {
             log.debug(
                 "prepare batch requests for model {}, took time: {}, size: {}", model.getName(),
@@ -191,13 +257,11 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
 
     private void flushDataToStorage(List<Metrics> metricsList,
                                     List<PrepareRequest> prepareRequests) {
-        try {
-            loadFromStorage(metricsList);
-
-            long timestamp = System.currentTimeMillis();
-            for (Metrics metrics : metricsList) {
-                Metrics cachedMetrics = context.get(metrics);
-                if (cachedMetrics != null) {
+        long timestamp = System.currentTimeMillis();
+        for (Metrics metrics : metricsList) {
+            try {
+                Metrics cachedMetrics = null;
+                if (context.containsKey(metrics)) {
                     /*
                      * If the metrics is not supportUpdate, defined through MetricsExtension#supportUpdate,
                      * then no merge and further process happens.
@@ -205,6 +269,14 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
                     if (!supportUpdate) {
                         continue;
                     }
+                    cachedMetrics = context.get(metrics);
+                    if (cachedMetrics == null) {
+                        // The cached metrics can't be rehydrated, it is a cache miss, read it from the storage again.
+                        cachedMetrics = reloadFromStorage(metrics);
+                    }
+                }
+
+                if (cachedMetrics != null) {
                     /*
                      * Merge metrics into cachedMetrics, change only happens inside cachedMetrics.
                      */
@@ -216,6 +288,7 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
                     prepareRequests.add(metricsDAO.prepareBatchUpdate(model, cachedMetrics));
                     nextWorker(cachedMetrics);
                     cachedMetrics.setLastUpdateTimestamp(timestamp);
+                    context.put(cachedMetrics);
                 } else {
                     metrics.calculate();
                     prepareRequests.add(metricsDAO.prepareBatchInsert(model, metrics));
@@ -228,11 +301,9 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
                  */
                 nextExportWorker.ifPresent(exportEvenWorker -> exportEvenWorker.in(
                     new ExportEvent(metrics, ExportEvent.EventType.INCREMENT)));
+            } catch (Throwable t) {
+                log.error(t.getMessage(), t);
             }
-        } catch (Throwable t) {
-            log.error(t.getMessage(), t);
-        } finally {
-            metricsList.clear();
         }
     }
 
@@ -244,39 +315,109 @@ public class MetricsPersistentWorker extends PersistenceWorker<Metrics> {
 
     /**
      * Load data from the storage, if {@link #enableDatabaseSession} == true, only load data when the id doesn't exist.
+     *
+     * The IDs are read in batches, sized by {@link #batchGetSize}. The batches are read concurrently through {@link
+     * #batchGetExecutor} when there are more than one, and the results are merged into {@link #context} in the current
+     * thread. The batch size is adapted once per round, by the latency of the slowest batch.
      */
     private void loadFromStorage(List<Metrics> metrics) {
-        try {
-            List<Metrics> notInCacheMetrics = metrics.stream()
-                                                     .filter(m -> !context.containsKey(m) || !enableDatabaseSession)
-                                                     .collect(Collectors.toList());
-            if (notInCacheMetrics.isEmpty()) {
-                return;
+        List<Metrics> notInCacheMetrics = new ArrayList<>();
+        for (Metrics m : metrics) {
+            if (!enableDatabaseSession || !context.containsKey(m)) {
+                notInCacheMetrics.add(m);
             }
+        }
+        sessionHitCounter.inc(metrics.size() - notInCacheMetrics.size());
+        sessionMissCounter.inc(notInCacheMetrics.size());
+        if (notInCacheMetrics.isEmpty()) {
+            return;
+        }
+
+        final int batchSize = batchGetSize.get();
+        List<List<Metrics>> batches = new ArrayList<>();
+        for (int from = 0; from < notInCacheMetrics.size(); from += batchSize) {
+            batches.add(notInCacheMetrics.subList(from, Math.min(from + batchSize, notInCacheMetrics.size())));
+        }
+
+        final AtomicLong slowestLatency = new AtomicLong();
+        List<List<Metrics>> results = new ArrayList<>(batches.size());
+        if (batches.size() == 1 || batchGetExecutor == null) {
+            for (List<Metrics> batch : batches) {
+                results.add(multiGet(batch, slowestLatency));
+            }
+        } else {
+            List<Future<List<Metrics>>> futures = new ArrayList<>(batches.size());
+            for (List<Metrics> batch : batches) {
+                futures.add(batchGetExecutor.submit(() -> multiGet(batch, slowestLatency)));
+            }
+            for (Future<List<Metrics>> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (final Exception e) {
+                    log.error("Failed to load metrics for merging", e);
+                    results.add(null);
+                }
+            }
+        }
+        // The first batch is the largest one.
+        batchGetSize.feedback(batches.get(0).size(), slowestLatency.get());
 
-            final List<Metrics> dbMetrics = metricsDAO.multiGet(model, notInCacheMetrics);
-            if (!enableDatabaseSession) {
-                // Clear the cache only after results from DB are returned successfully.
-                context.clear();
+        if (!enableDatabaseSession && !results.contains(null)) {
+            // Clear the cache only after results from DB are returned successfully.
+            context.clear();
+        }
+        for (List<Metrics> dbMetrics : results) {
+            if (dbMetrics != null) {
+                dbMetrics.forEach(context::put);
             }
-            dbMetrics.forEach(m -> context.put(m, m));
+        }
+    }
+
+    /**
+     * Read the metrics, whose cached one is broken, from the storage. As a failed load of {@link
+     * #loadFromStorage(List)}, the metrics is inserted if the read fails. The single ID read doesn't adapt the batch
+     * size.
+     *
+     * @return the stored metrics, or null if not exists or the read failed.
+     */
+    private Metrics reloadFromStorage(Metrics metrics) {
+        sessionMissCounter.inc();
+        final List<Metrics> dbMetrics = multiGet(Collections.singletonList(metrics), new AtomicLong());
+        if (dbMetrics == null || dbMetrics.isEmpty()) {
+            return null;
+        }
+        return dbMetrics.get(0);
+    }
+
+    /**
+     * @param slowestLatency the max latency of the reads, updated by this read. Unit is ms.
+     * @return the metrics read from the storage, or null if the read failed.
+     */
+    private List<Metrics> multiGet(List<Metrics> batch, AtomicLong slowestLatency) {
+        long start = System.currentTimeMillis();
+        try (HistogramMetrics.Timer timer = batchGetLatency.createTimer()) {
+            return metricsDAO.multiGet(model, batch);
         } catch (final Exception e) {
             log.error("Failed to load metrics for merging", e);
+            return null;
+        } finally {
+            slowestLatency.accumulateAndGet(System.currentTimeMillis() - start, Math::max);
         }
     }
 
     @Override
     public void endOfRound() {
         if (enableDatabaseSession) {
-            Iterator<Metrics> iterator = context.values().iterator();
-            long timestamp = System.currentTimeMillis();
-            while (iterator.hasNext()) {
-                Metrics metrics = iterator.next();
+            context.removeExpired(System.currentTimeMillis(), sessionTimeout);
+        }
 
-                if (metrics.isExpired(timestamp, sessionTimeout)) {
-                    iterator.remove();
-                }
-            }
+        sessionSizeGauge.setValue(context.size());
+        if (context instanceof CompactSessionCache) {
+            final CompactSessionCache compactSessionCache = (CompactSessionCache) context;
+            sessionBytesGauge.setValue(compactSessionCache.bytes());
+            final long evictions = compactSessionCache.evictions();
+            sessionEvictionCounter.inc(evictions - reportedEvictions);
+            reportedEvictions = evictions;
         }
     }
 
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
+import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+
+/**
+ * MetricsPreAggregateWorker combines the metrics in the dispatcher thread, before they are enqueued to the {@link
+ * MetricsAggregateWorker}. Every dispatcher thread owns one table per metrics, keyed by the entity and time bucket (the
+ * {@link Metrics#equals(Object)} and {@link Metrics#hashCode()} of the generated metrics), so the L1 queue receives one
+ * merged metrics per entity rather than one per source.
+ *
+ * A table is flushed when it holds `maxSize` metrics, or once it has not been flushed for `flushPeriod` by the
+ * dispatcher thread itself or by {@link #flushExpired(long)}, which keeps the metrics of an idle thread from being
+ * delayed. The table of a dead dispatcher thread is drained and dropped by {@link #flushExpired(long)}.
+ */
+class MetricsPreAggregateWorker extends AbstractWorker<Metrics> {
+    private final AbstractWorker<Metrics> nextWorker;
+    private final int maxSize;
+    /**
+     * Unit is ms.
+     */
+    private final long flushPeriod;
+    private final List<Table> tables = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Table> localTable = ThreadLocal.withInitial(this::newTable);
+
+    MetricsPreAggregateWorker(ModuleDefineHolder moduleDefineHolder, AbstractWorker<Metrics> nextWorker,
+                              int maxSize, long flushPeriod) {
+        super(moduleDefineHolder);
+        this.nextWorker = nextWorker;
+        this.maxSize = Math.max(1, maxSize);
+        this.flushPeriod = flushPeriod;
+    }
+
+    @Override
+    public void in(Metrics metrics) {
+        final Table table = localTable.get();
+        final List<Metrics> flushed;
+        synchronized (table) {
+            table.accept(metrics);
+            final long now = System.currentTimeMillis();
+            if (table.size() < maxSize && now - table.lastFlushTime < flushPeriod) {
+                return;
+            }
+            flushed = table.read(now);
+        }
+        flushed.forEach(nextWorker::in);
+    }
+
+    /**
+     * Flush the tables which have not been flushed in the last flush period, no matter the dispatcher threads are
+     * active or not. The tables of the dead dispatcher threads are flushed and removed.
+     */
+    void flushExpired(long now) {
+        for (final Table table : tables) {
+            final List<Metrics> flushed;
+            synchronized (table) {
+                final boolean ownerDead = !table.isOwnerAlive();
+                if (ownerDead) {
+                    // No one adds to this table anymore.
+                    tables.remove(table);
+                }
+                if (table.size() == 0 || !ownerDead && now - table.lastFlushTime < flushPeriod) {
+                    continue;
+                }
+                flushed = table.read(now);
+            }
+            flushed.forEach(nextWorker::in);
+        }
+    }
+
+    int tableCount() {
+        return tables.size();
+    }
+
+    private Table newTable() {
+        final Table table = new Table(Thread.currentThread());
+        tables.add(table);
+        return table;
+    }
+
+    /**
+     * The pre-aggregation table of one dispatcher thread, guarded by itself. The lock is almost always uncontended, as
+     * only the {@link #flushExpired(long)} shares it with the owner thread.
+     */
+    private static class Table {
+        /**
+         * Weak, so the table doesn't keep the dead thread from being collected.
+         */
+        private final WeakReference<Thread> owner;
+        private final Map<Metrics, Metrics> buffer = new HashMap<>();
+        private long lastFlushTime = System.currentTimeMillis();
+
+        private Table(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        private boolean isOwnerAlive() {
+            final Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        private void accept(Metrics metrics) {
+            final Metrics existed = buffer.putIfAbsent(metrics, metrics);
+            if (existed != null && !existed.combine(metrics)) {
+                buffer.remove(existed);
+            }
+        }
+
+        private int size() {
+            return buffer.size();
+        }
+
+        private List<Metrics> read(long now) {
+            final List<Metrics> data = new ArrayList<>(buffer.values());
+            buffer.clear();
+            lastFlushTime = now;
+            return data;
+        }
+    }
+}
@@ -23,8 +23,16 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.apm.util.RunnableWithExceptionProtection;
 import org.apache.skywalking.oap.server.core.CoreModule;
 import org.apache.skywalking.oap.server.core.UnexpectedException;
 import org.apache.skywalking.oap.server.core.analysis.DownSampling;
@@ -32,6 +40,9 @@ import org.apache.skywalking.oap.server.core.analysis.MetricsExtension;
 import org.apache.skywalking.oap.server.core.analysis.Stream;
 import org.apache.skywalking.oap.server.core.analysis.StreamDefinition;
 import org.apache.skywalking.oap.server.core.analysis.StreamProcessor;
+import org.apache.skywalking.oap.server.core.analysis.data.CompactSessionCache;
+import org.apache.skywalking.oap.server.core.analysis.data.HashMapSessionCache;
+import org.apache.skywalking.oap.server.core.analysis.data.SessionCache;
 import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
 import org.apache.skywalking.oap.server.core.config.DownSamplingConfigService;
 import org.apache.skywalking.oap.server.core.storage.IMetricsDAO;
@@ -43,8 +54,10 @@ import org.apache.skywalking.oap.server.core.storage.annotation.Storage;
 import org.apache.skywalking.oap.server.core.storage.model.Model;
 import org.apache.skywalking.oap.server.core.storage.model.ModelCreator;
 import org.apache.skywalking.oap.server.core.storage.type.StorageBuilder;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
 import org.apache.skywalking.oap.server.core.worker.IWorkerInstanceSetter;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
 
 /**
  * MetricsStreamProcessor represents the entrance and creator of the metrics streaming aggregation work flow.
@@ -53,6 +66,7 @@ import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
  *
  * {@link #create(ModuleDefineHolder, Stream, Class)} creates the workers and work flow for every metrics.
  */
+@Slf4j
 public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     /**
      * Singleton instance.
@@ -62,7 +76,7 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
     /**
      * Worker table hosts all entrance workers.
      */
-    private Map<Class<? extends Metrics>, MetricsAggregateWorker> entryWorkers = new HashMap<>();
+    private Map<Class<? extends Metrics>, AbstractWorker<Metrics>> entryWorkers = new HashMap<>();
 
     /**
      * Worker table hosts all persistent workers.
@@ -87,6 +101,61 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
      */
     @Setter
     private long storageSessionTimeout = 70_000;
+    /**
+     * Hold and forward CoreModuleConfig#enableCompactSessionCache to the persistent worker.
+     */
+    @Setter
+    private boolean enableCompactSessionCache = false;
+    /**
+     * The max size of all compact session caches. Unit is MB.
+     */
+    @Setter
+    private long maxSizeOfCompactSessionCache = 1024;
+    /**
+     * The max size in bytes shared by all compact session caches, created with the first cache.
+     */
+    private CompactSessionCache.Budget compactSessionCacheBudget;
+    /**
+     * The max size of one IDs read batch of the persistent workers. The actual size adapts to the read latency.
+     */
+    @Setter
+    private int maxBatchGetSize = 2000;
+    /**
+     * The target latency of one IDs read batch. Unit is ms. Non-positive value disables the adaptive batch size.
+     */
+    @Setter
+    private long batchGetTargetLatency = 1000;
+    /**
+     * The number of threads used to read the batches of one persistent worker concurrently. 0 means read in the
+     * prepare thread.
+     */
+    @Setter
+    private int batchGetThreads = 2;
+    /**
+     * Hold and forward CoreModuleConfig#enableElasticConsumePool to the aggregate and persistent workers.
+     */
+    @Setter
+    private boolean enableElasticConsumePool = false;
+    /**
+     * The executor shared by all persistent workers to read the ID batches, created on the first use.
+     */
+    private ExecutorService batchGetExecutor;
+    /**
+     * The max size of the pre-aggregation table of one metrics in one dispatcher thread. 0 means the metrics are
+     * enqueued to the L1 aggregation directly.
+     */
+    @Setter
+    private int dispatcherPreAggregationSize = 0;
+    /**
+     * The period of the dispatcher pre-aggregation flush. Unit is ms.
+     */
+    @Setter
+    private long dispatcherPreAggregationFlushPeriod = 100;
+    /**
+     * All pre-aggregate workers, flushed by one timer when their dispatcher threads are idle.
+     */
+    private final List<MetricsPreAggregateWorker> preAggregateWorkers = new CopyOnWriteArrayList<>();
+    private boolean preAggregationTimerStarted = false;
 
     public static MetricsStreamProcessor getInstance() {
         return PROCESSOR;
@@ -94,7 +163,7 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
 
     @Override
     public void in(Metrics metrics) {
-        MetricsAggregateWorker worker = entryWorkers.get(metrics.getClass());
+        AbstractWorker<Metrics> worker = entryWorkers.get(metrics.getClass());
         if (worker != null) {
             worker.in(metrics);
         }
@@ -183,9 +252,35 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
 
         MetricsRemoteWorker remoteWorker = new MetricsRemoteWorker(moduleDefineHolder, remoteReceiverWorkerName);
         MetricsAggregateWorker aggregateWorker = new MetricsAggregateWorker(
-            moduleDefineHolder, remoteWorker, stream.getName(), l1FlushPeriod);
+            moduleDefineHolder, remoteWorker, stream.getName(), l1FlushPeriod, enableElasticConsumePool);
 
-        entryWorkers.put(metricsClass, aggregateWorker);
+        if (dispatcherPreAggregationSize > 0) {
+            MetricsPreAggregateWorker preAggregateWorker = new MetricsPreAggregateWorker(
+                moduleDefineHolder, aggregateWorker, dispatcherPreAggregationSize, dispatcherPreAggregationFlushPeriod);
+            preAggregateWorkers.add(preAggregateWorker);
+            startPreAggregationTimer();
+            entryWorkers.put(metricsClass, preAggregateWorker);
+        } else {
+            entryWorkers.put(metricsClass, aggregateWorker);
+        }
+    }
+
+    private synchronized void startPreAggregationTimer() {
+        if (preAggregationTimerStarted) {
+            return;
+        }
+        Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("MetricsPreAggregationFlush"))
+                 .scheduleWithFixedDelay(
+                     new RunnableWithExceptionProtection(
+                         () -> {
+                             final long now = System.currentTimeMillis();
+                             preAggregateWorkers.forEach(worker -> worker.flushExpired(now));
+                         },
+                         t -> log.error("Flush the dispatcher pre-aggregation failure.", t)
+                     ),
+                     dispatcherPreAggregationFlushPeriod, dispatcherPreAggregationFlushPeriod, TimeUnit.MILLISECONDS
+                 );
+        preAggregationTimerStarted = true;
     }
 
     private MetricsPersistentWorker minutePersistentWorker(ModuleDefineHolder moduleDefineHolder,
@@ -198,7 +293,8 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
 
         MetricsPersistentWorker minutePersistentWorker = new MetricsPersistentWorker(
             moduleDefineHolder, model, metricsDAO, alarmNotifyWorker, exportWorker, transWorker, enableDatabaseSession,
-            supportUpdate, storageSessionTimeout
+            supportUpdate, storageSessionTimeout, newSessionCache(), maxBatchGetSize, batchGetTargetLatency,
+            batchGetExecutor(), enableElasticConsumePool
         );
         persistentWorkers.add(minutePersistentWorker);
 
@@ -210,9 +306,41 @@ public class MetricsStreamProcessor implements StreamProcessor<Metrics> {
                                                        Model model,
                                                        boolean supportUpdate) {
         MetricsPersistentWorker persistentWorker = new MetricsPersistentWorker(
-            moduleDefineHolder, model, metricsDAO, enableDatabaseSession, supportUpdate, storageSessionTimeout);
+            moduleDefineHolder, model, metricsDAO, enableDatabaseSession, supportUpdate, storageSessionTimeout,
+            newSessionCache(), maxBatchGetSize, batchGetTargetLatency, batchGetExecutor(), enableElasticConsumePool
+        );
         persistentWorkers.add(persistentWorker);
 
         return persistentWorker;
     }
+
+    private synchronized SessionCache newSessionCache() {
+        if (enableCompactSessionCache) {
+            if (compactSessionCacheBudget == null) {
+                compactSessionCacheBudget = new CompactSessionCache.Budget(maxSizeOfCompactSessionCache * 1024 * 1024);
+            }
+            return new CompactSessionCache(compactSessionCacheBudget);
+        }
+        return new HashMapSessionCache();
+    }
+
+    private synchronized ExecutorService batchGetExecutor() {
+        if (batchGetThreads <= 0) {
+            return null;
+        }
+        if (batchGetExecutor == null) {
+            // Bounded queue, the prepare thread reads the batch by itself when the executor is full.
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                batchGetThreads, batchGetThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(batchGetThreads * 16),
+                new CustomThreadFactory("MetricsBatchGet"),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+            // The threads are not daemon, release them when idle, and stop the executor at shutdown.
+            executor.allowCoreThreadTimeOut(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdown));
+            batchGetExecutor = executor;
+        }
+        return batchGetExecutor;
+    }
 }
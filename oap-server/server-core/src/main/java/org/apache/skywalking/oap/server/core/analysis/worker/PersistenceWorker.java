@@ -25,6 +25,7 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.oap.server.core.analysis.data.ReadWriteSafeCache;
 import org.apache.skywalking.oap.server.core.storage.StorageData;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
 import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
 import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
 import org.apache.skywalking.oap.server.library.module.ModuleDefineHolder;
@@ -66,6 +67,11 @@ public abstract class PersistenceWorker<INPUT extends StorageData> extends Abstr
      */
     public abstract List<PrepareRequest> prepareBatch(Collection<INPUT> lastCollection);
 
+    /**
+     * @return the model persisted by this worker.
+     */
+    public abstract Model getModel();
+
     public List<PrepareRequest> buildBatchRequests() {
         final List<INPUT> dataList = getCache().read();
         return prepareBatch(dataList);
@@ -18,14 +18,18 @@
 
 package org.apache.skywalking.oap.server.core.profile.analyze;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.skywalking.oap.server.core.profile.ProfileThreadSnapshotRecord;
 import org.apache.skywalking.oap.server.core.query.type.ProfileAnalyzation;
@@ -42,6 +46,11 @@ import org.slf4j.LoggerFactory;
  * Analyze {@link ProfileStack} data to {@link ProfileAnalyzation}
  *
  * See: https://github.com/apache/skywalking/blob/421ba88dbfba48cdc5845547381aa4763775b4b1/docs/en/guides/backend-profile.md#thread-analyst
+ *
+ * In the incremental mode, the snapshots are read page by page, in the ascending order of the sequence, and merged into
+ * a {@link ProfileStackTrie}, so there is no limit of the analyzed snapshots. The trie of every full page, of which
+ * all the snapshots are stored, is cached, keyed by the segment and the page, and reused by the later analysis of the
+ * overlapping time ranges.
  */
 public class ProfileAnalyzer {
 
@@ -49,22 +58,53 @@ public class ProfileAnalyzer {
 
     private static final ProfileAnalyzeCollector ANALYZE_COLLECTOR = new ProfileAnalyzeCollector();
 
+    /**
+     * The period in which a cached page trie expires after the last access, unit is minute.
+     */
+    private static final long PAGE_CACHE_EXPIRE_PERIOD = 30;
+
     private final int threadSnapshotAnalyzeBatchSize;
     private final int analyzeSnapshotMaxSize;
+    private final boolean incremental;
+    /**
+     * The tries of the full snapshot pages, keyed by the segment ID and the page index. Null if the cache is disabled.
+     */
+    private final Cache<String, ProfileStackTrie> pageCache;
 
     private final ModuleManager moduleManager;
     protected IProfileThreadSnapshotQueryDAO profileThreadSnapshotQueryDAO;
 
     public ProfileAnalyzer(ModuleManager moduleManager, int snapshotAnalyzeBatchSize, int analyzeSnapshotMaxSize) {
+        this(moduleManager, snapshotAnalyzeBatchSize, analyzeSnapshotMaxSize, false, 0);
+    }
+
+    /**
+     * @param incremental   analyze in the incremental mode, without the limit of the snapshots.
+     * @param pageCacheSize the max number of the cached page tries in the incremental mode, 0 means disabled.
+     */
+    public ProfileAnalyzer(ModuleManager moduleManager, int snapshotAnalyzeBatchSize, int analyzeSnapshotMaxSize,
+                           boolean incremental, long pageCacheSize) {
         this.moduleManager = moduleManager;
         this.threadSnapshotAnalyzeBatchSize = snapshotAnalyzeBatchSize;
         this.analyzeSnapshotMaxSize = analyzeSnapshotMaxSize;
+        this.incremental = incremental;
+        if (incremental && pageCacheSize > 0) {
+            this.pageCache = CacheBuilder.newBuilder()
+                                         .maximumSize(pageCacheSize)
+                                         .expireAfterAccess(PAGE_CACHE_EXPIRE_PERIOD, TimeUnit.MINUTES)
+                                         .build();
+        } else {
+            this.pageCache = null;
+        }
     }
 
     /**
      * search snapshots and analyze
      */
     public ProfileAnalyzation analyze(String segmentId, List<ProfileAnalyzeTimeRange> timeRanges) throws IOException {
+        if (incremental) {
+            return analyzeIncrementally(segmentId, timeRanges);
+        }
         ProfileAnalyzation analyzation = new ProfileAnalyzation();
 
         // query sequence range list
@@ -96,6 +136,92 @@ public class ProfileAnalyzer {
         return analyzation;
     }
 
+    /**
+     * search snapshots page by page and merge them into one trie
+     */
+    protected ProfileAnalyzation analyzeIncrementally(String segmentId,
+                                                      List<ProfileAnalyzeTimeRange> timeRanges) throws IOException {
+        ProfileAnalyzation analyzation = new ProfileAnalyzation();
+
+        // query sequence ranges, [min, max), and merge the overlapping ones
+        final List<SequenceRange> ranges = new ArrayList<>(timeRanges.size());
+        for (ProfileAnalyzeTimeRange timeRange : timeRanges) {
+            int minSequence = getProfileThreadSnapshotQueryDAO().queryMinSequence(
+                segmentId, timeRange.getStart(), timeRange.getEnd());
+            int maxSequence = getProfileThreadSnapshotQueryDAO().queryMaxSequence(
+                segmentId, timeRange.getStart(), timeRange.getEnd()) + 1;
+            // data not found
+            if (maxSequence > 0) {
+                ranges.add(new SequenceRange(minSequence, maxSequence));
+            }
+        }
+        if (ranges.isEmpty()) {
+            analyzation.setTip("Data not found");
+            return analyzation;
+        }
+        ranges.sort(Comparator.comparingInt(SequenceRange::getMinSequence));
+
+        final ProfileStackTrie trie = new ProfileStackTrie();
+        int analyzedSequence = 0;
+        for (SequenceRange range : ranges) {
+            int minSequence = Math.max(range.getMinSequence(), analyzedSequence);
+            final int maxSequence = range.getMaxSequence();
+            // pages are aligned by the batch size, so the same page is cached for any time range
+            while (minSequence < maxSequence) {
+                final int page = minSequence / threadSnapshotAnalyzeBatchSize;
+                final int pageMin = page * threadSnapshotAnalyzeBatchSize;
+                final int pageMax = pageMin + threadSnapshotAnalyzeBatchSize;
+                if (pageCache != null && minSequence == pageMin && pageMax <= maxSequence) {
+                    trie.merge(getPageTrie(segmentId, page, pageMin, pageMax));
+                } else {
+                    trie.merge(readTrie(segmentId, minSequence, Math.min(pageMax, maxSequence)));
+                }
+                minSequence = Math.min(pageMax, maxSequence);
+            }
+            analyzedSequence = Math.max(analyzedSequence, maxSequence);
+        }
+
+        if (!trie.isEmpty()) {
+            analyzation.getTrees().addAll(trie.buildAnalyzeResult());
+        }
+        return analyzation;
+    }
+
+    private ProfileStackTrie getPageTrie(String segmentId, int page, int minSequence,
+                                         int maxSequence) throws IOException {
+        final String key = segmentId + "-" + page;
+        ProfileStackTrie trie = pageCache.getIfPresent(key);
+        if (trie != null) {
+            return trie;
+        }
+        final List<ProfileStack> stacks = readStacks(segmentId, minSequence, maxSequence);
+        trie = toTrie(stacks);
+        // the snapshots of the page may be not all stored or searchable yet, cache it once it is complete only
+        if (stacks.size() == maxSequence - minSequence) {
+            pageCache.put(key, trie);
+        }
+        return trie;
+    }
+
+    private ProfileStackTrie readTrie(String segmentId, int minSequence, int maxSequence) throws IOException {
+        return toTrie(readStacks(segmentId, minSequence, maxSequence));
+    }
+
+    private List<ProfileStack> readStacks(String segmentId, int minSequence, int maxSequence) throws IOException {
+        return getProfileThreadSnapshotQueryDAO()
+            .queryRecords(segmentId, minSequence, maxSequence)
+            .stream()
+            .map(ProfileStack::deserialize)
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    private static ProfileStackTrie toTrie(List<ProfileStack> stacks) {
+        final ProfileStackTrie trie = new ProfileStackTrie();
+        stacks.forEach(trie::add);
+        return trie;
+    }
+
     protected SequenceSearch getAllSequenceRange(String segmentId, List<ProfileAnalyzeTimeRange> timeRanges) throws IOException {
         final List<SequenceSearch> searches = timeRanges.parallelStream().map(r -> {
             try {
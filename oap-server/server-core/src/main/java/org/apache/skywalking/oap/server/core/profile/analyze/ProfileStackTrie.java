@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.profile.analyze;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.skywalking.oap.server.core.query.type.ProfileStackElement;
+import org.apache.skywalking.oap.server.core.query.type.ProfileStackTree;
+import org.apache.skywalking.oap.server.library.util.CollectionUtils;
+
+/**
+ * Merged stacks of the profile snapshots, every node keeps the count and the duration of its code signature path, rather
+ * than the snapshots detecting it as {@link ProfileStackNode} does, so the memory doesn't grow with the number of the
+ * snapshots.
+ *
+ * The snapshots must be added in the ascending order of the sequence, and a trie could be merged with another trie
+ * whose snapshots are all after its. The duration of a node is the sum of the time windows of its continuous
+ * sequences, every node keeps its first and last sequence to join the time windows across the merged tries.
+ */
+public class ProfileStackTrie {
+
+    // virtual root, its children are the roots of the stack trees
+    private final Node root = new Node(null);
+    private int lastSequence = -1;
+
+    /**
+     * add a snapshot, the snapshots not after the last added one are ignored
+     */
+    public void add(ProfileStack stack) {
+        if (stack.getSequence() <= lastSequence) {
+            return;
+        }
+        lastSequence = stack.getSequence();
+
+        final List<String> stackList = stack.getStack();
+        if (CollectionUtils.isEmpty(stackList)) {
+            return;
+        }
+        Node parent = root;
+        for (String codeSignature : stackList) {
+            Node child = parent.children.get(codeSignature);
+            if (child == null) {
+                child = new Node(codeSignature);
+                parent.children.put(codeSignature, child);
+            }
+            child.detectedBy(stack.getSequence(), stack.getDumpTime());
+            parent = child;
+        }
+    }
+
+    /**
+     * merge the trie whose snapshots are all after the snapshots of this trie. The merged trie isn't changed.
+     */
+    public void merge(ProfileStackTrie trie) {
+        if (trie.lastSequence <= lastSequence) {
+            return;
+        }
+        lastSequence = trie.lastSequence;
+
+        final ArrayDeque<Node> targets = new ArrayDeque<>();
+        final ArrayDeque<Node> sources = new ArrayDeque<>();
+        targets.add(root);
+        sources.add(trie.root);
+        while (!targets.isEmpty()) {
+            final Node target = targets.poll();
+            final Node source = sources.poll();
+            for (Node sourceChild : source.children.values()) {
+                final Node targetChild = target.children.get(sourceChild.codeSignature);
+                if (targetChild == null) {
+                    target.children.put(sourceChild.codeSignature, sourceChild.copy());
+                } else {
+                    targetChild.combine(sourceChild);
+                    targets.add(targetChild);
+                    sources.add(sourceChild);
+                }
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return root.children.isEmpty();
+    }
+
+    /**
+     * build GraphQL result, one tree per stack bottom code signature
+     */
+    public List<ProfileStackTree> buildAnalyzeResult() {
+        final List<ProfileStackTree> trees = new ArrayList<>(root.children.size());
+        for (Node treeRoot : root.children.values()) {
+            final ProfileStackTree tree = new ProfileStackTree();
+            int idGenerator = 1;
+
+            final ArrayDeque<Node> nodes = new ArrayDeque<>();
+            final ArrayDeque<ProfileStackElement> elements = new ArrayDeque<>();
+            final ProfileStackElement rootElement = treeRoot.buildElement(idGenerator++);
+            nodes.add(treeRoot);
+            elements.add(rootElement);
+            tree.getElements().add(rootElement);
+            while (!nodes.isEmpty()) {
+                final Node node = nodes.poll();
+                final ProfileStackElement element = elements.poll();
+                for (Node child : node.children.values()) {
+                    final ProfileStackElement childElement = child.buildElement(idGenerator++);
+                    childElement.setParentId(element.getId());
+                    nodes.add(child);
+                    elements.add(childElement);
+                    tree.getElements().add(childElement);
+                }
+            }
+            trees.add(tree);
+        }
+        return trees;
+    }
+
+    private static class Node {
+        private final String codeSignature;
+        private final Map<String, Node> children = new LinkedHashMap<>(4);
+        private int count;
+        // sum of the time windows of the continuous sequences
+        private long duration;
+        private int firstSequence;
+        private long firstDumpTime;
+        private int lastSequence;
+        private long lastDumpTime;
+
+        private Node(String codeSignature) {
+            this.codeSignature = codeSignature;
+        }
+
+        private void detectedBy(int sequence, long dumpTime) {
+            if (count == 0) {
+                firstSequence = sequence;
+                firstDumpTime = dumpTime;
+            } else if (lastSequence + 1 == sequence) {
+                // is continuity
+                duration += dumpTime - lastDumpTime;
+            }
+            lastSequence = sequence;
+            lastDumpTime = dumpTime;
+            count++;
+        }
+
+        /**
+         * combine the node detected by the snapshots after the snapshots of this node
+         */
+        private void combine(Node node) {
+            duration += node.duration;
+            // the last time window of this node and the first one of the other node are continuous
+            if (lastSequence + 1 == node.firstSequence) {
+                duration += node.firstDumpTime - lastDumpTime;
+            }
+            lastSequence = node.lastSequence;
+            lastDumpTime = node.lastDumpTime;
+            count += node.count;
+        }
+
+        private Node copy() {
+            final Node copy = new Node(codeSignature);
+            copy.count = count;
+            copy.duration = duration;
+            copy.firstSequence = firstSequence;
+            copy.firstDumpTime = firstDumpTime;
+            copy.lastSequence = lastSequence;
+            copy.lastDumpTime = lastDumpTime;
+            for (Node child : children.values()) {
+                copy.children.put(child.codeSignature, child.copy());
+            }
+            return copy;
+        }
+
+        private ProfileStackElement buildElement(int id) {
+            final ProfileStackElement element = new ProfileStackElement();
+            element.setId(id);
+            element.setCodeSignature(codeSignature);
+            element.setCount(count);
+            element.setDuration(Math.toIntExact(duration));
+            long childrenDuration = 0;
+            for (Node child : children.values()) {
+                childrenDuration += child.duration;
+            }
+            element.setDurationChildExcluded(Math.toIntExact(duration - childrenDuration));
+            return element;
+        }
+    }
+}
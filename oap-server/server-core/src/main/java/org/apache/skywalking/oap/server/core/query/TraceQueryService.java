@@ -18,15 +18,32 @@
 
 package org.apache.skywalking.oap.server.core.query;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
 import org.apache.skywalking.oap.server.core.Const;
 import org.apache.skywalking.oap.server.core.CoreModule;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
 import org.apache.skywalking.oap.server.core.analysis.manual.searchtag.Tag;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentBinaryCodec;
 import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
 import org.apache.skywalking.oap.server.core.config.IComponentLibraryCatalogService;
 import org.apache.skywalking.oap.server.core.query.type.KeyValue;
@@ -43,18 +60,57 @@ import org.apache.skywalking.oap.server.core.storage.StorageModule;
 import org.apache.skywalking.oap.server.core.storage.query.ITraceQueryDAO;
 import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.library.module.Service;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
 import org.apache.skywalking.oap.server.library.util.CollectionUtils;
 
-import static java.util.Objects.nonNull;
-
 public class TraceQueryService implements Service {
+    /**
+     * The segments of a trace are parsed in parallel when there are at least this number of them.
+     */
+    static final int PARALLEL_PARSE_THRESHOLD = 64;
+    /**
+     * The max number of threads parsing the segments, shared by all trace queries.
+     */
+    private static final int PARSE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /**
+     * The threads parsing the segments of the large traces, a dedicated pool rather than the common ForkJoinPool. The
+     * idle threads exit, so the pool doesn't need to be shutdown.
+     */
+    private static final ExecutorService PARSE_EXECUTOR;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            PARSE_THREADS, PARSE_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new CustomThreadFactory("TraceQueryParse")
+        );
+        executor.allowCoreThreadTimeOut(true);
+        PARSE_EXECUTOR = executor;
+    }
 
     private final ModuleManager moduleManager;
     private ITraceQueryDAO traceQueryDAO;
     private IComponentLibraryCatalogService componentLibraryCatalogService;
+    /**
+     * The assembled traces, keyed by the trace ID. Null if the cache is disabled. The cached traces are shared, so they
+     * are copied before returned.
+     */
+    private final Cache<String, Trace> traceCache;
 
     public TraceQueryService(ModuleManager moduleManager) {
+        this(moduleManager, new CoreModuleConfig());
+    }
+
+    public TraceQueryService(ModuleManager moduleManager, CoreModuleConfig moduleConfig) {
         this.moduleManager = moduleManager;
+        if (moduleConfig.getTraceQueryCacheSize() > 0) {
+            this.traceCache = CacheBuilder.newBuilder()
+                                          .maximumSize(moduleConfig.getTraceQueryCacheSize())
+                                          .expireAfterWrite(
+                                              moduleConfig.getTraceQueryCacheExpirePeriod(), TimeUnit.SECONDS)
+                                          .build();
+        } else {
+            this.traceCache = null;
+        }
     }
 
     private ITraceQueryDAO getTraceQueryDAO() {
@@ -95,38 +151,91 @@ public class TraceQueryService implements Service {
     }
 
     public Trace queryTrace(final String traceId) throws IOException {
+        if (traceCache != null) {
+            Trace cached = traceCache.getIfPresent(traceId);
+            if (cached != null) {
+                return copyOf(cached);
+            }
+        }
+
         Trace trace = new Trace();
 
         List<SegmentRecord> segmentRecords = getTraceQueryDAO().queryByTraceId(traceId);
+        List<Span> spans;
         if (segmentRecords.isEmpty()) {
-            trace.getSpans().addAll(getTraceQueryDAO().doFlexibleTraceQuery(traceId));
+            spans = getTraceQueryDAO().doFlexibleTraceQuery(traceId);
         } else {
+            spans = buildSpans(segmentRecords);
+        }
+
+        if (CollectionUtils.isNotEmpty(spans)) {
+            trace.getSpans().addAll(sortSpans(spans));
+            if (traceCache != null) {
+                // Don't cache the trace not found, as its segments may be not persisted yet.
+                traceCache.put(traceId, copyOf(trace));
+            }
+        }
+        return trace;
+    }
+
+    private static Trace copyOf(Trace trace) {
+        Trace copy = new Trace();
+        copy.getSpans().addAll(trace.getSpans());
+        return copy;
+    }
+
+    List<Span> buildSpans(List<SegmentRecord> segmentRecords) throws IOException {
+        // Load the service before the parallel parsing.
+        getComponentLibraryCatalogService();
+
+        if (segmentRecords.size() < PARALLEL_PARSE_THRESHOLD) {
+            List<Span> spans = new ArrayList<>();
             for (SegmentRecord segment : segmentRecords) {
-                if (nonNull(segment)) {
-                    SegmentObject segmentObject = SegmentObject.parseFrom(segment.getDataBinary());
-                    trace.getSpans()
-                         .addAll(buildSpanList(segmentObject));
+                if (segment != null) {
+                    spans.addAll(buildSpanList(parseSegment(segment)));
                 }
             }
+            return spans;
         }
 
-        List<Span> sortedSpans = new LinkedList<>();
-        if (CollectionUtils.isNotEmpty(trace.getSpans())) {
-            List<Span> rootSpans = findRoot(trace.getSpans());
+        // Parse the segments in chunks, one per thread, and keep the order of the segments.
+        final int chunkSize = (segmentRecords.size() + PARSE_THREADS - 1) / PARSE_THREADS;
+        final List<Future<List<Span>>> chunks = new ArrayList<>(PARSE_THREADS);
+        for (int from = 0; from < segmentRecords.size(); from += chunkSize) {
+            final List<SegmentRecord> chunk = segmentRecords.subList(
+                from, Math.min(from + chunkSize, segmentRecords.size()));
+            chunks.add(PARSE_EXECUTOR.submit(() -> {
+                List<Span> spans = new ArrayList<>();
+                for (SegmentRecord segment : chunk) {
+                    if (segment != null) {
+                        spans.addAll(buildSpanList(parseSegment(segment)));
+                    }
+                }
+                return spans;
+            }));
+        }
 
-            if (CollectionUtils.isNotEmpty(rootSpans)) {
-                rootSpans.forEach(span -> {
-                    List<Span> childrenSpan = new ArrayList<>();
-                    childrenSpan.add(span);
-                    findChildren(trace.getSpans(), span, childrenSpan);
-                    sortedSpans.addAll(childrenSpan);
-                });
+        final List<Span> spans = new ArrayList<>();
+        try {
+            for (Future<List<Span>> chunk : chunks) {
+                spans.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunks.forEach(chunk -> chunk.cancel(true));
+            throw new IOException("Interrupted while parsing the segments", e);
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
         }
+        return spans;
+    }
 
-        trace.getSpans().clear();
-        trace.getSpans().addAll(sortedSpans);
-        return trace;
+    private SegmentObject parseSegment(SegmentRecord segment) throws IOException {
+        return SegmentObject.parseFrom(SegmentBinaryCodec.decode(segment.getDataBinary()));
     }
 
     private List<Span> buildSpanList(SegmentObject segmentObject) {
@@ -207,25 +316,27 @@ public class TraceQueryService implements Service {
         return spans;
     }
 
-    private List<Span> findRoot(List<Span> spans) {
-        List<Span> rootSpans = new ArrayList<>();
-        spans.forEach(span -> {
-            String segmentParentSpanId = span.getSegmentParentSpanId();
-
-            boolean hasParent = false;
-            for (Span subSpan : spans) {
-                if (segmentParentSpanId.equals(subSpan.getSegmentSpanId())) {
-                    hasParent = true;
-                    // if find parent, quick exit
-                    break;
-                }
-            }
-
-            if (!hasParent) {
+    /**
+     * Sort the spans as the trace tree, every root span followed by its children in the depth first order. The root
+     * spans, whose parents are not in the trace, are sorted by the start time.
+     *
+     * The children of every span are indexed by the parent span ID, so the sort is linear to the number of spans.
+     */
+    static List<Span> sortSpans(List<Span> spans) {
+        final Set<String> segmentSpanIds = new HashSet<>(spans.size() * 2);
+        spans.forEach(span -> segmentSpanIds.add(span.getSegmentSpanId()));
+
+        final Map<String, List<Span>> childrenOfParent = new HashMap<>(spans.size() * 2);
+        final List<Span> rootSpans = new ArrayList<>();
+        for (Span span : spans) {
+            if (segmentSpanIds.contains(span.getSegmentParentSpanId())) {
+                childrenOfParent.computeIfAbsent(span.getSegmentParentSpanId(), parent -> new ArrayList<>(2))
+                                .add(span);
+            } else {
                 span.setRoot(true);
                 rootSpans.add(span);
             }
-        });
+        }
         /*
          * In some cases, there are segment fragments, which could not be linked by Ref,
          * because of two kinds of reasons.
@@ -234,15 +345,27 @@ public class TraceQueryService implements Service {
          * Sorting the segments makes the trace view more readable.
          */
         rootSpans.sort(Comparator.comparing(Span::getStartTime));
-        return rootSpans;
-    }
 
-    private void findChildren(List<Span> spans, Span parentSpan, List<Span> childrenSpan) {
-        spans.forEach(span -> {
-            if (span.getSegmentParentSpanId().equals(parentSpan.getSegmentSpanId())) {
-                childrenSpan.add(span);
-                findChildren(spans, span, childrenSpan);
+        final List<Span> sortedSpans = new ArrayList<>(spans.size());
+        // Avoid the endless loop, in case of the corrupted data, such as duplicated span IDs.
+        final Set<Span> visited = Collections.newSetFromMap(new IdentityHashMap<>(spans.size() * 2));
+        final Deque<Span> stack = new ArrayDeque<>();
+        for (Span rootSpan : rootSpans) {
+            stack.push(rootSpan);
+            while (!stack.isEmpty()) {
+                final Span span = stack.pop();
+                if (!visited.add(span)) {
+                    continue;
+                }
+                sortedSpans.add(span);
+                final List<Span> children = childrenOfParent.get(span.getSegmentSpanId());
+                if (children != null) {
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        stack.push(children.get(i));
+                    }
+                }
             }
-        });
+        }
+        return sortedSpans;
     }
 }
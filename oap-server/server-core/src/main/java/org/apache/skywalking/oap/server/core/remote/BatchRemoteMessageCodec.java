@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.BatchRemoteMessage;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+
+/**
+ * BatchRemoteMessageCodec encodes multiple serialized data of the same next worker into one {@link BatchRemoteMessage},
+ * and decodes them back, without building the {@link RemoteData} of every data.
+ *
+ * The numeric fields of all data are concatenated into the packed columns, and every string is replaced by its index
+ * in the per-batch dictionary, so a repeated entity ID is only encoded and decoded once in a batch.
+ */
+public class BatchRemoteMessageCodec {
+    /**
+     * The counts of dataStrings, dataLongs, dataDoubles, dataIntegers and dataObjectStrings of one data.
+     */
+    static final int COUNTS_PER_DATA = 5;
+
+    private BatchRemoteMessageCodec() {
+    }
+
+    /**
+     * Decode the data one by one, in the order of encoding. The strings of the decoded data are shared with the
+     * dictionary. The given data is reused for the next one, so it should be deserialized by {@link
+     * Deserializable#deserialize(RemoteDataOrBuilder)} in the consumer, rather than kept.
+     */
+    public static void decode(BatchRemoteMessage message, Consumer<RemoteDataOrBuilder> consumer) {
+        final RemoteData.Builder builder = RemoteData.newBuilder();
+        int stringIndex = 0;
+        int longIndex = 0;
+        int doubleIndex = 0;
+        int integerIndex = 0;
+        int objectStringIndex = 0;
+        for (int offset = 0; offset + COUNTS_PER_DATA <= message.getCountsCount(); offset += COUNTS_PER_DATA) {
+            builder.clear();
+            for (int i = message.getCounts(offset); i > 0; i--) {
+                builder.addDataStrings(message.getStringDictionary(message.getDataStrings(stringIndex++)));
+            }
+            for (int i = message.getCounts(offset + 1); i > 0; i--) {
+                builder.addDataLongs(message.getDataLongs(longIndex++));
+            }
+            for (int i = message.getCounts(offset + 2); i > 0; i--) {
+                builder.addDataDoubles(message.getDataDoubles(doubleIndex++));
+            }
+            for (int i = message.getCounts(offset + 3); i > 0; i--) {
+                builder.addDataIntegers(message.getDataIntegers(integerIndex++));
+            }
+            for (int i = message.getCounts(offset + 4); i > 0; i--) {
+                builder.addDataObjectStrings(
+                    message.getStringDictionary(message.getDataObjectStrings(objectStringIndex++)));
+            }
+            consumer.accept(builder);
+        }
+    }
+
+    /**
+     * Encoder of one {@link BatchRemoteMessage}, not thread safe.
+     */
+    public static class Encoder {
+        private final BatchRemoteMessage.Builder builder;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private int size;
+
+        public Encoder(String nextWorkerName) {
+            this.builder = BatchRemoteMessage.newBuilder().setNextWorkerName(nextWorkerName);
+        }
+
+        /**
+         * Add the data, such as the builder returned by {@link Serializable#serialize()}.
+         */
+        public void add(RemoteDataOrBuilder data) {
+            builder.addCounts(data.getDataStringsCount())
+                   .addCounts(data.getDataLongsCount())
+                   .addCounts(data.getDataDoublesCount())
+                   .addCounts(data.getDataIntegersCount())
+                   .addCounts(data.getDataObjectStringsCount());
+            for (int i = 0; i < data.getDataStringsCount(); i++) {
+                builder.addDataStrings(indexOf(data.getDataStrings(i)));
+            }
+            for (int i = 0; i < data.getDataLongsCount(); i++) {
+                builder.addDataLongs(data.getDataLongs(i));
+            }
+            for (int i = 0; i < data.getDataDoublesCount(); i++) {
+                builder.addDataDoubles(data.getDataDoubles(i));
+            }
+            for (int i = 0; i < data.getDataIntegersCount(); i++) {
+                builder.addDataIntegers(data.getDataIntegers(i));
+            }
+            for (int i = 0; i < data.getDataObjectStringsCount(); i++) {
+                builder.addDataObjectStrings(indexOf(data.getDataObjectStrings(i)));
+            }
+            size++;
+        }
+
+        private int indexOf(String value) {
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(value, index);
+                builder.addStringDictionary(value);
+            }
+            return index;
+        }
+
+        /**
+         * @return the number of encoded data.
+         */
+        public int size() {
+            return size;
+        }
+
+        public BatchRemoteMessage build() {
+            return builder.build();
+        }
+    }
+}
@@ -19,10 +19,12 @@
 package org.apache.skywalking.oap.server.core.remote;
 
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 
 /**
- * Covert the {@link RemoteData} received from the network to the current data entity.
+ * Covert the {@link RemoteData} received from the network, or one data decoded by {@link BatchRemoteMessageCodec}, to
+ * the current data entity.
  */
 public interface Deserializable {
-    void deserialize(RemoteData remoteData);
+    void deserialize(RemoteDataOrBuilder remoteData);
 }
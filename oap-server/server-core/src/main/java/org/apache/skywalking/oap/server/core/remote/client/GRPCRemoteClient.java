@@ -21,15 +21,20 @@ package org.apache.skywalking.oap.server.core.remote.client;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
 import io.netty.handler.ssl.SslContext;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.IConsumer;
+import org.apache.skywalking.oap.server.core.remote.BatchRemoteMessageCodec;
 import org.apache.skywalking.oap.server.core.remote.data.StreamData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.BatchRemoteMessage;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.Empty;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteServiceGrpc;
 import org.apache.skywalking.oap.server.library.client.grpc.GRPCClient;
@@ -45,17 +50,23 @@ import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
  */
 @Slf4j
 public class GRPCRemoteClient implements RemoteClient {
+    /**
+     * The max number of data in one {@link BatchRemoteMessage}.
+     */
+    static final int MAX_BATCH_SIZE = 500;
+
     private final int channelSize;
     private final int bufferSize;
     private final Address address;
     private final AtomicInteger concurrentStreamObserverNumber = new AtomicInteger(0);
     private SslContext sslContext;
     private GRPCClient client;
-    private DataCarrier<RemoteMessage> carrier;
+    private DataCarrier<RemoteStreamData> carrier;
     private boolean isConnect;
     private CounterMetrics remoteOutCounter;
     private CounterMetrics remoteOutErrorCounter;
     private int remoteTimeout;
+    private final boolean enableBatchTransport;
 
     public GRPCRemoteClient(final ModuleDefineHolder moduleDefineHolder,
                             final Address address,
@@ -63,12 +74,28 @@ public class GRPCRemoteClient implements RemoteClient {
                             final int bufferSize,
                             final int remoteTimeout,
                             final SslContext sslContext) {
+        this(moduleDefineHolder, address, channelSize, bufferSize, remoteTimeout, sslContext, false);
+    }
+
+    /**
+     * @param enableBatchTransport send the data of the same next worker through {@link
+     *                             RemoteServiceGrpc.RemoteServiceStub#batchCall(StreamObserver)}, which requires the
+     *                             receiver supports it.
+     */
+    public GRPCRemoteClient(final ModuleDefineHolder moduleDefineHolder,
+                            final Address address,
+                            final int channelSize,
+                            final int bufferSize,
+                            final int remoteTimeout,
+                            final SslContext sslContext,
+                            final boolean enableBatchTransport) {
 
         this.address = address;
         this.channelSize = channelSize;
         this.bufferSize = bufferSize;
         this.remoteTimeout = remoteTimeout;
         this.sslContext = sslContext;
+        this.enableBatchTransport = enableBatchTransport;
 
         remoteOutCounter = moduleDefineHolder.find(TelemetryModule.NAME)
                                              .provider()
@@ -96,7 +123,7 @@ public class GRPCRemoteClient implements RemoteClient {
     public void connect() {
         if (!isConnect) {
             this.getClient().connect();
-            this.getDataCarrier().consume(new RemoteMessageConsumer(), 1);
+            this.getDataCarrier().consume(new RemoteStreamDataConsumer(), 1);
             this.isConnect = true;
         }
     }
@@ -125,7 +152,7 @@ public class GRPCRemoteClient implements RemoteClient {
         return RemoteServiceGrpc.newStub(getChannel());
     }
 
-    DataCarrier<RemoteMessage> getDataCarrier() {
+    DataCarrier<RemoteStreamData> getDataCarrier() {
         if (Objects.isNull(this.carrier)) {
             synchronized (GRPCRemoteClient.class) {
                 if (Objects.isNull(this.carrier)) {
@@ -144,25 +171,70 @@ public class GRPCRemoteClient implements RemoteClient {
      */
     @Override
     public void push(String nextWorkerName, StreamData streamData) {
-        RemoteMessage.Builder builder = RemoteMessage.newBuilder();
-        builder.setNextWorkerName(nextWorkerName);
-        builder.setRemoteData(streamData.serialize());
+        this.getDataCarrier().produce(new RemoteStreamData(nextWorkerName, streamData.serialize()));
+    }
+
+    /**
+     * The serialized stream data waiting for sending. The {@link RemoteMessage} is built only when it is sent one by
+     * one, as the batch transport encodes the fields of the builder into the {@link BatchRemoteMessage} directly.
+     */
+    static class RemoteStreamData {
+        private final String nextWorkerName;
+        private final RemoteData.Builder remoteData;
 
-        this.getDataCarrier().produce(builder.build());
+        RemoteStreamData(String nextWorkerName, RemoteData.Builder remoteData) {
+            this.nextWorkerName = nextWorkerName;
+            this.remoteData = remoteData;
+        }
     }
 
-    class RemoteMessageConsumer implements IConsumer<RemoteMessage> {
+    class RemoteStreamDataConsumer implements IConsumer<RemoteStreamData> {
         @Override
         public void init() {
         }
 
         @Override
-        public void consume(List<RemoteMessage> remoteMessages) {
+        public void consume(List<RemoteStreamData> streamDataList) {
+            if (enableBatchTransport) {
+                consumeInBatch(streamDataList);
+                return;
+            }
             try {
                 StreamObserver<RemoteMessage> streamObserver = createStreamObserver();
-                for (RemoteMessage remoteMessage : remoteMessages) {
+                for (RemoteStreamData streamData : streamDataList) {
                     remoteOutCounter.inc();
-                    streamObserver.onNext(remoteMessage);
+                    streamObserver.onNext(RemoteMessage.newBuilder()
+                                                       .setNextWorkerName(streamData.nextWorkerName)
+                                                       .setRemoteData(streamData.remoteData)
+                                                       .build());
+                }
+                streamObserver.onCompleted();
+            } catch (Throwable t) {
+                remoteOutErrorCounter.inc();
+                log.error(t.getMessage(), t);
+            }
+        }
+
+        /**
+         * Group the messages by the next worker, and send every group as {@link BatchRemoteMessage}s of at most {@link
+         * #MAX_BATCH_SIZE} data.
+         */
+        private void consumeInBatch(List<RemoteStreamData> streamDataList) {
+            try {
+                StreamObserver<BatchRemoteMessage> streamObserver = createBatchStreamObserver();
+                Map<String, BatchRemoteMessageCodec.Encoder> encoders = new HashMap<>();
+                for (RemoteStreamData streamData : streamDataList) {
+                    remoteOutCounter.inc();
+                    BatchRemoteMessageCodec.Encoder encoder = encoders.computeIfAbsent(
+                        streamData.nextWorkerName, BatchRemoteMessageCodec.Encoder::new);
+                    encoder.add(streamData.remoteData);
+                    if (encoder.size() >= MAX_BATCH_SIZE) {
+                        streamObserver.onNext(encoder.build());
+                        encoders.remove(streamData.nextWorkerName);
+                    }
+                }
+                for (BatchRemoteMessageCodec.Encoder encoder : encoders.values()) {
+                    streamObserver.onNext(encoder.build());
                 }
                 streamObserver.onCompleted();
             } catch (Throwable t) {
@@ -172,7 +244,7 @@ public class GRPCRemoteClient implements RemoteClient {
         }
 
         @Override
-        public void onError(List<RemoteMessage> remoteMessages, Throwable t) {
+        public void onError(List<RemoteStreamData> streamDataList, Throwable t) {
             log.error(t.getMessage(), t);
         }
 
@@ -188,6 +260,32 @@ public class GRPCRemoteClient implements RemoteClient {
      * @return stream observer
      */
     private StreamObserver<RemoteMessage> createStreamObserver() {
+        waitForStreamObserverQuota();
+
+        final StreamObserver<RemoteMessage> remoteMessageStreamObserver
+            = getStub().withDeadlineAfter(remoteTimeout, TimeUnit.SECONDS)
+                       .call(createResponseObserver());
+        concurrentStreamObserverNumber.incrementAndGet();
+        return remoteMessageStreamObserver;
+    }
+
+    /**
+     * Create a gRPC stream observer to sending the batches, sharing the concurrency limitation with {@link
+     * #createStreamObserver()}.
+     *
+     * @return stream observer
+     */
+    private StreamObserver<BatchRemoteMessage> createBatchStreamObserver() {
+        waitForStreamObserverQuota();
+
+        final StreamObserver<BatchRemoteMessage> batchRemoteMessageStreamObserver
+            = getStub().withDeadlineAfter(remoteTimeout, TimeUnit.SECONDS)
+                       .batchCall(createResponseObserver());
+        concurrentStreamObserverNumber.incrementAndGet();
+        return batchRemoteMessageStreamObserver;
+    }
+
+    private void waitForStreamObserverQuota() {
         int sleepTotalMillis = 0;
         int sleepMillis = 10;
 
@@ -210,27 +308,25 @@ public class GRPCRemoteClient implements RemoteClient {
                 sleepTotalMillis = 0;
             }
         }
+    }
 
-        final StreamObserver<RemoteMessage> remoteMessageStreamObserver
-            = getStub().withDeadlineAfter(remoteTimeout, TimeUnit.SECONDS)
-                       .call(new StreamObserver<Empty>() {
-                           @Override
-                           public void onNext(Empty empty) {
-                           }
-
-                           @Override
-                           public void onError(Throwable throwable) {
-                               concurrentStreamObserverNumber.addAndGet(-1);
-                               log.error(throwable.getMessage(), throwable);
-                           }
-
-                           @Override
-                           public void onCompleted() {
-                               concurrentStreamObserverNumber.addAndGet(-1);
-                           }
-                       });
-        concurrentStreamObserverNumber.incrementAndGet();
-        return remoteMessageStreamObserver;
+    private StreamObserver<Empty> createResponseObserver() {
+        return new StreamObserver<Empty>() {
+            @Override
+            public void onNext(Empty empty) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                concurrentStreamObserverNumber.addAndGet(-1);
+                log.error(throwable.getMessage(), throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                concurrentStreamObserverNumber.addAndGet(-1);
+            }
+        };
     }
 
     @Override
@@ -62,6 +62,11 @@ public class RemoteClientManager implements Service {
     private volatile List<RemoteClient> usingClients;
     private GaugeMetrics gauge;
     private int remoteTimeout;
+    /**
+     * Send the data to other OAP servers in batches, see {@link GRPCRemoteClient#MAX_BATCH_SIZE}.
+     */
+    @Setter
+    private boolean enableBatchTransport;
 
     /**
      * Initial the manager for all remote communication clients.
@@ -232,7 +237,8 @@ public class RemoteClientManager implements Service {
                         newRemoteClients.add(client);
                     } else {
                         RemoteClient client;
-                        client = new GRPCRemoteClient(moduleDefineHolder, address, 1, 3000, remoteTimeout, sslContext);
+                        client = new GRPCRemoteClient(
+                            moduleDefineHolder, address, 1, 3000, remoteTimeout, sslContext, enableBatchTransport);
                         client.connect();
                         newRemoteClients.add(client);
                     }
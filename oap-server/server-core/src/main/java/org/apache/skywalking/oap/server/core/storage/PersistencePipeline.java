@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.skywalking.oap.server.core.analysis.worker.PersistenceWorker;
+import org.apache.skywalking.oap.server.core.storage.model.Model;
+import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
+import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
+import org.apache.skywalking.oap.server.library.util.CollectionUtils;
+import org.apache.skywalking.oap.server.telemetry.api.CounterMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.HistogramMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * PersistencePipeline drives every persistence worker on its own cadence, rather than persisting all workers in one
+ * round. Each worker is due once per period since its last round started, and at most one round of the worker is in
+ * flight.
+ *
+ * A round runs in two stages. The prepare stage builds the batch requests in the prepare threads, then hands them over
+ * to the flush stage, which executes them in the flush threads. Both stages have bounded queues. A due worker rejected
+ * by the prepare queue is retried in the next {@link #schedule()}, and the prepare thread flushes the requests itself
+ * when the flush queue is full, which slows down the prepare stage.
+ *
+ * A round longer than the period is reported as a slow round of the model, and doesn't delay the others. A failure of
+ * either stage is counted by the error counter of the persistence timer.
+ */
+@Slf4j
+class PersistencePipeline {
+    private static final int PREPARE_QUEUE_SIZE = 1000;
+    private static final int FLUSH_QUEUE_SIZE = 100;
+
+    private final IBatchDAO batchDAO;
+    private final Supplier<List<PersistenceWorker<? extends StorageData>>> workersSupplier;
+    /**
+     * Unit is ms.
+     */
+    private final long period;
+    private final MetricsCreator metricsCreator;
+    private final HistogramMetrics prepareLatency;
+    private final HistogramMetrics executeLatency;
+    private final CounterMetrics errorCounter;
+    private final ThreadPoolExecutor prepareExecutor;
+    private final ThreadPoolExecutor flushExecutor;
+    private final Map<PersistenceWorker<? extends StorageData>, WorkerState> states = new ConcurrentHashMap<>();
+
+    PersistencePipeline(IBatchDAO batchDAO,
+                        Supplier<List<PersistenceWorker<? extends StorageData>>> workersSupplier,
+                        long period,
+                        int prepareThreads,
+                        int flushThreads,
+                        MetricsCreator metricsCreator,
+                        HistogramMetrics prepareLatency,
+                        HistogramMetrics executeLatency,
+                        CounterMetrics errorCounter) {
+        this.batchDAO = batchDAO;
+        this.workersSupplier = workersSupplier;
+        this.period = period;
+        this.metricsCreator = metricsCreator;
+        this.prepareLatency = prepareLatency;
+        this.executeLatency = executeLatency;
+        this.errorCounter = errorCounter;
+        this.prepareExecutor = new ThreadPoolExecutor(
+            prepareThreads, prepareThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(PREPARE_QUEUE_SIZE),
+            new CustomThreadFactory("PersistencePrepare")
+        );
+        this.flushExecutor = new ThreadPoolExecutor(
+            flushThreads, flushThreads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(FLUSH_QUEUE_SIZE),
+            new CustomThreadFactory("PersistenceFlush"), new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    /**
+     * Start the rounds of the due workers. It is expected to be called much more frequently than the period.
+     */
+    void schedule() {
+        final long now = System.currentTimeMillis();
+        for (PersistenceWorker<? extends StorageData> worker : workersSupplier.get()) {
+            final WorkerState state = states.computeIfAbsent(worker, w -> new WorkerState(w, now));
+            if (state.running) {
+                state.checkSlow(now);
+                continue;
+            }
+            if (now < state.nextRoundTime) {
+                continue;
+            }
+
+            state.start(now);
+            try {
+                prepareExecutor.execute(() -> prepare(state));
+            } catch (RejectedExecutionException e) {
+                log.warn("The prepare queue of persistence is full, {} is delayed to the next schedule.", state.name);
+                state.running = false;
+            }
+        }
+    }
+
+    private void prepare(WorkerState state) {
+        List<PrepareRequest> prepareRequests = null;
+        try (HistogramMetrics.Timer timer = prepareLatency.createTimer()) {
+            if (log.isDebugEnabled()) {
+                log.debug("extract {} worker data and save", state.name);
+            }
+            prepareRequests = state.worker.buildBatchRequests();
+            state.worker.endOfRound();
+        } catch (Throwable t) {
+            errorCounter.inc();
+            log.error(t.getMessage(), t);
+        }
+
+        if (CollectionUtils.isEmpty(prepareRequests)) {
+            state.finish();
+            return;
+        }
+        final List<PrepareRequest> requests = prepareRequests;
+        flushExecutor.execute(() -> flush(state, requests));
+    }
+
+    private void flush(WorkerState state, List<PrepareRequest> prepareRequests) {
+        try (HistogramMetrics.Timer timer = executeLatency.createTimer()) {
+            batchDAO.flush(prepareRequests);
+        } catch (Throwable t) {
+            errorCounter.inc();
+            log.error(t.getMessage(), t);
+        } finally {
+            state.finish();
+        }
+    }
+
+    private class WorkerState {
+        private final PersistenceWorker<? extends StorageData> worker;
+        private final String name;
+        private final CounterMetrics slowRoundCounter;
+        private volatile boolean running;
+        private volatile long roundStartTime;
+        private volatile boolean slowReported;
+        private volatile long nextRoundTime;
+
+        private WorkerState(PersistenceWorker<? extends StorageData> worker, long now) {
+            this.worker = worker;
+            final Model model = worker.getModel();
+            this.name = model == null ? worker.getClass().getSimpleName() : model.getName();
+            this.slowRoundCounter = metricsCreator.createCounter(
+                "persistence_timer_slow_round_count",
+                "The number of the persistence rounds longer than the persistent period",
+                new MetricsTag.Keys("metricName"),
+                new MetricsTag.Values(name)
+            );
+            // Spread the first rounds of workers over the period, to avoid all workers being due at the same time.
+            this.nextRoundTime = now + (period > 0 ? ThreadLocalRandom.current().nextLong(period) : 0);
+        }
+
+        private void start(long now) {
+            running = true;
+            roundStartTime = now;
+            slowReported = false;
+        }
+
+        private void checkSlow(long now) {
+            if (!slowReported && now - roundStartTime > period) {
+                slowReported = true;
+                slowRoundCounter.inc();
+                log.warn("The persistence round of {} has taken {} ms, longer than the period {} ms.",
+                         name, now - roundStartTime, period
+                );
+            }
+        }
+
+        private void finish() {
+            final long now = System.currentTimeMillis();
+            checkSlow(now);
+            nextRoundTime = Math.max(roundStartTime + period, now);
+            running = false;
+        }
+    }
+}
@@ -43,6 +43,10 @@ import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
 @Slf4j
 public enum PersistenceTimer {
     INSTANCE;
+    /**
+     * The period of checking the due workers in the {@link PersistencePipeline}. Unit is ms.
+     */
+    private static final long PIPELINE_SCHEDULE_PERIOD = 500;
     @VisibleForTesting
     boolean isStarted = false;
     private CounterMetrics errorCounter;
@@ -78,6 +82,25 @@ public enum PersistenceTimer {
             MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE
         );
 
+        if (moduleConfig.isEnablePipelinedPersistence()) {
+            PersistencePipeline pipeline = new PersistencePipeline(
+                batchDAO, PersistenceTimer::persistenceWorkers,
+                TimeUnit.SECONDS.toMillis(moduleConfig.getPersistentPeriod()), moduleConfig.getPrepareThreads(),
+                moduleConfig.getFlushThreads(), metricsCreator, prepareLatency, executeLatency, errorCounter
+            );
+            if (!isStarted) {
+                Executors.newSingleThreadScheduledExecutor()
+                         .scheduleWithFixedDelay(
+                             new RunnableWithExceptionProtection(pipeline::schedule, t -> log
+                                 .error("Schedule the persistence pipeline failure.", t)),
+                             5000, PIPELINE_SCHEDULE_PERIOD, TimeUnit.MILLISECONDS
+                         );
+
+                this.isStarted = true;
+            }
+            return;
+        }
+
         prepareExecutorService = Executors.newFixedThreadPool(moduleConfig.getPrepareThreads());
         if (!isStarted) {
             Executors.newSingleThreadScheduledExecutor()
@@ -91,6 +114,13 @@ public enum PersistenceTimer {
         }
     }
 
+    private static List<PersistenceWorker<? extends StorageData>> persistenceWorkers() {
+        List<PersistenceWorker<? extends StorageData>> persistenceWorkers = new ArrayList<>();
+        persistenceWorkers.addAll(TopNStreamProcessor.getInstance().getPersistentWorkers());
+        persistenceWorkers.addAll(MetricsStreamProcessor.getInstance().getPersistentWorkers());
+        return persistenceWorkers;
+    }
+
     private void extractDataAndSave(IBatchDAO batchDAO) {
         if (log.isDebugEnabled()) {
             log.debug("Extract data and save");
@@ -99,9 +129,7 @@ public enum PersistenceTimer {
         long startTime = System.currentTimeMillis();
 
         try (HistogramMetrics.Timer allTimer = allLatency.createTimer()) {
-            List<PersistenceWorker<? extends StorageData>> persistenceWorkers = new ArrayList<>();
-            persistenceWorkers.addAll(TopNStreamProcessor.getInstance().getPersistentWorkers());
-            persistenceWorkers.addAll(MetricsStreamProcessor.getInstance().getPersistentWorkers());
+            List<PersistenceWorker<? extends StorageData>> persistenceWorkers = persistenceWorkers();
 
             CountDownLatch countDownLatch = new CountDownLatch(persistenceWorkers.size());
             persistenceWorkers.forEach(worker -> {
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.skywalking.oap.server.core.analysis.metrics.MaxLongMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+public class CompactSessionCacheTest {
+
+    @Test
+    public void testPutAndRehydrate() {
+        CompactSessionCache.Budget budget = new CompactSessionCache.Budget(Long.MAX_VALUE);
+        CompactSessionCache cache = new CompactSessionCache(budget);
+
+        cache.put(metrics("service-a", 202107011200L, 10, 1000));
+        Assert.assertTrue(cache.containsKey(metrics("service-a", 202107011200L, 0, 0)));
+        Assert.assertFalse(cache.containsKey(metrics("service-b", 202107011200L, 0, 0)));
+        Assert.assertFalse(cache.containsKey(metrics("service-a", 202107011201L, 0, 0)));
+
+        MockMetrics cached = (MockMetrics) cache.get(metrics("service-a", 202107011200L, 0, 0));
+        Assert.assertEquals("service-a", cached.getEntityId());
+        Assert.assertEquals(202107011200L, cached.getTimeBucket());
+        Assert.assertEquals(10, cached.getValue());
+        Assert.assertEquals(1000, cached.getLastUpdateTimestamp());
+
+        // The change of the rehydrated metrics is only visible after put.
+        cached.combine(metrics("service-a", 202107011200L, 20, 0));
+        Assert.assertEquals(10, ((MockMetrics) cache.get(cached)).getValue());
+        cache.put(cached);
+        Assert.assertEquals(20, ((MockMetrics) cache.get(cached)).getValue());
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(budget.bytes(), cache.bytes());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, budget.bytes());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        long entryBytes = entryBytes();
+        CompactSessionCache.Budget budget = new CompactSessionCache.Budget(entryBytes * 3);
+        CompactSessionCache cache = new CompactSessionCache(budget);
+        cache.put(metrics("service-0", 202107011200L, 1, 0));
+        cache.put(metrics("service-1", 202107011200L, 1, 0));
+        cache.put(metrics("service-2", 202107011200L, 1, 0));
+        // Access service-0, then service-1 is the least recently used one.
+        cache.get(metrics("service-0", 202107011200L, 0, 0));
+        cache.put(metrics("service-3", 202107011200L, 1, 0));
+
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.evictions());
+        Assert.assertFalse(cache.containsKey(metrics("service-1", 202107011200L, 0, 0)));
+        Assert.assertTrue(cache.containsKey(metrics("service-0", 202107011200L, 0, 0)));
+        Assert.assertTrue(budget.bytes() <= entryBytes * 3);
+    }
+
+    @Test
+    public void testKeepPinnedUntilUnpin() {
+        long entryBytes = entryBytes();
+        CompactSessionCache.Budget budget = new CompactSessionCache.Budget(entryBytes * 2);
+        CompactSessionCache cache = new CompactSessionCache(budget);
+        cache.put(metrics("service-0", 202107011200L, 1, 0));
+        cache.put(metrics("service-1", 202107011200L, 1, 0));
+
+        // The round reads service-0 and loads 2 more metrics from the storage, none of them is evicted in the round.
+        cache.pin();
+        Assert.assertTrue(cache.containsKey(metrics("service-0", 202107011200L, 0, 0)));
+        cache.put(metrics("service-2", 202107011200L, 1, 0));
+        cache.put(metrics("service-3", 202107011200L, 1, 0));
+        Assert.assertFalse(cache.containsKey(metrics("service-1", 202107011200L, 0, 0)));
+        Assert.assertTrue(cache.containsKey(metrics("service-0", 202107011200L, 0, 0)));
+        Assert.assertTrue(cache.containsKey(metrics("service-2", 202107011200L, 0, 0)));
+        Assert.assertTrue(cache.containsKey(metrics("service-3", 202107011200L, 0, 0)));
+
+        cache.unpin();
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(budget.bytes() <= entryBytes * 2);
+    }
+
+    @Test
+    public void testKeepFairShare() {
+        long entryBytes = entryBytes();
+        CompactSessionCache.Budget budget = new CompactSessionCache.Budget(entryBytes * 4);
+        CompactSessionCache small = new CompactSessionCache(budget);
+        CompactSessionCache large = new CompactSessionCache(budget);
+        for (int i = 0; i < 4; i++) {
+            large.put(metrics("service-" + i, 202107011201L, 1, 0));
+        }
+        // The cache in its fair share is not evicted, though the budget is exceeded by the other.
+        small.put(metrics("service-0", 202107011200L, 1, 0));
+        small.put(metrics("service-1", 202107011200L, 1, 0));
+        Assert.assertEquals(2, small.size());
+        Assert.assertEquals(0, small.evictions());
+
+        large.put(metrics("service-4", 202107011201L, 1, 0));
+        Assert.assertEquals(2, large.size());
+        Assert.assertTrue(budget.bytes() <= entryBytes * 4);
+    }
+
+    @Test
+    public void testRemoveAndCompact() {
+        CompactSessionCache.Budget budget = new CompactSessionCache.Budget(Long.MAX_VALUE);
+        CompactSessionCache cache = new CompactSessionCache(budget);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(metrics("service-" + i, 202107011200L, i, i % 2 == 0 ? 0 : 1000));
+        }
+        // Replace every metrics several times, the replaced data is compacted when the data array is full.
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                cache.put(metrics("service-" + i, 202107011200L, i + round, i % 2 == 0 ? 0 : 1000));
+            }
+        }
+        Assert.assertEquals(1000, cache.size());
+
+        // Remove the even ones, the odd ones are still found through the index.
+        cache.removeExpired(1000, 500);
+        Assert.assertEquals(500, cache.size());
+        for (int i = 0; i < 1000; i++) {
+            MockMetrics cached = (MockMetrics) cache.get(metrics("service-" + i, 202107011200L, 0, 0));
+            if (i % 2 == 0) {
+                Assert.assertNull(cached);
+            } else {
+                Assert.assertEquals(i + 3, cached.getValue());
+            }
+        }
+        Assert.assertEquals(budget.bytes(), cache.bytes());
+    }
+
+    @Test
+    public void testRemoveBrokenEntry() {
+        CompactSessionCache cache = new CompactSessionCache(new CompactSessionCache.Budget(Long.MAX_VALUE));
+        cache.put(metrics("service-a", 202107011200L, 1, 0));
+        // Corrupt the serialized data, a varint never ends.
+        Arrays.fill((byte[]) Whitebox.getInternalState(cache, "data"), (byte) 0xFF);
+
+        Assert.assertNull(cache.get(metrics("service-a", 202107011200L, 0, 0)));
+        // The broken entry is a cache miss now.
+        Assert.assertFalse(cache.containsKey(metrics("service-a", 202107011200L, 0, 0)));
+        Assert.assertEquals(0, cache.bytes());
+    }
+
+    private static long entryBytes() {
+        CompactSessionCache probe = new CompactSessionCache(new CompactSessionCache.Budget(Long.MAX_VALUE));
+        probe.put(metrics("service-0", 202107011200L, 1, 0));
+        return probe.bytes();
+    }
+
+    private static MockMetrics metrics(String entityId, long timeBucket, long value, long lastUpdateTimestamp) {
+        MockMetrics metrics = new MockMetrics();
+        metrics.setEntityId(entityId);
+        metrics.setTimeBucket(timeBucket);
+        metrics.combine(value);
+        metrics.setLastUpdateTimestamp(lastUpdateTimestamp);
+        return metrics;
+    }
+
+    public static class MockMetrics extends MaxLongMetrics {
+        @Getter
+        @Setter
+        private String entityId;
+
+        @Override
+        protected String id0() {
+            return getTimeBucket() + "_" + entityId;
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return entityId.hashCode();
+        }
+
+        @Override
+        public void deserialize(RemoteDataOrBuilder remoteData) {
+            setEntityId(remoteData.getDataStrings(0));
+            setTimeBucket(remoteData.getDataLongs(0));
+            setValue(remoteData.getDataLongs(1));
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return RemoteData.newBuilder()
+                             .addDataStrings(entityId)
+                             .addDataLongs(getTimeBucket())
+                             .addDataLongs(getValue());
+        }
+    }
+}
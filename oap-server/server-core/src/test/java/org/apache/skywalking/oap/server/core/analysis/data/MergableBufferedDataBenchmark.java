@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the {@link MergableBufferedData}, keyed by the metrics, with the ID string keyed buffer used before. The
+ * L1 aggregation accepts into the buffer directly, the L2 aggregation through the {@link ReadWriteSafeCache}. Every
+ * operation accepts one new metrics, as the metrics arrive from the dispatchers and the remote, so the `gc.alloc.rate.norm`
+ * reported by the {@link GCProfiler} is the allocation per accepted metrics.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class MergableBufferedDataBenchmark {
+    private static final int BATCH = 1000;
+
+    /**
+     * The number of distinct entities in one batch.
+     */
+    @Param({
+        "10",
+        "1000"
+    })
+    private int entities;
+
+    private String[] entityIds;
+    private MergableBufferedData<Metrics> l1;
+    private IdKeyedBufferedData<Metrics> l1IdKeyed;
+    private ReadWriteSafeCache<Metrics> l2;
+    private ReadWriteSafeCache<Metrics> l2IdKeyed;
+
+    @Setup
+    public void setUp() {
+        entityIds = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            entityIds[i] = "ZTJlLXNlcnZpY2UtcHJvdmlkZXI=.1_" + i % entities;
+        }
+        l1 = new MergableBufferedData<>();
+        l1IdKeyed = new IdKeyedBufferedData<>();
+        l2 = new ReadWriteSafeCache<>(new MergableBufferedData<>(), new MergableBufferedData<>());
+        l2IdKeyed = new ReadWriteSafeCache<>(new IdKeyedBufferedData<>(), new IdKeyedBufferedData<>());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int l1() {
+        for (String entityId : entityIds) {
+            l1.accept(new EntityCountMetrics(entityId, 202106011200L, 1));
+        }
+        return l1.read().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int l1IdKeyed() {
+        for (String entityId : entityIds) {
+            l1IdKeyed.accept(new EntityCountMetrics(entityId, 202106011200L, 1));
+        }
+        return l1IdKeyed.read().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int l2() {
+        for (String entityId : entityIds) {
+            l2.write(new EntityCountMetrics(entityId, 202106011200L, 1));
+        }
+        return l2.read().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int l2IdKeyed() {
+        for (String entityId : entityIds) {
+            l2IdKeyed.write(new EntityCountMetrics(entityId, 202106011200L, 1));
+        }
+        return l2IdKeyed.read().size();
+    }
+
+    /**
+     * The previous implementation of {@link MergableBufferedData}, keyed by {@link Metrics#id()}.
+     */
+    private static class IdKeyedBufferedData<METRICS extends Metrics> implements BufferedData<METRICS> {
+        private final Map<String, METRICS> buffer = new HashMap<>();
+
+        @Override
+        public void accept(final METRICS data) {
+            final String id = data.id();
+            final METRICS existed = buffer.get(id);
+            if (existed == null) {
+                buffer.put(id, data);
+            } else if (!existed.combine(data)) {
+                buffer.remove(id);
+            }
+        }
+
+        @Override
+        public List<METRICS> read() {
+            try {
+                return buffer.values().stream().collect(Collectors.toList());
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(MergableBufferedDataBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
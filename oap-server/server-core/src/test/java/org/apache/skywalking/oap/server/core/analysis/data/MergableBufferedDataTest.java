@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.data;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MergableBufferedDataTest {
+    @Test
+    public void testMerge() {
+        MergableBufferedData<EntityCountMetrics> buffer = new MergableBufferedData<>();
+        buffer.accept(new EntityCountMetrics("service-a", 202106011200L, 1));
+        buffer.accept(new EntityCountMetrics("service-a", 202106011200L, 2));
+        buffer.accept(new EntityCountMetrics("service-a", 202106011201L, 3));
+        buffer.accept(new EntityCountMetrics("service-b", 202106011200L, 4));
+
+        List<EntityCountMetrics> metricsList = buffer.read();
+        Assert.assertEquals(3, metricsList.size());
+        for (EntityCountMetrics metrics : metricsList) {
+            if (metrics.getEntityId().equals("service-a") && metrics.getTimeBucket() == 202106011200L) {
+                Assert.assertEquals(3, metrics.getValue());
+            }
+            // Merged without building the ID.
+            Assert.assertEquals(0, metrics.getIdBuilt());
+        }
+    }
+
+    @Test
+    public void testReadAndReuse() {
+        MergableBufferedData<EntityCountMetrics> buffer = new MergableBufferedData<>();
+        buffer.accept(new EntityCountMetrics("service-a", 202106011200L, 1));
+        Assert.assertEquals(1, buffer.read().size());
+        Assert.assertTrue(buffer.read().isEmpty());
+
+        buffer.accept(new EntityCountMetrics("service-a", 202106011200L, 2));
+        List<EntityCountMetrics> metricsList = buffer.read();
+        Assert.assertEquals(1, metricsList.size());
+        Assert.assertEquals(2, metricsList.get(0).getValue());
+    }
+
+    @Test
+    public void testMergeDuplicateIds() {
+        MergableBufferedData<EntityCountMetrics> buffer = new MergableBufferedData<>();
+        EntityCountMetrics first = new EntityCountMetrics("service-a", 202106011200L, 1);
+        buffer.accept(first);
+        for (int i = 0; i < 99; i++) {
+            // Different instances of the same ID.
+            buffer.accept(new EntityCountMetrics("service-a", 202106011200L, 1));
+        }
+
+        List<EntityCountMetrics> metricsList = buffer.read();
+        Assert.assertEquals(1, metricsList.size());
+        // The first accepted one is kept, the others are combined into it.
+        Assert.assertSame(first, metricsList.get(0));
+        Assert.assertEquals(100, first.getValue());
+    }
+
+    @Test
+    public void testKeepCollidedHashCodesApart() {
+        // "Aa" and "BB" have the same hash code, so do the metrics, but they are not equal.
+        EntityCountMetrics aa = new EntityCountMetrics("Aa", 202106011200L, 1);
+        EntityCountMetrics bb = new EntityCountMetrics("BB", 202106011200L, 2);
+        Assert.assertEquals(aa.hashCode(), bb.hashCode());
+
+        MergableBufferedData<EntityCountMetrics> buffer = new MergableBufferedData<>();
+        buffer.accept(aa);
+        buffer.accept(bb);
+        buffer.accept(new EntityCountMetrics("Aa", 202106011200L, 3));
+        buffer.accept(new EntityCountMetrics("BB", 202106011201L, 4));
+
+        List<EntityCountMetrics> metricsList = buffer.read();
+        Assert.assertEquals(3, metricsList.size());
+        Assert.assertEquals(4, aa.getValue());
+        Assert.assertEquals(2, bb.getValue());
+    }
+}
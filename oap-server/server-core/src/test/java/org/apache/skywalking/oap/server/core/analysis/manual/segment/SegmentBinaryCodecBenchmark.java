@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.manual.segment;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.language.agent.v3.Log;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentReference;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the persisted segment, Base64 of the serialized segment as before and Base64 of the compressed segment, in
+ * the encode (dispatch) and decode (trace query) paths. The corpus is made of segments of the shapes reported by the
+ * agent plugins, 1 to 20 spans of HTTP entries, SQL, Redis and RPC exits, with tags, cross process references and
+ * some error logs.
+ *
+ * The bytes per persisted segment is `storedBytes / segments` of the {@link Size} counters.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SegmentBinaryCodecBenchmark {
+    private static final int CORPUS_SIZE = 1024;
+
+    private byte[][] segments;
+    private String[] rawStored;
+    private String[] compressedStored;
+    private int index;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Size {
+        public long segments;
+        public long storedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            segments = 0;
+            storedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(1024);
+        segments = new byte[CORPUS_SIZE][];
+        rawStored = new String[CORPUS_SIZE];
+        compressedStored = new String[CORPUS_SIZE];
+        SegmentBinaryCodec.setCompression(true);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            segments[i] = newSegment(random).toByteArray();
+            rawStored[i] = Base64.getEncoder().encodeToString(segments[i]);
+            compressedStored[i] = Base64.getEncoder().encodeToString(SegmentBinaryCodec.encode(segments[i]));
+        }
+    }
+
+    private byte[] next() {
+        index = (index + 1) % CORPUS_SIZE;
+        return segments[index];
+    }
+
+    @Benchmark
+    public String encodeRaw(Size size) {
+        final String stored = Base64.getEncoder().encodeToString(next());
+        size.segments++;
+        size.storedBytes += stored.length();
+        return stored;
+    }
+
+    @Benchmark
+    public String encodeCompressed(Size size) {
+        final String stored = Base64.getEncoder().encodeToString(SegmentBinaryCodec.encode(next()));
+        size.segments++;
+        size.storedBytes += stored.length();
+        return stored;
+    }
+
+    @Benchmark
+    public SegmentObject decodeRaw() throws IOException {
+        index = (index + 1) % CORPUS_SIZE;
+        return SegmentObject.parseFrom(SegmentBinaryCodec.decode(Base64.getDecoder().decode(rawStored[index])));
+    }
+
+    @Benchmark
+    public SegmentObject decodeCompressed() throws IOException {
+        index = (index + 1) % CORPUS_SIZE;
+        return SegmentObject.parseFrom(SegmentBinaryCodec.decode(Base64.getDecoder().decode(compressedStored[index])));
+    }
+
+    private static SegmentObject newSegment(Random random) {
+        final String service = "service-" + random.nextInt(20);
+        final String traceId = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong())
+            + "." + random.nextInt(200) + "." + (1622621111000L + random.nextInt(1000000));
+        final long start = 1622621111000L + random.nextInt(1000000);
+        final SegmentObject.Builder segment = SegmentObject.newBuilder()
+                                                           .setTraceId(traceId)
+                                                           .setTraceSegmentId(traceId + "0001")
+                                                           .setService(service)
+                                                           .setServiceInstance(
+                                                               Long.toHexString(random.nextLong()) + "@10.0.0."
+                                                                   + random.nextInt(255));
+        final String path = "/api/v1/" + "resource" + random.nextInt(50) + "/{id}";
+        final SpanObject.Builder entry = SpanObject.newBuilder()
+                                                   .setSpanId(0)
+                                                   .setParentSpanId(-1)
+                                                   .setStartTime(start)
+                                                   .setEndTime(start + random.nextInt(500))
+                                                   .setOperationName(path)
+                                                   .setSpanType(SpanType.Entry)
+                                                   .setComponentId(1)
+                                                   .addTags(tag("url", "http://" + service + ":8080" + path))
+                                                   .addTags(tag("http.method", random.nextBoolean() ? "GET" : "POST"));
+        if (random.nextBoolean()) {
+            entry.addRefs(SegmentReference.newBuilder()
+                                          .setTraceId(traceId)
+                                          .setParentTraceSegmentId(traceId + "0000")
+                                          .setParentSpanId(1)
+                                          .setParentService("service-" + random.nextInt(20))
+                                          .setParentServiceInstance(Long.toHexString(random.nextLong()) + "@10.0.0.1")
+                                          .setParentEndpoint("/api/v1/gateway")
+                                          .setNetworkAddressUsedAtPeer(service + ":8080"));
+        }
+        if (random.nextInt(10) == 0) {
+            entry.setIsError(true)
+                 .addLogs(Log.newBuilder()
+                             .setTime(start + 1)
+                             .addData(tag("event", "error"))
+                             .addData(tag("error.kind", "java.lang.IllegalStateException"))
+                             .addData(tag("message", "order " + random.nextInt(100000) + " not found"))
+                             .addData(tag(
+                                 "stack",
+                                 "java.lang.IllegalStateException: order not found\n"
+                                     + "\tat org.example.order.OrderService.find(OrderService.java:42)\n"
+                                     + "\tat org.springframework.web.servlet.FrameworkServlet.service\n"
+                                     + "\tat org.apache.catalina.core.ApplicationFilterChain.doFilter\n"
+                                     + "\tat java.lang.Thread.run(Thread.java:748)\n"
+                             )));
+        }
+        segment.addSpans(entry);
+
+        final int exits = random.nextInt(20);
+        for (int i = 1; i <= exits; i++) {
+            final SpanObject.Builder exit = SpanObject.newBuilder()
+                                                      .setSpanId(i)
+                                                      .setParentSpanId(0)
+                                                      .setStartTime(start + i)
+                                                      .setEndTime(start + i + random.nextInt(50))
+                                                      .setSpanType(SpanType.Exit);
+            switch (random.nextInt(3)) {
+                case 0:
+                    exit.setOperationName("Mysql/JDBI/PreparedStatement/execute")
+                        .setPeer("mysql:3306")
+                        .setComponentId(33)
+                        .addTags(tag("db.type", "sql"))
+                        .addTags(tag("db.instance", "orders"))
+                        .addTags(tag(
+                            "db.statement",
+                            "SELECT id, name, status FROM orders WHERE user_id = ? AND status = ? LIMIT "
+                                + random.nextInt(100)
+                        ));
+                    break;
+                case 1:
+                    exit.setOperationName("Jedis/get")
+                        .setPeer("redis:6379")
+                        .setComponentId(30)
+                        .addTags(tag("db.type", "Redis"))
+                        .addTags(tag("db.statement", "get user:" + random.nextInt(100000)));
+                    break;
+                default:
+                    exit.setOperationName("/api/v1/downstream" + random.nextInt(10))
+                        .setPeer("service-" + random.nextInt(20) + ":8080")
+                        .setComponentId(2)
+                        .addTags(tag("url", "http://service-" + random.nextInt(20) + ":8080/api/v1/downstream"))
+                        .addTags(tag("http.method", "GET"));
+            }
+            segment.addSpans(exit);
+        }
+        return segment.build();
+    }
+
+    private static KeyStringValuePair tag(String key, String value) {
+        return KeyStringValuePair.newBuilder().setKey(key).setValue(value).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(SegmentBinaryCodecBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
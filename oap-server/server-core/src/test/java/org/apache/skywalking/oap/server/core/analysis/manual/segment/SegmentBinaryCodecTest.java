@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.manual.segment;
+
+import java.io.IOException;
+import java.util.Random;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SegmentBinaryCodecTest {
+
+    @After
+    public void tearDown() {
+        SegmentBinaryCodec.setCompression(false);
+    }
+
+    @Test
+    public void testCompressionDisabled() throws IOException {
+        final byte[] segment = newSegment().toByteArray();
+
+        final byte[] encoded = SegmentBinaryCodec.encode(segment);
+
+        Assert.assertSame(segment, encoded);
+        Assert.assertSame(segment, SegmentBinaryCodec.decode(encoded));
+    }
+
+    @Test
+    public void testCompressAndDecode() throws IOException {
+        SegmentBinaryCodec.setCompression(true);
+        final SegmentObject segmentObject = newSegment();
+        final byte[] segment = segmentObject.toByteArray();
+
+        final byte[] encoded = SegmentBinaryCodec.encode(segment);
+
+        Assert.assertEquals(SegmentBinaryCodec.MAGIC, encoded[0]);
+        Assert.assertEquals(SegmentBinaryCodec.DEFLATE_V1, encoded[1]);
+        Assert.assertTrue(encoded.length < segment.length);
+        Assert.assertEquals(segmentObject, SegmentObject.parseFrom(SegmentBinaryCodec.decode(encoded)));
+    }
+
+    @Test
+    public void testDecodeUncompressed() throws IOException {
+        // The segments persisted before the compression is enabled.
+        SegmentBinaryCodec.setCompression(true);
+        final SegmentObject segmentObject = newSegment();
+
+        Assert.assertEquals(
+            segmentObject, SegmentObject.parseFrom(SegmentBinaryCodec.decode(segmentObject.toByteArray())));
+        Assert.assertEquals(0, SegmentBinaryCodec.decode(new byte[0]).length);
+    }
+
+    @Test
+    public void testIncompressible() throws IOException {
+        SegmentBinaryCodec.setCompression(true);
+        final byte[] random = new byte[64];
+        new Random(0).nextBytes(random);
+        random[0] = 0x0A;
+
+        final byte[] encoded = SegmentBinaryCodec.encode(random);
+
+        Assert.assertSame(random, encoded);
+        Assert.assertSame(random, SegmentBinaryCodec.decode(encoded));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersion() throws IOException {
+        SegmentBinaryCodec.decode(new byte[] {SegmentBinaryCodec.MAGIC, 100, 0, 0, 0, 1, 0});
+    }
+
+    static SegmentObject newSegment() {
+        final String traceId = "a8d6d1e2c5c44b3a9f0e5b1d2c3f4a5b.58.1622621111001";
+        final SegmentObject.Builder segment = SegmentObject.newBuilder()
+                                                           .setTraceId(traceId + "0001")
+                                                           .setTraceSegmentId(traceId + "0000")
+                                                           .setService("e2e-service-provider")
+                                                           .setServiceInstance("e2e-service-provider-instance");
+        segment.addSpans(SpanObject.newBuilder()
+                                   .setSpanId(0)
+                                   .setParentSpanId(-1)
+                                   .setStartTime(1622621111001L)
+                                   .setEndTime(1622621111051L)
+                                   .setOperationName("/api/v1/users/{id}")
+                                   .setSpanType(SpanType.Entry)
+                                   .setComponentId(1)
+                                   .addTags(KeyStringValuePair.newBuilder()
+                                                              .setKey("url")
+                                                              .setValue("http://localhost:8080/api/v1/users/1"))
+                                   .addTags(KeyStringValuePair.newBuilder().setKey("http.method").setValue("GET")));
+        segment.addSpans(SpanObject.newBuilder()
+                                   .setSpanId(1)
+                                   .setParentSpanId(0)
+                                   .setStartTime(1622621111011L)
+                                   .setEndTime(1622621111041L)
+                                   .setOperationName("Mysql/JDBI/PreparedStatement/execute")
+                                   .setPeer("localhost:3306")
+                                   .setSpanType(SpanType.Exit)
+                                   .setComponentId(33)
+                                   .addTags(KeyStringValuePair.newBuilder().setKey("db.type").setValue("sql"))
+                                   .addTags(KeyStringValuePair.newBuilder().setKey("db.instance").setValue("test"))
+                                   .addTags(KeyStringValuePair.newBuilder()
+                                                              .setKey("db.statement")
+                                                              .setValue("SELECT id, name FROM user WHERE id = ?")));
+        return segment.build();
+    }
+}
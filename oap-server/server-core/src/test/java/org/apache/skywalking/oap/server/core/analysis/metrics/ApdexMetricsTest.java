@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.core.analysis.metrics;
 
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -124,7 +125,7 @@ public class ApdexMetricsTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.core.analysis.metrics;
 
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -71,7 +72,7 @@ public class CountMetricsTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
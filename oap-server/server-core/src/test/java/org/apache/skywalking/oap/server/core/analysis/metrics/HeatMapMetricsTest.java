@@ -19,6 +19,7 @@
 package org.apache.skywalking.oap.server.core.analysis.metrics;
 
 import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -44,13 +45,13 @@ public class HeatMapMetricsTest {
         metricsMocker.combine(100, step, maxNumOfSteps);
         metricsMocker.combine(100, step, maxNumOfSteps);
 
-        final DataTable dataset = metricsMocker.getDataset();
+        final IntKeyLongValueHashMap dataset = metricsMocker.getDataset();
         Assert.assertEquals(11, dataset.size());
 
-        Assert.assertEquals(1, dataset.get("20").intValue());
-        Assert.assertEquals(3, dataset.get("50").intValue());
-        Assert.assertEquals(1, dataset.get("60").intValue());
-        Assert.assertEquals(8, dataset.get("100").intValue());
+        Assert.assertEquals(1, dataset.get(20));
+        Assert.assertEquals(3, dataset.get(50));
+        Assert.assertEquals(1, dataset.get(60));
+        Assert.assertEquals(8, dataset.get(100));
     }
 
     @Test
@@ -76,13 +77,13 @@ public class HeatMapMetricsTest {
 
         metricsMocker.combine(metricsMocker1);
 
-        final DataTable dataset = metricsMocker.getDataset();
+        final IntKeyLongValueHashMap dataset = metricsMocker.getDataset();
         Assert.assertEquals(11, dataset.size());
 
-        Assert.assertEquals(1, dataset.get("20").intValue());
-        Assert.assertEquals(3, dataset.get("50").intValue());
-        Assert.assertEquals(1, dataset.get("60").intValue());
-        Assert.assertEquals(8, dataset.get("100").intValue());
+        Assert.assertEquals(1, dataset.get(20));
+        Assert.assertEquals(3, dataset.get(50));
+        Assert.assertEquals(1, dataset.get(60));
+        Assert.assertEquals(8, dataset.get(100));
     }
 
     public class HistogramMetricsMocker extends HistogramMetrics {
@@ -103,7 +104,7 @@ public class HeatMapMetricsTest {
         }
 
         @Override
-        public void deserialize(RemoteData remoteData) {
+        public void deserialize(RemoteDataOrBuilder remoteData) {
 
         }
 
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the {@link DataTable}, used by the percentile and histogram metrics before, with the {@link
+ * IntKeyLongValueHashMap}, in the combine, merge and serialize paths of the {@link PercentileMetrics}.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class IntKeyLongValueHashMapBenchmark {
+    private static final int PRECISION = 10;
+    private static final int SAMPLES = 1000;
+
+    private int[] latencies;
+    private DataTable dataTable;
+    private IntKeyLongValueHashMap hashMap;
+
+    @Setup
+    public void setUp() {
+        latencies = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            latencies[i] = ThreadLocalRandom.current().nextInt(3000);
+        }
+        dataTable = new DataTable(30);
+        hashMap = new IntKeyLongValueHashMap(30);
+        for (int latency : latencies) {
+            dataTable.valueAccumulation(String.valueOf(latency / PRECISION), 1L);
+            hashMap.valueAccumulation(latency / PRECISION, 1L);
+        }
+    }
+
+    @Benchmark
+    public DataTable combineDataTable() {
+        DataTable dataset = new DataTable(30);
+        for (int latency : latencies) {
+            dataset.valueAccumulation(String.valueOf(latency / PRECISION), 1L);
+        }
+        return dataset;
+    }
+
+    @Benchmark
+    public IntKeyLongValueHashMap combineIntKeyLongValueHashMap() {
+        IntKeyLongValueHashMap dataset = new IntKeyLongValueHashMap(30);
+        for (int latency : latencies) {
+            dataset.valueAccumulation(latency / PRECISION, 1L);
+        }
+        return dataset;
+    }
+
+    @Benchmark
+    public DataTable mergeDataTable() {
+        return new DataTable(30).append(dataTable);
+    }
+
+    @Benchmark
+    public IntKeyLongValueHashMap mergeIntKeyLongValueHashMap() {
+        return new IntKeyLongValueHashMap(30).append(hashMap);
+    }
+
+    @Benchmark
+    public String serializeDataTable() {
+        return dataTable.toStorageData();
+    }
+
+    @Benchmark
+    public String serializeIntKeyLongValueHashMap() {
+        return hashMap.toStorageData();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(IntKeyLongValueHashMapBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.metrics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntKeyLongValueHashMapTestCase {
+
+    private IntKeyLongValueHashMap map;
+
+    @Before
+    public void init() {
+        map = new IntKeyLongValueHashMap();
+        map.valueAccumulation(5, 500L);
+        map.valueAccumulation(6, 600L);
+        map.valueAccumulation(1, 100L);
+        map.valueAccumulation(2, 200L);
+        map.valueAccumulation(7, 700L);
+    }
+
+    @Test
+    public void toStorageData() {
+        // The storage format is compatible with DataTable.
+        Assert.assertEquals(
+            new DataTable("1,100|2,200|5,500|6,600|7,700"), new DataTable(map.toStorageData()));
+    }
+
+    @Test
+    public void toObject() {
+        IntKeyLongValueHashMap map = new IntKeyLongValueHashMap();
+        map.toObject("1,100|2,200|5,500|6,600|7,700");
+
+        Assert.assertEquals(5, map.size());
+        Assert.assertEquals(100, map.get(1));
+        Assert.assertEquals(200, map.get(2));
+        Assert.assertEquals(500, map.get(5));
+        Assert.assertEquals(600, map.get(6));
+        Assert.assertEquals(700, map.get(7));
+        Assert.assertFalse(map.hasKey(3));
+        Assert.assertEquals(this.map, map);
+    }
+
+    @Test
+    public void copyFrom() {
+        IntKeyLongValueHashMap map = new IntKeyLongValueHashMap();
+        map.valueAccumulation(1, 1L);
+        map.copyFrom(this.map);
+
+        Assert.assertEquals(101, map.get(1));
+        Assert.assertEquals(2101, map.sumOfValues());
+    }
+
+    @Test
+    public void resize() {
+        IntKeyLongValueHashMap map = new IntKeyLongValueHashMap(2);
+        for (int i = -1000; i <= 1000; i++) {
+            map.valueAccumulation(i * 10, i);
+            map.valueAccumulation(i * 10, 1L);
+        }
+
+        Assert.assertEquals(2001, map.size());
+        Assert.assertEquals(2001, map.sumOfValues());
+        Assert.assertEquals(-999, map.get(-10000));
+        Assert.assertEquals(1001, map.get(10000));
+        int[] keys = map.sortedKeys();
+        Assert.assertEquals(-10000, keys[0]);
+        Assert.assertEquals(10000, keys[keys.length - 1]);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+    @Test
+    public void testShrinkAndGrow() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(2000, 1000);
+        Assert.assertEquals(2000, batchSize.get());
+
+        batchSize.feedback(2000, 1500);
+        Assert.assertEquals(1000, batchSize.get());
+
+        for (int i = 0; i < 10; i++) {
+            batchSize.feedback(batchSize.get(), 3000);
+        }
+        Assert.assertEquals(AdaptiveBatchSize.MIN_SIZE, batchSize.get());
+
+        // A partial batch doesn't prove the size could grow.
+        batchSize.feedback(10, 1);
+        Assert.assertEquals(AdaptiveBatchSize.MIN_SIZE, batchSize.get());
+
+        batchSize.feedback(AdaptiveBatchSize.MIN_SIZE, 100);
+        Assert.assertEquals(125, batchSize.get());
+
+        for (int i = 0; i < 100; i++) {
+            batchSize.feedback(batchSize.get(), 100);
+        }
+        Assert.assertEquals(2000, batchSize.get());
+    }
+
+    @Test
+    public void testFixedSize() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(500, 0);
+        batchSize.feedback(500, 100_000);
+        Assert.assertEquals(500, batchSize.get());
+    }
+}
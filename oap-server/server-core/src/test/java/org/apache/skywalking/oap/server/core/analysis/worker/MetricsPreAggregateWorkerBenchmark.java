@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.skywalking.oap.server.core.analysis.data.MergableBufferedData;
+import org.apache.skywalking.oap.server.core.analysis.metrics.CountMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the metrics generated by the dispatchers entering the L1 aggregation directly, with them pre-aggregated in
+ * the {@link MetricsPreAggregateWorker} first. The L1 aggregation is simulated by a {@link MergableBufferedData}, as
+ * the {@link MetricsAggregateWorker} does in its consumer.
+ *
+ * The corpus is a set of segments, every segment generates one metrics per OAL rule, and the entities follow a skewed
+ * distribution like the real traffic, a few hot services with many endpoints.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Thread)
+public class MetricsPreAggregateWorkerBenchmark {
+    private static final int SEGMENTS = 1000;
+    private static final int RULES = 80;
+
+    /**
+     * The number of distinct entities in the corpus.
+     */
+    @Param({
+        "10",
+        "1000"
+    })
+    private int entities;
+
+    private String[] corpus;
+    private MergableBufferedData<Metrics> l1;
+    private AbstractWorker<Metrics> l1Worker;
+    private MetricsPreAggregateWorker preAggregateWorker;
+
+    @Setup
+    public void setUp() {
+        corpus = new String[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            // Half of the segments belong to 10% of the entities.
+            int entity = ThreadLocalRandom.current().nextBoolean()
+                ? ThreadLocalRandom.current().nextInt(Math.max(1, entities / 10))
+                : ThreadLocalRandom.current().nextInt(entities);
+            corpus[i] = "ZTJlLXNlcnZpY2UtcHJvdmlkZXI=.1_" + entity;
+        }
+        l1 = new MergableBufferedData<>();
+        l1Worker = new AbstractWorker<Metrics>(null) {
+            @Override
+            public void in(Metrics metrics) {
+                l1.accept(metrics);
+            }
+        };
+        preAggregateWorker = new MetricsPreAggregateWorker(null, l1Worker, 1000, 100);
+    }
+
+    @Benchmark
+    public int direct() {
+        dispatch(l1Worker);
+        return l1.read().size();
+    }
+
+    @Benchmark
+    public int preAggregation() {
+        dispatch(preAggregateWorker);
+        preAggregateWorker.flushExpired(Long.MAX_VALUE);
+        return l1.read().size();
+    }
+
+    private void dispatch(AbstractWorker<Metrics> worker) {
+        for (String entityId : corpus) {
+            for (int rule = 0; rule < RULES; rule++) {
+                // The metrics of different rules are told apart by the time bucket here, rather than the class.
+                final EntityCountMetrics metrics = new EntityCountMetrics(entityId);
+                metrics.setTimeBucket(202106011200L + rule);
+                metrics.combine(1);
+                worker.in(metrics);
+            }
+        }
+    }
+
+    private static class EntityCountMetrics extends CountMetrics {
+        private final String entityId;
+
+        private EntityCountMetrics(String entityId) {
+            this.entityId = entityId;
+        }
+
+        @Override
+        protected String id0() {
+            return getTimeBucket() + "_" + entityId;
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public void deserialize(RemoteDataOrBuilder remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return entityId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            EntityCountMetrics that = (EntityCountMetrics) o;
+            return getTimeBucket() == that.getTimeBucket() && Objects.equals(entityId, that.entityId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityId, getTimeBucket());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(MetricsPreAggregateWorkerBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.analysis.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.skywalking.oap.server.core.analysis.metrics.CountMetrics;
+import org.apache.skywalking.oap.server.core.analysis.metrics.Metrics;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+import org.apache.skywalking.oap.server.core.worker.AbstractWorker;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsPreAggregateWorkerTest {
+    private final List<Metrics> received = new ArrayList<>();
+    private final AbstractWorker<Metrics> nextWorker = new AbstractWorker<Metrics>(null) {
+        @Override
+        public void in(Metrics metrics) {
+            received.add(metrics);
+        }
+    };
+
+    @Test
+    public void testCombineInTable() {
+        MetricsPreAggregateWorker worker = new MetricsPreAggregateWorker(null, nextWorker, 100, 60_000);
+        worker.in(newMetrics("service-a", 202106011200L, 1));
+        worker.in(newMetrics("service-a", 202106011200L, 2));
+        worker.in(newMetrics("service-a", 202106011201L, 3));
+        worker.in(newMetrics("service-b", 202106011200L, 4));
+        Assert.assertTrue(received.isEmpty());
+
+        // Not expired yet.
+        worker.flushExpired(System.currentTimeMillis());
+        Assert.assertTrue(received.isEmpty());
+
+        worker.flushExpired(System.currentTimeMillis() + 60_000);
+        Assert.assertEquals(3, received.size());
+        long total = 0;
+        for (Metrics metrics : received) {
+            TestCountMetrics countMetrics = (TestCountMetrics) metrics;
+            if (countMetrics.entityId.equals("service-a") && countMetrics.getTimeBucket() == 202106011200L) {
+                Assert.assertEquals(3, countMetrics.getValue());
+            }
+            total += countMetrics.getValue();
+        }
+        Assert.assertEquals(10, total);
+
+        // The table has been cleared.
+        received.clear();
+        worker.flushExpired(System.currentTimeMillis() + 120_000);
+        Assert.assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testFlushWhenFull() {
+        MetricsPreAggregateWorker worker = new MetricsPreAggregateWorker(null, nextWorker, 2, 60_000);
+        worker.in(newMetrics("service-a", 202106011200L, 1));
+        worker.in(newMetrics("service-a", 202106011200L, 1));
+        Assert.assertTrue(received.isEmpty());
+
+        worker.in(newMetrics("service-b", 202106011200L, 1));
+        Assert.assertEquals(2, received.size());
+
+        worker.in(newMetrics("service-c", 202106011200L, 1));
+        Assert.assertEquals(2, received.size());
+    }
+
+    @Test
+    public void testFlushInDispatcherThreadWhenExpired() {
+        MetricsPreAggregateWorker worker = new MetricsPreAggregateWorker(null, nextWorker, 100, 0);
+        worker.in(newMetrics("service-a", 202106011200L, 1));
+        Assert.assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testDropTableOfDeadThread() throws InterruptedException {
+        MetricsPreAggregateWorker worker = new MetricsPreAggregateWorker(null, nextWorker, 100, 60_000);
+        Thread dispatcher = new Thread(() -> worker.in(newMetrics("service-a", 202106011200L, 1)));
+        dispatcher.start();
+        dispatcher.join();
+        Assert.assertEquals(1, worker.tableCount());
+
+        // Not expired, but flushed as no one adds to the table anymore.
+        worker.flushExpired(System.currentTimeMillis());
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals(0, worker.tableCount());
+    }
+
+    static TestCountMetrics newMetrics(String entityId, long timeBucket, long count) {
+        TestCountMetrics metrics = new TestCountMetrics();
+        metrics.entityId = entityId;
+        metrics.setTimeBucket(timeBucket);
+        metrics.combine(count);
+        return metrics;
+    }
+
+    static class TestCountMetrics extends CountMetrics {
+        private String entityId;
+
+        @Override
+        protected String id0() {
+            return getTimeBucket() + "_" + entityId;
+        }
+
+        @Override
+        public Metrics toHour() {
+            return null;
+        }
+
+        @Override
+        public Metrics toDay() {
+            return null;
+        }
+
+        @Override
+        public void deserialize(RemoteDataOrBuilder remoteData) {
+        }
+
+        @Override
+        public RemoteData.Builder serialize() {
+            return null;
+        }
+
+        @Override
+        public int remoteHashCode() {
+            return entityId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            TestCountMetrics that = (TestCountMetrics) o;
+            return getTimeBucket() == that.getTimeBucket() && Objects.equals(entityId, that.entityId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityId, getTimeBucket());
+        }
+    }
+}
@@ -37,6 +37,31 @@ public class ProfileAnalyzerTest {
         }
     }
 
+    @Test
+    public void testAnalyzeIncrementally() throws IOException {
+        ProfileStackAnalyzeHolder holder = loadYaml("thread-snapshot.yml", ProfileStackAnalyzeHolder.class);
+
+        for (ProfileStackAnalyze analyze : holder.getList()) {
+            // the incremental analysis has no limit of the analyzed snapshots
+            if (analyze.getData().getSnapshots().size() > MAX_ANALYZE_COUNT) {
+                continue;
+            }
+            analyze.analyzeIncrementallyAndAssert();
+        }
+    }
+
+    @Test
+    public void testNotCacheIncompletePage() throws IOException {
+        ProfileStackAnalyzeHolder holder = loadYaml("thread-snapshot.yml", ProfileStackAnalyzeHolder.class);
+
+        for (ProfileStackAnalyze analyze : holder.getList()) {
+            if (analyze.getData().getSnapshots().size() > MAX_ANALYZE_COUNT) {
+                continue;
+            }
+            analyze.analyzeIncrementallyWithLateSnapshotAndAssert();
+        }
+    }
+
     private <T> T loadYaml(String file, Class<T> cls) {
         InputStream expectedInputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(file);
         return new Yaml().loadAs(expectedInputStream, cls);
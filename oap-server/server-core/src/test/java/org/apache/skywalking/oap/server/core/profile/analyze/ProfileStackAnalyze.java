@@ -52,6 +52,44 @@ public class ProfileStackAnalyze {
         }
     }
 
+    public void analyzeIncrementallyAndAssert() throws IOException {
+        List<ProfileThreadSnapshotRecord> stacks = data.transformSnapshots();
+        final List<ProfileAnalyzeTimeRange> ranges = data.transformTimeRanges();
+
+        ProfileAnalyzer analyzer = new ProfileAnalyzer(null, 2, 0, true, 100);
+        analyzer.profileThreadSnapshotQueryDAO = new ThreadSnapshotDAO(stacks);
+        // the second analysis reuses the cached page tries
+        for (int round = 0; round < 2; round++) {
+            List<ProfileStackTree> trees = analyzer.analyze(null, ranges).getTrees();
+
+            assertNotNull(trees);
+            assertEquals(trees.size(), expected.size());
+            for (int i = 0; i < trees.size(); i++) {
+                expected.get(i).verify(trees.get(i));
+            }
+        }
+    }
+
+    public void analyzeIncrementallyWithLateSnapshotAndAssert() throws IOException {
+        List<ProfileThreadSnapshotRecord> stacks = data.transformSnapshots();
+        final List<ProfileAnalyzeTimeRange> ranges = data.transformTimeRanges();
+
+        ProfileAnalyzer analyzer = new ProfileAnalyzer(null, 2, 0, true, 100);
+        ThreadSnapshotDAO dao = new ThreadSnapshotDAO(stacks);
+        analyzer.profileThreadSnapshotQueryDAO = dao;
+        // the first snapshot is not searchable in the first analysis, its page must not be cached
+        dao.hiddenSequence = stacks.get(0).getSequence();
+        analyzer.analyze(null, ranges);
+
+        dao.hiddenSequence = -1;
+        List<ProfileStackTree> trees = analyzer.analyze(null, ranges).getTrees();
+        assertNotNull(trees);
+        assertEquals(trees.size(), expected.size());
+        for (int i = 0; i < trees.size(); i++) {
+            expected.get(i).verify(trees.get(i));
+        }
+    }
+
     private ProfileAnalyzer buildAnalyzer(List<ProfileThreadSnapshotRecord> stacks, int maxAnalyzeCount) throws IOException {
         ProfileAnalyzer analyzer = new ProfileAnalyzer(null, 2, maxAnalyzeCount);
         analyzer.profileThreadSnapshotQueryDAO = new ThreadSnapshotDAO(stacks);
@@ -61,6 +99,7 @@ public class ProfileStackAnalyze {
     static class ThreadSnapshotDAO implements IProfileThreadSnapshotQueryDAO {
 
         private final List<ProfileThreadSnapshotRecord> stacks;
+        private int hiddenSequence = -1;
 
         public ThreadSnapshotDAO(List<ProfileThreadSnapshotRecord> stacks) {
             this.stacks = stacks;
@@ -96,6 +135,7 @@ public class ProfileStackAnalyze {
             return stacks.stream()
                     .filter(s -> s.getSequence() >= minSequence)
                     .filter(s -> s.getSequence() < maxSequence)
+                    .filter(s -> s.getSequence() != hiddenSequence)
                     .collect(Collectors.toList());
         }
 
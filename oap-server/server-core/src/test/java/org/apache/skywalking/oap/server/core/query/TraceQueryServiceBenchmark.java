@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.apm.network.common.v3.KeyStringValuePair;
+import org.apache.skywalking.apm.network.language.agent.v3.RefType;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentReference;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanType;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
+import org.apache.skywalking.oap.server.core.config.IComponentLibraryCatalogService;
+import org.apache.skywalking.oap.server.core.query.type.Span;
+import org.apache.skywalking.oap.server.core.query.type.Trace;
+import org.apache.skywalking.oap.server.core.storage.query.ITraceQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.powermock.reflect.Whitebox;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The trace query of the synthetic traces of {@link #SPANS} spans, such as the batch jobs and the fan-out calls.
+ * Every segment is the child of a random span of the previous segments, and every span in the segment is the child of
+ * a random previous span of the segment.
+ *
+ * `assemble` and `assembleLegacy` compare the span tree assembly with the recursive search used before, which is
+ * quadratic to the number of spans. `queryTrace` is the whole query, parsing the segments sequentially when there is
+ * 1 segment per trace, and in parallel when there are 1000.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class TraceQueryServiceBenchmark {
+    private static final int SPANS = 10_000;
+    private static final String TRACE_ID = "trace";
+
+    @Param({
+        "1",
+        "1000"
+    })
+    private int segments;
+
+    private TraceQueryService service;
+    private List<Span> spans;
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(SPANS);
+        final int spansPerSegment = SPANS / segments;
+        final List<SegmentRecord> records = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            records.add(newSegmentRecord(random, i, spansPerSegment));
+        }
+
+        final ITraceQueryDAO traceQueryDAO = mock(ITraceQueryDAO.class);
+        doReturn(records).when(traceQueryDAO).queryByTraceId(TRACE_ID);
+        service = new TraceQueryService(mock(ModuleManager.class), new CoreModuleConfig());
+        Whitebox.setInternalState(service, "traceQueryDAO", traceQueryDAO);
+        Whitebox.setInternalState(service, "componentLibraryCatalogService", new ComponentLibraryCatalog());
+
+        spans = service.buildSpans(records);
+    }
+
+    @Benchmark
+    public List<Span> assemble() {
+        return TraceQueryService.sortSpans(spans);
+    }
+
+    @Benchmark
+    public List<Span> assembleLegacy() {
+        final List<Span> sortedSpans = new ArrayList<>();
+        final List<Span> rootSpans = new ArrayList<>();
+        spans.forEach(span -> {
+            boolean hasParent = false;
+            for (Span subSpan : spans) {
+                if (span.getSegmentParentSpanId().equals(subSpan.getSegmentSpanId())) {
+                    hasParent = true;
+                    break;
+                }
+            }
+            if (!hasParent) {
+                span.setRoot(true);
+                rootSpans.add(span);
+            }
+        });
+        rootSpans.sort(Comparator.comparing(Span::getStartTime));
+        rootSpans.forEach(span -> {
+            sortedSpans.add(span);
+            findChildren(span, sortedSpans);
+        });
+        return sortedSpans;
+    }
+
+    private void findChildren(Span parentSpan, List<Span> childrenSpan) {
+        spans.forEach(span -> {
+            if (span.getSegmentParentSpanId().equals(parentSpan.getSegmentSpanId())) {
+                childrenSpan.add(span);
+                findChildren(span, childrenSpan);
+            }
+        });
+    }
+
+    @Benchmark
+    public Trace queryTrace() throws IOException {
+        return service.queryTrace(TRACE_ID);
+    }
+
+    private static SegmentRecord newSegmentRecord(Random random, int index, int spansPerSegment) {
+        final long start = 1622621111000L + index;
+        final SegmentObject.Builder segment = SegmentObject.newBuilder()
+                                                           .setTraceId(TRACE_ID)
+                                                           .setTraceSegmentId("segment-" + index)
+                                                           .setService("service-" + index % 20)
+                                                           .setServiceInstance("instance-" + index % 100);
+        for (int i = 0; i < spansPerSegment; i++) {
+            final SpanObject.Builder span = SpanObject.newBuilder()
+                                                      .setSpanId(i)
+                                                      .setParentSpanId(i == 0 ? -1 : random.nextInt(i))
+                                                      .setStartTime(start + i)
+                                                      .setEndTime(start + i + random.nextInt(100))
+                                                      .setSpanType(i == 0 ? SpanType.Entry : SpanType.Exit)
+                                                      .setOperationName("/api/v1/batch/step" + i % 50)
+                                                      .setPeer("service-" + random.nextInt(20) + ":8080")
+                                                      .setComponentId(1)
+                                                      .addTags(KeyStringValuePair.newBuilder()
+                                                                                 .setKey("http.method")
+                                                                                 .setValue("GET"));
+            if (i == 0 && index > 0) {
+                span.addRefs(SegmentReference.newBuilder()
+                                             .setRefType(RefType.CrossProcess)
+                                             .setTraceId(TRACE_ID)
+                                             .setParentTraceSegmentId("segment-" + random.nextInt(index))
+                                             .setParentSpanId(random.nextInt(spansPerSegment)));
+            }
+            segment.addSpans(span);
+        }
+        final SegmentRecord record = new SegmentRecord();
+        record.setTraceId(TRACE_ID);
+        record.setSegmentId(segment.getTraceSegmentId());
+        record.setDataBinary(segment.build().toByteArray());
+        return record;
+    }
+
+    private static class ComponentLibraryCatalog implements IComponentLibraryCatalogService {
+        @Override
+        public int getComponentId(final String componentName) {
+            return 1;
+        }
+
+        @Override
+        public int getServerIdBasedOnComponent(final int componentId) {
+            return 0;
+        }
+
+        @Override
+        public String getComponentName(final int componentId) {
+            return "SpringMVC";
+        }
+
+        @Override
+        public String getServerNameBasedOnComponent(final int componentId) {
+            return "N/A";
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(TraceQueryServiceBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.core.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.skywalking.apm.network.language.agent.v3.RefType;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentObject;
+import org.apache.skywalking.apm.network.language.agent.v3.SegmentReference;
+import org.apache.skywalking.apm.network.language.agent.v3.SpanObject;
+import org.apache.skywalking.oap.server.core.Const;
+import org.apache.skywalking.oap.server.core.CoreModuleConfig;
+import org.apache.skywalking.oap.server.core.analysis.manual.segment.SegmentRecord;
+import org.apache.skywalking.oap.server.core.config.IComponentLibraryCatalogService;
+import org.apache.skywalking.oap.server.core.query.type.Span;
+import org.apache.skywalking.oap.server.core.query.type.Trace;
+import org.apache.skywalking.oap.server.core.storage.query.ITraceQueryDAO;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TraceQueryServiceTest {
+    private ITraceQueryDAO traceQueryDAO;
+    private IComponentLibraryCatalogService componentLibraryCatalogService;
+
+    @Before
+    public void setUp() {
+        traceQueryDAO = mock(ITraceQueryDAO.class);
+        componentLibraryCatalogService = mock(IComponentLibraryCatalogService.class);
+        doReturn("SpringMVC").when(componentLibraryCatalogService).getComponentName(anyInt());
+    }
+
+    @Test
+    public void testSortSpans() {
+        final List<Span> spans = Arrays.asList(
+            newSpan("s1", 2, 1, 110),
+            newSpan("s2", 0, "s1", 3, 130),
+            newSpan("s1", 0, -1, 100),
+            newSpan("s1", 1, 0, 105),
+            newSpan("s1", 3, 0, 120),
+            // Segment fragment of the lost parent, starts before s1.
+            newSpan("s3", 0, "lost", 1, 90)
+        );
+
+        final List<Span> sortedSpans = TraceQueryService.sortSpans(spans);
+
+        Assert.assertEquals(
+            Arrays.asList("s3S0", "s1S0", "s1S1", "s1S2", "s1S3", "s2S0"),
+            sortedSpans.stream().map(Span::getSegmentSpanId).collect(Collectors.toList())
+        );
+        Assert.assertTrue(sortedSpans.get(0).isRoot());
+        Assert.assertTrue(sortedSpans.get(1).isRoot());
+        Assert.assertFalse(sortedSpans.get(5).isRoot());
+    }
+
+    @Test
+    public void testSortSpansWithLoop() {
+        // Corrupted data, the span is its own parent and shares the ID with the root span.
+        final List<Span> spans = Arrays.asList(
+            newSpan("s1", 0, -1, 100),
+            newSpan("s1", 0, 0, 100)
+        );
+
+        Assert.assertEquals(2, TraceQueryService.sortSpans(spans).size());
+    }
+
+    @Test
+    public void testQueryTraceInParallel() throws IOException {
+        final int segments = TraceQueryService.PARALLEL_PARSE_THRESHOLD * 2;
+        final List<SegmentRecord> records = new ArrayList<>();
+        for (int i = segments - 1; i >= 0; i--) {
+            records.add(newSegmentRecord("trace", i));
+        }
+        doReturn(records).when(traceQueryDAO).queryByTraceId("trace");
+
+        final Trace trace = newService(new CoreModuleConfig()).queryTrace("trace");
+
+        // Every segment is the child of the previous one, the trace is a chain of 2 spans per segment.
+        Assert.assertEquals(segments * 2, trace.getSpans().size());
+        for (int i = 0; i < segments; i++) {
+            Assert.assertEquals("segment-" + i, trace.getSpans().get(i * 2).getSegmentId());
+            Assert.assertEquals(0, trace.getSpans().get(i * 2).getSpanId());
+            Assert.assertEquals(1, trace.getSpans().get(i * 2 + 1).getSpanId());
+        }
+    }
+
+    @Test
+    public void testTraceCache() throws IOException {
+        doReturn(Arrays.asList(newSegmentRecord("trace", 0), newSegmentRecord("trace", 1)))
+            .when(traceQueryDAO).queryByTraceId("trace");
+        final CoreModuleConfig config = new CoreModuleConfig();
+        Whitebox.setInternalState(config, "traceQueryCacheSize", 10L);
+        final TraceQueryService service = newService(config);
+
+        final Trace trace = service.queryTrace("trace");
+        Assert.assertEquals(4, trace.getSpans().size());
+        // The caller changing the returned trace doesn't change the cached one.
+        trace.getSpans().clear();
+        final Trace cached = service.queryTrace("trace");
+        Assert.assertNotSame(trace, cached);
+        Assert.assertEquals(4, cached.getSpans().size());
+        verify(traceQueryDAO, times(1)).queryByTraceId("trace");
+
+        // The trace not found is not cached.
+        doReturn(new ArrayList<>()).when(traceQueryDAO).queryByTraceId("absent");
+        doReturn(new ArrayList<>()).when(traceQueryDAO).doFlexibleTraceQuery("absent");
+        service.queryTrace("absent");
+        service.queryTrace("absent");
+        verify(traceQueryDAO, times(2)).queryByTraceId("absent");
+    }
+
+    private TraceQueryService newService(CoreModuleConfig config) {
+        final TraceQueryService service = new TraceQueryService(mock(ModuleManager.class), config);
+        Whitebox.setInternalState(service, "traceQueryDAO", traceQueryDAO);
+        Whitebox.setInternalState(service, "componentLibraryCatalogService", componentLibraryCatalogService);
+        return service;
+    }
+
+    private static Span newSpan(String segmentId, int spanId, int parentSpanId, long startTime) {
+        return newSpan(segmentId, spanId, segmentId, parentSpanId, startTime);
+    }
+
+    private static Span newSpan(String segmentId, int spanId, String parentSegmentId, int parentSpanId,
+                                long startTime) {
+        final Span span = new Span();
+        span.setSegmentId(segmentId);
+        span.setSpanId(spanId);
+        span.setStartTime(startTime);
+        span.setSegmentSpanId(segmentId + Const.SEGMENT_SPAN_SPLIT + spanId);
+        span.setSegmentParentSpanId(parentSegmentId + Const.SEGMENT_SPAN_SPLIT + parentSpanId);
+        return span;
+    }
+
+    /**
+     * The segment of 2 spans, its entry span is the child of the exit span of the previous segment.
+     */
+    private static SegmentRecord newSegmentRecord(String traceId, int index) {
+        final SpanObject.Builder entry = SpanObject.newBuilder()
+                                                   .setSpanId(0)
+                                                   .setParentSpanId(-1)
+                                                   .setStartTime(1000 + index);
+        if (index > 0) {
+            entry.addRefs(SegmentReference.newBuilder()
+                                          .setRefType(RefType.CrossProcess)
+                                          .setTraceId(traceId)
+                                          .setParentTraceSegmentId("segment-" + (index - 1))
+                                          .setParentSpanId(1));
+        }
+        final SegmentObject segment = SegmentObject.newBuilder()
+                                                   .setTraceId(traceId)
+                                                   .setTraceSegmentId("segment-" + index)
+                                                   .addSpans(entry)
+                                                   .addSpans(SpanObject.newBuilder()
+                                                                       .setSpanId(1)
+                                                                       .setParentSpanId(0)
+                                                                       .setStartTime(1000 + index))
+                                                   .build();
+        final SegmentRecord record = new SegmentRecord();
+        record.setTraceId(traceId);
+        record.setSegmentId(segment.getTraceSegmentId());
+        record.setDataBinary(segment.toByteArray());
+        return record;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.BatchRemoteMessage;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteDataOrBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchRemoteMessageCodecTest {
+
+    @Test
+    public void testEncodeAndDecode() throws InvalidProtocolBufferException {
+        List<RemoteData> origin = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            origin.add(RemoteData.newBuilder()
+                                 .addDataStrings("entity-" + i % 3)
+                                 .addDataStrings("")
+                                 .addDataLongs(202107011200L)
+                                 .addDataLongs(i)
+                                 .addDataDoubles(i * 1.5)
+                                 .addDataIntegers(i)
+                                 .addDataObjectStrings("1,2|3,4")
+                                 .build());
+        }
+        // The data without any field.
+        origin.add(RemoteData.newBuilder().build());
+        origin.add(RemoteData.newBuilder().addDataLongs(1).build());
+
+        BatchRemoteMessageCodec.Encoder encoder = new BatchRemoteMessageCodec.Encoder("worker");
+        origin.forEach(encoder::add);
+        Assert.assertEquals(origin.size(), encoder.size());
+
+        BatchRemoteMessage message = BatchRemoteMessage.parseFrom(encoder.build().toByteArray());
+        Assert.assertEquals("worker", message.getNextWorkerName());
+        // 3 entity IDs, the empty string and the object string.
+        Assert.assertEquals(5, message.getStringDictionaryCount());
+
+        List<RemoteData> decoded = new ArrayList<>();
+        BatchRemoteMessageCodec.decode(message, data -> decoded.add(copyOf(data)));
+        Assert.assertEquals(origin, decoded);
+    }
+
+    @Test
+    public void testEncodeSerializedBuilder() throws InvalidProtocolBufferException {
+        RemoteData.Builder serialized = RemoteData.newBuilder().addDataStrings("entity").addDataLongs(1);
+        BatchRemoteMessageCodec.Encoder encoder = new BatchRemoteMessageCodec.Encoder("worker");
+        encoder.add(serialized);
+        encoder.add(serialized);
+
+        BatchRemoteMessage message = BatchRemoteMessage.parseFrom(encoder.build().toByteArray());
+        List<RemoteData> decoded = new ArrayList<>();
+        BatchRemoteMessageCodec.decode(message, data -> decoded.add(copyOf(data)));
+        Assert.assertEquals(2, decoded.size());
+        Assert.assertEquals(serialized.build(), decoded.get(0));
+        Assert.assertEquals(serialized.build(), decoded.get(1));
+    }
+
+    private static RemoteData copyOf(RemoteDataOrBuilder data) {
+        return RemoteData.newBuilder()
+                         .addAllDataStrings(data.getDataStringsList())
+                         .addAllDataLongs(data.getDataLongsList())
+                         .addAllDataDoubles(data.getDataDoublesList())
+                         .addAllDataIntegers(data.getDataIntegersList())
+                         .addAllDataObjectStrings(data.getDataObjectStringsList())
+                         .build();
+    }
+}
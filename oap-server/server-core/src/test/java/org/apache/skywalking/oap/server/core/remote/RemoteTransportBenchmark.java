@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.remote;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.BatchRemoteMessage;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteData;
+import org.apache.skywalking.oap.server.core.remote.grpc.proto.RemoteMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the client encoding, the wire bytes and the server decoding of the L1 aggregated metrics, between one {@link
+ * RemoteMessage} per metrics and the {@link BatchRemoteMessage}s.
+ */
+@BenchmarkMode({Mode.Throughput})
+@State(Scope.Benchmark)
+public class RemoteTransportBenchmark {
+    private static final String WORKER_NAME = "service_cpm_rec";
+
+    /**
+     * The number of distinct entities in the metrics.
+     */
+    @Param({
+        "10",
+        "1000"
+    })
+    private int entities;
+
+    /**
+     * The builders returned by {@link Serializable#serialize()}.
+     */
+    private List<RemoteData.Builder> metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = new ArrayList<>(1000);
+        for (int i = 0; i < 1000; i++) {
+            // Same as the serialized CPMMetrics.
+            metrics.add(RemoteData.newBuilder()
+                                  .addDataStrings("ZTJlLXNlcnZpY2UtcHJvdmlkZXI=.1_" + i % entities)
+                                  .addDataLongs(i)
+                                  .addDataLongs(i * 60L)
+                                  .addDataLongs(202107011200L));
+        }
+    }
+
+    @Benchmark
+    public void perMessage(Blackhole bh) throws InvalidProtocolBufferException {
+        for (RemoteData.Builder data : metrics) {
+            byte[] bytes = RemoteMessage.newBuilder()
+                                        .setNextWorkerName(WORKER_NAME)
+                                        .setRemoteData(data)
+                                        .build()
+                                        .toByteArray();
+            bh.consume(RemoteMessage.parseFrom(bytes).getRemoteData());
+        }
+    }
+
+    @Benchmark
+    public void batch(Blackhole bh) throws InvalidProtocolBufferException {
+        BatchRemoteMessageCodec.Encoder encoder = null;
+        for (RemoteData.Builder data : metrics) {
+            if (encoder == null) {
+                encoder = new BatchRemoteMessageCodec.Encoder(WORKER_NAME);
+            }
+            encoder.add(data);
+            if (encoder.size() >= 500) {
+                transfer(encoder, bh);
+                encoder = null;
+            }
+        }
+        if (encoder != null) {
+            transfer(encoder, bh);
+        }
+    }
+
+    private void transfer(BatchRemoteMessageCodec.Encoder encoder, Blackhole bh) throws InvalidProtocolBufferException {
+        byte[] bytes = encoder.build().toByteArray();
+        BatchRemoteMessageCodec.decode(BatchRemoteMessage.parseFrom(bytes), bh::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RemoteTransportBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .jvmArgsAppend("-Xmx512m", "-Xms512m")
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
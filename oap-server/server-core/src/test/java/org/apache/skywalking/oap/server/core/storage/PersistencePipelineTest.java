@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.core.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.skywalking.oap.server.core.analysis.worker.MetricsPersistentWorker;
+import org.apache.skywalking.oap.server.core.analysis.worker.PersistenceWorker;
+import org.apache.skywalking.oap.server.library.client.request.InsertRequest;
+import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class PersistencePipelineTest {
+
+    @Test(timeout = 10000)
+    public void testSlowWorkerNotBlockOthers() throws Exception {
+        final CountDownLatch slowWorkerRelease = new CountDownLatch(1);
+        final CountDownLatch fastWorkerFlushed = new CountDownLatch(2);
+        final List<PrepareRequest> flushed = Collections.synchronizedList(new ArrayList<>());
+
+        final PrepareRequest slowRequest = mock(PrepareRequest.class);
+        final PrepareRequest fastRequest = mock(PrepareRequest.class);
+        final MetricsPersistentWorker slowWorker = mock(MetricsPersistentWorker.class);
+        doAnswer(invocation -> {
+            slowWorkerRelease.await();
+            return Collections.singletonList(slowRequest);
+        }).when(slowWorker).buildBatchRequests();
+        final MetricsPersistentWorker fastWorker = mock(MetricsPersistentWorker.class);
+        doAnswer(invocation -> Collections.singletonList(fastRequest)).when(fastWorker).buildBatchRequests();
+
+        final IBatchDAO batchDAO = new IBatchDAO() {
+            @Override
+            public void insert(InsertRequest insertRequest) {
+            }
+
+            @Override
+            public void flush(List<PrepareRequest> prepareRequests) {
+                flushed.addAll(prepareRequests);
+                if (prepareRequests.contains(fastRequest)) {
+                    fastWorkerFlushed.countDown();
+                }
+            }
+        };
+        final List<PersistenceWorker<? extends StorageData>> workers = Arrays.asList(slowWorker, fastWorker);
+        final MetricsCreatorNoop metricsCreator = new MetricsCreatorNoop();
+        final PersistencePipeline pipeline = new PersistencePipeline(
+            batchDAO, () -> workers, 100, 2, 1, metricsCreator,
+            metricsCreator.createHistogramMetric("prepare", "", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE),
+            metricsCreator.createHistogramMetric("execute", "", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE),
+            metricsCreator.createCounter("error", "", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE)
+        );
+
+        // The fast worker persists twice, while the round of the slow worker is still in flight.
+        while (!fastWorkerFlushed.await(20, TimeUnit.MILLISECONDS)) {
+            pipeline.schedule();
+        }
+        Assert.assertFalse(flushed.contains(slowRequest));
+        // At most one round of the slow worker is in flight.
+        verify(slowWorker, times(1)).buildBatchRequests();
+
+        slowWorkerRelease.countDown();
+        while (!flushed.contains(slowRequest)) {
+            pipeline.schedule();
+            Thread.sleep(20);
+        }
+    }
+}
@@ -21,12 +21,15 @@ package org.apache.skywalking.oap.server.analyzer.agent.kafka;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -44,11 +47,18 @@ import org.apache.kafka.common.utils.Bytes;
 import org.apache.skywalking.apm.util.StringUtil;
 import org.apache.skywalking.oap.server.analyzer.agent.kafka.module.KafkaFetcherConfig;
 import org.apache.skywalking.oap.server.analyzer.agent.kafka.provider.handler.KafkaHandler;
+import org.apache.skywalking.oap.server.library.module.ModuleManager;
 import org.apache.skywalking.oap.server.library.module.ModuleStartException;
 import org.apache.skywalking.oap.server.library.server.pool.CustomThreadFactory;
+import org.apache.skywalking.oap.server.telemetry.TelemetryModule;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
 
 /**
  * Configuring and initializing a KafkaConsumer client as a dispatcher to delivery Kafka Message to registered handler by topic.
+ *
+ * When {@link KafkaFetcherConfig#getKafkaConsumers()} is positive, the partitions are consumed by that number of
+ * {@link KafkaPartitionConsumer}s in parallel instead, every one handles the records of its partitions in batches and
+ * commits the offsets after the batches are handled.
  */
 @Slf4j
 public class KafkaFetcherHandlerRegister implements Runnable {
@@ -65,11 +75,14 @@ public class KafkaFetcherHandlerRegister implements Runnable {
     private int threadPoolQueueSize = 10000;
     private final ThreadPoolExecutor executor;
     private final boolean enableKafkaMessageAutoCommit;
+    private final Properties properties;
+    private final List<KafkaPartitionConsumer> partitionConsumers = new ArrayList<>();
+    private ExecutorService consumerExecutor;
 
     public KafkaFetcherHandlerRegister(KafkaFetcherConfig config) throws ModuleStartException {
         this.config = config;
 
-        Properties properties = new Properties();
+        properties = new Properties();
         properties.putAll(config.getKafkaConsumerConfig());
         properties.setProperty(ConsumerConfig.GROUP_ID_CONFIG, config.getGroupId());
         properties.setProperty(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getBootstrapServers());
@@ -126,6 +139,14 @@ public class KafkaFetcherHandlerRegister implements Runnable {
             threadPoolQueueSize = config.getKafkaHandlerThreadPoolQueueSize();
         }
 
+        if (config.getKafkaConsumers() > 0) {
+            // The offsets are committed by the partition consumers after the records are handled.
+            properties.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+            enableKafkaMessageAutoCommit = false;
+            executor = null;
+            return;
+        }
+
         enableKafkaMessageAutoCommit = (boolean) properties.getOrDefault(
             ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
         consumer = new KafkaConsumer<>(properties, new StringDeserializer(), new BytesDeserializer());
@@ -142,8 +163,12 @@ public class KafkaFetcherHandlerRegister implements Runnable {
         topicPartitions.addAll(handler.getTopicPartitions());
     }
 
-    public void start() {
+    public void start(ModuleManager moduleManager) {
         handlerMap = builder.build();
+        if (config.getKafkaConsumers() > 0) {
+            startPartitionConsumers(moduleManager);
+            return;
+        }
         if (isSharding) {
             consumer.assign(topicPartitions);
         } else {
@@ -153,6 +178,55 @@ public class KafkaFetcherHandlerRegister implements Runnable {
         executor.submit(this);
     }
 
+    /**
+     * Start the partition consumers. In sharding mode, the configured partitions are assigned to the consumers in
+     * turn, otherwise, the consumers subscribe the topics in the same group, and Kafka balances the partitions.
+     */
+    private void startPartitionConsumers(ModuleManager moduleManager) {
+        final MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                                                           .provider()
+                                                           .getService(MetricsCreator.class);
+        final int consumers = isSharding
+            ? Math.min(config.getKafkaConsumers(), topicPartitions.size())
+            : config.getKafkaConsumers();
+        consumerExecutor = Executors.newFixedThreadPool(
+            consumers, new CustomThreadFactory("KafkaPartitionConsumer"));
+        for (int i = 0; i < consumers; i++) {
+            final KafkaConsumer<String, Bytes> partitionConsumer = new KafkaConsumer<>(
+                properties, new StringDeserializer(), new BytesDeserializer());
+            final KafkaPartitionConsumer kafkaPartitionConsumer = new KafkaPartitionConsumer(
+                partitionConsumer, handlerMap, metricsCreator);
+            if (isSharding) {
+                final List<TopicPartition> partitions = new ArrayList<>();
+                for (int j = i; j < topicPartitions.size(); j += consumers) {
+                    partitions.add(topicPartitions.get(j));
+                }
+                partitionConsumer.assign(partitions);
+            } else {
+                // Zero the lag of the partitions revoked by the rebalance.
+                partitionConsumer.subscribe(handlerMap.keySet(), kafkaPartitionConsumer);
+            }
+            partitionConsumers.add(kafkaPartitionConsumer);
+            consumerExecutor.submit(kafkaPartitionConsumer);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownPartitionConsumers));
+    }
+
+    /**
+     * Stop the partition consumers, which close their Kafka consumers, and the threads running them.
+     */
+    void shutdownPartitionConsumers() {
+        partitionConsumers.forEach(KafkaPartitionConsumer::shutdown);
+        consumerExecutor.shutdown();
+        try {
+            if (!consumerExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Kafka partition consumers are not stopped in 10 seconds.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public void run() {
         while (true) {
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.analyzer.agent.kafka;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.skywalking.oap.server.analyzer.agent.kafka.provider.handler.KafkaHandler;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsCreator;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+
+/**
+ * KafkaPartitionConsumer polls the partitions owned by its consumer in one thread. The records of every polled
+ * partition are handed to the handler of the topic in one batch, in the order of the offsets, and the offsets are
+ * committed after the batches are processed, so the records are kept in Kafka until they are handled. The lag of every
+ * owned partition is reported periodically, and zeroed once the partition is revoked by the rebalance, as it is
+ * reported by the new owner. The consumer is closed once {@link #shutdown()} stops the loop.
+ */
+@Slf4j
+class KafkaPartitionConsumer implements Runnable, ConsumerRebalanceListener {
+    private static final long LAG_REPORT_PERIOD = 10_000;
+
+    private final Consumer<String, Bytes> consumer;
+    private final Map<String, KafkaHandler> handlerMap;
+    private final MetricsCreator metricsCreator;
+    private final Map<TopicPartition, GaugeMetrics> lagGauges = new HashMap<>();
+    private long lastLagReport;
+    private volatile boolean running = true;
+
+    KafkaPartitionConsumer(Consumer<String, Bytes> consumer,
+                           Map<String, KafkaHandler> handlerMap,
+                           MetricsCreator metricsCreator) {
+        this.consumer = consumer;
+        this.handlerMap = handlerMap;
+        this.metricsCreator = metricsCreator;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    ConsumerRecords<String, Bytes> consumerRecords = consumer.poll(Duration.ofMillis(500L));
+                    if (!consumerRecords.isEmpty()) {
+                        process(consumerRecords);
+                    }
+                    reportLag(System.currentTimeMillis());
+                } catch (WakeupException e) {
+                    // Woken up by the shutdown, the loop checks the running flag.
+                } catch (Exception e) {
+                    log.error("Kafka handle message error.", e);
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+    }
+
+    /**
+     * Stop the poll loop, the consumer is closed by the consuming thread.
+     */
+    void shutdown() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    /**
+     * Handle the records partition by partition, and commit the offsets of the handled partitions.
+     */
+    void process(ConsumerRecords<String, Bytes> consumerRecords) {
+        final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        try {
+            for (final TopicPartition partition : consumerRecords.partitions()) {
+                final List<ConsumerRecord<String, Bytes>> records = consumerRecords.records(partition);
+                try {
+                    handlerMap.get(partition.topic()).handle(records);
+                } catch (Exception e) {
+                    // Just avoid one batch failure blocks the partition, as the records failing in the handler.
+                    log.error("Kafka handle the records of {} error.", partition, e);
+                }
+                offsets.put(partition, new OffsetAndMetadata(records.get(records.size() - 1).offset() + 1));
+            }
+        } finally {
+            if (!offsets.isEmpty()) {
+                consumer.commitSync(offsets);
+            }
+        }
+    }
+
+    void reportLag(long now) {
+        if (now - lastLagReport < LAG_REPORT_PERIOD) {
+            return;
+        }
+        lastLagReport = now;
+
+        final Set<TopicPartition> assignment = consumer.assignment();
+        if (assignment.isEmpty()) {
+            return;
+        }
+        final Map<TopicPartition, Long> endOffsets = consumer.endOffsets(assignment);
+        for (final TopicPartition partition : assignment) {
+            final Long endOffset = endOffsets.get(partition);
+            if (endOffset != null) {
+                lagGauge(partition).setValue(Math.max(0, endOffset - consumer.position(partition)));
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        for (final TopicPartition partition : partitions) {
+            final GaugeMetrics lagGauge = lagGauges.get(partition);
+            if (lagGauge != null) {
+                lagGauge.setValue(0);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    }
+
+    private GaugeMetrics lagGauge(TopicPartition partition) {
+        return lagGauges.computeIfAbsent(partition, p -> metricsCreator.createGauge(
+            "kafka_fetcher_partition_lag", "The number of the records not consumed in the partition",
+            new MetricsTag.Keys("topic", "partition"),
+            new MetricsTag.Values(p.topic(), String.valueOf(p.partition()))
+        ));
+    }
+}
@@ -93,6 +93,15 @@ public class KafkaFetcherConfig extends ModuleConfig {
 
     private int kafkaHandlerThreadPoolQueueSize;
 
+    /**
+     * The number of the consumer threads. Every one consumes a part of the partitions, hands the records of a partition
+     * to the handler in batches, and commits the offsets after the batches are handled. 0 means one consumer dispatching
+     * every record to the handler thread pool.
+     *
+     * @since 8.7.0
+     */
+    private int kafkaConsumers = 0;
+
     private String namespace = "";
     
     private String mm2SourceAlias = "";
@@ -85,7 +85,7 @@ public class KafkaFetcherProvider extends ModuleProvider {
             handlerRegister.register(new JsonLogHandler(getManager(), config));
         }
 
-        handlerRegister.start();
+        handlerRegister.start(getManager());
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.Bytes;
 import org.apache.skywalking.apm.util.StringUtil;
+import org.slf4j.LoggerFactory;
 
 /**
  * A Handler for dealing Message reported by agent. It is binding to a topic of Kafka, and deserialize.
@@ -62,4 +63,19 @@ public interface KafkaHandler {
      */
     void handle(ConsumerRecord<String, Bytes> record);
 
+    /**
+     * Deserialize the records of one partition, in the order of the offsets, and push them to downstream. A record
+     * failing in the handler is logged and skipped, the others of the batch are still handled.
+     */
+    default void handle(List<ConsumerRecord<String, Bytes>> records) {
+        for (final ConsumerRecord<String, Bytes> record : records) {
+            try {
+                handle(record);
+            } catch (Exception e) {
+                LoggerFactory.getLogger(getClass()).error(
+                    "Kafka handle the record of {} at offset {} error.", record.topic(), record.offset(), e);
+            }
+        }
+    }
+
 }
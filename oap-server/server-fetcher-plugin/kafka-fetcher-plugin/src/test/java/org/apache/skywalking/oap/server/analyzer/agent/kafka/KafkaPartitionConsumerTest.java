@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.skywalking.oap.server.analyzer.agent.kafka;
+
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.skywalking.oap.server.analyzer.agent.kafka.provider.handler.KafkaHandler;
+import org.apache.skywalking.oap.server.telemetry.api.GaugeMetrics;
+import org.apache.skywalking.oap.server.telemetry.api.MetricsTag;
+import org.apache.skywalking.oap.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KafkaPartitionConsumerTest {
+    private static final String TOPIC = "skywalking-segments";
+
+    @Test
+    public void testHandleInBatchesAndCommit() {
+        TopicPartition p0 = new TopicPartition(TOPIC, 0);
+        TopicPartition p1 = new TopicPartition(TOPIC, 1);
+        MockConsumer<String, Bytes> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Arrays.asList(p0, p1));
+        Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        beginningOffsets.put(p0, 0L);
+        beginningOffsets.put(p1, 0L);
+        consumer.updateBeginningOffsets(beginningOffsets);
+        for (int i = 0; i < 3; i++) {
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, "k", Bytes.wrap(new byte[] {(byte) i})));
+        }
+        consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 0, "k", Bytes.wrap(new byte[] {0})));
+
+        RecordingHandler handler = new RecordingHandler();
+        KafkaPartitionConsumer partitionConsumer = new KafkaPartitionConsumer(
+            consumer, ImmutableMap.of(TOPIC, handler), new MetricsCreatorNoop());
+        partitionConsumer.process(consumer.poll(Duration.ofMillis(100)));
+
+        assertEquals(2, handler.batches.size());
+        assertEquals(4, handler.batches.stream().mapToInt(List::size).sum());
+        for (final List<ConsumerRecord<String, Bytes>> batch : handler.batches) {
+            for (int i = 0; i < batch.size(); i++) {
+                assertEquals(i, batch.get(i).offset());
+            }
+        }
+        assertEquals(3, consumer.committed(p0).offset());
+        assertEquals(1, consumer.committed(p1).offset());
+    }
+
+    @Test
+    public void testSkipFailedRecordByDefault() {
+        List<Long> handled = new ArrayList<>();
+        // Handle the batch by the default method.
+        KafkaHandler handler = new KafkaHandler() {
+            @Override
+            public String getConsumePartitions() {
+                return "";
+            }
+
+            @Override
+            public String getTopic() {
+                return TOPIC;
+            }
+
+            @Override
+            public void handle(final ConsumerRecord<String, Bytes> record) {
+                if (record.offset() == 1) {
+                    throw new IllegalStateException("broken record");
+                }
+                handled.add(record.offset());
+            }
+        };
+        List<ConsumerRecord<String, Bytes>> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            records.add(new ConsumerRecord<>(TOPIC, 0, i, "k", Bytes.wrap(new byte[] {(byte) i})));
+        }
+        handler.handle(records);
+
+        assertEquals(Arrays.asList(0L, 2L), handled);
+    }
+
+    @Test
+    public void testZeroLagOfRevokedPartition() {
+        TopicPartition p0 = new TopicPartition(TOPIC, 0);
+        TopicPartition p1 = new TopicPartition(TOPIC, 1);
+        MockConsumer<String, Bytes> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        Map<String, GaugeMetrics> lagGauges = new HashMap<>();
+        KafkaPartitionConsumer partitionConsumer = new KafkaPartitionConsumer(
+            consumer, ImmutableMap.of(TOPIC, new RecordingHandler()), new MetricsCreatorNoop() {
+                @Override
+                public GaugeMetrics createGauge(final String name, final String tips, final MetricsTag.Keys tagKeys,
+                                                final MetricsTag.Values tagValues) {
+                    GaugeMetrics gauge = new RecordingGauge();
+                    lagGauges.put(tagValues.getValues()[1], gauge);
+                    return gauge;
+                }
+            });
+        consumer.subscribe(Collections.singletonList(TOPIC), partitionConsumer);
+        consumer.rebalance(Arrays.asList(p0, p1));
+        consumer.updateBeginningOffsets(ImmutableMap.of(p0, 0L, p1, 0L));
+        consumer.updateEndOffsets(ImmutableMap.of(p0, 5L, p1, 3L));
+
+        partitionConsumer.reportLag(10_000);
+        assertEquals(5, lagGauges.get("0").getValue(), 0);
+        assertEquals(3, lagGauges.get("1").getValue(), 0);
+
+        // The mock consumer doesn't call the listener on the rebalance.
+        consumer.rebalance(Collections.singletonList(p1));
+        partitionConsumer.onPartitionsRevoked(Collections.singletonList(p0));
+        partitionConsumer.reportLag(20_000);
+        assertEquals(0, lagGauges.get("0").getValue(), 0);
+        assertEquals(3, lagGauges.get("1").getValue(), 0);
+    }
+
+    @Test(timeout = 10_000)
+    public void testShutdownClosesConsumer() throws InterruptedException {
+        MockConsumer<String, Bytes> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Arrays.asList(new TopicPartition(TOPIC, 0)));
+        consumer.updateBeginningOffsets(ImmutableMap.of(new TopicPartition(TOPIC, 0), 0L));
+        KafkaPartitionConsumer partitionConsumer = new KafkaPartitionConsumer(
+            consumer, ImmutableMap.of(TOPIC, new RecordingHandler()), new MetricsCreatorNoop());
+        Thread thread = new Thread(partitionConsumer);
+        thread.start();
+
+        partitionConsumer.shutdown();
+        thread.join();
+        assertTrue(consumer.closed());
+    }
+
+    private static class RecordingGauge implements GaugeMetrics {
+        private double value;
+
+        @Override
+        public void inc() {
+            value++;
+        }
+
+        @Override
+        public void inc(final double value) {
+            this.value += value;
+        }
+
+        @Override
+        public void dec() {
+            value--;
+        }
+
+        @Override
+        public void dec(final double value) {
+            this.value -= value;
+        }
+
+        @Override
+        public void setValue(final double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double getValue() {
+            return value;
+        }
+    }
+
+    private static class RecordingHandler implements KafkaHandler {
+        private final List<List<ConsumerRecord<String, Bytes>>> batches = new ArrayList<>();
+
+        @Override
+        public String getConsumePartitions() {
+            return "";
+        }
+
+        @Override
+        public String getTopic() {
+            return TOPIC;
+        }
+
+        @Override
+        public void handle(final ConsumerRecord<String, Bytes> record) {
+            batches.add(Arrays.asList(record));
+        }
+
+        @Override
+        public void handle(final List<ConsumerRecord<String, Bytes>> records) {
+            batches.add(records);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A batch SQL executor, executes a group of {@link SQLExecutor}s sharing the same SQL statement through JDBC
+ * `addBatch/executeBatch`. Each chunk of at most `maxBatchSize` statements is committed in one transaction. Once a
+ * chunk fails, it is rolled back and re-executed row by row, to avoid one execution failure makes the rest of chunk
+ * failure.
+ *
+ * Multiple rows `INSERT` statements are rewritten by the JDBC driver when it is enabled, such as
+ * `rewriteBatchedStatements` of MySQL/TiDB driver and `reWriteBatchedInserts` of PostgreSQL driver.
+ */
+public class BatchSQLExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchSQLExecutor.class);
+
+    private final String sql;
+    private final List<SQLExecutor> executors;
+
+    public BatchSQLExecutor(String sql, List<SQLExecutor> executors) {
+        this.sql = sql;
+        this.executors = executors;
+    }
+
+    public void invoke(Connection connection, int maxBatchSize) throws SQLException {
+        if (executors.size() == 1) {
+            executors.get(0).invoke(connection);
+            return;
+        }
+
+        final boolean autoCommit = connection.getAutoCommit();
+        try {
+            for (int from = 0; from < executors.size(); from += maxBatchSize) {
+                List<SQLExecutor> chunk = executors.subList(from, Math.min(from + maxBatchSize, executors.size()));
+                try {
+                    connection.setAutoCommit(false);
+                    executeChunk(connection, chunk);
+                    connection.commit();
+                } catch (SQLException e) {
+                    LOGGER.warn("execute sql in batch failed, fallback to row by row, sql: {}, size: {}, reason: {}",
+                                sql, chunk.size(), e.getMessage()
+                    );
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                    executeRowByRow(connection, chunk);
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void executeChunk(Connection connection, List<SQLExecutor> chunk) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (SQLExecutor executor : chunk) {
+                executor.setParameters(preparedStatement);
+                preparedStatement.addBatch();
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("execute sql in batch: {}, batch size: {}", sql, chunk.size());
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    private void executeRowByRow(Connection connection, List<SQLExecutor> chunk) {
+        for (SQLExecutor executor : chunk) {
+            try {
+                executor.invoke(connection);
+            } catch (SQLException e) {
+                // Just avoid one execution failure makes the rest of chunk failure.
+                LOGGER.error(e.getMessage(), e);
+            }
+        }
+    }
+}
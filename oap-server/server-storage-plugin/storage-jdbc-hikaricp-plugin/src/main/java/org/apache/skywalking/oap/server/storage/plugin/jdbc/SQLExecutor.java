@@ -43,15 +43,29 @@ public class SQLExecutor implements InsertRequest, UpdateRequest {
     }
 
     public void invoke(Connection connection) throws SQLException {
-        PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            setParameters(preparedStatement);
 
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("execute sql in batch: {}, parameters: {}", sql, param);
+            }
+            preparedStatement.execute();
+        }
+    }
+
+    /**
+     * Bind the parameters of this executor to the given statement, which must be prepared from {@link #getSql()}.
+     */
+    public void setParameters(PreparedStatement preparedStatement) throws SQLException {
         for (int i = 0; i < param.size(); i++) {
             preparedStatement.setObject(i + 1, param.get(i));
         }
+    }
 
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("execute sql in batch: {}, parameters: {}", sql, param);
-        }
-        preparedStatement.execute();
+    /**
+     * @return the SQL statement, executors with the same SQL share the statement shape and could be batched together.
+     */
+    public String getSql() {
+        return sql;
     }
 }
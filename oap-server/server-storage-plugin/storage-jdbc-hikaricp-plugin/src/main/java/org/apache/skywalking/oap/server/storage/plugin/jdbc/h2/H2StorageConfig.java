@@ -59,4 +59,11 @@ public class H2StorageConfig extends ModuleConfig {
      * @since 8.2.0
      */
     private int numOfSearchableValuesPerTag = 2;
+    /**
+     * The persistent requests sharing the same SQL statement are executed through JDBC batch, and committed in one
+     * transaction per chunk. This configuration controls the max size of statements in one chunk.
+     *
+     * @since 8.7.0
+     */
+    private int maxSizeOfBatchSql = 100;
 }
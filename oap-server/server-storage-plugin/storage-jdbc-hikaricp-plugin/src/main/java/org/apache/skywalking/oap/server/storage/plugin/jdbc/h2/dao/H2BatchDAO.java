@@ -20,7 +20,10 @@ package org.apache.skywalking.oap.server.storage.plugin.jdbc.h2.dao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.skywalking.apm.commons.datacarrier.DataCarrier;
 import org.apache.skywalking.apm.commons.datacarrier.consumer.BulkConsumePool;
@@ -33,15 +36,18 @@ import org.apache.skywalking.oap.server.library.client.jdbc.hikaricp.JDBCHikariC
 import org.apache.skywalking.oap.server.library.client.request.InsertRequest;
 import org.apache.skywalking.oap.server.library.client.request.PrepareRequest;
 import org.apache.skywalking.oap.server.library.util.CollectionUtils;
+import org.apache.skywalking.oap.server.storage.plugin.jdbc.BatchSQLExecutor;
 import org.apache.skywalking.oap.server.storage.plugin.jdbc.SQLExecutor;
 
 @Slf4j
 public class H2BatchDAO implements IBatchDAO {
     private JDBCHikariCPClient h2Client;
     private final DataCarrier<PrepareRequest> dataCarrier;
+    private final int maxSizeOfBatchSql;
 
-    public H2BatchDAO(JDBCHikariCPClient h2Client) {
+    public H2BatchDAO(JDBCHikariCPClient h2Client, int maxSizeOfBatchSql) {
         this.h2Client = h2Client;
+        this.maxSizeOfBatchSql = maxSizeOfBatchSql;
 
         String name = "H2_ASYNCHRONOUS_BATCH_PERSISTENT";
         BulkConsumePool.Creator creator = new BulkConsumePool.Creator(name, 1, 20);
@@ -65,13 +71,19 @@ public class H2BatchDAO implements IBatchDAO {
             log.debug("batch sql statements execute, data size: {}", prepareRequests.size());
         }
 
+        // Group the executors by SQL statement, the statement includes the table name, so one group targets one table.
+        Map<String, List<SQLExecutor>> groups = new LinkedHashMap<>();
+        for (PrepareRequest prepareRequest : prepareRequests) {
+            SQLExecutor sqlExecutor = (SQLExecutor) prepareRequest;
+            groups.computeIfAbsent(sqlExecutor.getSql(), sql -> new ArrayList<>()).add(sqlExecutor);
+        }
+
         try (Connection connection = h2Client.getConnection()) {
-            for (PrepareRequest prepareRequest : prepareRequests) {
+            for (Map.Entry<String, List<SQLExecutor>> group : groups.entrySet()) {
                 try {
-                    SQLExecutor sqlExecutor = (SQLExecutor) prepareRequest;
-                    sqlExecutor.invoke(connection);
+                    new BatchSQLExecutor(group.getKey(), group.getValue()).invoke(connection, maxSizeOfBatchSql);
                 } catch (SQLException e) {
-                    // Just avoid one execution failure makes the rest of batch failure.
+                    // Just avoid one group failure makes the rest of batch failure.
                     log.error(e.getMessage(), e);
                 }
             }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.skywalking.oap.server.storage.plugin.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchSQLExecutorTestCase {
+    private static final String INSERT_SQL = "INSERT INTO batch_test VALUES(?,?)";
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:batch-sql-executor-test;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE batch_test (id VARCHAR(64) PRIMARY KEY, val BIGINT)");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE batch_test");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testInvokeInChunks() throws SQLException {
+        List<SQLExecutor> executors = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            executors.add(new SQLExecutor(INSERT_SQL, Arrays.asList("id-" + i, (long) i)));
+        }
+
+        new BatchSQLExecutor(INSERT_SQL, executors).invoke(connection, 100);
+
+        Assert.assertEquals(250, count());
+        Assert.assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    public void testFallbackToRowByRow() throws SQLException {
+        List<SQLExecutor> executors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            executors.add(new SQLExecutor(INSERT_SQL, Arrays.asList("id-" + i, (long) i)));
+        }
+        // Duplicate primary key makes the whole chunk failure.
+        executors.add(new SQLExecutor(INSERT_SQL, Arrays.asList("id-0", 0L)));
+
+        new BatchSQLExecutor(INSERT_SQL, executors).invoke(connection, 100);
+
+        Assert.assertEquals(10, count());
+        Assert.assertTrue(connection.getAutoCommit());
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM batch_test")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}